@@ -22,6 +22,8 @@ package jp.co.metaease.com;
 import java.io.ByteArrayOutputStream;
 import java.io.UnsupportedEncodingException;
 import java.math.BigDecimal;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
 import java.util.ArrayList;
 //import java.util.HashMap;
 
@@ -53,6 +55,135 @@ public class StringUtil {
 		"ヴ", "ヵ", "ヶ"
 	};
 
+	/**
+	 * 全角記号データテーブルです。（zen2han、katakana）
+	 */
+	private static final String ZENKAKU_KIGOU =
+		"。「」、・ー゛゜\u3000！”＃＄％＆’（）＊＋，－．／：；＜＝＞？＠［￥］＾＿‘｛｜｝～";
+
+	/**
+	 * 全角記号データテーブルに対応する半角記号データテーブルです。（zen2han、katakana）
+	 */
+	private static final String HANKAKU_KIGOU =
+		"｡｢｣､･ｰﾞﾟ !\"#$%&'()*+,-./:;<=>?@[\\]^_`{|}~";
+
+	/**
+	 * 変換先が無いことを表す値です。（zen2han）
+	 */
+	private static final char ZEN2HAN_NONE = '\u0000';
+
+	/**
+	 * 全角→半角の変換テーブルです。文字コードを添字とし、変換後の文字を持ちます。（zen2han）
+	 * 半角文字はその文字自身、半角に変換できない全角文字は ZEN2HAN_NONE です。
+	 */
+	private static final char ZEN2HAN_TABLE[] = new char[Character.MAX_VALUE + 1];
+
+	/**
+	 * 全角カタカナ（'\u30a1'～'\u30f6'）を半角にした場合に続く濁点、半濁点のテーブルです。（zen2han）
+	 */
+	private static final char ZEN2HAN_DAKUTEN[] = new char['\u30f6' - '\u30a1' + 1];
+
+	static {
+		// 従来の1文字ずつの判定結果をすべての文字について事前に求めます。
+		// 全角文字かどうかはデフォルトの文字コードで2バイト以上になるかで判定します。
+		for (int i = 0; i <= Character.MAX_VALUE; i++) {
+
+			char c = (char) i;
+			String value = String.valueOf(c);
+
+			// 半角文字はそのまま
+			if (value.getBytes().length < 2) {
+				ZEN2HAN_TABLE[c] = c;
+
+				// 全角カタカナの場合は全角カタカナテーブルで最初に一致した値の半角カタカナ
+			} else if ('\u30a1' <= c && c <= '\u30f6') {
+				for (int l = 0; l < ZENKAKU_KATAKANA.length; l++) {
+					if (value.equals(ZENKAKU_KATAKANA[l])) {
+						ZEN2HAN_TABLE[c] = HANKAKU_KATAKANA[l].charAt(0);
+						if (HANKAKU_KATAKANA[l].length() == 2) {
+							ZEN2HAN_DAKUTEN[c - '\u30a1'] = HANKAKU_KATAKANA[l].charAt(1);
+						}
+						break;
+					}
+				}
+
+				// 全角数字、全角英字大文字、全角英字小文字は一律に 0xfee0 だけ前にシフトします。
+			} else if (('\uff10' <= c && c <= '\uff19')
+					|| ('\uff21' <= c && c <= '\uff3a')
+					|| ('\uff41' <= c && c <= '\uff5a')) {
+				ZEN2HAN_TABLE[c] = (char) (c - 0xfee0);
+
+				// 全角記号の場合
+			} else if (ZENKAKU_KIGOU.indexOf(c) >= 0) {
+				ZEN2HAN_TABLE[c] = HANKAKU_KIGOU.charAt(ZENKAKU_KIGOU.indexOf(c));
+			}
+		}
+	}
+
+	/**
+	 * 変換先が無いことを表す値です。（katakana）
+	 */
+	private static final char HAN2ZEN_NONE = '\u0000';
+
+	/**
+	 * 半角→全角の変換テーブルです。文字コードを添字とし、変換後の文字を持ちます。（katakana）
+	 * 全角文字はその文字自身、全角に変換できない半角文字は HAN2ZEN_NONE です。
+	 */
+	private static final char HAN2ZEN_TABLE[] = new char[Character.MAX_VALUE + 1];
+
+	/**
+	 * 半角カタカナ（'\uff66'～'\uff9d'）に濁点が続く場合の全角カタカナのテーブルです。（katakana）
+	 */
+	private static final char HAN2ZEN_DAKUTEN[] = new char['\uff9d' - '\uff66' + 1];
+
+	/**
+	 * 半角カタカナ（'\uff66'～'\uff9d'）に半濁点が続く場合の全角カタカナのテーブルです。（katakana）
+	 */
+	private static final char HAN2ZEN_HANDAKUTEN[] = new char['\uff9d' - '\uff66' + 1];
+
+	static {
+		// 従来の1文字ずつの判定結果をすべての文字について事前に求めます。
+		// 半角文字かどうかは MS932 で1バイトになるかで判定します。MS932 で変換できない文字は「?」の
+		// 1バイトになり、MS932 が使えない場合はすべて1バイトとします。
+		CharsetEncoder ms932 = null;
+		try {
+			ms932 = Charset.forName("MS932").newEncoder();
+		} catch (Exception ex) {
+			ms932 = null;
+		}
+
+		for (int i = 0; i <= Character.MAX_VALUE; i++) {
+
+			char c = (char) i;
+
+			// 全角文字はそのまま
+			if (ms932 != null
+					&& ms932.canEncode(c)
+					&& String.valueOf(c).getBytes(ms932.charset()).length != 1) {
+				HAN2ZEN_TABLE[c] = c;
+
+				// 半角カタカナの場合（'\uff70'「ｰ」でない場合も含む）は半角カタカナテーブルで最初に一致した値
+			} else if ('\uff66' <= c && c <= '\uff9d' && c != '\uff70') {
+				int kana = c - '\uff66';
+				HAN2ZEN_TABLE[c] = find(HANKAKU_KATAKANA, ZENKAKU_KATAKANA, String.valueOf(c));
+				HAN2ZEN_DAKUTEN[kana] =
+						find(HANKAKU_KATAKANA, ZENKAKU_KATAKANA, new String(new char[] { c, 'ﾞ' }));
+				HAN2ZEN_HANDAKUTEN[kana] =
+						find(HANKAKU_KATAKANA, ZENKAKU_KATAKANA, new String(new char[] { c, 'ﾟ' }));
+
+				// 半角数字、半角英字大文字、半角英字小文字は一律に 0xfee0 だけ後にシフトします。
+			} else if (('\u0030' <= c && c <= '\u0039')
+					|| ('\u0041' <= c && c <= '\u005a')
+					|| ('\u0061' <= c && c <= '\u007a')) {
+				HAN2ZEN_TABLE[c] = (char) (c + 0xfee0);
+
+				// 半角記号の場合
+			} else if (HANKAKU_KIGOU.indexOf(c) >= 0) {
+				HAN2ZEN_TABLE[c] = ZENKAKU_KIGOU.charAt(HANKAKU_KIGOU.indexOf(c));
+			}
+		}
+	}
+
 	/**
 	 * コンストラクターです。
 	 * @@
@@ -63,6 +194,26 @@ public class StringUtil {
 	private StringUtil() {
 	}
 
+	/**
+	 * 変換元テーブルで最初に一致した値に対応する、変換先テーブルの文字を返します。
+	 * @@
+	 * find
+	 * @note 変換テーブルの作成に使用します。
+	 * @param from 変換元テーブル
+	 * @param to 変換先テーブル
+	 * @param value 文字列
+	 * @return 変換後の文字（一致しない場合は '\u0000'）
+	 * @@
+	 */
+	private static char find(String from[], String to[], String value) {
+		for (int l = 0; l < from.length; l++) {
+			if (value.equals(from[l])) {
+				return to[l].charAt(0);
+			}
+		}
+		return '\u0000';
+	}
+
 	/**
 	 * 文字列が存在しないか判定します。
 	 * @@
@@ -148,7 +299,7 @@ public class StringUtil {
 	 * 全角文字を半角に変換します。※半角文字はそのままとします。
 	 * @@
 	 * zen2han
-	 * @note
+	 * @note 変換は事前に作成した変換テーブル（ZEN2HAN_TABLE）を1文字につき1回参照して行います。
 	 * @param str 全角文字列
 	 * @exception IllegalArgumentException 引数の不備
 	 * @return 変換後文字列（全角→半角）
@@ -161,199 +312,33 @@ public class StringUtil {
 			return str;
 		}
 
-		// 引数の文字列を文字に分解します。
-		char chars[] = str.toCharArray();
-		int length = chars.length;
+		int length = str.length();
 
-		// 変換後の文字列を生成するための文字列バッファです。
-		StringBuffer sb = new StringBuffer();
+		// 変換後の文字配列です。濁点、半濁点付きのカタカナは2文字になるため、最大で2倍の長さになります。
+		char chars[] = new char[length * 2];
+		int count = 0;
 
 		for (int i = 0; i < length; i++) {
 
-			// 全角文字かどうかチェックします。
-			String value = String.valueOf(chars[i]);
-			if (value.getBytes().length >= 2) {
-
-				// 全角カタカナの場合
-				if ('\u30a1' <= chars[i] && chars[i] <= '\u30f6') {
-
-					// 全角カタカナテーブル分繰り返し
-					for (int l = 0; l < ZENKAKU_KATAKANA.length; l++) {
-
-						// 全角カタカナテーブルの値と一致した場合
-						if (value.equals(ZENKAKU_KATAKANA[l])) {
-
-							// 見つかった場合は対応する半角カタカナを選びます。
-							sb.append(HANKAKU_KATAKANA[l]);
-							break;
-						}
-					}
-
-					// 全角数字の場合
-				} else if ('\uff10' <= chars[i] && chars[i] <= '\uff19') {
-
-					// 一律に 0xfee0 だけ前にシフトします。
-					sb.append((char) (chars[i] - 0xfee0));
-
-					// 全角英字大文字の場合
-				} else if ('\uff21' <= chars[i] && chars[i] <= '\uFF3a') {
+			char c = str.charAt(i);
+			char han = ZEN2HAN_TABLE[c];
 
-					// 一律に 0xfee0 だけ前にシフトします。
-					sb.append((char) (chars[i] - 0xfee0));
-
-					// 全角英字小文字の場合
-				} else if ('\uff41' <= chars[i] && chars[i] <= '\uff5a') {
-
-					// 一律に 0xfee0 だけ前にシフトします。
-					sb.append((char) (chars[i] - 0xfee0));
-
-				} else {
-
-					switch (chars[i]) {
-
-					// 半角カナ記号
-					case '\u3002': // "。"
-						sb.append('｡');
-						break;
-					case '\u300c': // "「"
-						sb.append('｢');
-						break;
-					case '\u300d': // "」"
-						sb.append('｣');
-						break;
-					case '\u3001': // "、"
-						sb.append('､');
-						break;
-					case '\u30fb': // "・"
-						sb.append('･');
-						break;
-					case '\u30fc': // "ー"
-						sb.append('ｰ');
-						break;
-					case '\u309b': // "゛"
-						sb.append('ﾞ');
-						break;
-					case '\u309c': // "゜"
-						sb.append('ﾟ');
-						break;
-
-					// 半角英数記号
-					case '\u3000': // " "
-						sb.append('\u0020');
-						break;
-					case '\uff01': // ！
-						sb.append('\u0021');
-						break;
-					case '\u201d': // ”
-						sb.append('\u0022');
-						break;
-					case '\uff03': // ＃
-						sb.append('\u0023');
-						break;
-					case '\uff04': // ＄
-						sb.append('\u0024');
-						break;
-					case '\uff05': // ％
-						sb.append('\u0025');
-						break;
-					case '\uff06': // ＆
-						sb.append('\u0026');
-						break;
-					case '\u2019': // ’
-						sb.append('\'');
-						break;
-					case '\uff08': // （
-						sb.append('\u0028');
-						break;
-					case '\uff09': // ）
-						sb.append('\u0029');
-						break;
-					case '\uff0a': // ＊
-						sb.append('\u002a');
-						break;
-					case '\uff0b': // ＋
-						sb.append('\u002b');
-						break;
-					case '\uff0c': // ，
-						sb.append('\u002c');
-						break;
-					case '\uff0d': // －
-						//						case '\u2212': // －
-						sb.append('\u002d');
-						break;
-					case '\uff0e': // ．
-						sb.append('\u002e');
-						break;
-					case '\uff0f': // ／
-						sb.append('\u002f');
-						break;
-					case '\uff1a': // ：
-						sb.append('\u003a');
-						break;
-					case '\uff1b': // ；
-						sb.append('\u003b');
-						break;
-					case '\uff1c': // ＜
-						sb.append('\u003c');
-						break;
-					case '\uff1d': // ＝
-						sb.append('\u003d');
-						break;
-					case '\uff1e': // ＞
-						sb.append('\u003e');
-						break;
-					case '\uff1f': // ？
-						sb.append('\u003f');
-						break;
-					case '\uff20': // ＠
-						sb.append('\u0040');
-						break;
-					case '\uff3b': // ［
-						sb.append('\u005b');
-						break;
-					case '\uffe5': // ￥
-						sb.append('\\');
-						break;
-					case '\uff3d': // ］
-						sb.append('\u005d');
-						break;
-					case '\uff3e': // ＾
-						sb.append('\u005e');
-						break;
-					case '\uff3f': // ＿
-						sb.append('\u005f');
-						break;
-					case '\u2018': // ‘
-						sb.append('\u0060');
-						break;
-					case '\uff5b': // ｛
-						sb.append('\u007b');
-						break;
-					case '\uff5c': // ｜
-						sb.append('\u007c');
-						break;
-					case '\uff5d': // ｝
-						sb.append('\u007d');
-						break;
-					// case '\u301c': // ～
-					case '\uff5e': // ～
-						sb.append('\u007e');
-						// sb.append('\u203e');
-						break;
-					default:
-						break;
-					}
-				}
-
-			} else {
+			// 半角に変換できない全角文字は出力しません。
+			if (han == ZEN2HAN_NONE && c != ZEN2HAN_NONE) {
+				continue;
+			}
+			chars[count++] = han;
 
-				// 半角文字はそのまま
-				sb.append(str.substring(i, i + 1));
+			// 濁点、半濁点付きの全角カタカナの場合は濁点、半濁点を続けます。
+			int kana = c - '\u30a1';
+			if (0 <= kana && kana < ZEN2HAN_DAKUTEN.length
+					&& ZEN2HAN_DAKUTEN[kana] != ZEN2HAN_NONE) {
+				chars[count++] = ZEN2HAN_DAKUTEN[kana];
 			}
 		}
 
 		// 変換後の文字列を返します。
-		return sb.toString();
+		return new String(chars, 0, count);
 	}
 
 	/**
@@ -361,7 +346,7 @@ public class StringUtil {
 	 * 半角英・数・カタカナ・記号を全角に変換します。※全角文字はそのままとします。
 	 * @@
 	 * katakana
-	 * @note
+	 * @note 変換は事前に作成した変換テーブル（HAN2ZEN_TABLE 等）を参照し、濁点、半濁点は次の1文字を見て行います。
 	 * @param str 文字列
 	 * @exception IllegalArgumentException 引数の不備
 	 * @return 変換後文字列（半角→全角）
@@ -374,251 +359,45 @@ public class StringUtil {
 			return str;
 		}
 
-		// 引数の文字列を文字に分解します。
-		char chars[] = str.toCharArray();
-		int length = chars.length;
+		int length = str.length();
 
-		// 変換後の文字列を生成するための文字列バッファです。
-		StringBuffer sb = new StringBuffer();
+		// 変換後の文字配列です。1文字が2文字になることはないため、元の長さで足ります。
+		char chars[] = new char[length];
+		int count = 0;
 
 		for (int i = 0; i < length; i++) {
 
-			// 半角文字かどうかチェックします。
-			String value = String.valueOf(chars[i]);
-
-			int valueLen = 0;
-			try{
-				valueLen = value.getBytes("MS932").length;
-			}catch(Exception ex){
-				valueLen = 1;
-			}
-
-			if (valueLen == 1) {
-				// 半角カタカナの場合（'\uff70'「ｰ」でない場合も含む）
-				if ('\uff66' <= chars[i]
-						&& chars[i] <= '\uff9d'
-						&& chars[i] != '\uff70') {
-
-					// 最終の文字でなく、次の文字が濁点、半濁点なら、 濁点、半濁点ありの半角カタカナ
-					if (i != length - 1
-							&& (chars[i + 1] == 'ﾞ' || chars[i + 1] == 'ﾟ')) {
+			char c = str.charAt(i);
 
-						// 濁点、半濁点付きでチェックします。
-						value = value + String.valueOf(chars[i + 1]);
-
-						// 半角カタカナテーブル分繰り返し
-						for (int l = 0; l < HANKAKU_KATAKANA.length; l++) {
-							// 半角カタカナテーブルの値と一致した場合
-							if (value.equals(HANKAKU_KATAKANA[l])) {
-
-								// 見つかった場合は対応する全角カタカナを選びます。
-								sb.append(ZENKAKU_KATAKANA[l]);
-
-								// 2文字を1文字に変換したのでひとつずらします。
-								i++;
-								break;
-							}
-						}
-
-						// 濁点、半濁点ありの全角カタカナに変換できなかった場合
-
-						// チェック文字を入れ替えます。
-						value = String.valueOf(chars[i]);
-
-						// 半角カタカナテーブル分繰り返し
-						for (int l = 0; l < HANKAKU_KATAKANA.length; l++) {
-
-							// 全角カタカナテーブルの値と一致した場合
-							if (value.equals(HANKAKU_KATAKANA[l])) {
-
-								// 見つかった場合は対応する半角カタカナを選びます。
-								sb.append(ZENKAKU_KATAKANA[l]);
-								break;
-							}
-						}
-
-						// 濁点、半濁点なしの半角カタカナ
-					} else {
-
-						// 半角カタカナテーブル分繰り返し
-						for (int l = 0; l < HANKAKU_KATAKANA.length; l++) {
-
-							// 全角カタカナテーブルの値と一致した場合
-							if (value.equals(HANKAKU_KATAKANA[l])) {
-
-								// 見つかった場合は対応する半角カタカナを選びます。
-								sb.append(ZENKAKU_KATAKANA[l]);
-								break;
-							}
-						}
-					}
-
-					// 半角数字の場合
-				} else if ('\u0030' <= chars[i] && chars[i] <= '\u0039') {
-
-					// 一律に 0xfee0 だけ後にシフトします。
-					sb.append((char) (chars[i] + 0xfee0));
-
-					// 半角英字大文字の場合
-				} else if ('\u0041' <= chars[i] && chars[i] <= '\u005a') {
-
-					// 一律に 0xfee0 だけ後にシフトします。
-					sb.append((char) (chars[i] + 0xfee0));
-
-					// 半角英字小文字の場合
-				} else if ('\u0061' <= chars[i] && chars[i] <= '\u007a') {
-
-					// 一律に 0xfee0 だけ後にシフトします。
-					sb.append((char) (chars[i] + 0xfee0));
-
-				} else {
+			// 半角カタカナで次の文字が濁点、半濁点なら、濁点、半濁点付きの全角カタカナを探します。
+			int kana = c - '\uff66';
+			if (0 <= kana && kana < HAN2ZEN_DAKUTEN.length && i != length - 1) {
 
-					switch (chars[i]) {
-
-					// 半角カナ記号
-					case '｡': // "。"
-						sb.append('\u3002');
-						break;
-					case '｢': // "「"
-						sb.append('\u300c');
-						break;
-					case '｣': // "」"
-						sb.append('\u300d');
-						break;
-					case '､': // "、"
-						sb.append('\u3001');
-						break;
-					case '･': // "・"
-						sb.append('\u30fb');
-						break;
-					case 'ｰ': // "ー"
-						sb.append('\u30fc');
-						break;
-					case 'ﾞ': // "゛"
-						sb.append('\u309b');
-						break;
-					case 'ﾟ': // "゜"
-						sb.append('\u309c');
-						break;
-
-					// 半角英数記号
-					case '\u0020': // " "
-						sb.append('\u3000');
-						break;
-					case '\u0021': // ！
-						sb.append('\uff01');
-						break;
-					case '\u0022': // ”
-						sb.append('\u201d');
-						break;
-					case '\u0023': // ＃
-						sb.append('\uff03');
-						break;
-					case '\u0024': // ＄
-						sb.append('\uff04');
-						break;
-					case '\u0025': // ％
-						sb.append('\uff05');
-						break;
-					case '\u0026': // ＆
-						sb.append('\uff06');
-						break;
-					case '\'': // ’
-						sb.append('\u2019');
-						break;
-					case '\u0028': // （
-						sb.append('\uff08');
-						break;
-					case '\u0029': // ）
-						sb.append('\uff09');
-						break;
-					case '\u002a': // ＊
-						sb.append('\uff0a');
-						break;
-					case '\u002b': // ＋
-						sb.append('\uff0b');
-						break;
-					case '\u002c': // ，
-						sb.append('\uff0c');
-						break;
-					case '\u002d': // －
-						// sb.append('\u2212');
-						sb.append('\uff0d');
-						break;
-					case '\u002e': // ．
-						sb.append('\uff0e');
-						break;
-					case '\u002f': // ／
-						sb.append('\uff0f');
-						break;
-					case '\u003a': // ：
-						sb.append('\uff1a');
-						break;
-					case '\u003b': // ；
-						sb.append('\uff1b');
-						break;
-					case '\u003c': // ＜
-						sb.append('\uff1c');
-						break;
-					case '\u003d': // ＝
-						sb.append('\uff1d');
-						break;
-					case '\u003e': // ＞
-						sb.append('\uff1e');
-						break;
-					case '\u003f': // ？
-						sb.append('\uff1f');
-						break;
-					case '\u0040': // ＠
-						sb.append('\uff20');
-						break;
-					case '\u005b': // ［
-						sb.append('\uff3b');
-						break;
-					case '\\': // ￥
-						sb.append('\uffe5');
-						break;
-					case '\u005d': // ］
-						sb.append('\uff3d');
-						break;
-					case '\u005e': // ＾
-						sb.append('\uff3e');
-						break;
-					case '\u005f': // ＿
-						sb.append('\uff3f');
-						break;
-					case '\u0060': // ‘
-						sb.append('\u2018');
-						break;
-					case '\u007b': // ｛
-						sb.append('\uff5b');
-						break;
-					case '\u007c': // ｜
-						sb.append('\uff5c');
-						break;
-					case '\u007d': // ｝
-						sb.append('\uff5d');
-						break;
-					case '\u007e': // ～
-						sb.append('\uff5e');
-						break;
-					// case '\u203e': // ～
-					// 	sb.append('\u301c');
-					// 	break;
-					default:
-						break;
-					}
+				char next = str.charAt(i + 1);
+				char zen = HAN2ZEN_NONE;
+				if (next == 'ﾞ') {
+					zen = HAN2ZEN_DAKUTEN[kana];
+				} else if (next == 'ﾟ') {
+					zen = HAN2ZEN_HANDAKUTEN[kana];
 				}
 
-			} else {
+				// 2文字を1文字に変換したのでひとつずらします。
+				if (zen != HAN2ZEN_NONE) {
+					chars[count++] = zen;
+					i++;
+					continue;
+				}
+			}
 
-				// 全角文字はそのまま
-				sb.append(str.substring(i, i + 1));
+			// 全角に変換できない半角文字は出力しません。
+			char zen = HAN2ZEN_TABLE[c];
+			if (zen != HAN2ZEN_NONE) {
+				chars[count++] = zen;
 			}
 		}
 
 		// 変換後の文字列を返します。
-		return sb.toString();
+		return new String(chars, 0, count);
 	}
 
 	/**
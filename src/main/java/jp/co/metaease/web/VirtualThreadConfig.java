@@ -0,0 +1,73 @@
+package jp.co.metaease.web;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.apache.coyote.ProtocolHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+
+/**
+ * Runs servlet request handling, MVC async work and upstream calls on virtual threads.
+ *
+ * <p>Enabled with {@code webapi01.threads.virtual=true}; requires a Java 21 runtime (see the
+ * {@code java21} Maven profile). The factory is looked up reflectively so the class still compiles
+ * for the Java 17 baseline.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(prefix = "webapi01.threads", name = "virtual", havingValue = "true")
+public class VirtualThreadConfig {
+
+  private static final Logger logger = LoggerFactory.getLogger(VirtualThreadConfig.class);
+
+  @Bean(destroyMethod = "shutdown")
+  public ExecutorService upstreamExecutor() {
+    return newVirtualThreadPerTaskExecutor();
+  }
+
+  /** Request threads of Tomcat, which does not shut down an executor it was given. */
+  @Bean(destroyMethod = "shutdown")
+  public ExecutorService tomcatExecutor() {
+    return newVirtualThreadPerTaskExecutor();
+  }
+
+  @Bean
+  public TomcatProtocolHandlerCustomizer<ProtocolHandler> virtualThreadProtocolHandlerCustomizer(
+      @Qualifier("tomcatExecutor") ExecutorService tomcatExecutor) {
+    logger.info("Tomcat request handling runs on virtual threads");
+    return protocolHandler -> protocolHandler.setExecutor(tomcatExecutor);
+  }
+
+  @Bean(destroyMethod = "shutdown")
+  public ExecutorService mvcAsyncExecutor() {
+    return newVirtualThreadPerTaskExecutor();
+  }
+
+  @Bean(name = TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+  public AsyncTaskExecutor applicationTaskExecutor(
+      @Qualifier("mvcAsyncExecutor") ExecutorService mvcAsyncExecutor) {
+    return new TaskExecutorAdapter(mvcAsyncExecutor);
+  }
+
+  static ExecutorService newVirtualThreadPerTaskExecutor() {
+    try {
+      Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+      return (ExecutorService) factory.invoke(null);
+    } catch (NoSuchMethodException e) {
+      throw new IllegalStateException(
+          "webapi01.threads.virtual=true requires Java 21 or later, running on "
+              + Runtime.version(),
+          e);
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalStateException("Could not create a virtual thread executor", e);
+    }
+  }
+}
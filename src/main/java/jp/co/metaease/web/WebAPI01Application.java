@@ -1,17 +1,31 @@
 package jp.co.metaease.web;
 
-import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.ImportRuntimeHints;
 
 /** This class serves as an entry point for the Spring Boot app. */
 @SpringBootApplication
+@ImportRuntimeHints(WebAPI01RuntimeHints.class)
 public class WebAPI01Application {
 
   private static final Logger logger = LoggerFactory.getLogger(WebAPI01Application.class);
 
+  /** Startup steps kept for {@code /actuator/startupsteps}; later steps are not recorded. */
+  private static final int STARTUP_STEPS = 10000;
+
+  /**
+   * System property of the AppCDS training run ({@code cds} Maven profile): the application exits
+   * as soon as it is ready, so that {@code -XX:ArchiveClassesAtExit} writes the archive.
+   */
+  static final String CDS_TRAINING = "webapi01.cds.training";
+
   public static void main(final String[] args) throws Exception {
     String port = System.getenv("PORT");
     if (port == null) {
@@ -19,10 +33,19 @@ public class WebAPI01Application {
       logger.warn("$PORT environment variable not set, defaulting to 8080");
     }
     SpringApplication app = new SpringApplication(WebAPI01Application.class);
-    app.setDefaultProperties(Collections.singletonMap("server.port", port));
+    Map<String, Object> defaults = new HashMap<>();
+    defaults.put("server.port", port);
+    // Cloud Run の起動プローブ用（Kubernetes 以外では既定で無効）、JitWarmup の完了まで 503
+    defaults.put("management.endpoint.health.probes.enabled", true);
+    app.setDefaultProperties(defaults);
+    app.setApplicationStartup(new BufferingApplicationStartup(STARTUP_STEPS));
 
     // Start the Spring Boot application.
-    app.run(args);
+    ConfigurableApplicationContext context = app.run(args);
+    if (Boolean.getBoolean(CDS_TRAINING)) {
+      logger.info("AppCDS training run finished, exiting to write the archive");
+      System.exit(SpringApplication.exit(context));
+    }
     logger.info(
         "Hello from Cloud Run! The container started successfully and is listening for HTTP requests on " + port);
   }
@@ -0,0 +1,89 @@
+package jp.co.metaease.web;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import jp.co.metaease.web.text.TextBatchRequest;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.TypeReference;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.util.ResourceUtils;
+
+/**
+ * Native-image hints for what the application only reaches by name at run time.
+ *
+ * <ul>
+ *   <li>{@code WebAPIUtil.getPropertyValue} and {@code getPropertyValueIchiran} load {@link
+ *       java.util.ResourceBundle}s by base name. Every {@code *.properties} at the root of the
+ *       application's own class directories (not of its jars), other than Spring Boot's {@code
+ *       application*.properties}, is included and registered as a bundle; {@code foo_ja.properties}
+ *       registers {@code foo}. The {@code ja} locale itself is added by {@code
+ *       META-INF/native-image/.../native-image.properties}.
+ *   <li>The layout that {@code BatchingJsonConsoleAppender} creates from its {@code layoutClass}.
+ *   <li>{@link TextBatchRequest}, which is read with {@code ObjectMapper} rather than
+ *       {@code @RequestBody}.
+ * </ul>
+ */
+public class WebAPI01RuntimeHints implements RuntimeHintsRegistrar {
+
+  static final String LOG_LAYOUT = "com.google.cloud.spring.logging.StackdriverJsonLayout";
+
+  private static final Set<String> LANGUAGES =
+      new HashSet<>(Arrays.asList(Locale.getISOLanguages()));
+
+  @Override
+  public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+    for (String file : bundleFiles(classLoader)) {
+      hints.resources().registerPattern(file);
+      hints.resources().registerResourceBundle(baseName(file));
+    }
+
+    hints
+        .reflection()
+        .registerType(TypeReference.of(LOG_LAYOUT), MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS);
+    new BindingReflectionHintsRegistrar()
+        .registerReflectionHints(hints.reflection(), TextBatchRequest.class);
+  }
+
+  private static Set<String> bundleFiles(ClassLoader classLoader) {
+    Set<String> files = new HashSet<>();
+    try {
+      // 依存 jar 直下のファイルは対象外とし、アプリケーションのディレクトリのみを見る
+      PathMatchingResourcePatternResolver resolver =
+          new PathMatchingResourcePatternResolver(classLoader);
+      for (Resource resource : resolver.getResources("classpath*:*.properties")) {
+        String name = resource.getFilename();
+        if (ResourceUtils.isFileURL(resource.getURL())
+            && name != null
+            && !name.startsWith("application")) {
+          files.add(name);
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return files;
+  }
+
+  /** {@code messages_ja_JP.properties} → {@code messages}. */
+  static String baseName(String file) {
+    String name = file.substring(0, file.length() - ".properties".length());
+    String[] parts = name.split("_");
+    int end = parts.length;
+    // 国コード（JP 等）、言語コード（ja 等）の順に取り除く
+    if (end > 2 && parts[end - 1].matches("[A-Z]{2}")) {
+      end--;
+    }
+    if (end > 1 && LANGUAGES.contains(parts[end - 1])) {
+      return String.join("_", Arrays.copyOf(parts, end - 1));
+    }
+    return name;
+  }
+}
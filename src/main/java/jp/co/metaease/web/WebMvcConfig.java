@@ -0,0 +1,40 @@
+package jp.co.metaease.web;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jp.co.metaease.web.filter.ViewRenderTimingInterceptor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.multipart.support.StandardServletMultipartResolver;
+import org.springframework.web.servlet.DispatcherServlet;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/** Servlet-stack MVC customisations. */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class WebMvcConfig implements WebMvcConfigurer {
+
+  private final MeterRegistry meterRegistry;
+
+  public WebMvcConfig(MeterRegistry meterRegistry) {
+    this.meterRegistry = meterRegistry;
+  }
+
+  @Override
+  public void addInterceptors(InterceptorRegistry registry) {
+    registry.addInterceptor(new ViewRenderTimingInterceptor(meterRegistry));
+  }
+
+  /**
+   * Parses multipart requests only when a handler asks for the parts. {@code /api/csv/normalize}
+   * reads the raw request body, which eager parsing would already have consumed, so this does not
+   * depend on {@code spring.servlet.multipart.resolve-lazily}.
+   */
+  @Bean(DispatcherServlet.MULTIPART_RESOLVER_BEAN_NAME)
+  public StandardServletMultipartResolver multipartResolver() {
+    StandardServletMultipartResolver resolver = new StandardServletMultipartResolver();
+    resolver.setResolveLazily(true);
+    return resolver;
+  }
+}
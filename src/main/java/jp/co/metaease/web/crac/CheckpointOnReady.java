@@ -0,0 +1,87 @@
+package jp.co.metaease.web.crac;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.List;
+import org.crac.CheckpointException;
+import org.crac.Core;
+import org.crac.RestoreException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ApplicationListener;
+
+/**
+ * Warms the application up over loopback once it is ready, then takes the checkpoint.
+ *
+ * <p>Runs on the main thread inside {@code SpringApplication.run}: with {@code
+ * -XX:CRaCCheckpointTo} the JVM exits once the checkpoint is written, and a process restored with
+ * {@code -XX:CRaCRestoreFrom} continues from here. On a JVM without CRaC the application simply
+ * keeps running.
+ */
+public class CheckpointOnReady implements ApplicationListener<ApplicationReadyEvent> {
+
+  private static final Logger logger = LoggerFactory.getLogger(CheckpointOnReady.class);
+
+  private final CracProperties properties;
+
+  public CheckpointOnReady(CracProperties properties) {
+    this.properties = properties;
+  }
+
+  @Override
+  public void onApplicationEvent(ApplicationReadyEvent event) {
+    if (event.getApplicationContext() instanceof WebServerApplicationContext) {
+      int port =
+          ((WebServerApplicationContext) event.getApplicationContext()).getWebServer().getPort();
+      long started = System.nanoTime();
+      int failed = warmUp(port);
+      logger.info(
+          "Warm-up: {} requests in {} ms, {} failed",
+          properties.getWarmupRequests(),
+          (System.nanoTime() - started) / 1_000_000,
+          failed);
+    }
+
+    logger.info("Taking a checkpoint");
+    try {
+      Core.checkpointRestore();
+    } catch (UnsupportedOperationException e) {
+      logger.warn("This JVM does not support CRaC, running without a checkpoint");
+    } catch (CheckpointException | RestoreException e) {
+      logger.error("Checkpoint failed, running without one", e);
+    }
+  }
+
+  /** Returns the number of requests that did not answer 2xx. */
+  private int warmUp(int port) {
+    List<String> paths = properties.getWarmupPaths();
+    int failed = 0;
+    for (int i = 0; i < properties.getWarmupRequests() && !paths.isEmpty(); i++) {
+      String path = paths.get(i % paths.size());
+      try {
+        HttpURLConnection connection =
+            (HttpURLConnection) new URL("http://127.0.0.1:" + port + path).openConnection();
+        // チェックポイント前にソケットを残さないよう、接続は再利用しない
+        connection.setRequestProperty("Connection", "close");
+        int status = connection.getResponseCode();
+        InputStream body =
+            status < 400 ? connection.getInputStream() : connection.getErrorStream();
+        if (body != null) {
+          body.readAllBytes();
+          body.close();
+        }
+        connection.disconnect();
+        if (status / 100 != 2) {
+          failed++;
+        }
+      } catch (IOException e) {
+        failed++;
+      }
+    }
+    return failed;
+  }
+}
@@ -0,0 +1,150 @@
+package jp.co.metaease.web.crac;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import jp.co.metaease.web.logging.RingBufferAsyncAppender;
+import jp.co.metaease.web.upstream.UpstreamClient;
+import org.apache.catalina.connector.Connector;
+import org.crac.Context;
+import org.crac.Core;
+import org.crac.Resource;
+import org.crac.management.CRaCMXBean;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.boot.web.embedded.tomcat.TomcatWebServer;
+import org.springframework.boot.web.server.WebServer;
+import org.springframework.context.ApplicationContext;
+
+/**
+ * Closes what must not be open in a CRaC checkpoint and reopens it on restore: the Tomcat
+ * connectors (listening socket and keep-alive connections), the upstream connection pool, and the
+ * log appenders, in that order, and the reverse on restore.
+ *
+ * <p>Registered with the global CRaC context when created; on a JVM without CRaC it is never
+ * called. Connectors must not bind on init, see {@link CracConfig}. If the upstream client cannot
+ * be shut down, the connectors and the client are reopened and the checkpoint fails.
+ */
+public class CheckpointResources implements Resource {
+
+  private static final org.slf4j.Logger logger = LoggerFactory.getLogger(CheckpointResources.class);
+
+  private final ApplicationContext applicationContext;
+  private final UpstreamClient upstreamClient;
+  private final Duration closeTimeout;
+  private final List<Appender<ILoggingEvent>> suspendedAppenders = new ArrayList<>();
+
+  public CheckpointResources(
+      ApplicationContext applicationContext, UpstreamClient upstreamClient, Duration closeTimeout) {
+    this.applicationContext = applicationContext;
+    this.upstreamClient = upstreamClient;
+    this.closeTimeout = closeTimeout;
+    // グローバルコンテキストは弱参照で保持するため、Bean として参照が残っている必要がある
+    Core.getGlobalContext().register(this);
+  }
+
+  @Override
+  public void beforeCheckpoint(Context<? extends Resource> context) throws Exception {
+    List<Connector> connectors = connectors();
+    logger.info(
+        "Closing {} connector(s), upstream connections and log appenders for a checkpoint",
+        connectors.size());
+    for (Connector connector : connectors) {
+      // server.port=0 の場合も復元後は同じポートで待ち受ける
+      if (connector.getPort() == 0) {
+        connector.setPort(connector.getLocalPort());
+      }
+      connector.stop();
+    }
+    try {
+      if (!upstreamClient.close(closeTimeout)) {
+        throw new IllegalStateException(
+            "The upstream client did not shut down within " + closeTimeout);
+      }
+    } catch (RuntimeException e) {
+      // 接続が残るとチェックポイントは取れない。閉じたものを戻してから失敗させる
+      upstreamClient.reopen();
+      for (Connector connector : connectors) {
+        connector.start();
+      }
+      throw e;
+    }
+    // ここから復元まではログを出力しない
+    suspendLogging();
+  }
+
+  @Override
+  public void afterRestore(Context<? extends Resource> context) throws Exception {
+    resumeLogging();
+    upstreamClient.reopen();
+    for (Connector connector : connectors()) {
+      connector.start();
+    }
+    long sinceRestore = CRaCMXBean.getCRaCMXBean().getUptimeSinceRestore();
+    if (sinceRestore >= 0) {
+      logger.info(
+          "Restored from checkpoint, accepting requests {} ms after restore started", sinceRestore);
+    } else {
+      logger.info("Reopened connectors, upstream connections and log appenders");
+    }
+  }
+
+  private List<Connector> connectors() {
+    if (!(applicationContext instanceof WebServerApplicationContext)) {
+      return Collections.emptyList();
+    }
+    WebServer webServer = ((WebServerApplicationContext) applicationContext).getWebServer();
+    if (!(webServer instanceof TomcatWebServer)) {
+      logger.warn("{} is not closed for the checkpoint", webServer.getClass().getSimpleName());
+      return Collections.emptyList();
+    }
+    List<Connector> connectors = new ArrayList<>();
+    Collections.addAll(
+        connectors, ((TomcatWebServer) webServer).getTomcat().getService().findConnectors());
+    return connectors;
+  }
+
+  private void suspendLogging() {
+    if (!(LoggerFactory.getILoggerFactory() instanceof LoggerContext)) {
+      return;
+    }
+    Set<Appender<ILoggingEvent>> appenders = new LinkedHashSet<>();
+    for (Logger logger : ((LoggerContext) LoggerFactory.getILoggerFactory()).getLoggerList()) {
+      Iterator<Appender<ILoggingEvent>> it = logger.iteratorForAppenders();
+      while (it.hasNext()) {
+        appenders.add(it.next());
+      }
+    }
+    for (Appender<ILoggingEvent> appender : appenders) {
+      if (!appender.isStarted()) {
+        continue;
+      }
+      if (appender instanceof RingBufferAsyncAppender) {
+        // リングを書き出してから、接続先のアペンダーごと停止する
+        ((RingBufferAsyncAppender) appender).suspend();
+      } else {
+        appender.stop();
+      }
+      suspendedAppenders.add(appender);
+    }
+  }
+
+  private void resumeLogging() {
+    for (Appender<ILoggingEvent> appender : suspendedAppenders) {
+      if (appender instanceof RingBufferAsyncAppender) {
+        ((RingBufferAsyncAppender) appender).resume();
+      } else {
+        appender.start();
+      }
+    }
+    suspendedAppenders.clear();
+  }
+}
@@ -0,0 +1,52 @@
+package jp.co.metaease.web.crac;
+
+import jp.co.metaease.web.upstream.UpstreamClient;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.embedded.tomcat.TomcatConnectorCustomizer;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * CRaC (Coordinated Restore at Checkpoint) mode, enabled with {@code webapi01.crac.enabled=true};
+ * needs a CRaC-enabled JDK such as Azul Zulu 17 CRaC.
+ *
+ * <pre>
+ * # checkpoint: start, warm up, write the image to /crac and exit
+ * java -XX:CRaCCheckpointTo=/crac -cp ... jp.co.metaease.web.WebAPI01Application \
+ *     --webapi01.crac.enabled=true --webapi01.crac.checkpoint=true
+ * # every later start
+ * java -XX:CRaCRestoreFrom=/crac
+ * </pre>
+ *
+ * <p>Start from the class path (as in the jib image), not with {@code java -jar}: the Spring Boot
+ * 3.1 jar launcher keeps the nested jars open. Environment and properties are those of the
+ * checkpoint, including {@code PORT}. See {@code Dockerfile.crac.txt}.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(prefix = "webapi01.crac", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(CracProperties.class)
+public class CracConfig {
+
+  /** Lets a stopped connector release its port, so the checkpoint holds no listening socket. */
+  @Bean
+  public TomcatConnectorCustomizer cracConnectorCustomizer() {
+    return connector -> connector.setProperty("bindOnInit", "false");
+  }
+
+  @Bean
+  public CheckpointResources checkpointResources(
+      ApplicationContext applicationContext,
+      UpstreamClient upstreamClient,
+      CracProperties properties) {
+    return new CheckpointResources(
+        applicationContext, upstreamClient, properties.getCloseTimeout());
+  }
+
+  @Bean
+  @ConditionalOnProperty(prefix = "webapi01.crac", name = "checkpoint", havingValue = "true")
+  public CheckpointOnReady checkpointOnReady(CracProperties properties) {
+    return new CheckpointOnReady(properties);
+  }
+}
@@ -0,0 +1,72 @@
+package jp.co.metaease.web.crac;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/** CRaC checkpoint/restore settings ({@code webapi01.crac.*}). */
+@ConfigurationProperties(prefix = "webapi01.crac")
+public class CracProperties {
+
+  /** Closes and reopens connectors, upstream connections and log appenders around a checkpoint. */
+  private boolean enabled = false;
+
+  /** Takes a checkpoint once the application is ready and warmed up. */
+  private boolean checkpoint = false;
+
+  /** Loopback requests sent before the checkpoint, spread over {@code warmup-paths}. */
+  private int warmupRequests = 2000;
+
+  /** Paths (with query) requested during the warm-up, in turn. */
+  private List<String> warmupPaths =
+      new ArrayList<>(
+          List.of(
+              "/actuator/health",
+              "/api/text/zen2han?value=%EF%BC%A1%EF%BC%A2%EF%BC%A3%EF%BC%91%EF%BC%92%EF%BC%93",
+              "/api/text/katakana?value=%EF%BE%83%EF%BD%BD%EF%BE%84",
+              "/api/check/hasMachineCharacters?value=%E2%91%A0"));
+
+  /** How long to wait for the upstream client to shut down before a checkpoint. */
+  private Duration closeTimeout = Duration.ofSeconds(10);
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public boolean isCheckpoint() {
+    return checkpoint;
+  }
+
+  public void setCheckpoint(boolean checkpoint) {
+    this.checkpoint = checkpoint;
+  }
+
+  public int getWarmupRequests() {
+    return warmupRequests;
+  }
+
+  public void setWarmupRequests(int warmupRequests) {
+    this.warmupRequests = warmupRequests;
+  }
+
+  public List<String> getWarmupPaths() {
+    return warmupPaths;
+  }
+
+  public void setWarmupPaths(List<String> warmupPaths) {
+    this.warmupPaths = warmupPaths;
+  }
+
+  public Duration getCloseTimeout() {
+    return closeTimeout;
+  }
+
+  public void setCloseTimeout(Duration closeTimeout) {
+    this.closeTimeout = closeTimeout;
+  }
+}
@@ -0,0 +1,21 @@
+package jp.co.metaease.web.csv;
+
+import java.io.IOException;
+
+/** The upload is not valid CSV from the given record on. */
+public class CsvFormatException extends IOException {
+
+  private static final long serialVersionUID = 1L;
+
+  private final long record;
+
+  public CsvFormatException(String message, long record) {
+    super(message + " (record " + record + ")");
+    this.record = record;
+  }
+
+  /** Returns the 1-based number of the record being read. */
+  public long getRecord() {
+    return record;
+  }
+}
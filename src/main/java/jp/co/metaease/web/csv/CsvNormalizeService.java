@@ -0,0 +1,242 @@
+package jp.co.metaease.web.csv;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PushbackReader;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import jp.co.metaease.web.text.TextBatchProperties;
+import jp.co.metaease.web.text.TextCheck;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+/**
+ * Cleans an uploaded CSV row by row with a {@link CsvPipeline} and streams back a {@code
+ * multipart/mixed} body: the cleaned CSV, then the error report.
+ *
+ * <p>Only the current record is held in memory, plus the first {@code max-reported-errors}
+ * errors, so the heap needed does not depend on the size of the upload. The cleaned CSV keeps the
+ * charset (and byte order mark) of the upload.
+ */
+@Component
+@EnableConfigurationProperties({CsvProperties.class, TextBatchProperties.class})
+public class CsvNormalizeService {
+
+  private static final char BOM = '\uFEFF';
+  private static final char REPLACEMENT = '\uFFFD';
+
+  private final CsvProperties properties;
+  private final Map<String, CsvPipeline> pipelines = new LinkedHashMap<>();
+  private final Counter rows;
+  private final Counter errors;
+
+  public CsvNormalizeService(
+      CsvProperties properties, TextBatchProperties limits, MeterRegistry registry) {
+    this.properties = properties;
+    // 設定の誤りは起動時に検出する
+    properties
+        .getPipelines()
+        .forEach((name, settings) -> pipelines.put(name, CsvPipeline.of(name, settings, limits)));
+    this.rows =
+        Counter.builder("webapi01.csv.rows")
+            .description("CSV rows normalized")
+            .register(registry);
+    this.errors =
+        Counter.builder("webapi01.csv.errors")
+            .description("Check failures and format errors in uploaded CSV")
+            .register(registry);
+  }
+
+  /**
+   * Returns a configured pipeline; {@code null} selects the default one.
+   *
+   * @throws IllegalArgumentException if there is no pipeline of that name
+   */
+  public CsvPipeline pipeline(String name) {
+    String key = name == null || name.isEmpty() ? properties.getDefaultPipeline() : name;
+    CsvPipeline pipeline = pipelines.get(key);
+    if (pipeline == null) {
+      throw new IllegalArgumentException("Unknown CSV pipeline: " + key);
+    }
+    return pipeline;
+  }
+
+  /**
+   * Returns the charset of an upload: the requested one, else the one of the part, else the
+   * default.
+   *
+   * @throws IllegalArgumentException if the charset is not supported
+   */
+  public Charset charset(String requested, String partContentType) {
+    if (requested != null && !requested.isEmpty()) {
+      return Charset.forName(requested);
+    }
+    if (partContentType != null) {
+      Charset charset = MediaType.parseMediaType(partContentType).getCharset();
+      if (charset != null) {
+        return charset;
+      }
+    }
+    return Charset.forName(properties.getDefaultCharset());
+  }
+
+  /**
+   * Reads the CSV from {@code csv} and writes the two parts of the response to {@code out}.
+   *
+   * @param boundary the boundary of the {@code multipart/mixed} response
+   * @return the number of data rows and errors
+   */
+  public Result normalize(
+      InputStream csv, Charset charset, CsvPipeline pipeline, OutputStream out, String boundary)
+      throws IOException {
+    ErrorReport report = new ErrorReport();
+    long dataRows = 0;
+
+    writePartHeader(out, boundary, charset, "cleaned.csv");
+    PushbackReader reader = new PushbackReader(new InputStreamReader(csv, charset), 1);
+    Writer writer = new BufferedWriter(new OutputStreamWriter(out, charset), 65536);
+    int first = reader.read();
+    if (first == BOM) {
+      writer.write(BOM);
+    } else if (first != -1) {
+      reader.unread(first);
+    }
+
+    CsvReader csvReader = new CsvReader(reader, (int) properties.getMaxFieldLength().toBytes());
+    CsvWriter csvWriter = new CsvWriter(writer);
+    List<String> fields = new ArrayList<>();
+    List<String> headerNames = List.of();
+    List<CsvPipeline.Column> columns = new ArrayList<>();
+    try {
+      if (pipeline.hasHeader() && csvReader.next(fields)) {
+        headerNames = List.copyOf(fields);
+        columns.addAll(pipeline.bind(headerNames));
+        csvWriter.write(fields);
+      }
+      while (csvReader.next(fields)) {
+        long row = csvReader.getRecord();
+        for (int i = 0; i < fields.size(); i++) {
+          if (i == columns.size()) {
+            columns.add(pipeline.column(i, i < headerNames.size() ? headerNames.get(i) : null));
+          }
+          String value = fields.get(i);
+          if (value.indexOf(REPLACEMENT) >= 0) {
+            report.add(row, label(headerNames, i), "undecodable in " + charset.name(), value);
+          }
+          CsvPipeline.Column column = columns.get(i);
+          if (column == null) {
+            continue;
+          }
+          value = column.apply(value);
+          fields.set(i, value);
+          for (TextCheck check : column.checks()) {
+            if (!check.test(value)) {
+              report.add(row, label(headerNames, i), check.checkName(), value);
+            }
+          }
+        }
+        csvWriter.write(fields);
+        dataRows++;
+      }
+    } catch (CsvFormatException e) {
+      // 以降の行は読めないため、ここまでの結果とエラーを返す
+      report.add(e.getRecord(), "", e.getMessage(), "");
+    }
+    writer.flush();
+    rows.increment(dataRows);
+    errors.increment(report.total);
+
+    out.write(ascii("\r\n"));
+    writePartHeader(out, boundary, charset, "errors.csv");
+    Writer reportWriter = new BufferedWriter(new OutputStreamWriter(out, charset), 65536);
+    report.writeTo(new CsvWriter(reportWriter));
+    reportWriter.flush();
+    out.write(ascii("\r\n--" + boundary + "--\r\n"));
+    out.flush();
+    return new Result(dataRows, report.total);
+  }
+
+  private static String label(List<String> headerNames, int index) {
+    return index < headerNames.size() ? headerNames.get(index) : String.valueOf(index + 1);
+  }
+
+  private static void writePartHeader(
+      OutputStream out, String boundary, Charset charset, String filename) throws IOException {
+    out.write(
+        ascii(
+            "--"
+                + boundary
+                + "\r\nContent-Type: text/csv; charset="
+                + charset.name()
+                + "\r\nContent-Disposition: attachment; filename=\""
+                + filename
+                + "\"\r\n\r\n"));
+  }
+
+  private static byte[] ascii(String s) {
+    return s.getBytes(StandardCharsets.US_ASCII);
+  }
+
+  /** Rows and errors of one upload. */
+  public static final class Result {
+
+    private final long rows;
+    private final long errors;
+
+    Result(long rows, long errors) {
+      this.rows = rows;
+      this.errors = errors;
+    }
+
+    public long getRows() {
+      return rows;
+    }
+
+    public long getErrors() {
+      return errors;
+    }
+  }
+
+  /** The first errors of an upload, and the count of all of them. */
+  private final class ErrorReport {
+
+    private final List<String[]> listed = new ArrayList<>();
+    private long total;
+
+    void add(long row, String column, String error, String value) {
+      total++;
+      if (listed.size() < properties.getMaxReportedErrors()) {
+        int max = properties.getMaxReportedValueLength();
+        listed.add(
+            new String[] {
+              String.valueOf(row),
+              column,
+              error,
+              value != null && value.length() > max ? value.substring(0, max) : value
+            });
+      }
+    }
+
+    void writeTo(CsvWriter out) throws IOException {
+      out.write("row", "column", "error", "value");
+      for (String[] error : listed) {
+        out.write(error);
+      }
+      if (total > listed.size()) {
+        out.write("", "", (total - listed.size()) + " more errors not listed", "");
+      }
+    }
+  }
+}
@@ -0,0 +1,102 @@
+package jp.co.metaease.web.csv;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import jp.co.metaease.web.text.TextBatch;
+import jp.co.metaease.web.text.TextBatchProperties;
+import jp.co.metaease.web.text.TextCheck;
+
+/**
+ * A resolved {@link CsvProperties.Pipeline}: the operations and checks of every column.
+ *
+ * <p>Column rules are looked up by header name, then by column number, then {@code *}, once per
+ * column position; rows only index into that table.
+ */
+public final class CsvPipeline {
+
+  private static final String ANY_COLUMN = "*";
+
+  private final String name;
+  private final boolean header;
+  private final Map<String, Column> columns;
+
+  private CsvPipeline(String name, boolean header, Map<String, Column> columns) {
+    this.name = name;
+    this.header = header;
+    this.columns = columns;
+  }
+
+  /**
+   * Resolves the operation and check names of a configured pipeline.
+   *
+   * @throws IllegalArgumentException if a name is unknown
+   */
+  public static CsvPipeline of(
+      String name, CsvProperties.Pipeline settings, TextBatchProperties limits) {
+    Map<String, Column> columns = new LinkedHashMap<>();
+    settings
+        .getColumns()
+        .forEach(
+            (key, column) -> {
+              TextBatch operations =
+                  column.getOperations().isEmpty()
+                      ? null
+                      : TextBatch.of(column.getOperations(), limits);
+              TextCheck[] checks =
+                  column.getChecks().stream().map(TextCheck::of).toArray(TextCheck[]::new);
+              columns.put(key, new Column(operations, checks));
+            });
+    return new CsvPipeline(name, settings.isHeader(), columns);
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  /** Returns whether the first record is a header. */
+  public boolean hasHeader() {
+    return header;
+  }
+
+  /** Returns the rule of every column position given the header, {@code null} if none. */
+  public List<Column> bind(List<String> headerNames) {
+    List<Column> bound = new ArrayList<>(headerNames.size());
+    for (int i = 0; i < headerNames.size(); i++) {
+      bound.add(column(i, headerNames.get(i)));
+    }
+    return bound;
+  }
+
+  /** Returns the rule of a column, {@code null} if it is copied unchanged. */
+  public Column column(int index, String headerName) {
+    Column column = headerName == null ? null : columns.get(headerName);
+    if (column == null) {
+      column = columns.get(String.valueOf(index + 1));
+    }
+    return column != null ? column : columns.get(ANY_COLUMN);
+  }
+
+  /** Operations and checks of one column. */
+  public static final class Column {
+
+    private final TextBatch operations;
+    private final TextCheck[] checks;
+
+    Column(TextBatch operations, TextCheck[] checks) {
+      this.operations = operations;
+      this.checks = checks;
+    }
+
+    /** Applies the operations to a value. */
+    public String apply(String value) {
+      return operations == null ? value : operations.apply(value);
+    }
+
+    /** Returns the checks run on the converted value. */
+    TextCheck[] checks() {
+      return checks;
+    }
+  }
+}
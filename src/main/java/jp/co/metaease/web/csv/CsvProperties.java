@@ -0,0 +1,142 @@
+package jp.co.metaease.web.csv;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * CSV upload normalization ({@code webapi01.csv.*}).
+ *
+ * <p>A pipeline maps columns to the operations and checks applied to them. Columns are keyed by
+ * header name, by 1-based column number, or by {@code *} for every column not listed otherwise;
+ * keys other than plain words need the bracket notation:
+ *
+ * <pre>
+ * webapi01.csv.pipelines.customer.columns[*].operations=zen2han,removeRightSpace
+ * webapi01.csv.pipelines.customer.columns[*].checks=hasMachineCharacters
+ * webapi01.csv.pipelines.customer.columns[3].operations=extractionNumber
+ * </pre>
+ */
+@ConfigurationProperties(prefix = "webapi01.csv")
+public class CsvProperties {
+
+  /** Charset of uploads that name none, in the request or in the part; MS932 is also accepted. */
+  private String defaultCharset = "UTF-8";
+
+  /** Longest single field; a longer one (often a missing closing quote) ends the upload. */
+  private DataSize maxFieldLength = DataSize.ofKilobytes(64);
+
+  /** Errors listed in the report; further errors are only counted. */
+  private int maxReportedErrors = 10_000;
+
+  /** Values in the error report are cut to this many characters. */
+  private int maxReportedValueLength = 200;
+
+  /** Pipeline used when the request names none. */
+  private String defaultPipeline = "default";
+
+  /** Pipelines by name. */
+  private Map<String, Pipeline> pipelines = new LinkedHashMap<>();
+
+  public String getDefaultCharset() {
+    return defaultCharset;
+  }
+
+  public void setDefaultCharset(String defaultCharset) {
+    this.defaultCharset = defaultCharset;
+  }
+
+  public DataSize getMaxFieldLength() {
+    return maxFieldLength;
+  }
+
+  public void setMaxFieldLength(DataSize maxFieldLength) {
+    this.maxFieldLength = maxFieldLength;
+  }
+
+  public int getMaxReportedErrors() {
+    return maxReportedErrors;
+  }
+
+  public void setMaxReportedErrors(int maxReportedErrors) {
+    this.maxReportedErrors = maxReportedErrors;
+  }
+
+  public int getMaxReportedValueLength() {
+    return maxReportedValueLength;
+  }
+
+  public void setMaxReportedValueLength(int maxReportedValueLength) {
+    this.maxReportedValueLength = maxReportedValueLength;
+  }
+
+  public String getDefaultPipeline() {
+    return defaultPipeline;
+  }
+
+  public void setDefaultPipeline(String defaultPipeline) {
+    this.defaultPipeline = defaultPipeline;
+  }
+
+  public Map<String, Pipeline> getPipelines() {
+    return pipelines;
+  }
+
+  public void setPipelines(Map<String, Pipeline> pipelines) {
+    this.pipelines = pipelines;
+  }
+
+  /** Per-column rules of one kind of upload. */
+  public static class Pipeline {
+
+    /** Whether the first record is a header; it is copied unchanged and names the columns. */
+    private boolean header = true;
+
+    /** Rules by header name, column number or {@code *}. */
+    private Map<String, Column> columns = new LinkedHashMap<>();
+
+    public boolean isHeader() {
+      return header;
+    }
+
+    public void setHeader(boolean header) {
+      this.header = header;
+    }
+
+    public Map<String, Column> getColumns() {
+      return columns;
+    }
+
+    public void setColumns(Map<String, Column> columns) {
+      this.columns = columns;
+    }
+  }
+
+  /** Operations and checks of one column. */
+  public static class Column {
+
+    /** {@code StringUtil} operations, applied in this order. */
+    private List<String> operations = List.of();
+
+    /** {@code WebAPIUtil} checks run on the converted value; failures go to the error report. */
+    private List<String> checks = List.of();
+
+    public List<String> getOperations() {
+      return operations;
+    }
+
+    public void setOperations(List<String> operations) {
+      this.operations = operations;
+    }
+
+    public List<String> getChecks() {
+      return checks;
+    }
+
+    public void setChecks(List<String> checks) {
+      this.checks = checks;
+    }
+  }
+}
@@ -0,0 +1,108 @@
+package jp.co.metaease.web.csv;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.List;
+
+/**
+ * Reads RFC 4180 CSV one record at a time.
+ *
+ * <p>Quoted fields may hold commas, doubled quotes and line breaks; records end at CRLF, LF or CR.
+ * Only the current field is held in memory, and it may not grow beyond the configured length, so a
+ * missing closing quote cannot pull the rest of the file into the heap.
+ */
+public final class CsvReader {
+
+  private final Reader in;
+  private final int maxFieldLength;
+  private final char[] buffer = new char[8192];
+  private final StringBuilder field = new StringBuilder();
+  private int position;
+  private int limit;
+  private long record;
+
+  public CsvReader(Reader in, int maxFieldLength) {
+    this.in = in;
+    this.maxFieldLength = maxFieldLength;
+  }
+
+  /** Returns the number of records read so far. */
+  public long getRecord() {
+    return record;
+  }
+
+  /**
+   * Reads the next record into {@code fields}, which is cleared first.
+   *
+   * @return {@code false} at the end of the input
+   * @throws CsvFormatException on an unterminated quote or an over-long field
+   */
+  public boolean next(List<String> fields) throws IOException {
+    fields.clear();
+    if (position == limit && !fill()) {
+      return false;
+    }
+    record++;
+    while (true) {
+      int c = read();
+      if (c == '"') {
+        readQuoted();
+        c = read();
+      }
+      while (c != -1 && c != ',' && c != '\n' && c != '\r') {
+        append((char) c);
+        c = read();
+      }
+      fields.add(field.toString());
+      field.setLength(0);
+      if (c == ',') {
+        continue;
+      }
+      if (c == '\r' && (position < limit || fill()) && buffer[position] == '\n') {
+        position++;
+      }
+      return true;
+    }
+  }
+
+  private void readQuoted() throws IOException {
+    while (true) {
+      int c = read();
+      if (c == -1) {
+        throw new CsvFormatException("Unterminated quoted field", record);
+      }
+      if (c == '"') {
+        if ((position < limit || fill()) && buffer[position] == '"') {
+          position++;
+        } else {
+          return;
+        }
+      }
+      append((char) c);
+    }
+  }
+
+  private void append(char c) throws CsvFormatException {
+    if (field.length() == maxFieldLength) {
+      throw new CsvFormatException("Field exceeds " + maxFieldLength + " characters", record);
+    }
+    field.append(c);
+  }
+
+  private int read() throws IOException {
+    if (position == limit && !fill()) {
+      return -1;
+    }
+    return buffer[position++];
+  }
+
+  private boolean fill() throws IOException {
+    int n = in.read(buffer);
+    if (n <= 0) {
+      return false;
+    }
+    position = 0;
+    limit = n;
+    return true;
+  }
+}
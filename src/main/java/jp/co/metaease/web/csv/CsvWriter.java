@@ -0,0 +1,56 @@
+package jp.co.metaease.web.csv;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.List;
+
+/** Writes RFC 4180 CSV with CRLF line ends, quoting only fields that need it. */
+public final class CsvWriter {
+
+  private final Writer out;
+
+  public CsvWriter(Writer out) {
+    this.out = out;
+  }
+
+  /** Writes one record; {@code null} fields are written empty. */
+  public void write(List<String> fields) throws IOException {
+    for (int i = 0; i < fields.size(); i++) {
+      if (i > 0) {
+        out.write(',');
+      }
+      writeField(fields.get(i));
+    }
+    out.write("\r\n");
+  }
+
+  /** Writes one record of the given fields. */
+  public void write(String... fields) throws IOException {
+    write(Arrays.asList(fields));
+  }
+
+  private void writeField(String value) throws IOException {
+    if (value == null || value.isEmpty()) {
+      return;
+    }
+    boolean quote = false;
+    for (int i = 0; i < value.length() && !quote; i++) {
+      char c = value.charAt(i);
+      quote = c == ',' || c == '"' || c == '\r' || c == '\n';
+    }
+    if (!quote) {
+      out.write(value);
+      return;
+    }
+    out.write('"');
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c == '"') {
+        out.write('"');
+      }
+      out.write(c);
+    }
+    out.write('"');
+  }
+}
@@ -0,0 +1,250 @@
+package jp.co.metaease.web.csv;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Reads the parts of a {@code multipart/form-data} body in order, straight from the request
+ * stream.
+ *
+ * <p>Unlike the servlet container's part handling, nothing is spooled to memory or disk: each part
+ * is an {@link InputStream} that ends at the next boundary, and a part must be read (or is
+ * skipped) before the next one is returned.
+ */
+public final class MultipartStream {
+
+  private static final Pattern BOUNDARY =
+      Pattern.compile("boundary=(?:\"([^\"]+)\"|([^;\\s]+))", Pattern.CASE_INSENSITIVE);
+  private static final int MAX_HEADER_SIZE = 8192;
+
+  private final InputStream in;
+  private final byte[] delimiter;
+  private final byte[] buffer = new byte[65536];
+  private int position;
+  private int limit;
+  private PartInputStream current;
+  private boolean finished;
+
+  /**
+   * @param contentType the request content type, which carries the boundary
+   * @throws IllegalArgumentException if the content type has no boundary
+   */
+  public MultipartStream(InputStream in, String contentType) {
+    Matcher m = contentType == null ? null : BOUNDARY.matcher(contentType);
+    if (m == null || !m.find()) {
+      throw new IllegalArgumentException("Not a multipart request with a boundary");
+    }
+    String boundary = m.group(1) != null ? m.group(1) : m.group(2);
+    this.in = in;
+    this.delimiter = ("\r\n--" + boundary).getBytes(StandardCharsets.ISO_8859_1);
+    // 先頭の区切りも CRLF 付きで探せるよう、前置きを CRLF から始める
+    buffer[0] = '\r';
+    buffer[1] = '\n';
+    limit = 2;
+    current = new PartInputStream();
+  }
+
+  /**
+   * Skips what is left of the current part and returns the next one.
+   *
+   * @return the next part, or {@code null} after the last one
+   */
+  public Part nextPart() throws IOException {
+    if (finished) {
+      return null;
+    }
+    current.skipRemaining();
+    position += delimiter.length;
+    if (!ensure(2)) {
+      throw new IOException("Multipart body ends without a closing boundary");
+    }
+    if (buffer[position] == '-' && buffer[position + 1] == '-') {
+      finished = true;
+      return null;
+    }
+    // 区切り行の残り（空白と CRLF）を読み飛ばす
+    String rest = readLine();
+    if (!rest.isBlank()) {
+      throw new IOException("Malformed multipart boundary line");
+    }
+    Map<String, String> headers = new LinkedHashMap<>();
+    int size = 0;
+    String line;
+    while (!(line = readLine()).isEmpty()) {
+      size += line.length();
+      if (size > MAX_HEADER_SIZE) {
+        throw new IOException("Multipart headers exceed " + MAX_HEADER_SIZE + " bytes");
+      }
+      int colon = line.indexOf(':');
+      if (colon > 0) {
+        headers.put(
+            line.substring(0, colon).trim().toLowerCase(Locale.ROOT),
+            line.substring(colon + 1).trim());
+      }
+    }
+    current = new PartInputStream();
+    return new Part(headers, current);
+  }
+
+  private String readLine() throws IOException {
+    while (true) {
+      for (int i = position; i + 1 < limit; i++) {
+        if (buffer[i] == '\r' && buffer[i + 1] == '\n') {
+          String line = new String(buffer, position, i - position, StandardCharsets.UTF_8);
+          position = i + 2;
+          return line;
+        }
+      }
+      if (limit - position > MAX_HEADER_SIZE) {
+        throw new IOException("Multipart header line exceeds " + MAX_HEADER_SIZE + " bytes");
+      }
+      if (!fill()) {
+        throw new IOException("Multipart body ends inside part headers");
+      }
+    }
+  }
+
+  /** Makes at least {@code n} unread bytes available; returns false at the end of input. */
+  private boolean ensure(int n) throws IOException {
+    while (limit - position < n) {
+      if (!fill()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Moves the unread bytes to the front of the buffer and reads more after them. */
+  private boolean fill() throws IOException {
+    if (position > 0) {
+      System.arraycopy(buffer, position, buffer, 0, limit - position);
+      limit -= position;
+      position = 0;
+    }
+    int n = in.read(buffer, limit, buffer.length - limit);
+    if (n <= 0) {
+      return false;
+    }
+    limit += n;
+    return true;
+  }
+
+  private int indexOfDelimiter(int from) {
+    int last = limit - delimiter.length;
+    outer:
+    for (int i = from; i <= last; i++) {
+      if (buffer[i] != delimiter[0]) {
+        continue;
+      }
+      for (int j = 1; j < delimiter.length; j++) {
+        if (buffer[i + j] != delimiter[j]) {
+          continue outer;
+        }
+      }
+      return i;
+    }
+    return -1;
+  }
+
+  /** One part: its headers and a body that ends at the next boundary. */
+  public static final class Part {
+
+    private static final Pattern NAME = Pattern.compile("(?:^|;)\\s*name=\"([^\"]*)\"");
+    private static final Pattern FILENAME = Pattern.compile(";\\s*filename=\"([^\"]*)\"");
+
+    private final Map<String, String> headers;
+    private final InputStream body;
+
+    Part(Map<String, String> headers, InputStream body) {
+      this.headers = headers;
+      this.body = body;
+    }
+
+    /** Returns a header value by case-insensitive name, or {@code null}. */
+    public String getHeader(String name) {
+      return headers.get(name.toLowerCase(Locale.ROOT));
+    }
+
+    /** Returns the form field name from Content-Disposition, or {@code null}. */
+    public String getName() {
+      return dispositionParameter(NAME);
+    }
+
+    /** Returns the file name from Content-Disposition, or {@code null}. */
+    public String getFilename() {
+      return dispositionParameter(FILENAME);
+    }
+
+    public InputStream getInputStream() {
+      return body;
+    }
+
+    private String dispositionParameter(Pattern pattern) {
+      String disposition = getHeader("Content-Disposition");
+      if (disposition == null) {
+        return null;
+      }
+      Matcher m = pattern.matcher(disposition);
+      return m.find() ? m.group(1) : null;
+    }
+  }
+
+  /** Reads up to the next delimiter, which it leaves in the buffer. */
+  private final class PartInputStream extends InputStream {
+
+    /** Bytes before this buffer index are known to hold no delimiter. */
+    private int safeEnd = -1;
+
+    private boolean ended;
+
+    @Override
+    public int read() throws IOException {
+      byte[] one = new byte[1];
+      return read(one, 0, 1) == -1 ? -1 : one[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      if (ended || current != this) {
+        return -1;
+      }
+      if (len == 0) {
+        return 0;
+      }
+      while (position >= safeEnd) {
+        int found = indexOfDelimiter(position);
+        if (found == position) {
+          ended = true;
+          return -1;
+        }
+        if (found >= 0) {
+          safeEnd = found;
+        } else if (limit - position >= delimiter.length) {
+          safeEnd = limit - delimiter.length + 1;
+        } else {
+          if (!fill()) {
+            throw new IOException("Multipart body ends without a closing boundary");
+          }
+          safeEnd = -1;
+        }
+      }
+      int n = Math.min(len, safeEnd - position);
+      System.arraycopy(buffer, position, b, off, n);
+      position += n;
+      return n;
+    }
+
+    void skipRemaining() throws IOException {
+      byte[] skip = new byte[8192];
+      while (read(skip, 0, skip.length) != -1) {
+        // 読み捨てる
+      }
+    }
+  }
+}
@@ -2,75 +2,177 @@ package jp.co.metaease.web.ctrl;
 
 import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import java.net.*;
 import java.io.*;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.ModelAndView;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import main.java.jp.co.metaease.com.WebAPIUtil;
+import jp.co.metaease.web.logging.ControllerLog;
+import jp.co.metaease.web.upstream.UpstreamGateway;
+import jp.co.metaease.web.upstream.UpstreamResponse;
+import jp.co.metaease.web.view.ModelHash;
 
 /** Defines a controller to handle HTTP requests */
 @Controller
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public final class WebAPI010101Controller {
 
   private static String project;
   private static final Logger logger = LoggerFactory.getLogger(WebAPI010101Controller.class);
 
+  private static final String ROUTE = "webapi010101";
+
+  private final UpstreamGateway upstreamGateway;
+  private final ControllerLog controllerLog;
+
+  public WebAPI010101Controller(UpstreamGateway upstreamGateway, ControllerLog controllerLog) {
+    this.upstreamGateway = upstreamGateway;
+    this.controllerLog = controllerLog;
+  }
+
   /**
-   * Create an endpoint for the landing page
+   * Create an endpoint for the landing page. The page carries an ETag derived from its model, and a
+   * request whose If-None-Match still matches gets a 304 without the view being rendered.
    *
-   * @return the index view template
+   * @return the index view template, or {@code null} when the client's copy is current
    */
   @GetMapping("/")
-  public String webapi010101(Model model) throws Exception {
+  public String webapi010101(Model model, WebRequest webRequest) throws Exception {
 
     logger.info( "■■■webapi010101 START" );
+    boolean sampled = controllerLog.sampled(ROUTE);
 
     // Get Cloud Run environment variables.
     String revision = System.getenv("K_REVISION") == null ? "???" : System.getenv("K_REVISION");
     String service = System.getenv("K_SERVICE") == null ? "???" : System.getenv("K_SERVICE");
 
-    // API呼び出し
-//    URL verisign = new URL("https://my-apigw-001-1upcx6wd.uc.gateway.dev");
-    URL verisign = URI.create("https://my-apigw-001-1upcx6wd.uc.gateway.dev").toURL();
-    BufferedReader in = new BufferedReader(new InputStreamReader(verisign.openStream()));
-    String inputLine;
-    String strRespApi = "";
-    while ((inputLine = in.readLine()) != null) {
-        logger.info( "inputLine:" + inputLine );
-        strRespApi = strRespApi + String.valueOf(inputLine);
+    // API呼び出し（キャッシュ・サーキットブレーカー経由）
+    String strRespApi;
+    try {
+        strRespApi = upstreamGateway.message();
+    } catch (IOException ex) {
+        // フォールバック：APIの応答なしで画面を表示
+        logger.warn( "upstream unavailable, rendering fallback: {}", ex.toString() );
+        strRespApi = "";
     }
-    in.close();
 
-    logger.info( "strRespApi:" + strRespApi );
+    controllerLog.upstreamBody(logger, ROUTE, sampled, strRespApi);
 
     // Set variables in html template.
     model.addAttribute("revision", revision);
     model.addAttribute("service", service);
     model.addAttribute("message", "メッセージです。" + strRespApi);
 
-    printMap(model.asMap());
+    controllerLog.model(logger, ROUTE, sampled, model.asMap());
+
+    // 画面の内容が変わっていなければ描画せずに304を返す
+    if (webRequest.checkNotModified(ModelHash.etag(model.asMap()))) {
+      logger.info( "■■■webapi010101 END (not modified)" );
+      return null;
+    }
     logger.info( "■■■webapi010101 END" );
 
     return "index";
   }
 
-  private void printMap(Map<String, Object> map) {
+  /**
+   * Create a non-blocking endpoint for the landing page. The request thread is released while the
+   * gateway call is in flight; on timeout or failure the page is rendered without the upstream
+   * message. Like {@code /}, the page carries an ETag derived from its model and a matching
+   * If-None-Match gets a 304 without the view being rendered.
+   *
+   * @return the index view, or {@code null} when the client's copy is current
+   */
+  @GetMapping("/async")
+  public CompletableFuture<ModelAndView> webapi010101Async(Model model, WebRequest webRequest) {
 
-    if (map == null || map.isEmpty()) {
-        logger.info( "戻り値なし" );
-        return ;
-    }
+    logger.info( "■■■webapi010101Async START" );
+    boolean sampled = controllerLog.sampled(ROUTE);
 
-    for ( Object key : map.keySet() ) {
-        logger.info( key.toString() + ":" + map.get(key.toString()).toString() );
-    }
+    // Get Cloud Run environment variables.
+    String revision = System.getenv("K_REVISION") == null ? "???" : System.getenv("K_REVISION");
+    String service = System.getenv("K_SERVICE") == null ? "???" : System.getenv("K_SERVICE");
 
-    return ;
+    // API呼び出し（非同期、キャッシュ・サーキットブレーカー経由）
+    long timeoutMillis = upstreamGateway.client().properties().getAsyncTimeout().toMillis();
+    return upstreamGateway
+        .messageAsync()
+        .orTimeout(timeoutMillis, TimeUnit.MILLISECONDS)
+        .exceptionally(ex -> {
+            // フォールバック：APIの応答なしで画面を表示
+            logger.warn( "upstream unavailable, rendering fallback: {}", ex.toString() );
+            return "";
+        })
+        .thenApply(strRespApi -> {
+            // Set variables in html template.
+            model.addAttribute("revision", revision);
+            model.addAttribute("service", service);
+            model.addAttribute("message", "メッセージです。" + strRespApi);
+
+            controllerLog.upstreamBody(logger, ROUTE, sampled, strRespApi);
+            controllerLog.model(logger, ROUTE, sampled, model.asMap());
+
+            // 画面の内容が変わっていなければ描画せずに304を返す
+            // （非同期の再ディスパッチでは null のビュー名が処理済みとみなされないため ModelAndView で返す）
+            if (webRequest.checkNotModified(ModelHash.etag(model.asMap()))) {
+              logger.info( "■■■webapi010101Async END (not modified)" );
+              return null;
+            }
+            logger.info( "■■■webapi010101Async END" );
+
+            return new ModelAndView("index");
+        });
+  }
+
+  /**
+   * Stream the gateway response body to the client as is. A body whose declared length exceeds
+   * {@code webapi01.upstream.max-body-size} is answered with 502 before anything is committed; one
+   * that only turns out too large while streaming aborts the connection, so the client sees an
+   * incomplete response rather than a truncated 200.
+   *
+   * @return the upstream body
+   */
+  @GetMapping("/upstream")
+  public ResponseEntity<StreamingResponseBody> webapi010101Upstream() throws Exception {
+
+    UpstreamResponse upstream = upstreamGateway.open();
+    try {
+      // ステータスとヘッダーを確定する前に、宣言されたサイズで上限超過を検出する
+      upstream.checkDeclaredLength();
+    } catch (IOException ex) {
+      upstream.close();
+      logger.warn( "upstream passthrough rejected: {}", ex.getMessage() );
+      return ResponseEntity.status(HttpStatus.BAD_GATEWAY).build();
+    }
+    StreamingResponseBody body = out -> {
+      try (upstream) {
+        long bytes = upstream.transferTo(out);
+        logger.debug( "upstream passthrough bytes:{}", bytes );
+      }
+      // 送信途中の上限超過は例外のまま返す。応答は確定済みのため、コンテナが接続を切断する
+    };
+
+    ResponseEntity.BodyBuilder builder = ResponseEntity.ok();
+    if (upstream.contentType() != null) {
+      builder.header(HttpHeaders.CONTENT_TYPE, upstream.contentType());
+    }
+    if (upstream.contentLength() >= 0) {
+      builder.contentLength(upstream.contentLength());
+    }
+    return builder.body(body);
   }
 
 }
@@ -0,0 +1,212 @@
+package jp.co.metaease.web.ctrl;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import jp.co.metaease.web.text.TextBatch;
+import jp.co.metaease.web.text.TextBatchLimitException;
+import jp.co.metaease.web.text.TextBatchProperties;
+import jp.co.metaease.web.text.TextBatchRequest;
+import jp.co.metaease.web.text.TextCheck;
+import jp.co.metaease.web.text.TextOperation;
+import jp.co.metaease.web.text.TextRecordProcessor;
+import jp.co.metaease.web.text.TextStreamService;
+
+/** Defines a controller exposing StringUtil conversions and WebAPIUtil checks as JSON APIs */
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@EnableConfigurationProperties(TextBatchProperties.class)
+public final class WebAPI010201Controller {
+
+  private static final Logger logger = LoggerFactory.getLogger(WebAPI010201Controller.class);
+
+  private final ObjectMapper objectMapper;
+  private final TextBatchProperties limits;
+  private final TextStreamService textStream;
+
+  public WebAPI010201Controller(
+      ObjectMapper objectMapper, TextBatchProperties limits, TextStreamService textStream) {
+    this.objectMapper = objectMapper;
+    this.limits = limits;
+    this.textStream = textStream;
+  }
+
+  /**
+   * Convert one value
+   *
+   * @return the operation, the value and the result
+   */
+  @GetMapping(value = "/api/text/{operation}", produces = MediaType.APPLICATION_JSON_VALUE)
+  public Map<String, Object> convert(
+      @PathVariable("operation") String operationName,
+      @RequestParam(value = "value", required = false) String value) {
+
+    TextOperation operation = TextOperation.of(operationName);
+
+    Map<String, Object> body = new LinkedHashMap<>();
+    body.put("operation", operation.operationName());
+    body.put("value", value);
+    body.put("result", operation.apply(value));
+    return body;
+  }
+
+  /**
+   * Check one value
+   *
+   * @return the check, the value and whether it passed
+   */
+  @GetMapping(value = "/api/check/{check}", produces = MediaType.APPLICATION_JSON_VALUE)
+  public Map<String, Object> check(
+      @PathVariable("check") String checkName,
+      @RequestParam(value = "value", required = false) String value) {
+
+    TextCheck check = TextCheck.of(checkName);
+
+    Map<String, Object> body = new LinkedHashMap<>();
+    body.put("check", check.checkName());
+    body.put("value", value);
+    body.put("result", check.test(value));
+    return body;
+  }
+
+  /**
+   * Convert many values with a list of operations in one request. The results have the shape of
+   * the values: a list for an array, an object with the same keys for an object.
+   *
+   * @return the operations applied and the results
+   */
+  @PostMapping(
+      value = "/api/text/batch",
+      consumes = MediaType.APPLICATION_JSON_VALUE,
+      produces = MediaType.APPLICATION_JSON_VALUE)
+  public Map<String, Object> batch(HttpServletRequest request) throws IOException {
+
+    logger.info( "■■■webapi010201 batch START" );
+
+    // 解析前にリクエストサイズを確認する
+    long maxBytes = limits.getMaxRequestSize().toBytes();
+    if (request.getContentLengthLong() > maxBytes) {
+      throw new TextBatchLimitException("Request body is limited to " + maxBytes + " bytes");
+    }
+    TextBatchRequest batchRequest;
+    try (InputStream in = new LimitedInputStream(request.getInputStream(), maxBytes)) {
+      batchRequest = objectMapper.readValue(in, TextBatchRequest.class);
+    }
+
+    TextBatch batch = TextBatch.of(batchRequest.getOperations(), limits);
+    Map<String, Object> body = new LinkedHashMap<>();
+    body.put("operations", batch.operationNames());
+    body.put("results", batch.applyAll(batchRequest.getValues()));
+
+    logger.info( "■■■webapi010201 batch END" );
+    return body;
+  }
+
+  /**
+   * Convert and check NDJSON records as they arrive. Each input line is a JSON object of string
+   * fields; one result line per record is written back in input order while the body is still
+   * being read. Clients must read the results while they send: once the response buffers are
+   * full, reading of the body stops until results are consumed.
+   *
+   * @param operationNames operations applied to every field, comma separated
+   * @param checkNames checks run on every converted field, comma separated
+   */
+  @PostMapping(
+      value = "/api/text/stream",
+      consumes = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_PLAIN_VALUE})
+  public void stream(
+      @RequestParam(value = "operations", required = false) List<String> operationNames,
+      @RequestParam(value = "checks", required = false) List<String> checkNames,
+      HttpServletRequest request,
+      HttpServletResponse response)
+      throws IOException {
+
+    logger.info( "■■■webapi010201 stream START" );
+
+    TextRecordProcessor processor =
+        TextRecordProcessor.of(objectMapper, operationNames, checkNames, limits);
+
+    // 結果は受信しながら順に返すため、レスポンスはここで確定する
+    response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+    response.setCharacterEncoding("UTF-8");
+    try (InputStream in = request.getInputStream();
+        OutputStream out = response.getOutputStream()) {
+      textStream.process(processor, in, out);
+    }
+
+    logger.info( "■■■webapi010201 stream END" );
+  }
+
+  @ExceptionHandler(TextBatchLimitException.class)
+  public ResponseEntity<String> tooLarge(TextBatchLimitException ex) {
+    return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE)
+        .contentType(MediaType.TEXT_PLAIN)
+        .body(ex.getMessage());
+  }
+
+  @ExceptionHandler({IllegalArgumentException.class, JsonProcessingException.class})
+  public ResponseEntity<String> badRequest(Exception ex) {
+    return ResponseEntity.badRequest().contentType(MediaType.TEXT_PLAIN).body(ex.getMessage());
+  }
+
+  /** Stops reading a body without Content-Length once it exceeds the limit. */
+  private static final class LimitedInputStream extends FilterInputStream {
+
+    private final long maxBytes;
+    private long count;
+
+    LimitedInputStream(InputStream in, long maxBytes) {
+      super(in);
+      this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = super.read();
+      if (b != -1) {
+        check(1);
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      int n = super.read(b, off, len);
+      if (n > 0) {
+        check(n);
+      }
+      return n;
+    }
+
+    private void check(int n) {
+      count += n;
+      if (count > maxBytes) {
+        throw new TextBatchLimitException("Request body is limited to " + maxBytes + " bytes");
+      }
+    }
+  }
+
+}
@@ -0,0 +1,98 @@
+package jp.co.metaease.web.ctrl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.UUID;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.util.UriComponentsBuilder;
+import org.springframework.web.util.UriUtils;
+
+import jp.co.metaease.web.csv.CsvNormalizeService;
+import jp.co.metaease.web.csv.CsvPipeline;
+import jp.co.metaease.web.csv.MultipartStream;
+
+/** Defines a controller that cleans uploaded CSV files */
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public final class WebAPI010301Controller {
+
+  private static final Logger logger = LoggerFactory.getLogger(WebAPI010301Controller.class);
+
+  private static final String FILE_PART = "file";
+
+  private final CsvNormalizeService csvNormalizeService;
+
+  public WebAPI010301Controller(CsvNormalizeService csvNormalizeService) {
+    this.csvNormalizeService = csvNormalizeService;
+  }
+
+  /**
+   * Clean the CSV in the {@code file} part of a multipart upload, row by row as it arrives. The
+   * response is {@code multipart/mixed}: the cleaned CSV, then the error report.
+   *
+   * <p>The request is read here directly, never through {@code getParameter} or {@code getParts},
+   * which would make the container store the whole upload first. Options therefore come from the
+   * query string: {@code pipeline} (a {@code webapi01.csv.pipelines} name) and {@code charset}
+   * (for example {@code MS932}; defaults to the charset of the part, then to UTF-8).
+   */
+  @PostMapping(value = "/api/csv/normalize", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+  public void normalize(HttpServletRequest request, HttpServletResponse response)
+      throws IOException {
+
+    logger.info( "■■■webapi010301 START" );
+
+    MultiValueMap<String, String> query =
+        UriComponentsBuilder.newInstance().query(request.getQueryString()).build().getQueryParams();
+    CsvPipeline pipeline = csvNormalizeService.pipeline(queryValue(query, "pipeline"));
+
+    // file パートまで読み進める（それ以前のパートは読み捨てる）
+    MultipartStream multipart =
+        new MultipartStream(request.getInputStream(), request.getContentType());
+    MultipartStream.Part part;
+    while ((part = multipart.nextPart()) != null && !FILE_PART.equals(part.getName())) {
+      // 読み捨てる
+    }
+    if (part == null) {
+      throw new IllegalArgumentException("No \"" + FILE_PART + "\" part in the upload");
+    }
+    Charset charset =
+        csvNormalizeService.charset(queryValue(query, "charset"), part.getHeader("Content-Type"));
+
+    String boundary = UUID.randomUUID().toString().replace("-", "");
+    response.setContentType("multipart/mixed; boundary=" + boundary);
+    CsvNormalizeService.Result result;
+    try (InputStream in = part.getInputStream();
+        OutputStream out = response.getOutputStream()) {
+      result = csvNormalizeService.normalize(in, charset, pipeline, out, boundary);
+    }
+
+    logger.info(
+        "■■■webapi010301 END pipeline={} rows={} errors={}",
+        pipeline.getName(),
+        result.getRows(),
+        result.getErrors());
+  }
+
+  @ExceptionHandler(IllegalArgumentException.class)
+  public ResponseEntity<String> badRequest(IllegalArgumentException ex) {
+    return ResponseEntity.badRequest().contentType(MediaType.TEXT_PLAIN).body(ex.getMessage());
+  }
+
+  private static String queryValue(MultiValueMap<String, String> query, String name) {
+    String value = query.getFirst(name);
+    return value == null ? null : UriUtils.decode(value, "UTF-8");
+  }
+}
@@ -0,0 +1,140 @@
+package jp.co.metaease.web.filter;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import jp.co.metaease.web.limit.AdaptiveConcurrencyLimiter;
+import jp.co.metaease.web.limit.ConcurrencyLimitProperties;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Rejects requests with 503 and Retry-After once the {@link AdaptiveConcurrencyLimiter} is full,
+ * instead of letting them queue in the connector while the upstream is slow.
+ *
+ * <p>Runs after the observation filter so rejections still appear in {@code
+ * http.server.requests}. Asynchronous requests hold their slot until the async processing
+ * completes. Paths in {@code excluded-paths}, and the paths below them, are never limited, so
+ * health checks keep answering under load and long streams do not skew the latency estimate.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnProperty(prefix = "webapi01.limiter", name = "enabled", matchIfMissing = true)
+@EnableConfigurationProperties(ConcurrencyLimitProperties.class)
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+  private final AdaptiveConcurrencyLimiter limiter;
+  private final String retryAfter;
+  private final List<String> excludedPaths;
+
+  public ConcurrencyLimitFilter(ConcurrencyLimitProperties properties, MeterRegistry registry) {
+    this.limiter = new AdaptiveConcurrencyLimiter(properties, registry);
+    long millis = properties.getRetryAfter().toMillis();
+    this.retryAfter = String.valueOf(Math.max(1, (millis + 999) / 1000));
+    this.excludedPaths = List.copyOf(properties.getExcludedPaths());
+  }
+
+  @Override
+  protected boolean shouldNotFilter(HttpServletRequest request) {
+    String path = request.getRequestURI().substring(request.getContextPath().length());
+    for (String excluded : excludedPaths) {
+      if (underPath(path, excluded)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Whether {@code path} is {@code prefix} itself or lies below it, segment by segment. */
+  private static boolean underPath(String path, String prefix) {
+    if (!path.startsWith(prefix)) {
+      return false;
+    }
+    // "/api/csv" は "/api/csv" と "/api/csv/..." に一致し、"/api/csvx" には一致しない
+    return path.length() == prefix.length()
+        || prefix.endsWith("/")
+        || path.charAt(prefix.length()) == '/';
+  }
+
+  @Override
+  protected void doFilterInternal(
+      HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+      throws ServletException, IOException {
+    int acquired = limiter.tryAcquire();
+    if (acquired == 0) {
+      response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+      response.setHeader(HttpHeaders.RETRY_AFTER, retryAfter);
+      response.setContentType("text/plain;charset=UTF-8");
+      response.getWriter().write("Server is busy, please retry later.");
+      return;
+    }
+
+    long startNanos = System.nanoTime();
+    boolean async = false;
+    try {
+      filterChain.doFilter(request, response);
+      if (request.isAsyncStarted()) {
+        request.getAsyncContext().addListener(new ReleaseListener(acquired, startNanos));
+        async = true;
+      }
+    } finally {
+      if (!async) {
+        limiter.release(acquired, startNanos);
+      }
+    }
+  }
+
+  /** Releases the slot of an asynchronous request exactly once, however it ends. */
+  private final class ReleaseListener implements AsyncListener {
+
+    private final int acquired;
+    private final long startNanos;
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    ReleaseListener(int acquired, long startNanos) {
+      this.acquired = acquired;
+      this.startNanos = startNanos;
+    }
+
+    private void release() {
+      if (released.compareAndSet(false, true)) {
+        limiter.release(acquired, startNanos);
+      }
+    }
+
+    @Override
+    public void onComplete(AsyncEvent event) {
+      release();
+    }
+
+    @Override
+    public void onTimeout(AsyncEvent event) {
+      release();
+    }
+
+    @Override
+    public void onError(AsyncEvent event) {
+      release();
+    }
+
+    @Override
+    public void onStartAsync(AsyncEvent event) {
+      // A re-dispatch that starts async again keeps the same slot.
+      event.getAsyncContext().addListener(this);
+    }
+  }
+}
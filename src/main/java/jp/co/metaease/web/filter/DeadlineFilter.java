@@ -0,0 +1,39 @@
+package jp.co.metaease.web.filter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import jp.co.metaease.web.upstream.Deadline;
+import jp.co.metaease.web.upstream.UpstreamProperties;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Opens a {@link Deadline} of {@code webapi01.upstream.request-budget} for every incoming request
+ * and binds it to the request thread while the request is handled.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class DeadlineFilter extends OncePerRequestFilter {
+
+  private final UpstreamProperties properties;
+
+  public DeadlineFilter(UpstreamProperties properties) {
+    this.properties = properties;
+  }
+
+  @Override
+  protected void doFilterInternal(
+      HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+      throws ServletException, IOException {
+    Deadline.bind(Deadline.after(properties.getRequestBudget()));
+    try {
+      filterChain.doFilter(request, response);
+    } finally {
+      Deadline.clear();
+    }
+  }
+}
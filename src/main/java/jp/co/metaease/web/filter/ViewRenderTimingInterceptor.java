@@ -0,0 +1,54 @@
+package jp.co.metaease.web.filter;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.util.concurrent.TimeUnit;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.ModelAndView;
+
+/**
+ * Times view rendering: the span between {@code postHandle} (handler done, view not yet rendered)
+ * and {@code afterCompletion}. Tagged with the view name, which is a fixed set of templates.
+ */
+public class ViewRenderTimingInterceptor implements HandlerInterceptor {
+
+  private static final String VIEW_ATTRIBUTE = ViewRenderTimingInterceptor.class.getName() + ".view";
+  private static final String START_ATTRIBUTE =
+      ViewRenderTimingInterceptor.class.getName() + ".start";
+
+  private final MeterRegistry registry;
+
+  public ViewRenderTimingInterceptor(MeterRegistry registry) {
+    this.registry = registry;
+  }
+
+  @Override
+  public void postHandle(
+      HttpServletRequest request,
+      HttpServletResponse response,
+      Object handler,
+      ModelAndView modelAndView) {
+    if (modelAndView != null && modelAndView.getViewName() != null) {
+      request.setAttribute(VIEW_ATTRIBUTE, modelAndView.getViewName());
+      request.setAttribute(START_ATTRIBUTE, System.nanoTime());
+    }
+  }
+
+  @Override
+  public void afterCompletion(
+      HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+    Object view = request.getAttribute(VIEW_ATTRIBUTE);
+    Object start = request.getAttribute(START_ATTRIBUTE);
+    if (view == null || start == null) {
+      return;
+    }
+    Timer.builder("webapi01.view.render")
+        .description("View render time")
+        .tag("view", view.toString())
+        .tag("outcome", ex == null ? "success" : "error")
+        .register(registry)
+        .record(System.nanoTime() - (Long) start, TimeUnit.NANOSECONDS);
+  }
+}
@@ -0,0 +1,70 @@
+package jp.co.metaease.web.limit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Admits requests while fewer than the current {@link GradientLimit} are in flight, and feeds the
+ * latency of every admitted request back into the limit.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+  private final GradientLimit gradient;
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private final Counter rejected;
+
+  public AdaptiveConcurrencyLimiter(ConcurrencyLimitProperties settings, MeterRegistry registry) {
+    this.gradient = new GradientLimit(settings);
+    this.rejected =
+        Counter.builder("webapi01.limiter.rejected")
+            .description("Requests rejected because the concurrency limit was reached")
+            .register(registry);
+    Gauge.builder("webapi01.limiter.limit", this, AdaptiveConcurrencyLimiter::limit)
+        .description("Current adaptive concurrency limit")
+        .register(registry);
+    Gauge.builder("webapi01.limiter.inflight", inFlight, AtomicInteger::get)
+        .description("Requests currently admitted by the limiter")
+        .register(registry);
+  }
+
+  /**
+   * Admits a request if the limit allows it.
+   *
+   * @return the number of requests in flight including this one, or {@code 0} if it is rejected
+   */
+  public int tryAcquire() {
+    while (true) {
+      int current = inFlight.get();
+      if (current >= gradient.limit()) {
+        rejected.increment();
+        return 0;
+      }
+      if (inFlight.compareAndSet(current, current + 1)) {
+        return current + 1;
+      }
+    }
+  }
+
+  /**
+   * Releases an admitted request and records its latency.
+   *
+   * @param acquired the value returned by {@link #tryAcquire()}
+   * @param startNanos {@link System#nanoTime()} when the request was admitted
+   */
+  public void release(int acquired, long startNanos) {
+    inFlight.decrementAndGet();
+    gradient.onSample(System.nanoTime() - startNanos, acquired);
+  }
+
+  /** Returns the current limit. */
+  public int limit() {
+    return gradient.limit();
+  }
+
+  /** Returns the number of admitted requests that have not completed. */
+  public int inFlight() {
+    return inFlight.get();
+  }
+}
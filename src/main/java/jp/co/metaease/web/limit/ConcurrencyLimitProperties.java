@@ -0,0 +1,124 @@
+package jp.co.metaease.web.limit;
+
+import java.time.Duration;
+import java.util.List;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/** Adaptive limit on concurrently handled requests ({@code webapi01.limiter.*}). */
+@ConfigurationProperties(prefix = "webapi01.limiter")
+public class ConcurrencyLimitProperties {
+
+  /** Whether requests beyond the current limit are rejected with 503. */
+  private boolean enabled = true;
+
+  /** Limit used until enough latency samples have been observed. */
+  private int initialLimit = 20;
+
+  /** The limit never drops below this, however slow requests become. */
+  private int minLimit = 4;
+
+  /** The limit never grows beyond this; keep it at or below the instance concurrency. */
+  private int maxLimit = 80;
+
+  /** Ratio by which recent latency may exceed the long-term average before the limit shrinks. */
+  private double tolerance = 1.5;
+
+  /** Weight (0.0 - 1.0) of a new estimate when it is blended into the current limit. */
+  private double smoothing = 0.2;
+
+  /** Latency samples are averaged over windows of this length before the limit is updated. */
+  private Duration sampleWindow = Duration.ofMillis(100);
+
+  /** Number of windows the long-term latency average spans. */
+  private int longWindow = 600;
+
+  /** Value of the Retry-After header sent with a rejection. */
+  private Duration retryAfter = Duration.ofSeconds(1);
+
+  /**
+   * Paths that are never limited, with everything below them ({@code /actuator} covers {@code
+   * /actuator/health} but not {@code /actuatorx}): health checks, and streams and uploads whose
+   * latency reflects the size of the body rather than server load.
+   */
+  private List<String> excludedPaths = List.of("/actuator", "/api/text/stream", "/api/csv");
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public int getInitialLimit() {
+    return initialLimit;
+  }
+
+  public void setInitialLimit(int initialLimit) {
+    this.initialLimit = initialLimit;
+  }
+
+  public int getMinLimit() {
+    return minLimit;
+  }
+
+  public void setMinLimit(int minLimit) {
+    this.minLimit = minLimit;
+  }
+
+  public int getMaxLimit() {
+    return maxLimit;
+  }
+
+  public void setMaxLimit(int maxLimit) {
+    this.maxLimit = maxLimit;
+  }
+
+  public double getTolerance() {
+    return tolerance;
+  }
+
+  public void setTolerance(double tolerance) {
+    this.tolerance = tolerance;
+  }
+
+  public double getSmoothing() {
+    return smoothing;
+  }
+
+  public void setSmoothing(double smoothing) {
+    this.smoothing = smoothing;
+  }
+
+  public Duration getSampleWindow() {
+    return sampleWindow;
+  }
+
+  public void setSampleWindow(Duration sampleWindow) {
+    this.sampleWindow = sampleWindow;
+  }
+
+  public int getLongWindow() {
+    return longWindow;
+  }
+
+  public void setLongWindow(int longWindow) {
+    this.longWindow = longWindow;
+  }
+
+  public Duration getRetryAfter() {
+    return retryAfter;
+  }
+
+  public void setRetryAfter(Duration retryAfter) {
+    this.retryAfter = retryAfter;
+  }
+
+  public List<String> getExcludedPaths() {
+    return excludedPaths;
+  }
+
+  public void setExcludedPaths(List<String> excludedPaths) {
+    this.excludedPaths = excludedPaths;
+  }
+}
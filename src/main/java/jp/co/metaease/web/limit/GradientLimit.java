@@ -0,0 +1,85 @@
+package jp.co.metaease.web.limit;
+
+/**
+ * Gradient concurrency-limit estimate.
+ *
+ * <p>Latencies are averaged per sample window (the short-term RTT) and folded into an exponential
+ * average over many windows (the long-term RTT). Their ratio is the gradient: close to 1 while
+ * requests are not queueing, falling below 1 as queueing inflates recent latency. Each window the
+ * limit is scaled by the gradient and given headroom of {@code sqrt(limit)} to probe upwards, so it
+ * follows the concurrency the service can absorb without latency climbing - the same signal TCP
+ * Vegas uses, but compared against a moving baseline rather than the minimum ever seen, which a
+ * single fast cache hit would otherwise pin.
+ */
+final class GradientLimit {
+
+  private final ConcurrencyLimitProperties settings;
+  private final long windowNanos;
+
+  private double limit;
+  /** {@code limit} as last published under the lock, for readers that must not take it. */
+  private volatile int current;
+  private double longRtt;
+  private long windowStart;
+  private long windowRttSum;
+  private int windowSamples;
+  private int windowMaxInFlight;
+
+  GradientLimit(ConcurrencyLimitProperties settings) {
+    this.settings = settings;
+    this.windowNanos = settings.getSampleWindow().toNanos();
+    this.limit = settings.getInitialLimit();
+    this.current = (int) limit;
+    this.windowStart = System.nanoTime();
+  }
+
+  /** Returns the current limit without taking the lock. */
+  int limit() {
+    return current;
+  }
+
+  /**
+   * Adds one request latency.
+   *
+   * @param rttNanos time the request took
+   * @param inFlight requests in flight when it started, itself included
+   */
+  synchronized void onSample(long rttNanos, int inFlight) {
+    windowRttSum += rttNanos;
+    windowSamples++;
+    windowMaxInFlight = Math.max(windowMaxInFlight, inFlight);
+
+    long now = System.nanoTime();
+    if (now - windowStart < windowNanos) {
+      return;
+    }
+    double shortRtt = (double) windowRttSum / windowSamples;
+    int maxInFlight = windowMaxInFlight;
+    windowStart = now;
+    windowRttSum = 0;
+    windowSamples = 0;
+    windowMaxInFlight = 0;
+
+    if (longRtt == 0) {
+      longRtt = shortRtt;
+    } else {
+      double factor = 1.0 / settings.getLongWindow();
+      longRtt = longRtt * (1 - factor) + shortRtt * factor;
+    }
+    // After a long overload the baseline is inflated too; let it recover faster.
+    if (longRtt / shortRtt > 2) {
+      longRtt *= 0.95;
+    }
+    // Do not grow a limit the traffic is not even reaching.
+    if (maxInFlight < limit / 2) {
+      return;
+    }
+
+    double gradient = Math.max(0.5, Math.min(1.0, settings.getTolerance() * longRtt / shortRtt));
+    double estimate = limit * gradient + Math.sqrt(limit);
+    double smoothing = settings.getSmoothing();
+    double next = limit * (1 - smoothing) + estimate * smoothing;
+    limit = Math.max(settings.getMinLimit(), Math.min(settings.getMaxLimit(), next));
+    current = (int) limit;
+  }
+}
@@ -0,0 +1,11 @@
+package jp.co.metaease.web.logging;
+
+/**
+ * Appender that buffers output and is told by {@link RingBufferAsyncAppender} when a drained batch
+ * ends, so it can write the whole batch at once.
+ */
+public interface BatchAware {
+
+  /** Called on the ring's worker thread after the last event of a batch has been appended. */
+  void endOfBatch();
+}
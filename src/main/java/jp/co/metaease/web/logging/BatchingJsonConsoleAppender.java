@@ -0,0 +1,207 @@
+package jp.co.metaease.web.logging;
+
+import ch.qos.logback.classic.PatternLayout;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Layout;
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Writes one JSON line per event to stdout, encoding a whole batch into a reused direct buffer.
+ *
+ * <p>The JSON itself comes from the configured {@link Layout} ({@link KeyValueJsonLayout} in
+ * {@code logback-spring.xml}). What differs from a layout-wrapping encoder is the write path: its
+ * per-event {@code byte[]} is replaced by a char and a byte buffer allocated once, and the buffer
+ * is written to the stdout channel when it fills up or when {@link RingBufferAsyncAppender} reports
+ * the end of a batch.
+ *
+ * <p>Meant to sit behind {@link RingBufferAsyncAppender}; used on its own, set {@code
+ * immediateFlush} so every event is written straight away.
+ *
+ * <p>When the layout class cannot be loaded, events are written as plain text with {@code
+ * fallbackPattern} instead: the appender always starts, so the ring in front of it never turns into
+ * a sink that silently drops the application's logs.
+ */
+public class BatchingJsonConsoleAppender extends UnsynchronizedAppenderBase<ILoggingEvent>
+    implements BatchAware {
+
+  private final ReentrantLock lock = new ReentrantLock();
+
+  private Layout<ILoggingEvent> layout;
+  private String layoutClass;
+  private String fallbackPattern = "%d{ISO8601} %-5level [%thread] %logger{36} - %msg %kvp%n";
+  private int bufferSize = 64 * 1024;
+  private boolean immediateFlush;
+
+  private FileOutputStream stdout;
+  private FileChannel channel;
+  private CharsetEncoder encoder;
+  private ByteBuffer bytes;
+  private CharBuffer chars;
+
+  @Override
+  public void start() {
+    if (layout == null && layoutClass != null) {
+      layout = instantiateLayout(layoutClass);
+    }
+    if (layout == null) {
+      addWarn(
+          "No layout for the appender named ["
+              + name
+              + "], writing plain text with ["
+              + fallbackPattern
+              + "]");
+      layout = fallbackLayout();
+    }
+    stdout = new FileOutputStream(FileDescriptor.out);
+    channel = stdout.getChannel();
+    encoder =
+        StandardCharsets.UTF_8
+            .newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    bytes = ByteBuffer.allocateDirect(bufferSize);
+    chars = CharBuffer.allocate(1024);
+    super.start();
+  }
+
+  @Override
+  public void stop() {
+    if (!isStarted()) {
+      return;
+    }
+    lock.lock();
+    try {
+      flush();
+      super.stop();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  protected void append(ILoggingEvent event) {
+    String line = layout.doLayout(event);
+    lock.lock();
+    try {
+      encode(line);
+      if (immediateFlush) {
+        flush();
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void endOfBatch() {
+    if (!isStarted()) {
+      return;
+    }
+    lock.lock();
+    try {
+      flush();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void encode(String line) {
+    int length = line.length();
+    if (chars.capacity() < length) {
+      chars = CharBuffer.allocate(Integer.highestOneBit(length) << 1);
+    }
+    chars.clear();
+    line.getChars(0, length, chars.array(), 0);
+    chars.limit(length);
+
+    encoder.reset();
+    while (encoder.encode(chars, bytes, true).isOverflow()) {
+      flush();
+    }
+    while (encoder.flush(bytes).isOverflow()) {
+      flush();
+    }
+  }
+
+  private void flush() {
+    if (bytes.position() == 0) {
+      return;
+    }
+    bytes.flip();
+    try {
+      while (bytes.hasRemaining()) {
+        channel.write(bytes);
+      }
+    } catch (IOException e) {
+      addError("Failed to write log batch to stdout", e);
+    } finally {
+      bytes.clear();
+    }
+  }
+
+  /**
+   * Creates the layout by class name, so that a missing logging library falls back to {@link
+   * #fallbackLayout()} with a warning instead of failing the whole logging configuration.
+   */
+  @SuppressWarnings("unchecked")
+  private Layout<ILoggingEvent> instantiateLayout(String className) {
+    try {
+      Layout<ILoggingEvent> created =
+          (Layout<ILoggingEvent>)
+              Class.forName(className, true, getClass().getClassLoader())
+                  .getDeclaredConstructor()
+                  .newInstance();
+      created.setContext(getContext());
+      created.start();
+      return created;
+    } catch (ReflectiveOperationException | LinkageError e) {
+      addWarn("Layout class [" + className + "] is not available", e);
+      return null;
+    }
+  }
+
+  private Layout<ILoggingEvent> fallbackLayout() {
+    PatternLayout fallback = new PatternLayout();
+    fallback.setContext(getContext());
+    fallback.setPattern(fallbackPattern);
+    fallback.start();
+    return fallback;
+  }
+
+  public Layout<ILoggingEvent> getLayout() {
+    return layout;
+  }
+
+  public void setLayout(Layout<ILoggingEvent> layout) {
+    this.layout = layout;
+  }
+
+  /** Alternative to a nested layout: the layout's class name, with its default settings. */
+  public void setLayoutClass(String layoutClass) {
+    this.layoutClass = layoutClass;
+  }
+
+  /** Pattern of the plain-text lines written when the layout class is not available. */
+  public void setFallbackPattern(String fallbackPattern) {
+    this.fallbackPattern = fallbackPattern;
+  }
+
+  /** Size in bytes of the batch buffer; a batch larger than this is written in several calls. */
+  public void setBufferSize(int bufferSize) {
+    this.bufferSize = bufferSize;
+  }
+
+  public void setImmediateFlush(boolean immediateFlush) {
+    this.immediateFlush = immediateFlush;
+  }
+}
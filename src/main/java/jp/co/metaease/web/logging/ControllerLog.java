@@ -0,0 +1,92 @@
+package jp.co.metaease.web.logging;
+
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import org.slf4j.Logger;
+import org.slf4j.spi.LoggingEventBuilder;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Sampled, structured request-detail logging for controllers.
+ *
+ * <p>A controller asks {@link #sampled(String)} once per request and passes the answer to the
+ * detail methods, so a request is either logged completely or not at all. Nothing is formatted
+ * unless INFO is enabled and the request is sampled. In structured mode long values are truncated
+ * and identified by length and hash instead of being logged in full.
+ */
+@Component
+@EnableConfigurationProperties(ControllerLogProperties.class)
+public class ControllerLog {
+
+  private final ControllerLogProperties properties;
+
+  public ControllerLog(ControllerLogProperties properties) {
+    this.properties = properties;
+  }
+
+  /** Returns whether the details of the current request on {@code route} should be logged. */
+  public boolean sampled(String route) {
+    if (properties.getMode() == ControllerLogProperties.Mode.VERBOSE) {
+      return true;
+    }
+    double rate = properties.getSampleRates().getOrDefault(route, properties.getDefaultSampleRate());
+    return rate >= 1.0 || (rate > 0.0 && ThreadLocalRandom.current().nextDouble() < rate);
+  }
+
+  /** Returns whether the legacy line-per-value format is configured. */
+  public boolean verbose() {
+    return properties.getMode() == ControllerLogProperties.Mode.VERBOSE;
+  }
+
+  /** Logs the upstream body as one event: length, hash and a truncated head. */
+  public void upstreamBody(Logger logger, String route, boolean sampled, String body) {
+    if (!sampled || !logger.isInfoEnabled()) {
+      return;
+    }
+    if (verbose()) {
+      logger.info("strRespApi:{}", body);
+      return;
+    }
+    LoggingEventBuilder event =
+        logger.atInfo().setMessage("upstream body").addKeyValue("route", route);
+    addValue(event, "body", body);
+    event.log();
+  }
+
+  /** Logs the view model as one event with one key per attribute. */
+  public void model(Logger logger, String route, boolean sampled, Map<String, Object> model) {
+    if (!sampled || !logger.isInfoEnabled()) {
+      return;
+    }
+    if (verbose()) {
+      if (model == null || model.isEmpty()) {
+        logger.info("戻り値なし");
+        return;
+      }
+      for (Map.Entry<String, Object> entry : model.entrySet()) {
+        logger.info("{}:{}", entry.getKey(), entry.getValue());
+      }
+      return;
+    }
+    LoggingEventBuilder event =
+        logger.atInfo().setMessage("view model").addKeyValue("route", route);
+    if (model != null) {
+      for (Map.Entry<String, Object> entry : model.entrySet()) {
+        addValue(event, entry.getKey(), String.valueOf(entry.getValue()));
+      }
+    }
+    event.log();
+  }
+
+  private void addValue(LoggingEventBuilder event, String key, String value) {
+    int max = properties.getMaxValueLength();
+    if (value == null || value.length() <= max) {
+      event.addKeyValue(key, value);
+      return;
+    }
+    event.addKeyValue(key, value.substring(0, max));
+    event.addKeyValue(key + ".length", value.length());
+    event.addKeyValue(key + ".hash", Integer.toHexString(value.hashCode()));
+  }
+}
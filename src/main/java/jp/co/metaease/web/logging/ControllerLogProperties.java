@@ -0,0 +1,61 @@
+package jp.co.metaease.web.logging;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/** Request-detail logging of the controllers ({@code webapi01.logging.*}). */
+@ConfigurationProperties(prefix = "webapi01.logging")
+public class ControllerLogProperties {
+
+  /** How request details are logged. */
+  public enum Mode {
+    /** Full upstream body and one line per model attribute, on every request. */
+    VERBOSE,
+    /** One structured event per detail, with truncated values, on sampled requests only. */
+    STRUCTURED
+  }
+
+  private Mode mode = Mode.STRUCTURED;
+
+  /** Characters of a logged value kept in structured mode; the rest is replaced by its hash. */
+  private int maxValueLength = 200;
+
+  /** Fraction (0.0 - 1.0) of requests whose details are logged when no route rate is set. */
+  private double defaultSampleRate = 0.01;
+
+  /** Fraction of requests whose details are logged, per route name (e.g. webapi010101). */
+  private Map<String, Double> sampleRates = new HashMap<>();
+
+  public Mode getMode() {
+    return mode;
+  }
+
+  public void setMode(Mode mode) {
+    this.mode = mode;
+  }
+
+  public int getMaxValueLength() {
+    return maxValueLength;
+  }
+
+  public void setMaxValueLength(int maxValueLength) {
+    this.maxValueLength = maxValueLength;
+  }
+
+  public double getDefaultSampleRate() {
+    return defaultSampleRate;
+  }
+
+  public void setDefaultSampleRate(double defaultSampleRate) {
+    this.defaultSampleRate = defaultSampleRate;
+  }
+
+  public Map<String, Double> getSampleRates() {
+    return sampleRates;
+  }
+
+  public void setSampleRates(Map<String, Double> sampleRates) {
+    this.sampleRates = sampleRates;
+  }
+}
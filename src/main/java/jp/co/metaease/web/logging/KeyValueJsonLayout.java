@@ -0,0 +1,28 @@
+package jp.co.metaease.web.logging;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import com.google.cloud.spring.logging.StackdriverJsonLayout;
+import java.util.List;
+import java.util.Map;
+import org.slf4j.event.KeyValuePair;
+
+/**
+ * {@link StackdriverJsonLayout} that also writes the key-value pairs of an event as top-level JSON
+ * fields. The Stackdriver layout drops them, and {@link ControllerLog} logs its structured details
+ * as key-value pairs.
+ */
+public class KeyValueJsonLayout extends StackdriverJsonLayout {
+
+  @Override
+  protected Map<String, Object> toJsonMap(ILoggingEvent event) {
+    Map<String, Object> map = super.toJsonMap(event);
+    List<KeyValuePair> pairs = event.getKeyValuePairs();
+    if (pairs != null) {
+      for (KeyValuePair pair : pairs) {
+        // message や severity など、レイアウト自身のフィールドは上書きしない
+        map.putIfAbsent(pair.key, pair.value);
+      }
+    }
+    return map;
+  }
+}
@@ -0,0 +1,63 @@
+package jp.co.metaease.web.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import org.slf4j.ILoggerFactory;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Publishes the queue depth and dropped-event counts of every {@link RingBufferAsyncAppender}
+ * attached to a logger.
+ */
+@Component
+public class LoggingMetrics implements MeterBinder {
+
+  private static final Level[] LEVELS = {
+    Level.TRACE, Level.DEBUG, Level.INFO, Level.WARN, Level.ERROR
+  };
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    ILoggerFactory factory = LoggerFactory.getILoggerFactory();
+    if (!(factory instanceof LoggerContext)) {
+      return;
+    }
+    Map<RingBufferAsyncAppender, Boolean> seen = new IdentityHashMap<>();
+    for (Logger logger : ((LoggerContext) factory).getLoggerList()) {
+      Iterator<Appender<ILoggingEvent>> it = logger.iteratorForAppenders();
+      while (it.hasNext()) {
+        Appender<ILoggingEvent> appender = it.next();
+        if (appender instanceof RingBufferAsyncAppender
+            && seen.put((RingBufferAsyncAppender) appender, Boolean.TRUE) == null) {
+          bind(registry, (RingBufferAsyncAppender) appender);
+        }
+      }
+    }
+  }
+
+  private static void bind(MeterRegistry registry, RingBufferAsyncAppender appender) {
+    Gauge.builder("webapi01.logging.queued", appender, RingBufferAsyncAppender::getQueued)
+        .description("Log events waiting in the ring buffer")
+        .tag("appender", appender.getName())
+        .register(registry);
+    for (Level level : LEVELS) {
+      FunctionCounter.builder(
+              "webapi01.logging.dropped", appender, a -> a.getDroppedCount(level))
+          .description("Log events dropped because the ring buffer was full")
+          .tag("appender", appender.getName())
+          .tag("level", level.toString())
+          .register(registry);
+    }
+  }
+}
@@ -0,0 +1,345 @@
+package jp.co.metaease.web.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
+import ch.qos.logback.core.spi.AppenderAttachable;
+import ch.qos.logback.core.spi.AppenderAttachableImpl;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Asynchronous appender backed by a bounded lock-free ring buffer.
+ *
+ * <p>Request threads only publish the event into the ring (a CAS on the tail sequence); one
+ * worker thread drains it in batches and hands each batch to the attached appenders, telling
+ * {@link BatchAware} ones when the batch ends so they can write it with a single syscall.
+ *
+ * <p>When the ring is full, events below {@code blockingLevel} (DEBUG/INFO by default) are dropped
+ * and counted; events at or above it (WARN/ERROR) wait for space for up to {@code maxBlockMillis}
+ * before they are dropped as well.
+ *
+ * <pre>
+ * &lt;appender name="ASYNC_JSON" class="jp.co.metaease.web.logging.RingBufferAsyncAppender"&gt;
+ *   &lt;appender-ref ref="CONSOLE_JSON_BATCH"/&gt;
+ *   &lt;capacity&gt;8192&lt;/capacity&gt;
+ * &lt;/appender&gt;
+ * </pre>
+ */
+public class RingBufferAsyncAppender extends UnsynchronizedAppenderBase<ILoggingEvent>
+    implements AppenderAttachable<ILoggingEvent> {
+
+  private final AppenderAttachableImpl<ILoggingEvent> appenders = new AppenderAttachableImpl<>();
+
+  private int capacity = 8192;
+  private int batchSize = 256;
+  private Level blockingLevel = Level.WARN;
+  private long maxBlockMillis = 1000;
+  private long maxFlushMillis = 1000;
+  private boolean includeCallerData;
+
+  private int mask;
+  private AtomicReferenceArray<ILoggingEvent> slots;
+  private AtomicLongArray sequences;
+  private final AtomicLong tail = new AtomicLong();
+  private long head;
+
+  private volatile boolean running;
+  private volatile boolean idle;
+  private Thread worker;
+
+  private final AtomicLong droppedTrace = new AtomicLong();
+  private final AtomicLong droppedDebug = new AtomicLong();
+  private final AtomicLong droppedInfo = new AtomicLong();
+  private final AtomicLong droppedWarn = new AtomicLong();
+  private final AtomicLong droppedError = new AtomicLong();
+
+  @Override
+  public void start() {
+    if (isStarted()) {
+      return;
+    }
+    if (!appenders.iteratorForAppenders().hasNext()) {
+      addError("No appender attached to [" + name + "]");
+      return;
+    }
+    int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+    mask = size - 1;
+    slots = new AtomicReferenceArray<>(size);
+    sequences = new AtomicLongArray(size);
+    for (int i = 0; i < size; i++) {
+      sequences.set(i, i);
+    }
+    tail.set(0);
+    head = 0;
+
+    running = true;
+    worker = new Thread(this::drainLoop, "logback-ring-" + name);
+    worker.setDaemon(true);
+    worker.start();
+    super.start();
+  }
+
+  @Override
+  public void stop() {
+    if (!isStarted()) {
+      return;
+    }
+    stopWorker();
+    appenders.detachAndStopAllAppenders();
+  }
+
+  /**
+   * Drains the ring, then stops the worker and the attached appenders but keeps them attached, so
+   * that {@link #resume()} can start them again (around a CRaC checkpoint).
+   */
+  public void suspend() {
+    if (!isStarted()) {
+      return;
+    }
+    stopWorker();
+    Iterator<Appender<ILoggingEvent>> it = appenders.iteratorForAppenders();
+    while (it.hasNext()) {
+      it.next().stop();
+    }
+  }
+
+  /** Starts the attached appenders and this appender again after {@link #suspend()}. */
+  public void resume() {
+    Iterator<Appender<ILoggingEvent>> it = appenders.iteratorForAppenders();
+    while (it.hasNext()) {
+      Appender<ILoggingEvent> appender = it.next();
+      if (!appender.isStarted()) {
+        appender.start();
+      }
+    }
+    start();
+  }
+
+  private void stopWorker() {
+    super.stop();
+    running = false;
+    LockSupport.unpark(worker);
+    try {
+      worker.join(maxFlushMillis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    if (worker.isAlive()) {
+      addWarn("Ring buffer of [" + name + "] was not drained within " + maxFlushMillis + " ms");
+    }
+  }
+
+  @Override
+  protected void append(ILoggingEvent event) {
+    event.prepareForDeferredProcessing();
+    if (includeCallerData) {
+      event.getCallerData();
+    }
+    if (offer(event)) {
+      wakeWorker();
+      return;
+    }
+    if (!event.getLevel().isGreaterOrEqual(blockingLevel)) {
+      countDrop(event.getLevel());
+      return;
+    }
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxBlockMillis);
+    while (isStarted() && System.nanoTime() - deadline < 0) {
+      wakeWorker();
+      LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(50));
+      if (offer(event)) {
+        wakeWorker();
+        return;
+      }
+    }
+    countDrop(event.getLevel());
+  }
+
+  /** Publishes into the ring; multi-producer safe, never blocks. */
+  private boolean offer(ILoggingEvent event) {
+    long pos = tail.get();
+    while (true) {
+      int index = (int) (pos & mask);
+      long diff = sequences.get(index) - pos;
+      if (diff == 0) {
+        if (tail.compareAndSet(pos, pos + 1)) {
+          slots.set(index, event);
+          sequences.set(index, pos + 1);
+          return true;
+        }
+        pos = tail.get();
+      } else if (diff < 0) {
+        return false;
+      } else {
+        pos = tail.get();
+      }
+    }
+  }
+
+  /** Takes the next published event; called by the worker thread only. */
+  private ILoggingEvent poll() {
+    int index = (int) (head & mask);
+    if (sequences.get(index) - (head + 1) != 0) {
+      return null;
+    }
+    ILoggingEvent event = slots.get(index);
+    slots.set(index, null);
+    sequences.set(index, head + mask + 1);
+    head++;
+    return event;
+  }
+
+  private void drainLoop() {
+    while (true) {
+      int drained = drainBatch();
+      if (drained == 0) {
+        if (!running) {
+          return;
+        }
+        idle = true;
+        // Re-check after announcing idleness so a concurrent offer is not missed.
+        if (sequences.get((int) (head & mask)) - (head + 1) != 0) {
+          LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(100));
+        }
+        idle = false;
+      }
+    }
+  }
+
+  private int drainBatch() {
+    int drained = 0;
+    ILoggingEvent event;
+    while (drained < batchSize && (event = poll()) != null) {
+      appenders.appendLoopOnAppenders(event);
+      drained++;
+    }
+    if (drained > 0) {
+      Iterator<Appender<ILoggingEvent>> it = appenders.iteratorForAppenders();
+      while (it.hasNext()) {
+        Appender<ILoggingEvent> appender = it.next();
+        if (appender instanceof BatchAware) {
+          try {
+            ((BatchAware) appender).endOfBatch();
+          } catch (RuntimeException e) {
+            // The worker must survive, or the ring fills up and WARN+ callers start blocking.
+            addError("End of batch failed in [" + appender.getName() + "]", e);
+          }
+        }
+      }
+    }
+    return drained;
+  }
+
+  private void wakeWorker() {
+    if (idle) {
+      LockSupport.unpark(worker);
+    }
+  }
+
+  private void countDrop(Level level) {
+    switch (level.toInt()) {
+      case Level.ERROR_INT:
+        droppedError.incrementAndGet();
+        break;
+      case Level.WARN_INT:
+        droppedWarn.incrementAndGet();
+        break;
+      case Level.INFO_INT:
+        droppedInfo.incrementAndGet();
+        break;
+      case Level.DEBUG_INT:
+        droppedDebug.incrementAndGet();
+        break;
+      default:
+        droppedTrace.incrementAndGet();
+        break;
+    }
+  }
+
+  /** Returns the number of events of {@code level} dropped because the ring was full. */
+  public long getDroppedCount(Level level) {
+    switch (level.toInt()) {
+      case Level.ERROR_INT:
+        return droppedError.get();
+      case Level.WARN_INT:
+        return droppedWarn.get();
+      case Level.INFO_INT:
+        return droppedInfo.get();
+      case Level.DEBUG_INT:
+        return droppedDebug.get();
+      default:
+        return droppedTrace.get();
+    }
+  }
+
+  /** Returns the number of events waiting in the ring. */
+  public int getQueued() {
+    return (int) Math.max(0, tail.get() - head);
+  }
+
+  public void setCapacity(int capacity) {
+    this.capacity = capacity;
+  }
+
+  public void setBatchSize(int batchSize) {
+    this.batchSize = batchSize;
+  }
+
+  /** Events at or above this level wait for space instead of being dropped. */
+  public void setBlockingLevel(String blockingLevel) {
+    this.blockingLevel = Level.toLevel(blockingLevel, Level.WARN);
+  }
+
+  public void setMaxBlockMillis(long maxBlockMillis) {
+    this.maxBlockMillis = maxBlockMillis;
+  }
+
+  public void setMaxFlushMillis(long maxFlushMillis) {
+    this.maxFlushMillis = maxFlushMillis;
+  }
+
+  public void setIncludeCallerData(boolean includeCallerData) {
+    this.includeCallerData = includeCallerData;
+  }
+
+  @Override
+  public void addAppender(Appender<ILoggingEvent> newAppender) {
+    appenders.addAppender(newAppender);
+  }
+
+  @Override
+  public Iterator<Appender<ILoggingEvent>> iteratorForAppenders() {
+    return appenders.iteratorForAppenders();
+  }
+
+  @Override
+  public Appender<ILoggingEvent> getAppender(String name) {
+    return appenders.getAppender(name);
+  }
+
+  @Override
+  public boolean isAttached(Appender<ILoggingEvent> appender) {
+    return appenders.isAttached(appender);
+  }
+
+  @Override
+  public void detachAndStopAllAppenders() {
+    appenders.detachAndStopAllAppenders();
+  }
+
+  @Override
+  public boolean detachAppender(Appender<ILoggingEvent> appender) {
+    return appenders.detachAppender(appender);
+  }
+
+  @Override
+  public boolean detachAppender(String name) {
+    return appenders.detachAppender(name);
+  }
+}
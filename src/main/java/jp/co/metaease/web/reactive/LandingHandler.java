@@ -0,0 +1,47 @@
+package jp.co.metaease.web.reactive;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import jp.co.metaease.web.view.ModelHash;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+/** Reactive counterpart of the landing page served by {@code WebAPI010101Controller}. */
+public class LandingHandler {
+
+  private static final Logger logger = LoggerFactory.getLogger(LandingHandler.class);
+
+  private final ReactiveUpstreamClient upstream;
+
+  public LandingHandler(ReactiveUpstreamClient upstream) {
+    this.upstream = upstream;
+  }
+
+  public Mono<ServerResponse> landing(ServerRequest request) {
+    String revision = System.getenv("K_REVISION") == null ? "???" : System.getenv("K_REVISION");
+    String service = System.getenv("K_SERVICE") == null ? "???" : System.getenv("K_SERVICE");
+
+    return upstream
+        .gatewayMessage()
+        .onErrorResume(
+            ex -> {
+              logger.warn("upstream unavailable, rendering fallback: {}", ex.toString());
+              return Mono.just("");
+            })
+        .flatMap(
+            message -> {
+              Map<String, Object> model = new LinkedHashMap<>();
+              model.put("revision", revision);
+              model.put("service", service);
+              model.put("message", "メッセージです。" + message);
+              String etag = ModelHash.etag(model);
+              return request
+                  .checkNotModified(etag)
+                  .switchIfEmpty(
+                      Mono.defer(() -> ServerResponse.ok().eTag(etag).render("index", model)));
+            });
+  }
+}
@@ -0,0 +1,68 @@
+package jp.co.metaease.web.reactive;
+
+import static org.springframework.web.reactive.function.server.RequestPredicates.GET;
+import static org.springframework.web.reactive.function.server.RequestPredicates.POST;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jp.co.metaease.web.text.TextBatchProperties;
+import jp.co.metaease.web.text.TextStreamService;
+import jp.co.metaease.web.upstream.UpstreamGateway;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.boot.web.embedded.netty.NettyRouteProvider;
+import org.springframework.boot.web.embedded.netty.NettyServerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorResourceFactory;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+/**
+ * Routes of the reactive edition, active when the application is started with {@code
+ * spring.main.web-application-type=reactive} (served by Netty).
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@EnableConfigurationProperties(TextBatchProperties.class)
+public class ReactiveRouterConfig {
+
+  /**
+   * Netty as the server. Spring Boot prefers Tomcat for a reactive application when it is on the
+   * classpath, as it is here for the servlet edition, and would run the handlers on Tomcat's
+   * servlet adapter instead.
+   */
+  @Bean
+  public NettyReactiveWebServerFactory nettyReactiveWebServerFactory(
+      ObjectProvider<ReactorResourceFactory> resourceFactory,
+      ObjectProvider<NettyRouteProvider> routes,
+      ObjectProvider<NettyServerCustomizer> serverCustomizers) {
+    NettyReactiveWebServerFactory factory = new NettyReactiveWebServerFactory();
+    resourceFactory.ifAvailable(factory::setResourceFactory);
+    routes.orderedStream().forEach(factory::addRouteProviders);
+    factory.getServerCustomizers().addAll(serverCustomizers.orderedStream().toList());
+    return factory;
+  }
+
+  @Bean
+  public ReactiveUpstreamClient reactiveUpstreamClient(UpstreamGateway upstreamGateway) {
+    return new ReactiveUpstreamClient(upstreamGateway);
+  }
+
+  @Bean
+  public RouterFunction<ServerResponse> webapi01Routes(
+      ReactiveUpstreamClient upstream,
+      TextBatchProperties textBatchProperties,
+      ObjectMapper objectMapper,
+      TextStreamService textStream) {
+    LandingHandler landing = new LandingHandler(upstream);
+    TextHandler text = new TextHandler(textBatchProperties, objectMapper, textStream);
+    return RouterFunctions.route(GET("/"), landing::landing)
+        .andRoute(GET("/api/text/{operation}"), text::convert)
+        .andRoute(POST("/api/text/batch"), text::batch)
+        .andRoute(POST("/api/text/stream"), text::stream)
+        .andRoute(GET("/api/check/{check}"), text::check);
+  }
+}
@@ -0,0 +1,25 @@
+package jp.co.metaease.web.reactive;
+
+import jp.co.metaease.web.upstream.UpstreamGateway;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reactive view of the upstream gateway call.
+ *
+ * <p>Goes through the same non-blocking client, cache and resilience layers as the servlet {@code
+ * /async} endpoint, so no event-loop thread ever waits for the gateway.
+ */
+public class ReactiveUpstreamClient {
+
+  private final UpstreamGateway upstreamGateway;
+
+  public ReactiveUpstreamClient(UpstreamGateway upstreamGateway) {
+    this.upstreamGateway = upstreamGateway;
+  }
+
+  /** Emits the gateway message, failing after {@code webapi01.upstream.async-timeout}. */
+  public Mono<String> gatewayMessage() {
+    return Mono.fromFuture(upstreamGateway::messageAsync)
+        .timeout(upstreamGateway.client().properties().getAsyncTimeout());
+  }
+}
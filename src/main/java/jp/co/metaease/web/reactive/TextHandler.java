@@ -0,0 +1,256 @@
+package jp.co.metaease.web.reactive;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import jp.co.metaease.web.text.TextBatch;
+import jp.co.metaease.web.text.TextBatchLimitException;
+import jp.co.metaease.web.text.TextBatchProperties;
+import jp.co.metaease.web.text.TextBatchRequest;
+import jp.co.metaease.web.text.TextCheck;
+import jp.co.metaease.web.text.TextOperation;
+import jp.co.metaease.web.text.TextRecordProcessor;
+import jp.co.metaease.web.text.TextStreamProperties;
+import jp.co.metaease.web.text.TextStreamService;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.function.Tuple2;
+
+/**
+ * Exposes {@code StringUtil} conversions and {@code WebAPIUtil} checks as non-blocking handlers.
+ *
+ * <p>The work per value is a few microseconds of CPU, so it runs inline on the event loop.
+ */
+public class TextHandler {
+
+  private final TextBatchProperties limits;
+  private final ObjectMapper objectMapper;
+  private final TextStreamService textStream;
+  private final Scheduler streamScheduler;
+
+  public TextHandler(
+      TextBatchProperties limits, ObjectMapper objectMapper, TextStreamService textStream) {
+    this.limits = limits;
+    this.objectMapper = objectMapper;
+    this.textStream = textStream;
+    this.streamScheduler = Schedulers.fromExecutorService(textStream.getWorkers(), "text-stream");
+  }
+
+  /** {@code GET /api/text/{operation}?value=...} */
+  public Mono<ServerResponse> convert(ServerRequest request) {
+    TextOperation operation;
+    try {
+      operation = TextOperation.of(request.pathVariable("operation"));
+    } catch (IllegalArgumentException e) {
+      return ServerResponse.badRequest().bodyValue(e.getMessage());
+    }
+    String value = request.queryParam("value").orElse(null);
+
+    Map<String, Object> body = new LinkedHashMap<>();
+    body.put("operation", operation.operationName());
+    body.put("value", value);
+    body.put("result", operation.apply(value));
+    return ServerResponse.ok().contentType(MediaType.APPLICATION_JSON).bodyValue(body);
+  }
+
+  /** {@code GET /api/check/{check}?value=...} */
+  public Mono<ServerResponse> check(ServerRequest request) {
+    TextCheck check;
+    try {
+      check = TextCheck.of(request.pathVariable("check"));
+    } catch (IllegalArgumentException e) {
+      return ServerResponse.badRequest().bodyValue(e.getMessage());
+    }
+    String value = request.queryParam("value").orElse(null);
+
+    Map<String, Object> body = new LinkedHashMap<>();
+    body.put("check", check.checkName());
+    body.put("value", value);
+    body.put("result", check.test(value));
+    return ServerResponse.ok().contentType(MediaType.APPLICATION_JSON).bodyValue(body);
+  }
+
+  /** {@code POST /api/text/batch} with a {@link TextBatchRequest} body */
+  public Mono<ServerResponse> batch(ServerRequest request) {
+    long maxBytes = limits.getMaxRequestSize().toBytes();
+    if (request.headers().contentLength().orElse(-1) > maxBytes) {
+      return tooLarge("Request body is limited to " + maxBytes + " bytes");
+    }
+    return request
+        .bodyToMono(TextBatchRequest.class)
+        .flatMap(
+            batchRequest -> {
+              TextBatch batch = TextBatch.of(batchRequest.getOperations(), limits);
+              Map<String, Object> body = new LinkedHashMap<>();
+              body.put("operations", batch.operationNames());
+              body.put("results", batch.applyAll(batchRequest.getValues()));
+              return ServerResponse.ok().contentType(MediaType.APPLICATION_JSON).bodyValue(body);
+            })
+        .switchIfEmpty(Mono.defer(() -> ServerResponse.badRequest().bodyValue("No body given")))
+        .onErrorResume(TextBatchLimitException.class, e -> tooLarge(e.getMessage()))
+        .onErrorResume(
+            e -> e instanceof IllegalArgumentException || e instanceof DecodingException,
+            e -> ServerResponse.badRequest().bodyValue(String.valueOf(e.getMessage())));
+  }
+
+  private static Mono<ServerResponse> tooLarge(String message) {
+    return ServerResponse.status(HttpStatus.PAYLOAD_TOO_LARGE).bodyValue(message);
+  }
+
+  /**
+   * {@code POST /api/text/stream?operations=...&checks=...} with an NDJSON body.
+   *
+   * <p>Lines are decoded as they arrive and processed in chunks on the shared stream workers;
+   * {@code flatMapSequential} keeps the output in input order and requests more input only while
+   * fewer than {@code window} chunks are in flight.
+   *
+   * <p>A line longer than {@code max-line-length} is reported as an error record and skipped, as in
+   * the servlet edition; no more than that is buffered of any line.
+   */
+  public Mono<ServerResponse> stream(ServerRequest request) {
+    TextRecordProcessor processor;
+    try {
+      processor =
+          TextRecordProcessor.of(
+              objectMapper,
+              commaSeparated(request, "operations"),
+              commaSeparated(request, "checks"),
+              limits);
+    } catch (IllegalArgumentException e) {
+      return ServerResponse.badRequest().bodyValue(e.getMessage());
+    }
+    TextStreamProperties settings = textStream.getProperties();
+    DataBufferFactory buffers = request.exchange().getResponse().bufferFactory();
+
+    LineSplitter splitter = new LineSplitter(maxLineLength(textStream));
+    Flux<DataBuffer> results =
+        request
+            .bodyToFlux(DataBuffer.class)
+            .concatMapIterable(splitter::split)
+            .doOnDiscard(DataBuffer.class, DataBufferUtils::release)
+            .concatWith(Flux.defer(() -> Flux.fromIterable(splitter.rest())))
+            .index()
+            .buffer(settings.getChunkSize())
+            .flatMapSequential(
+                chunk ->
+                    Mono.fromCallable(() -> buffers.wrap(processChunk(processor, chunk)))
+                        .subscribeOn(streamScheduler),
+                settings.getWindow(),
+                1);
+    return ServerResponse.ok()
+        .contentType(MediaType.APPLICATION_NDJSON)
+        .body(results, DataBuffer.class);
+  }
+
+  private byte[] processChunk(
+      TextRecordProcessor processor, List<Tuple2<Long, byte[]>> chunk) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream(chunk.size() * 128);
+    int processed = 0;
+    for (Tuple2<Long, byte[]> line : chunk) {
+      byte[] bytes = line.getT2();
+      if (bytes == LineSplitter.TOO_LONG) {
+        processor.error(
+            line.getT1() + 1, "Line exceeds " + maxLineLength(textStream) + " bytes", out);
+        processed++;
+      } else if (bytes.length > 0) {
+        processor.process(line.getT1() + 1, bytes, 0, bytes.length, out);
+        processed++;
+      }
+    }
+    textStream.recordProcessed(processed);
+    return out.toByteArray();
+  }
+
+  private static int maxLineLength(TextStreamService textStream) {
+    return (int) textStream.getProperties().getMaxLineLength().toBytes();
+  }
+
+  private static List<String> commaSeparated(ServerRequest request, String name) {
+    return request.queryParams().getOrDefault(name, List.of()).stream()
+        .flatMap(value -> Arrays.stream(value.split(",")))
+        .map(String::trim)
+        .filter(value -> !value.isEmpty())
+        .toList();
+  }
+
+  /**
+   * Splits the request body into lines as its buffers arrive, with the same rules as the line reader
+   * of the servlet edition. Lines are returned without their terminator.
+   */
+  private static final class LineSplitter {
+
+    /** Returned in place of a line longer than the limit; the line itself is skipped. */
+    static final byte[] TOO_LONG = new byte[0];
+
+    private final int maxLength;
+    private byte[] line = new byte[256];
+    private int length;
+    private boolean tooLong;
+
+    LineSplitter(int maxLength) {
+      this.maxLength = maxLength;
+    }
+
+    /** Returns the lines completed by {@code buffer} and releases it. */
+    List<byte[]> split(DataBuffer buffer) {
+      List<byte[]> lines = new ArrayList<>();
+      try {
+        while (buffer.readableByteCount() > 0) {
+          int newline = buffer.indexOf(b -> b == '\n', buffer.readPosition());
+          int end = newline < 0 ? buffer.writePosition() : newline;
+          int count = end - buffer.readPosition();
+          if (!tooLong && length + count > maxLength) {
+            tooLong = true;
+          }
+          if (tooLong) {
+            buffer.readPosition(end);
+          } else {
+            if (length + count > line.length) {
+              line = Arrays.copyOf(line, Math.min(maxLength, (length + count) * 2));
+            }
+            buffer.read(line, length, count);
+            length += count;
+          }
+          if (newline < 0) {
+            break;
+          }
+          buffer.readPosition(newline + 1);
+          lines.add(take());
+        }
+      } finally {
+        DataBufferUtils.release(buffer);
+      }
+      return lines;
+    }
+
+    /** Returns the last line if the body does not end with a line feed. */
+    List<byte[]> rest() {
+      return length > 0 || tooLong ? List.of(take()) : List.of();
+    }
+
+    private byte[] take() {
+      if (tooLong) {
+        tooLong = false;
+        length = 0;
+        return TOO_LONG;
+      }
+      int end = length > 0 && line[length - 1] == '\r' ? length - 1 : length;
+      length = 0;
+      return Arrays.copyOf(line, end);
+    }
+  }
+}
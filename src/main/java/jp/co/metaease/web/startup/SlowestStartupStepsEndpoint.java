@@ -0,0 +1,149 @@
+package jp.co.metaease.web.startup;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.boot.context.metrics.buffering.StartupTimeline;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.metrics.ApplicationStartup;
+import org.springframework.core.metrics.StartupStep;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+/**
+ * {@code GET /actuator/startupsteps?limit=20}: the startup steps of {@code SpringApplication.run}
+ * that took the longest, from the {@link BufferingApplicationStartup} set in {@code
+ * WebAPI01Application}.
+ *
+ * <p>Steps nest (a context refresh contains every bean instantiation), so they are ranked by self
+ * time: their duration minus that of the steps directly inside them. Unlike {@code
+ * /actuator/startup}, reading never drains the buffer.
+ */
+@Component
+@Endpoint(id = "startupsteps")
+public class SlowestStartupStepsEndpoint {
+
+  private static final int DEFAULT_LIMIT = 20;
+
+  private final ApplicationStartup applicationStartup;
+
+  public SlowestStartupStepsEndpoint(ConfigurableApplicationContext context) {
+    this.applicationStartup = context.getApplicationStartup();
+  }
+
+  @ReadOperation
+  public Report slowest(@Nullable Integer limit) {
+    if (!(applicationStartup instanceof BufferingApplicationStartup)) {
+      return new Report(null, 0, 0, List.of());
+    }
+    StartupTimeline timeline =
+        ((BufferingApplicationStartup) applicationStartup).getBufferedTimeline();
+    List<StartupTimeline.TimelineEvent> events = timeline.getEvents();
+
+    // 直下の子ステップの所要時間を親ごとに合計する
+    Map<Long, Duration> children = new HashMap<>();
+    Instant end = timeline.getStartTime();
+    for (StartupTimeline.TimelineEvent event : events) {
+      Long parentId = event.getStartupStep().getParentId();
+      if (parentId != null) {
+        children.merge(parentId, event.getDuration(), Duration::plus);
+      }
+      if (event.getEndTime().isAfter(end)) {
+        end = event.getEndTime();
+      }
+    }
+
+    List<Step> steps = new ArrayList<>(events.size());
+    for (StartupTimeline.TimelineEvent event : events) {
+      StartupStep step = event.getStartupStep();
+      Duration self =
+          event.getDuration().minus(children.getOrDefault(step.getId(), Duration.ZERO));
+      Map<String, String> tags = new LinkedHashMap<>();
+      step.getTags().forEach(tag -> tags.put(tag.getKey(), tag.getValue()));
+      steps.add(new Step(step.getName(), tags, millis(event.getDuration()), millis(self)));
+    }
+    steps.sort(Comparator.comparingDouble(Step::getSelfMillis).reversed());
+    int max = limit == null || limit <= 0 ? DEFAULT_LIMIT : limit;
+    return new Report(
+        timeline.getStartTime(),
+        events.size(),
+        millis(Duration.between(timeline.getStartTime(), end)),
+        steps.subList(0, Math.min(max, steps.size())));
+  }
+
+  private static double millis(Duration duration) {
+    return duration.toNanos() / 1_000_000.0;
+  }
+
+  /** The slowest steps, and the number and total span of all recorded steps. */
+  public static final class Report {
+
+    private final Instant startTime;
+    private final int recordedSteps;
+    private final double totalMillis;
+    private final List<Step> slowest;
+
+    Report(Instant startTime, int recordedSteps, double totalMillis, List<Step> slowest) {
+      this.startTime = startTime;
+      this.recordedSteps = recordedSteps;
+      this.totalMillis = totalMillis;
+      this.slowest = slowest;
+    }
+
+    public Instant getStartTime() {
+      return startTime;
+    }
+
+    public int getRecordedSteps() {
+      return recordedSteps;
+    }
+
+    public double getTotalMillis() {
+      return totalMillis;
+    }
+
+    public List<Step> getSlowest() {
+      return slowest;
+    }
+  }
+
+  /** One startup step, with its tags (such as {@code beanName}). */
+  public static final class Step {
+
+    private final String name;
+    private final Map<String, String> tags;
+    private final double durationMillis;
+    private final double selfMillis;
+
+    Step(String name, Map<String, String> tags, double durationMillis, double selfMillis) {
+      this.name = name;
+      this.tags = tags;
+      this.durationMillis = durationMillis;
+      this.selfMillis = selfMillis;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public Map<String, String> getTags() {
+      return tags;
+    }
+
+    public double getDurationMillis() {
+      return durationMillis;
+    }
+
+    public double getSelfMillis() {
+      return selfMillis;
+    }
+  }
+}
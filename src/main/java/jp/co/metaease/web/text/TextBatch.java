@@ -0,0 +1,124 @@
+package jp.co.metaease.web.text;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A list of {@link TextOperation}s applied, in order, to every value of a batch request.
+ *
+ * <p>Values come as a JSON array or object and results are returned in the same shape: a list in
+ * input order, or a map with the input's keys. Each value goes through all operations before the
+ * next value is touched, so a value is read once per request rather than once per call.
+ */
+public final class TextBatch {
+
+  private final TextOperation[] operations;
+  private final TextBatchProperties limits;
+
+  private TextBatch(TextOperation[] operations, TextBatchProperties limits) {
+    this.operations = operations;
+    this.limits = limits;
+  }
+
+  /**
+   * Resolves the operation names.
+   *
+   * @throws IllegalArgumentException if a name is unknown or no operation is given
+   * @throws TextBatchLimitException if there are more operations than allowed
+   */
+  public static TextBatch of(List<String> operationNames, TextBatchProperties limits) {
+    if (operationNames == null || operationNames.isEmpty()) {
+      throw new IllegalArgumentException("No operations given");
+    }
+    if (operationNames.size() > limits.getMaxOperations()) {
+      throw new TextBatchLimitException(
+          "At most " + limits.getMaxOperations() + " operations are allowed");
+    }
+    TextOperation[] operations = new TextOperation[operationNames.size()];
+    for (int i = 0; i < operations.length; i++) {
+      operations[i] = TextOperation.of(operationNames.get(i));
+    }
+    return new TextBatch(operations, limits);
+  }
+
+  /** Returns the operation names in the order they are applied. */
+  public List<String> operationNames() {
+    List<String> names = new ArrayList<>(operations.length);
+    for (TextOperation operation : operations) {
+      names.add(operation.operationName());
+    }
+    return names;
+  }
+
+  /** Applies every operation to one value; {@code null} stays {@code null}. */
+  public String apply(String value) {
+    String result = value;
+    for (TextOperation operation : operations) {
+      result = operation.apply(result);
+    }
+    return result;
+  }
+
+  /**
+   * Applies the batch to a JSON array or object of strings.
+   *
+   * @return a {@code List<String>} for an array, a {@code Map<String, String>} for an object
+   * @throws IllegalArgumentException if {@code values} is neither, or holds a non-string value
+   * @throws TextBatchLimitException if the values exceed the count or length limits
+   */
+  public Object applyAll(JsonNode values) {
+    if (values == null || !(values.isArray() || values.isObject())) {
+      throw new IllegalArgumentException("values must be a JSON array or object of strings");
+    }
+    checkLimits(values);
+    if (values.isArray()) {
+      List<String> results = new ArrayList<>(values.size());
+      for (JsonNode value : values) {
+        results.add(apply(text(value)));
+      }
+      return results;
+    }
+    Map<String, String> results = new LinkedHashMap<>(values.size() * 4 / 3 + 1);
+    Iterator<Map.Entry<String, JsonNode>> fields = values.fields();
+    while (fields.hasNext()) {
+      Map.Entry<String, JsonNode> field = fields.next();
+      results.put(field.getKey(), apply(text(field.getValue())));
+    }
+    return results;
+  }
+
+  private void checkLimits(JsonNode values) {
+    if (values.size() > limits.getMaxValues()) {
+      throw new TextBatchLimitException("At most " + limits.getMaxValues() + " values are allowed");
+    }
+    long total = 0;
+    for (JsonNode value : values) {
+      if (value.isTextual()) {
+        int length = value.textValue().length();
+        if (length > limits.getMaxValueLength()) {
+          throw new TextBatchLimitException(
+              "Values are limited to " + limits.getMaxValueLength() + " characters");
+        }
+        total += length;
+      }
+    }
+    if (total > limits.getMaxTotalLength()) {
+      throw new TextBatchLimitException(
+          "Values are limited to " + limits.getMaxTotalLength() + " characters in total");
+    }
+  }
+
+  private static String text(JsonNode value) {
+    if (value.isNull()) {
+      return null;
+    }
+    if (!value.isTextual()) {
+      throw new IllegalArgumentException("values must be strings or null");
+    }
+    return value.textValue();
+  }
+}
@@ -0,0 +1,11 @@
+package jp.co.metaease.web.text;
+
+/** A batch request exceeds one of the {@link TextBatchProperties} limits. */
+public class TextBatchLimitException extends IllegalArgumentException {
+
+  private static final long serialVersionUID = 1L;
+
+  public TextBatchLimitException(String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,64 @@
+package jp.co.metaease.web.text;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+/** Per-request limits of the batch text API ({@code webapi01.text.batch.*}). */
+@ConfigurationProperties(prefix = "webapi01.text.batch")
+public class TextBatchProperties {
+
+  /** Largest request body accepted, checked against Content-Length before it is parsed. */
+  private DataSize maxRequestSize = DataSize.ofMegabytes(2);
+
+  /** Most values in one request. */
+  private int maxValues = 1000;
+
+  /** Most operations applied to each value. */
+  private int maxOperations = 16;
+
+  /** Longest single value, in characters. */
+  private int maxValueLength = 10_000;
+
+  /** Most characters over all values of one request. */
+  private int maxTotalLength = 1_000_000;
+
+  public DataSize getMaxRequestSize() {
+    return maxRequestSize;
+  }
+
+  public void setMaxRequestSize(DataSize maxRequestSize) {
+    this.maxRequestSize = maxRequestSize;
+  }
+
+  public int getMaxValues() {
+    return maxValues;
+  }
+
+  public void setMaxValues(int maxValues) {
+    this.maxValues = maxValues;
+  }
+
+  public int getMaxOperations() {
+    return maxOperations;
+  }
+
+  public void setMaxOperations(int maxOperations) {
+    this.maxOperations = maxOperations;
+  }
+
+  public int getMaxValueLength() {
+    return maxValueLength;
+  }
+
+  public void setMaxValueLength(int maxValueLength) {
+    this.maxValueLength = maxValueLength;
+  }
+
+  public int getMaxTotalLength() {
+    return maxTotalLength;
+  }
+
+  public void setMaxTotalLength(int maxTotalLength) {
+    this.maxTotalLength = maxTotalLength;
+  }
+}
@@ -0,0 +1,37 @@
+package jp.co.metaease.web.text;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import java.util.List;
+
+/**
+ * Body of {@code POST /api/text/batch}.
+ *
+ * <pre>
+ * {"operations": ["zen2han", "removeRightSpace"], "values": ["ＡＢＣ１２３ ", "ｶﾀｶﾅ"]}
+ * {"operations": ["katakana"], "values": {"name": "ﾔﾏﾀﾞ ﾀﾛｳ", "city": "ﾄｳｷｮｳ"}}
+ * </pre>
+ */
+public class TextBatchRequest {
+
+  /** {@link TextOperation} names, applied in this order. */
+  private List<String> operations;
+
+  /** A JSON array or object of strings (or nulls). */
+  private JsonNode values;
+
+  public List<String> getOperations() {
+    return operations;
+  }
+
+  public void setOperations(List<String> operations) {
+    this.operations = operations;
+  }
+
+  public JsonNode getValues() {
+    return values;
+  }
+
+  public void setValues(JsonNode values) {
+    this.values = values;
+  }
+}
@@ -0,0 +1,52 @@
+package jp.co.metaease.web.text;
+
+import java.util.Locale;
+import java.util.function.Predicate;
+import jp.co.metaease.com.WebAPIUtil;
+
+/** {@link WebAPIUtil} checks that can be invoked by name over HTTP. */
+public enum TextCheck {
+  ZENKAKU("zenkakuChk", WebAPIUtil::zenkakuChk),
+  ZENKAKU_KANA2("zenkakuKana2Chk", WebAPIUtil::zenkakuKana2Chk),
+  ASCII("asciiChk", WebAPIUtil::asciiChk),
+  ASCII2("ascii2Chk", WebAPIUtil::ascii2Chk),
+  CTRL_CODE("isCtrlCodeChk", WebAPIUtil::isCtrlCodeChk),
+  NUMBER("isNumberCheck", WebAPIUtil::isNumberCheck),
+  NO_DISABLED_CHAR("hasDisabledChar", str -> !WebAPIUtil.hasDisabledChar(str)),
+  NO_MACHINE_CHARACTERS("hasMachineCharacters", str -> !WebAPIUtil.hasMachineCharacters(str));
+
+  private final String checkName;
+  private final Predicate<String> predicate;
+
+  TextCheck(String checkName, Predicate<String> predicate) {
+    this.checkName = checkName;
+    this.predicate = predicate;
+  }
+
+  /** Returns the name used in requests, which is the {@link WebAPIUtil} method name. */
+  public String checkName() {
+    return checkName;
+  }
+
+  /**
+   * Runs the check. {@code has*} methods are inverted so that {@code true} always means the value
+   * passed; {@code null} fails every check.
+   */
+  public boolean test(String value) {
+    return value != null && predicate.test(value);
+  }
+
+  /**
+   * Looks a check up by its method name, ignoring case.
+   *
+   * @throws IllegalArgumentException if no check has that name
+   */
+  public static TextCheck of(String name) {
+    for (TextCheck check : values()) {
+      if (check.checkName.toLowerCase(Locale.ROOT).equals(name.toLowerCase(Locale.ROOT))) {
+        return check;
+      }
+    }
+    throw new IllegalArgumentException("Unknown text check: " + name);
+  }
+}
@@ -0,0 +1,49 @@
+package jp.co.metaease.web.text;
+
+import java.util.Locale;
+import java.util.function.UnaryOperator;
+import jp.co.metaease.com.StringUtil;
+
+/** {@link StringUtil} conversions that can be invoked by name over HTTP. */
+public enum TextOperation {
+  ZEN2HAN("zen2han", StringUtil::zen2han),
+  KATAKANA("katakana", StringUtil::katakana),
+  REMOVE_ALL_SPACE("removeAllSpace", StringUtil::removeAllSpace),
+  REMOVE_HALF_SPACE("removeHalfSpace", StringUtil::removeHalfSpace),
+  REMOVE_FULL_SPACE("removeFullSpace", StringUtil::removeFullSpace),
+  REMOVE_RIGHT_SPACE("removeRightSpace", StringUtil::removeRightSpace),
+  REMOVE_LEFT_SPACE("removeLeftSpace", StringUtil::removeLeftSpace),
+  EXTRACTION_NUMBER("extractionNumber", StringUtil::extractionNumber);
+
+  private final String operationName;
+  private final UnaryOperator<String> function;
+
+  TextOperation(String operationName, UnaryOperator<String> function) {
+    this.operationName = operationName;
+    this.function = function;
+  }
+
+  /** Returns the name used in requests, which is the {@link StringUtil} method name. */
+  public String operationName() {
+    return operationName;
+  }
+
+  /** Applies the conversion; {@code null} is passed through unchanged. */
+  public String apply(String value) {
+    return value == null ? null : function.apply(value);
+  }
+
+  /**
+   * Looks an operation up by its method name, ignoring case.
+   *
+   * @throws IllegalArgumentException if no operation has that name
+   */
+  public static TextOperation of(String name) {
+    for (TextOperation operation : values()) {
+      if (operation.operationName.toLowerCase(Locale.ROOT).equals(name.toLowerCase(Locale.ROOT))) {
+        return operation;
+      }
+    }
+    throw new IllegalArgumentException("Unknown text operation: " + name);
+  }
+}
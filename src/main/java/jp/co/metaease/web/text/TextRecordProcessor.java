@@ -0,0 +1,137 @@
+package jp.co.metaease.web.text;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Converts and checks one NDJSON record: a JSON object of string fields.
+ *
+ * <p>Every field goes through the operations first, then the checks run on the converted value.
+ * The result line holds the input line number, the converted values and, when a check failed, the
+ * names of the failed checks per field:
+ *
+ * <pre>
+ * {"line":1,"values":{"name":"ﾔﾏﾀﾞ ﾀﾛｳ"}}
+ * {"line":2,"values":{"name":"山田"},"failed":{"name":["asciiChk"]}}
+ * {"line":3,"error":"Record must be a JSON object"}
+ * </pre>
+ *
+ * <p>Instances are immutable and shared by the worker threads of a stream.
+ */
+public final class TextRecordProcessor {
+
+  private final ObjectMapper objectMapper;
+  private final TextBatch batch;
+  private final TextCheck[] checks;
+
+  /**
+   * @param batch operations to apply, or {@code null} to check the values as they are
+   * @param checks checks to run on the converted values, possibly empty
+   */
+  public TextRecordProcessor(ObjectMapper objectMapper, TextBatch batch, List<TextCheck> checks) {
+    this.objectMapper = objectMapper;
+    this.batch = batch;
+    this.checks = checks.toArray(new TextCheck[0]);
+  }
+
+  /**
+   * Resolves operation and check names of a stream request.
+   *
+   * @throws IllegalArgumentException if a name is unknown or neither list has an entry
+   */
+  public static TextRecordProcessor of(
+      ObjectMapper objectMapper,
+      List<String> operationNames,
+      List<String> checkNames,
+      TextBatchProperties limits) {
+    boolean convert = operationNames != null && !operationNames.isEmpty();
+    boolean check = checkNames != null && !checkNames.isEmpty();
+    if (!convert && !check) {
+      throw new IllegalArgumentException("No operations or checks given");
+    }
+    List<TextCheck> checks = check ? checkNames.stream().map(TextCheck::of).toList() : List.of();
+    return new TextRecordProcessor(
+        objectMapper, convert ? TextBatch.of(operationNames, limits) : null, checks);
+  }
+
+  /** Writes the result line, terminated by a newline, for one input line. */
+  public void process(
+      long lineNumber, byte[] line, int offset, int length, ByteArrayOutputStream out) {
+    ObjectNode result = objectMapper.createObjectNode();
+    result.put("line", lineNumber);
+    try {
+      JsonNode record = objectMapper.readTree(line, offset, length);
+      if (record == null || !record.isObject()) {
+        result.put("error", "Record must be a JSON object");
+      } else {
+        apply(record, result);
+      }
+    } catch (IOException | IllegalArgumentException e) {
+      result.remove("values");
+      result.remove("failed");
+      result.put(
+          "error",
+          e instanceof JsonProcessingException jpe ? jpe.getOriginalMessage() : e.getMessage());
+    }
+    writeLine(result, out);
+  }
+
+  /** Writes the error line for an input line that was not parsed. */
+  public void error(long lineNumber, String message, ByteArrayOutputStream out) {
+    ObjectNode result = objectMapper.createObjectNode();
+    result.put("line", lineNumber);
+    result.put("error", message);
+    writeLine(result, out);
+  }
+
+  private void apply(JsonNode record, ObjectNode result) {
+    ObjectNode values = result.putObject("values");
+    ObjectNode failed = null;
+    Iterator<Map.Entry<String, JsonNode>> fields = record.fields();
+    while (fields.hasNext()) {
+      Map.Entry<String, JsonNode> field = fields.next();
+      JsonNode node = field.getValue();
+      if (!node.isTextual() && !node.isNull()) {
+        throw new IllegalArgumentException("Field " + field.getKey() + " must be a string or null");
+      }
+      String value = node.isNull() ? null : node.textValue();
+      if (batch != null) {
+        value = batch.apply(value);
+      }
+      values.put(field.getKey(), value);
+
+      ArrayNode fieldFailed = null;
+      for (TextCheck check : checks) {
+        if (!check.test(value)) {
+          if (failed == null) {
+            failed = objectMapper.createObjectNode();
+          }
+          if (fieldFailed == null) {
+            fieldFailed = failed.putArray(field.getKey());
+          }
+          fieldFailed.add(check.checkName());
+        }
+      }
+    }
+    if (failed != null) {
+      result.set("failed", failed);
+    }
+  }
+
+  private void writeLine(ObjectNode result, ByteArrayOutputStream out) {
+    try {
+      objectMapper.writeValue(out, result);
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+    out.write('\n');
+  }
+}
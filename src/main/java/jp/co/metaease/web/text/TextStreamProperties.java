@@ -0,0 +1,58 @@
+package jp.co.metaease.web.text;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+/** Streaming text API settings ({@code webapi01.text.stream.*}). */
+@ConfigurationProperties(prefix = "webapi01.text.stream")
+public class TextStreamProperties {
+
+  /** Worker threads shared by all streams; 0 uses one per available processor. */
+  private int parallelism = 0;
+
+  /** Records handed to a worker as one task. */
+  private int chunkSize = 64;
+
+  /** Chunks one stream may have in flight; reading stops while the window is full. */
+  private int window = 8;
+
+  /** Longest accepted record line; longer lines are skipped and reported as invalid. */
+  private DataSize maxLineLength = DataSize.ofKilobytes(16);
+
+  public int getParallelism() {
+    return parallelism;
+  }
+
+  public void setParallelism(int parallelism) {
+    this.parallelism = parallelism;
+  }
+
+  public int getChunkSize() {
+    return chunkSize;
+  }
+
+  public void setChunkSize(int chunkSize) {
+    this.chunkSize = chunkSize;
+  }
+
+  public int getWindow() {
+    return window;
+  }
+
+  public void setWindow(int window) {
+    this.window = window;
+  }
+
+  public DataSize getMaxLineLength() {
+    return maxLineLength;
+  }
+
+  public void setMaxLineLength(DataSize maxLineLength) {
+    this.maxLineLength = maxLineLength;
+  }
+
+  /** Returns the effective number of worker threads. */
+  public int effectiveParallelism() {
+    return parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+  }
+}
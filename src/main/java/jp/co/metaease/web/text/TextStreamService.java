@@ -0,0 +1,212 @@
+package jp.co.metaease.web.text;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Runs NDJSON records through a {@link TextRecordProcessor} in parallel while keeping the output
+ * in input order.
+ *
+ * <p>Records are read in chunks of {@code chunk-size} lines and each chunk is one task on a worker
+ * pool shared by all streams. A stream has at most {@code window} chunks in flight: once the window
+ * is full, the oldest chunk is awaited and written before more input is read, so a slow client or
+ * a busy pool stops the reading and memory per stream stays bounded by the window, whatever the
+ * size of the body. Output is flushed whenever the stream has to wait for a chunk.
+ */
+@Component
+@EnableConfigurationProperties(TextStreamProperties.class)
+public class TextStreamService implements DisposableBean {
+
+  private final TextStreamProperties properties;
+  private final ExecutorService workers;
+  private final AtomicInteger active = new AtomicInteger();
+  private final Counter records;
+
+  public TextStreamService(TextStreamProperties properties, MeterRegistry registry) {
+    this.properties = properties;
+    CustomizableThreadFactory threads = new CustomizableThreadFactory("text-stream-");
+    threads.setDaemon(true);
+    this.workers = Executors.newFixedThreadPool(properties.effectiveParallelism(), threads);
+    this.records =
+        Counter.builder("webapi01.text.stream.records")
+            .description("NDJSON records processed by the streaming text API")
+            .register(registry);
+    Gauge.builder("webapi01.text.stream.active", active, AtomicInteger::get)
+        .description("Streams being processed")
+        .register(registry);
+  }
+
+  public TextStreamProperties getProperties() {
+    return properties;
+  }
+
+  /** Returns the worker pool, for callers that schedule records themselves. */
+  public ExecutorService getWorkers() {
+    return workers;
+  }
+
+  /** Counts records processed outside {@link #process}. */
+  public void recordProcessed(long count) {
+    records.increment(count);
+  }
+
+  /**
+   * Reads NDJSON records from {@code in} and writes one result line per record to {@code out}.
+   * Blank lines produce no output but are counted in line numbers. Blocks until the input ends.
+   */
+  public void process(TextRecordProcessor processor, InputStream in, OutputStream out)
+      throws IOException {
+    int maxLineLength = (int) properties.getMaxLineLength().toBytes();
+    LineReader reader = new LineReader(in, maxLineLength);
+    ArrayDeque<CompletableFuture<ByteArrayOutputStream>> inFlight = new ArrayDeque<>();
+    active.incrementAndGet();
+    try {
+      long lineNumber = 0;
+      while (true) {
+        List<byte[]> lines = new ArrayList<>(properties.getChunkSize());
+        long firstLine = lineNumber + 1;
+        byte[] line;
+        while (lines.size() < properties.getChunkSize() && (line = reader.next()) != null) {
+          lines.add(line);
+          lineNumber++;
+        }
+        if (lines.isEmpty()) {
+          break;
+        }
+        inFlight.add(
+            CompletableFuture.supplyAsync(
+                () -> processChunk(processor, firstLine, lines, maxLineLength), workers));
+        while (inFlight.size() >= properties.getWindow()
+            || (!inFlight.isEmpty() && inFlight.peek().isDone())) {
+          writeNext(inFlight, out);
+        }
+      }
+      while (!inFlight.isEmpty()) {
+        writeNext(inFlight, out);
+      }
+      out.flush();
+    } finally {
+      // 書き込みに失敗した場合も残りのチャンクは破棄する
+      inFlight.forEach(chunk -> chunk.cancel(false));
+      active.decrementAndGet();
+    }
+  }
+
+  private static void writeNext(
+      ArrayDeque<CompletableFuture<ByteArrayOutputStream>> inFlight, OutputStream out)
+      throws IOException {
+    CompletableFuture<ByteArrayOutputStream> next = inFlight.peek();
+    if (!next.isDone()) {
+      out.flush();
+    }
+    ByteArrayOutputStream result = next.join();
+    inFlight.poll();
+    result.writeTo(out);
+  }
+
+  private ByteArrayOutputStream processChunk(
+      TextRecordProcessor processor, long firstLine, List<byte[]> lines, int maxLineLength) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream(lines.size() * 128);
+    long lineNumber = firstLine;
+    int processed = 0;
+    for (byte[] line : lines) {
+      if (line == LineReader.TOO_LONG) {
+        processor.error(lineNumber, "Line exceeds " + maxLineLength + " bytes", out);
+        processed++;
+      } else if (line.length > 0) {
+        processor.process(lineNumber, line, 0, line.length, out);
+        processed++;
+      }
+      lineNumber++;
+    }
+    records.increment(processed);
+    return out;
+  }
+
+  @Override
+  public void destroy() {
+    workers.shutdownNow();
+  }
+
+  /** Splits a byte stream into lines of at most a given length, without decoding it. */
+  private static final class LineReader {
+
+    /** Returned in place of a line longer than the limit; the line itself is skipped. */
+    static final byte[] TOO_LONG = new byte[0];
+
+    private final InputStream in;
+    private final int maxLength;
+    private final byte[] buffer = new byte[8192];
+    private int position;
+    private int limit;
+    private byte[] line = new byte[256];
+
+    LineReader(InputStream in, int maxLength) {
+      this.in = in;
+      this.maxLength = maxLength;
+    }
+
+    /** Returns the next line without its terminator, or {@code null} at the end of input. */
+    byte[] next() throws IOException {
+      int length = 0;
+      boolean tooLong = false;
+      while (true) {
+        if (position == limit) {
+          limit = in.read(buffer);
+          position = 0;
+          if (limit <= 0) {
+            limit = 0;
+            if (length == 0 && !tooLong) {
+              return null;
+            }
+            break;
+          }
+        }
+        int start = position;
+        while (position < limit && buffer[position] != '\n') {
+          position++;
+        }
+        int count = position - start;
+        if (!tooLong) {
+          if (length + count > maxLength) {
+            tooLong = true;
+          } else {
+            if (length + count > line.length) {
+              line = Arrays.copyOf(line, Math.min(maxLength, (length + count) * 2));
+            }
+            System.arraycopy(buffer, start, line, length, count);
+            length += count;
+          }
+        }
+        if (position < limit) {
+          position++;
+          break;
+        }
+      }
+      if (tooLong) {
+        return TOO_LONG;
+      }
+      if (length > 0 && line[length - 1] == '\r') {
+        length--;
+      }
+      return Arrays.copyOf(line, length);
+    }
+  }
+}
@@ -0,0 +1,142 @@
+package jp.co.metaease.web.upstream;
+
+/**
+ * Count-based circuit breaker for one upstream.
+ *
+ * <p>While CLOSED the outcome of the last {@code windowSize} calls is recorded; once at least
+ * {@code minimumCalls} are recorded and the failure rate reaches the threshold the breaker OPENs and
+ * rejects calls. After {@code openDuration} it lets {@code halfOpenCalls} trial calls through
+ * (HALF_OPEN): if they all succeed it CLOSEs again, a single failure re-OPENs it.
+ *
+ * <p>Outcomes are tagged with the generation returned by {@link #tryAcquire()}, so calls that
+ * started before a state change do not affect the new state. The monitor only guards counters,
+ * never I/O.
+ */
+final class CircuitBreaker {
+
+  /** Breaker states; the ordinal is exported as the state gauge value. */
+  enum State {
+    CLOSED,
+    OPEN,
+    HALF_OPEN
+  }
+
+  /** Returned by {@link #tryAcquire()} when the call is rejected. */
+  static final long REJECTED = -1;
+
+  private final int windowSize;
+  private final int minimumCalls;
+  private final int failureRateThreshold;
+  private final long openDurationNanos;
+  private final int halfOpenCalls;
+
+  private final boolean[] outcomes;
+  private int next;
+  private int recorded;
+  private int failures;
+
+  private State state = State.CLOSED;
+  private long generation;
+  private long openedAt;
+  private int trialsInFlight;
+  private int trialSuccesses;
+
+  CircuitBreaker(UpstreamProperties.Resilience settings) {
+    this.windowSize = settings.getSlidingWindowSize();
+    this.minimumCalls = Math.min(settings.getMinimumCalls(), windowSize);
+    this.failureRateThreshold = settings.getFailureRateThreshold();
+    this.openDurationNanos = settings.getOpenDuration().toNanos();
+    this.halfOpenCalls = settings.getHalfOpenCalls();
+    this.outcomes = new boolean[windowSize];
+  }
+
+  /**
+   * Asks for permission to call the upstream.
+   *
+   * @return the generation to report the outcome with, or {@link #REJECTED}
+   */
+  synchronized long tryAcquire() {
+    if (state == State.OPEN) {
+      if (System.nanoTime() - openedAt < openDurationNanos) {
+        return REJECTED;
+      }
+      transitionTo(State.HALF_OPEN);
+    }
+    if (state == State.HALF_OPEN) {
+      if (trialsInFlight >= halfOpenCalls) {
+        return REJECTED;
+      }
+      trialsInFlight++;
+    }
+    return generation;
+  }
+
+  /** Gives back a permission that was acquired but not used. */
+  synchronized void release(long acquiredGeneration) {
+    if (acquiredGeneration == generation && state == State.HALF_OPEN) {
+      trialsInFlight--;
+    }
+  }
+
+  synchronized void onSuccess(long acquiredGeneration) {
+    if (acquiredGeneration != generation) {
+      return;
+    }
+    if (state == State.HALF_OPEN) {
+      trialsInFlight--;
+      if (++trialSuccesses >= halfOpenCalls) {
+        transitionTo(State.CLOSED);
+      }
+    } else if (state == State.CLOSED) {
+      record(false);
+    }
+  }
+
+  synchronized void onFailure(long acquiredGeneration) {
+    if (acquiredGeneration != generation) {
+      return;
+    }
+    if (state == State.HALF_OPEN) {
+      transitionTo(State.OPEN);
+    } else if (state == State.CLOSED) {
+      record(true);
+      if (recorded >= minimumCalls && failures * 100 >= failureRateThreshold * recorded) {
+        transitionTo(State.OPEN);
+      }
+    }
+  }
+
+  synchronized State state() {
+    return state;
+  }
+
+  private void record(boolean failure) {
+    if (recorded == windowSize) {
+      if (outcomes[next]) {
+        failures--;
+      }
+    } else {
+      recorded++;
+    }
+    outcomes[next] = failure;
+    if (failure) {
+      failures++;
+    }
+    next = (next + 1) % windowSize;
+  }
+
+  private void transitionTo(State newState) {
+    state = newState;
+    generation++;
+    trialsInFlight = 0;
+    trialSuccesses = 0;
+    if (newState == State.OPEN) {
+      openedAt = System.nanoTime();
+    }
+    if (newState == State.CLOSED) {
+      next = 0;
+      recorded = 0;
+      failures = 0;
+    }
+  }
+}
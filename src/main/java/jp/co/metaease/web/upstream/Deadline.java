@@ -0,0 +1,62 @@
+package jp.co.metaease.web.upstream;
+
+import java.time.Duration;
+
+/**
+ * Point in time by which the current request must be answered.
+ *
+ * <p>The servlet filter opens a deadline per incoming request and binds it to the request thread;
+ * upstream calls derive their own timeout from what remains of it, so a slow first hop cannot
+ * leave a later call a full timeout of its own.
+ */
+public final class Deadline {
+
+  /** Deadline used when no request budget is bound to the thread. */
+  public static final Deadline NONE = new Deadline(Long.MAX_VALUE);
+
+  private static final ThreadLocal<Deadline> CURRENT = new ThreadLocal<>();
+
+  private final long expiresAtNanos;
+
+  private Deadline(long expiresAtNanos) {
+    this.expiresAtNanos = expiresAtNanos;
+  }
+
+  /** Returns a deadline {@code budget} from now. */
+  public static Deadline after(Duration budget) {
+    return new Deadline(System.nanoTime() + budget.toNanos());
+  }
+
+  /** Returns the deadline bound to the current thread, or {@link #NONE}. */
+  public static Deadline current() {
+    Deadline deadline = CURRENT.get();
+    return deadline == null ? NONE : deadline;
+  }
+
+  /** Binds {@code deadline} to the current thread until {@link #clear()}. */
+  public static void bind(Deadline deadline) {
+    CURRENT.set(deadline);
+  }
+
+  public static void clear() {
+    CURRENT.remove();
+  }
+
+  /** Returns the time left, never negative. */
+  public Duration remaining() {
+    if (this == NONE) {
+      return Duration.ofNanos(Long.MAX_VALUE);
+    }
+    return Duration.ofNanos(Math.max(0, expiresAtNanos - System.nanoTime()));
+  }
+
+  public boolean isExpired() {
+    return this != NONE && System.nanoTime() - expiresAtNanos >= 0;
+  }
+
+  /** Returns the smaller of {@code cap} and the remaining time. */
+  public Duration cap(Duration cap) {
+    Duration remaining = remaining();
+    return remaining.compareTo(cap) < 0 ? remaining : cap;
+  }
+}
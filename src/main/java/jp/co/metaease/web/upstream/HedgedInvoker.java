@@ -0,0 +1,166 @@
+package jp.co.metaease.web.upstream;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+/**
+ * Sends a second, hedged attempt when the first one is slower than the observed latency
+ * percentile, and completes with whichever attempt answers first.
+ *
+ * <p>Each attempt receives the time that remains of the caller's {@link Deadline}; no hedge is
+ * started when less time remains than the hedge delay.
+ *
+ * <p>Once the result is decided, the other attempt's future is cancelled. That only stops the
+ * losing request if the attempt's future aborts its work on cancellation, as {@link
+ * UpstreamClient#readStringAsync(java.net.URI, Duration)} does; otherwise it runs to completion.
+ */
+public class HedgedInvoker {
+
+  private final UpstreamProperties.Hedge settings;
+  private final LatencyWindow latencies = new LatencyWindow(256);
+  private final ScheduledExecutorService scheduler;
+  private final Counter hedges;
+  private final Counter hedgeWins;
+
+  public HedgedInvoker(UpstreamProperties.Hedge settings, MeterRegistry registry) {
+    this.settings = settings;
+    CustomizableThreadFactory threads = new CustomizableThreadFactory("upstream-hedge-");
+    threads.setDaemon(true);
+    this.scheduler = Executors.newSingleThreadScheduledExecutor(threads);
+    this.hedges =
+        Counter.builder("webapi01.upstream.hedges")
+            .description("Hedged upstream attempts started")
+            .register(registry);
+    this.hedgeWins =
+        Counter.builder("webapi01.upstream.hedge.wins")
+            .description("Hedged attempts that answered first")
+            .register(registry);
+  }
+
+  /**
+   * Runs {@code attempt} and, if enabled and still unanswered after the hedge delay, runs it once
+   * more.
+   *
+   * @param deadline the caller's deadline
+   * @param readTimeout upper bound for a single attempt
+   * @param attempt starts one attempt with the given timeout
+   * @return the first successful result, or the last failure once every attempt failed
+   */
+  public <V> CompletableFuture<V> invoke(
+      Deadline deadline, Duration readTimeout, Function<Duration, CompletableFuture<V>> attempt) {
+    if (deadline.isExpired()) {
+      return CompletableFuture.failedFuture(new HttpTimeoutException("Request deadline exceeded"));
+    }
+
+    CompletableFuture<V> result = new CompletableFuture<>();
+    AtomicInteger pending = new AtomicInteger(1);
+    CompletableFuture<V> primary = start(deadline, readTimeout, attempt, result, pending, false);
+
+    long delayMillis = hedgeDelay().toMillis();
+    if (settings.isEnabled() && delayMillis < deadline.remaining().toMillis()) {
+      scheduler.schedule(
+          () -> {
+            if (result.isDone() || deadline.isExpired()) {
+              return;
+            }
+            pending.incrementAndGet();
+            hedges.increment();
+            CompletableFuture<V> hedge = start(deadline, readTimeout, attempt, result, pending, true);
+            result.whenComplete((value, failure) -> hedge.cancel(false));
+          },
+          delayMillis,
+          TimeUnit.MILLISECONDS);
+    }
+    result.whenComplete((value, failure) -> primary.cancel(false));
+    return result;
+  }
+
+  /** Stops the hedge scheduler. */
+  public void shutdown() {
+    scheduler.shutdownNow();
+  }
+
+  private <V> CompletableFuture<V> start(
+      Deadline deadline,
+      Duration readTimeout,
+      Function<Duration, CompletableFuture<V>> attempt,
+      CompletableFuture<V> result,
+      AtomicInteger pending,
+      boolean hedge) {
+    long startedAt = System.nanoTime();
+    CompletableFuture<V> future;
+    try {
+      future = attempt.apply(deadline.cap(readTimeout));
+    } catch (RuntimeException e) {
+      future = CompletableFuture.failedFuture(e);
+    }
+    future.whenComplete(
+        (value, failure) -> {
+          if (failure == null) {
+            latencies.record(System.nanoTime() - startedAt);
+            if (result.complete(value) && hedge) {
+              hedgeWins.increment();
+            }
+          } else if (pending.decrementAndGet() == 0) {
+            result.completeExceptionally(failure);
+          }
+        });
+    return future;
+  }
+
+  private Duration hedgeDelay() {
+    long observed = latencies.percentile(settings.getPercentile());
+    Duration minDelay = settings.getMinDelay();
+    return observed > minDelay.toNanos() ? Duration.ofNanos(observed) : minDelay;
+  }
+
+  /** Fixed-size window of recent successful latencies. */
+  private static final class LatencyWindow {
+
+    private static final int RECOMPUTE_EVERY = 32;
+
+    private final long[] samples;
+    private int next;
+    private int count;
+    private int sinceRecompute;
+    private long cachedPercentile = -1;
+    private int cachedFor = -1;
+
+    LatencyWindow(int size) {
+      this.samples = new long[size];
+    }
+
+    synchronized void record(long nanos) {
+      samples[next] = nanos;
+      next = (next + 1) % samples.length;
+      count = Math.min(count + 1, samples.length);
+      sinceRecompute++;
+    }
+
+    /** Returns the latency at {@code percentile} in nanoseconds, or 0 with too few samples. */
+    synchronized long percentile(int percentile) {
+      if (count < RECOMPUTE_EVERY) {
+        return 0;
+      }
+      if (cachedFor != percentile || sinceRecompute >= RECOMPUTE_EVERY) {
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        int index = Math.min(count - 1, (int) Math.ceil(percentile / 100.0 * count) - 1);
+        cachedPercentile = sorted[Math.max(0, index)];
+        cachedFor = percentile;
+        sinceRecompute = 0;
+      }
+      return cachedPercentile;
+    }
+  }
+}
@@ -0,0 +1,74 @@
+package jp.co.metaease.web.upstream;
+
+import java.io.IOException;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+
+/**
+ * Collects a response body into a byte array, cancelling the exchange as soon as the body grows
+ * beyond the maximum size instead of buffering it first.
+ */
+final class LimitedBodySubscriber implements HttpResponse.BodySubscriber<byte[]> {
+
+  private final HttpResponse.BodySubscriber<byte[]> delegate =
+      HttpResponse.BodySubscribers.ofByteArray();
+  private final CompletableFuture<byte[]> result = new CompletableFuture<>();
+  private final long maxBytes;
+  private Flow.Subscription subscription;
+  private long total;
+
+  LimitedBodySubscriber(long maxBytes) {
+    this.maxBytes = maxBytes;
+    delegate
+        .getBody()
+        .whenComplete(
+            (body, failure) -> {
+              if (failure != null) {
+                result.completeExceptionally(failure);
+              } else {
+                result.complete(body);
+              }
+            });
+  }
+
+  @Override
+  public CompletionStage<byte[]> getBody() {
+    return result;
+  }
+
+  @Override
+  public void onSubscribe(Flow.Subscription subscription) {
+    this.subscription = subscription;
+    delegate.onSubscribe(subscription);
+  }
+
+  @Override
+  public void onNext(List<ByteBuffer> item) {
+    if (result.isDone()) {
+      return;
+    }
+    for (ByteBuffer buffer : item) {
+      total += buffer.remaining();
+    }
+    if (total > maxBytes) {
+      subscription.cancel();
+      result.completeExceptionally(new IOException("Upstream body exceeds " + maxBytes + " bytes"));
+      return;
+    }
+    delegate.onNext(item);
+  }
+
+  @Override
+  public void onError(Throwable throwable) {
+    delegate.onError(throwable);
+  }
+
+  @Override
+  public void onComplete() {
+    delegate.onComplete();
+  }
+}
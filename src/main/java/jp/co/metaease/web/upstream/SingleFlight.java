@@ -0,0 +1,158 @@
+package jp.co.metaease.web.upstream;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent upstream calls that share a key.
+ *
+ * <p>The first caller for a key runs the call; every caller that arrives while it is in flight
+ * waits for the same outcome and receives the same value or the same exception. Once the call
+ * completes the key is released, so the next caller starts a new call.
+ *
+ * @param <K> key identifying the upstream call, e.g. its URL
+ * @param <V> result type
+ */
+public class SingleFlight<K, V> {
+
+  /** An upstream call that may fail with an I/O error. */
+  @FunctionalInterface
+  public interface Call<V> {
+    V call() throws IOException;
+  }
+
+  private final ConcurrentMap<K, CompletableFuture<V>> calls = new ConcurrentHashMap<>();
+
+  /**
+   * Runs {@code call} on the current thread, or waits for the call already in flight for {@code
+   * key}.
+   *
+   * @param key the call key
+   * @param call the upstream call
+   * @return the result shared by all callers of this flight
+   * @throws IOException the failure shared by all callers of this flight
+   */
+  public V execute(K key, Call<? extends V> call) throws IOException {
+    CompletableFuture<V> created = new CompletableFuture<>();
+    CompletableFuture<V> running = calls.putIfAbsent(key, created);
+    if (running != null) {
+      return await(running);
+    }
+    run(key, call, created);
+    return await(created);
+  }
+
+  /**
+   * Starts {@code call} on {@code executor} unless a call for {@code key} is already in flight.
+   *
+   * @param key the call key
+   * @param executor runs the call when a new flight is started
+   * @param call the upstream call
+   * @return the future of the flight for {@code key}, new or already running
+   */
+  public CompletableFuture<V> executeAsync(K key, Executor executor, Call<? extends V> call) {
+    CompletableFuture<V> created = new CompletableFuture<>();
+    CompletableFuture<V> running = calls.putIfAbsent(key, created);
+    if (running != null) {
+      return running;
+    }
+    try {
+      executor.execute(() -> run(key, call, created));
+    } catch (RejectedExecutionException e) {
+      calls.remove(key, created);
+      created.completeExceptionally(e);
+    }
+    return created;
+  }
+
+  /**
+   * Starts the non-blocking {@code call} unless a call for {@code key} is already in flight.
+   *
+   * @param key the call key
+   * @param call starts the upstream call and returns its completion
+   * @return a per-caller view of the flight for {@code key}; completing or timing it out does not
+   *     affect the other callers
+   */
+  public CompletableFuture<V> share(K key, Supplier<? extends CompletionStage<V>> call) {
+    CompletableFuture<V> created = new CompletableFuture<>();
+    CompletableFuture<V> running = calls.putIfAbsent(key, created);
+    if (running != null) {
+      return running.copy();
+    }
+    try {
+      call.get()
+          .whenComplete(
+              (value, failure) -> {
+                calls.remove(key, created);
+                if (failure != null) {
+                  created.completeExceptionally(unwrap(failure));
+                } else {
+                  created.complete(value);
+                }
+              });
+    } catch (RuntimeException e) {
+      calls.remove(key, created);
+      created.completeExceptionally(e);
+    }
+    return created.copy();
+  }
+
+  /** Returns the number of keys with a call in flight. */
+  public int inFlight() {
+    return calls.size();
+  }
+
+  private void run(K key, Call<? extends V> call, CompletableFuture<V> future) {
+    V value = null;
+    Throwable failure = null;
+    try {
+      value = call.call();
+    } catch (Throwable t) {
+      failure = t;
+    }
+    // 完了を見た呼び出し元が直後に同じキーで呼んでも終わったフライトに合流しないよう、先に外す
+    calls.remove(key, future);
+    if (failure != null) {
+      future.completeExceptionally(failure);
+    } else {
+      future.complete(value);
+    }
+  }
+
+  private static Throwable unwrap(Throwable failure) {
+    if (failure instanceof CompletionException && failure.getCause() != null) {
+      return failure.getCause();
+    }
+    return failure;
+  }
+
+  private static <V> V await(CompletableFuture<V> future) throws IOException {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for the upstream call");
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new IOException("Upstream call failed", cause);
+    }
+  }
+}
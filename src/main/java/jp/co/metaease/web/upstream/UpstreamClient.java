@@ -0,0 +1,420 @@
+package jp.co.metaease.web.upstream;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.Charset;
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Pooled keep-alive HTTP client for upstream calls.
+ *
+ * <p>A single {@link HttpClient} is shared by every request so TCP/TLS connections are reused
+ * (and multiplexed over HTTP/2 when the gateway supports it). Concurrent requests per host are
+ * bounded by a semaphore so a slow upstream cannot absorb every worker thread.
+ *
+ * <p>The size of the JDK connection pool and its idle timeout are the JVM-wide system properties
+ * {@code jdk.httpclient.connectionPoolSize} and {@code jdk.httpclient.keepalive.timeout}. The JDK
+ * reads them once and they apply to every {@link HttpClient} in the process, so they are set on
+ * the command line (see the Dockerfiles) rather than here; the values in effect are logged.
+ */
+public class UpstreamClient {
+
+  private static final Logger logger = LoggerFactory.getLogger(UpstreamClient.class);
+
+  // Java 21 で追加された API。Java 17 向けにコンパイルするためリフレクションで呼ぶ
+  private static final Method SHUTDOWN_NOW = httpClientMethod("shutdownNow");
+  private static final Method AWAIT_TERMINATION =
+      httpClientMethod("awaitTermination", Duration.class);
+
+  private final UpstreamProperties properties;
+  private final HttpClient.Builder builder;
+  private volatile HttpClient httpClient;
+  private final MeterRegistry registry;
+  private final ConcurrentMap<String, Host> hosts = new ConcurrentHashMap<>();
+
+  /**
+   * @param properties connection settings
+   * @param executor runs the client's response handling, or {@code null} for the JDK default
+   * @param registry receives the per-host latency and size meters
+   */
+  public UpstreamClient(UpstreamProperties properties, Executor executor, MeterRegistry registry) {
+    this.properties = properties;
+    this.registry = registry;
+    // JVM 全体の設定で、最初の HttpClient 生成時に一度だけ読まれるため起動オプションで指定する
+    logger.info(
+        "upstream connection pool: jdk.httpclient.connectionPoolSize={},"
+            + " jdk.httpclient.keepalive.timeout={}s",
+        System.getProperty("jdk.httpclient.connectionPoolSize", "0 (unbounded)"),
+        System.getProperty("jdk.httpclient.keepalive.timeout", "1200"));
+    this.builder =
+        HttpClient.newBuilder()
+            .version(properties.isHttp2() ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+            .connectTimeout(properties.getConnectTimeout())
+            .followRedirects(HttpClient.Redirect.NORMAL);
+    if (executor != null) {
+      builder.executor(executor);
+    }
+    this.httpClient = builder.build();
+  }
+
+  /** Returns the settings this client was built from. */
+  public UpstreamProperties properties() {
+    return properties;
+  }
+
+  /** Returns the configured gateway URL. */
+  public URI gatewayUri() {
+    return URI.create(properties.getUrl());
+  }
+
+  /**
+   * Issues a GET request and returns the unread response body.
+   *
+   * <p>The caller must close the response; closing it returns the connection to the pool and
+   * releases the per-host permit.
+   *
+   * @param uri the upstream resource
+   * @return the response whose body is still to be read
+   * @throws IOException if the host limit is exhausted, the request fails or the upstream answers
+   *     with a non-2xx status
+   */
+  public UpstreamResponse open(URI uri) throws IOException {
+    Host host = hostOf(uri);
+    Semaphore permits = host.permits;
+    try {
+      if (!permits.tryAcquire(properties.getConnectTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+        throw new IOException("Too many concurrent upstream requests to " + uri.getHost());
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for an upstream connection");
+    }
+
+    boolean handedOver = false;
+    long startedAt = System.nanoTime();
+    try {
+      HttpRequest request =
+          HttpRequest.newBuilder(uri).timeout(properties.getReadTimeout()).GET().build();
+      HttpResponse<InputStream> response =
+          client().send(request, HttpResponse.BodyHandlers.ofInputStream());
+      host.firstByte.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+      if (response.statusCode() / 100 != 2) {
+        response.body().close();
+        throw new IOException("Upstream " + uri + " returned HTTP " + response.statusCode());
+      }
+      logger.debug("upstream {} answered with {}", uri, response.version());
+      UpstreamResponse upstreamResponse =
+          new UpstreamResponse(
+              new MeteredInputStream(response.body(), host, startedAt),
+              response.headers().firstValue("Content-Type").orElse(null),
+              properties.getCharset(),
+              response.headers().firstValueAsLong("Content-Length").orElse(-1L),
+              properties.getMaxBodySize().toBytes());
+      handedOver = true;
+      return upstreamResponse;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while calling " + uri);
+    } finally {
+      if (!handedOver) {
+        host.failed.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+        permits.release();
+      }
+    }
+  }
+
+  /**
+   * Issues a non-blocking GET request and decodes the body with the same charset and size rules as
+   * {@link UpstreamResponse#readString()}.
+   *
+   * <p>No thread waits for a per-host permit: when the host limit is exhausted the returned future
+   * fails immediately. Cancelling the returned future aborts the exchange, which closes its
+   * connection and releases the permit at once.
+   *
+   * @param uri the upstream resource
+   * @return the decoded body
+   */
+  public CompletableFuture<String> readStringAsync(URI uri) {
+    return readStringAsync(uri, properties.getReadTimeout());
+  }
+
+  /**
+   * Same as {@link #readStringAsync(URI)} with an explicit response timeout, typically what remains
+   * of the request {@link Deadline}.
+   */
+  public CompletableFuture<String> readStringAsync(URI uri, Duration timeout) {
+    Host host = hostOf(uri);
+    if (!host.permits.tryAcquire()) {
+      return CompletableFuture.failedFuture(
+          new IOException("Too many concurrent upstream requests to " + uri.getHost()));
+    }
+
+    long maxBytes = properties.getMaxBodySize().toBytes();
+    long startedAt = System.nanoTime();
+    HttpRequest request = HttpRequest.newBuilder(uri).timeout(timeout).GET().build();
+    HttpResponse.BodyHandler<byte[]> handler =
+        info -> {
+          // Invoked once the status line and headers have arrived.
+          host.firstByte.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+          return info.statusCode() / 100 == 2
+              ? new LimitedBodySubscriber(maxBytes)
+              : HttpResponse.BodySubscribers.replacing(null);
+        };
+    CompletableFuture<HttpResponse<byte[]>> sent;
+    try {
+      sent = client().sendAsync(request, handler);
+    } catch (IOException e) {
+      host.permits.release();
+      return CompletableFuture.failedFuture(e);
+    } catch (RuntimeException e) {
+      host.permits.release();
+      throw e;
+    }
+    CompletableFuture<String> result =
+        sent.whenComplete((response, failure) -> host.permits.release())
+            .thenApply(
+                response -> {
+                  if (response.statusCode() / 100 != 2) {
+                    throw new CompletionException(
+                        new IOException(
+                            "Upstream " + uri + " returned HTTP " + response.statusCode()));
+                  }
+                  Charset charset =
+                      UpstreamResponse.charsetOf(
+                          response.headers().firstValue("Content-Type").orElse(null),
+                          properties.getCharset());
+                  host.bytes.record(response.body().length);
+                  return UpstreamResponse.decode(response.body(), charset);
+                })
+            .whenComplete(
+                (body, failure) -> {
+                  long elapsed = System.nanoTime() - startedAt;
+                  if (failure == null) {
+                    host.succeeded.record(elapsed, TimeUnit.NANOSECONDS);
+                  } else {
+                    host.failed.record(elapsed, TimeUnit.NANOSECONDS);
+                  }
+                });
+    // 戻り値を取り消しても依存元の sent には伝わらず、上の計測も走らないため、
+    // 交換そのものを中断して接続と許可を返し、失敗として記録する
+    result.whenComplete(
+        (body, failure) -> {
+          if (failure instanceof CancellationException) {
+            sent.cancel(true);
+            host.failed.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+          }
+        });
+    return result;
+  }
+
+  /**
+   * Drops the shared client and shuts it down, closing its connections and ending its selector
+   * thread, so that no socket stays open across a CRaC checkpoint. Calls fail until {@link
+   * #reopen()} builds a new one.
+   *
+   * <p>On Java 21 and later this is {@code HttpClient#shutdownNow()}. Java 17 has no such API, so
+   * the client's internal selector manager is shut down directly; that needs {@code --add-opens
+   * java.net.http/jdk.internal.net.http=ALL-UNNAMED} (see {@code Dockerfile.crac.txt}).
+   *
+   * @return whether the client terminated within {@code timeout}
+   * @throws IllegalStateException if the client cannot be shut down on this runtime
+   */
+  public boolean close(Duration timeout) throws InterruptedException {
+    HttpClient client = httpClient;
+    if (client == null) {
+      return true;
+    }
+    httpClient = null;
+    if (SHUTDOWN_NOW == null || AWAIT_TERMINATION == null) {
+      return shutdownSelector(client, timeout);
+    }
+    try {
+      SHUTDOWN_NOW.invoke(client);
+      return (Boolean) AWAIT_TERMINATION.invoke(client, timeout);
+    } catch (InvocationTargetException e) {
+      if (e.getCause() instanceof InterruptedException) {
+        throw (InterruptedException) e.getCause();
+      }
+      throw new IllegalStateException("Failed to shut down the upstream client", e.getCause());
+    } catch (IllegalAccessException e) {
+      throw new IllegalStateException("Failed to shut down the upstream client", e);
+    }
+  }
+
+  /** Creates a new shared client after {@link #close(Duration)}. */
+  public void reopen() {
+    if (httpClient == null) {
+      httpClient = builder.build();
+    }
+  }
+
+  private HttpClient client() throws IOException {
+    HttpClient client = httpClient;
+    if (client == null) {
+      throw new IOException("Upstream client is closed");
+    }
+    return client;
+  }
+
+  /** Returns a public method of {@link HttpClient}, or {@code null} before the Java it came in. */
+  private static Method httpClientMethod(String name, Class<?>... parameterTypes) {
+    try {
+      return HttpClient.class.getMethod(name, parameterTypes);
+    } catch (NoSuchMethodException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Shuts a Java 17 client down through its selector manager, which closes the selector and the
+   * pooled connections, and waits for the selector thread to end.
+   */
+  private static boolean shutdownSelector(HttpClient client, Duration timeout)
+      throws InterruptedException {
+    Thread selector;
+    try {
+      // HttpClientFacade.impl -> HttpClientImpl.selmgr（HttpClient-<n>-SelectorManager スレッド）
+      Field impl = client.getClass().getDeclaredField("impl");
+      impl.setAccessible(true);
+      Object clientImpl = impl.get(client);
+      Field selmgr = clientImpl.getClass().getDeclaredField("selmgr");
+      selmgr.setAccessible(true);
+      selector = (Thread) selmgr.get(clientImpl);
+      Method shutdown = selector.getClass().getDeclaredMethod("shutdown");
+      shutdown.setAccessible(true);
+      shutdown.invoke(selector);
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      throw new IllegalStateException(
+          "Cannot shut down the upstream client on Java "
+              + Runtime.version().feature()
+              + ", run with --add-opens java.net.http/jdk.internal.net.http=ALL-UNNAMED",
+          e);
+    }
+    selector.join(Math.max(1, timeout.toMillis()));
+    return !selector.isAlive();
+  }
+
+  private Host hostOf(URI uri) {
+    String key = uri.getHost() + ":" + uri.getPort();
+    return hosts.computeIfAbsent(key, k -> new Host(uri.getHost()));
+  }
+
+  /** Per-host concurrency limit and meters, tagged with the host name only. */
+  private final class Host {
+
+    final Semaphore permits = new Semaphore(properties.getMaxConnectionsPerHost());
+    final Timer firstByte;
+    final Timer succeeded;
+    final Timer failed;
+    final DistributionSummary bytes;
+
+    Host(String name) {
+      this.firstByte =
+          Timer.builder("webapi01.upstream.first-byte")
+              .description("Time until the upstream status line and headers arrive")
+              .tag("upstream", name)
+              .register(registry);
+      this.succeeded = totalTimer(name, "success");
+      this.failed = totalTimer(name, "error");
+      this.bytes =
+          DistributionSummary.builder("webapi01.upstream.response.size")
+              .description("Upstream body bytes read")
+              .baseUnit("bytes")
+              .tag("upstream", name)
+              .register(registry);
+    }
+
+    private Timer totalTimer(String name, String outcome) {
+      return Timer.builder("webapi01.upstream.total")
+          .description("Time until the upstream body is fully read")
+          .tag("upstream", name)
+          .tag("outcome", outcome)
+          .register(registry);
+    }
+  }
+
+  /**
+   * Counts body bytes and, when closed, records the total time and releases the per-host permit
+   * exactly once.
+   */
+  private static final class MeteredInputStream extends FilterInputStream {
+
+    private final Host host;
+    private final long startedAt;
+    private long count;
+    private boolean failed;
+    private boolean closed;
+
+    MeteredInputStream(InputStream in, Host host, long startedAt) {
+      super(in);
+      this.host = host;
+      this.startedAt = startedAt;
+    }
+
+    @Override
+    public int read() throws IOException {
+      try {
+        int b = super.read();
+        if (b != -1) {
+          count++;
+        }
+        return b;
+      } catch (IOException e) {
+        failed = true;
+        throw e;
+      }
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      try {
+        int read = super.read(b, off, len);
+        if (read > 0) {
+          count += read;
+        }
+        return read;
+      } catch (IOException e) {
+        failed = true;
+        throw e;
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      try {
+        super.close();
+      } finally {
+        Timer total = failed ? host.failed : host.succeeded;
+        total.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+        host.bytes.record(count);
+        host.permits.release();
+      }
+    }
+  }
+}
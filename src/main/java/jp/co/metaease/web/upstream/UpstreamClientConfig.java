@@ -0,0 +1,50 @@
+package jp.co.metaease.web.upstream;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.concurrent.Executor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/** Wires the shared upstream HTTP client. */
+@Configuration
+@EnableConfigurationProperties(UpstreamProperties.class)
+public class UpstreamClientConfig {
+
+  @Bean
+  public UpstreamClient upstreamClient(
+      UpstreamProperties properties,
+      @Qualifier("upstreamExecutor") ObjectProvider<Executor> upstreamExecutor,
+      MeterRegistry meterRegistry) {
+    return new UpstreamClient(properties, upstreamExecutor.getIfAvailable(), meterRegistry);
+  }
+
+  @Bean
+  public UpstreamResponseCache upstreamResponseCache(
+      UpstreamProperties properties, MeterRegistry meterRegistry) {
+    return new UpstreamResponseCache(properties.getCache(), meterRegistry);
+  }
+
+  @Bean
+  public UpstreamResilience upstreamResilience(
+      UpstreamProperties properties, MeterRegistry meterRegistry) {
+    return new UpstreamResilience(properties.getResilience(), meterRegistry);
+  }
+
+  @Bean
+  public HedgedInvoker hedgedInvoker(UpstreamProperties properties, MeterRegistry meterRegistry) {
+    return new HedgedInvoker(properties.getHedge(), meterRegistry);
+  }
+
+  @Bean
+  public UpstreamGateway upstreamGateway(
+      UpstreamClient upstreamClient,
+      UpstreamResponseCache upstreamResponseCache,
+      UpstreamResilience upstreamResilience,
+      HedgedInvoker hedgedInvoker) {
+    return new UpstreamGateway(
+        upstreamClient, upstreamResponseCache, upstreamResilience, hedgedInvoker);
+  }
+}
@@ -0,0 +1,111 @@
+package jp.co.metaease.web.upstream;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.http.HttpTimeoutException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Fetches the gateway message through the cache, the resilience layer, hedging and the pooled
+ * client.
+ *
+ * <p>Shared by the blocking, asynchronous and reactive landing pages so they all apply the same
+ * policies in the same order.
+ */
+public class UpstreamGateway {
+
+  private final UpstreamClient client;
+  private final UpstreamResponseCache cache;
+  private final UpstreamResilience resilience;
+  private final HedgedInvoker hedging;
+
+  public UpstreamGateway(
+      UpstreamClient client,
+      UpstreamResponseCache cache,
+      UpstreamResilience resilience,
+      HedgedInvoker hedging) {
+    this.client = client;
+    this.cache = cache;
+    this.resilience = resilience;
+    this.hedging = hedging;
+  }
+
+  /** Returns the client used for gateway calls. */
+  public UpstreamClient client() {
+    return client;
+  }
+
+  /**
+   * Returns the gateway message, blocking the calling thread no longer than the request {@link
+   * Deadline} bound to it.
+   *
+   * @throws UpstreamUnavailableException if the gateway is short-circuited and nothing is cached
+   * @throws IOException if the call fails or the deadline passes and nothing is cached
+   */
+  public String message() throws IOException {
+    URI gateway = client.gatewayUri();
+    Deadline deadline = Deadline.current();
+    return cache.get(
+        gateway.toString(),
+        () -> resilience.call(gateway, () -> await(fetch(gateway, deadline), deadline)));
+  }
+
+  /**
+   * Returns the gateway message without blocking the calling thread. The request {@link Deadline}
+   * is captured on the calling thread.
+   */
+  public CompletableFuture<String> messageAsync() {
+    URI gateway = client.gatewayUri();
+    Deadline deadline = Deadline.current();
+    return cache.getAsync(
+        gateway.toString(), () -> resilience.callAsync(gateway, () -> fetch(gateway, deadline)));
+  }
+
+  /**
+   * Opens the gateway body for passthrough under the breaker and bulkhead. The bulkhead permit is
+   * held until the response is closed, and errors while streaming the body count as failures.
+   *
+   * @throws IOException if the call is rejected or fails
+   */
+  public UpstreamResponse open() throws IOException {
+    URI gateway = client.gatewayUri();
+    return resilience.open(gateway, () -> client.open(gateway));
+  }
+
+  private CompletableFuture<String> fetch(URI gateway, Deadline deadline) {
+    return hedging.invoke(
+        deadline,
+        client.properties().getReadTimeout(),
+        timeout -> client.readStringAsync(gateway, timeout));
+  }
+
+  private static String await(CompletableFuture<String> future, Deadline deadline)
+      throws IOException {
+    try {
+      if (deadline == Deadline.NONE) {
+        return future.get();
+      }
+      return future.get(deadline.remaining().toNanos(), TimeUnit.NANOSECONDS);
+    } catch (TimeoutException e) {
+      future.cancel(false);
+      throw new HttpTimeoutException("Request deadline exceeded");
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      future.cancel(false);
+      throw new InterruptedIOException("Interrupted while waiting for the gateway");
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new IOException("Gateway call failed", cause);
+    }
+  }
+}
@@ -0,0 +1,309 @@
+package jp.co.metaease.web.upstream;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+/** Connection settings for the upstream API gateway ({@code webapi01.upstream.*}). */
+@ConfigurationProperties(prefix = "webapi01.upstream")
+public class UpstreamProperties {
+
+  /** Gateway URL called by the landing page. */
+  private String url = "https://my-apigw-001-1upcx6wd.uc.gateway.dev";
+
+  /** Maximum time to establish a TCP/TLS connection. */
+  private Duration connectTimeout = Duration.ofSeconds(2);
+
+  /** Maximum time to wait for the response headers. */
+  private Duration readTimeout = Duration.ofSeconds(5);
+
+  /** Overall time budget of an incoming request; upstream calls get what remains of it. */
+  private Duration requestBudget = Duration.ofSeconds(4);
+
+  /** Overall time budget of the asynchronous landing page before it falls back. */
+  private Duration asyncTimeout = Duration.ofSeconds(3);
+
+  /** Upper bound of concurrent requests against a single host. */
+  private int maxConnectionsPerHost = 20;
+
+  /** Negotiate HTTP/2 (with HTTP/1.1 fallback) so requests share one multiplexed connection. */
+  private boolean http2 = true;
+
+  /** Charset used when the upstream does not declare one in its Content-Type. */
+  private Charset charset = StandardCharsets.UTF_8;
+
+  /** Largest upstream body that is read or passed through. */
+  private DataSize maxBodySize = DataSize.ofMegabytes(1);
+
+  /** Response cache in front of the gateway call. */
+  private final Cache cache = new Cache();
+
+  /** Circuit breaker and bulkhead around the gateway call. */
+  private final Resilience resilience = new Resilience();
+
+  /** Hedged second attempt for slow gateway calls. */
+  private final Hedge hedge = new Hedge();
+
+  public String getUrl() {
+    return url;
+  }
+
+  public void setUrl(String url) {
+    this.url = url;
+  }
+
+  public Duration getConnectTimeout() {
+    return connectTimeout;
+  }
+
+  public void setConnectTimeout(Duration connectTimeout) {
+    this.connectTimeout = connectTimeout;
+  }
+
+  public Duration getReadTimeout() {
+    return readTimeout;
+  }
+
+  public void setReadTimeout(Duration readTimeout) {
+    this.readTimeout = readTimeout;
+  }
+
+  public Duration getRequestBudget() {
+    return requestBudget;
+  }
+
+  public void setRequestBudget(Duration requestBudget) {
+    this.requestBudget = requestBudget;
+  }
+
+  public Duration getAsyncTimeout() {
+    return asyncTimeout;
+  }
+
+  public void setAsyncTimeout(Duration asyncTimeout) {
+    this.asyncTimeout = asyncTimeout;
+  }
+
+  public int getMaxConnectionsPerHost() {
+    return maxConnectionsPerHost;
+  }
+
+  public void setMaxConnectionsPerHost(int maxConnectionsPerHost) {
+    this.maxConnectionsPerHost = maxConnectionsPerHost;
+  }
+
+  public boolean isHttp2() {
+    return http2;
+  }
+
+  public void setHttp2(boolean http2) {
+    this.http2 = http2;
+  }
+
+  public Charset getCharset() {
+    return charset;
+  }
+
+  public void setCharset(Charset charset) {
+    this.charset = charset;
+  }
+
+  public DataSize getMaxBodySize() {
+    return maxBodySize;
+  }
+
+  public void setMaxBodySize(DataSize maxBodySize) {
+    this.maxBodySize = maxBodySize;
+  }
+
+  public Cache getCache() {
+    return cache;
+  }
+
+  public Resilience getResilience() {
+    return resilience;
+  }
+
+  public Hedge getHedge() {
+    return hedge;
+  }
+
+  /** Settings of the in-memory upstream response cache. */
+  public static class Cache {
+
+    /** Serve responses from memory instead of calling the gateway every time. */
+    private boolean enabled = true;
+
+    /** How long a response is served without revalidation. */
+    private Duration ttl = Duration.ofSeconds(30);
+
+    /** How long past the TTL a stale response is served while one refresh runs in background. */
+    private Duration staleWhileRevalidate = Duration.ofSeconds(60);
+
+    /** How long past the TTL a stale response is served when the gateway call fails. */
+    private Duration staleIfError = Duration.ofMinutes(10);
+
+    /** Maximum number of cached responses; the least recently used entry is evicted first. */
+    private int maxEntries = 100;
+
+    public boolean isEnabled() {
+      return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+      this.enabled = enabled;
+    }
+
+    public Duration getTtl() {
+      return ttl;
+    }
+
+    public void setTtl(Duration ttl) {
+      this.ttl = ttl;
+    }
+
+    public Duration getStaleWhileRevalidate() {
+      return staleWhileRevalidate;
+    }
+
+    public void setStaleWhileRevalidate(Duration staleWhileRevalidate) {
+      this.staleWhileRevalidate = staleWhileRevalidate;
+    }
+
+    public Duration getStaleIfError() {
+      return staleIfError;
+    }
+
+    public void setStaleIfError(Duration staleIfError) {
+      this.staleIfError = staleIfError;
+    }
+
+    public int getMaxEntries() {
+      return maxEntries;
+    }
+
+    public void setMaxEntries(int maxEntries) {
+      this.maxEntries = maxEntries;
+    }
+  }
+
+  /** Settings of the per-upstream circuit breaker and bulkhead. */
+  public static class Resilience {
+
+    /** Failure percentage within the sliding window that opens the circuit. */
+    private int failureRateThreshold = 50;
+
+    /** Number of most recent calls whose outcome is considered. */
+    private int slidingWindowSize = 20;
+
+    /** Calls that must be recorded before the failure rate is evaluated. */
+    private int minimumCalls = 10;
+
+    /** How long an open circuit rejects calls before letting trial calls through. */
+    private Duration openDuration = Duration.ofSeconds(10);
+
+    /** Trial calls in half-open state; all must succeed to close the circuit. */
+    private int halfOpenCalls = 3;
+
+    /** Maximum concurrent calls per upstream (bulkhead size). */
+    private int maxConcurrentCalls = 20;
+
+    /** How long a blocking caller may wait for a bulkhead permit; 0 fails fast. */
+    private Duration maxWait = Duration.ZERO;
+
+    public int getFailureRateThreshold() {
+      return failureRateThreshold;
+    }
+
+    public void setFailureRateThreshold(int failureRateThreshold) {
+      this.failureRateThreshold = failureRateThreshold;
+    }
+
+    public int getSlidingWindowSize() {
+      return slidingWindowSize;
+    }
+
+    public void setSlidingWindowSize(int slidingWindowSize) {
+      this.slidingWindowSize = slidingWindowSize;
+    }
+
+    public int getMinimumCalls() {
+      return minimumCalls;
+    }
+
+    public void setMinimumCalls(int minimumCalls) {
+      this.minimumCalls = minimumCalls;
+    }
+
+    public Duration getOpenDuration() {
+      return openDuration;
+    }
+
+    public void setOpenDuration(Duration openDuration) {
+      this.openDuration = openDuration;
+    }
+
+    public int getHalfOpenCalls() {
+      return halfOpenCalls;
+    }
+
+    public void setHalfOpenCalls(int halfOpenCalls) {
+      this.halfOpenCalls = halfOpenCalls;
+    }
+
+    public int getMaxConcurrentCalls() {
+      return maxConcurrentCalls;
+    }
+
+    public void setMaxConcurrentCalls(int maxConcurrentCalls) {
+      this.maxConcurrentCalls = maxConcurrentCalls;
+    }
+
+    public Duration getMaxWait() {
+      return maxWait;
+    }
+
+    public void setMaxWait(Duration maxWait) {
+      this.maxWait = maxWait;
+    }
+  }
+
+  /** Settings of hedged upstream requests. */
+  public static class Hedge {
+
+    /** Send a second attempt when the first one is slow. */
+    private boolean enabled = true;
+
+    /** Latency percentile of recent successful calls after which the hedge is sent. */
+    private int percentile = 95;
+
+    /** Lower bound of the hedge delay, also used until enough latencies are observed. */
+    private Duration minDelay = Duration.ofMillis(50);
+
+    public boolean isEnabled() {
+      return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+      this.enabled = enabled;
+    }
+
+    public int getPercentile() {
+      return percentile;
+    }
+
+    public void setPercentile(int percentile) {
+      this.percentile = percentile;
+    }
+
+    public Duration getMinDelay() {
+      return minDelay;
+    }
+
+    public void setMinDelay(Duration minDelay) {
+      this.minDelay = minDelay;
+    }
+  }
+}
@@ -0,0 +1,181 @@
+package jp.co.metaease.web.upstream;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Per-upstream circuit breaker and bulkhead.
+ *
+ * <p>Every call first asks the host's {@link CircuitBreaker}, then takes a bulkhead permit that
+ * bounds concurrent calls. Either rejection fails fast with {@link UpstreamUnavailableException}
+ * so callers can render their fallback instead of queueing behind a stalled upstream.
+ */
+public class UpstreamResilience {
+
+  private final UpstreamProperties.Resilience settings;
+  private final MeterRegistry registry;
+  private final ConcurrentMap<String, Guard> guards = new ConcurrentHashMap<>();
+
+  public UpstreamResilience(UpstreamProperties.Resilience settings, MeterRegistry registry) {
+    this.settings = settings;
+    this.registry = registry;
+  }
+
+  /**
+   * Runs a blocking upstream call under the breaker and bulkhead of {@code uri}'s host.
+   *
+   * @throws UpstreamUnavailableException if the call is rejected without being attempted
+   * @throws IOException if the call itself fails
+   */
+  public <V> V call(URI uri, SingleFlight.Call<V> call) throws IOException {
+    Guard guard = guardFor(uri);
+    long generation = guard.enter(true);
+    try {
+      V value = call.call();
+      guard.breaker.onSuccess(generation);
+      return value;
+    } catch (IOException | RuntimeException e) {
+      guard.breaker.onFailure(generation);
+      throw e;
+    } finally {
+      guard.bulkhead.release();
+    }
+  }
+
+  /**
+   * Opens an upstream body under the breaker and bulkhead of {@code uri}'s host. Unlike {@link
+   * #call(URI, SingleFlight.Call)}, the bulkhead permit is held and the outcome is recorded only
+   * when the returned response is closed: a body read to its end is a success, one that failed
+   * while being read a failure, and one closed before its end counts as neither.
+   *
+   * @throws UpstreamUnavailableException if the call is rejected without being attempted
+   * @throws IOException if the call itself fails
+   */
+  public UpstreamResponse open(URI uri, SingleFlight.Call<UpstreamResponse> call)
+      throws IOException {
+    Guard guard = guardFor(uri);
+    long generation = guard.enter(true);
+    UpstreamResponse response;
+    try {
+      response = call.call();
+    } catch (IOException | RuntimeException e) {
+      guard.breaker.onFailure(generation);
+      guard.bulkhead.release();
+      throw e;
+    }
+    response.onClose(
+        (complete, failed) -> {
+          if (failed) {
+            guard.breaker.onFailure(generation);
+          } else if (complete) {
+            guard.breaker.onSuccess(generation);
+          } else {
+            // 呼び出し側の都合で読み終える前に閉じられた
+            guard.breaker.release(generation);
+          }
+          guard.bulkhead.release();
+        });
+    return response;
+  }
+
+  /** Non-blocking variant of {@link #call(URI, SingleFlight.Call)}; never waits for a permit. */
+  public <V> CompletableFuture<V> callAsync(URI uri, Supplier<CompletableFuture<V>> call) {
+    Guard guard = guardFor(uri);
+    long generation;
+    try {
+      generation = guard.enter(false);
+    } catch (IOException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+    CompletableFuture<V> future;
+    try {
+      future = call.get();
+    } catch (RuntimeException e) {
+      guard.breaker.onFailure(generation);
+      guard.bulkhead.release();
+      return CompletableFuture.failedFuture(e);
+    }
+    return future.whenComplete(
+        (value, failure) -> {
+          if (failure == null) {
+            guard.breaker.onSuccess(generation);
+          } else {
+            guard.breaker.onFailure(generation);
+          }
+          guard.bulkhead.release();
+        });
+  }
+
+  private Guard guardFor(URI uri) {
+    String upstream = uri.getHost();
+    return guards.computeIfAbsent(upstream, Guard::new);
+  }
+
+  private final class Guard {
+
+    final CircuitBreaker breaker = new CircuitBreaker(settings);
+    final Semaphore bulkhead = new Semaphore(settings.getMaxConcurrentCalls());
+    final Counter rejectedOpen;
+    final Counter rejectedFull;
+    final String upstream;
+
+    Guard(String upstream) {
+      this.upstream = upstream;
+      Gauge.builder("webapi01.upstream.circuit.state", breaker, b -> b.state().ordinal())
+          .description("Circuit breaker state (0=closed, 1=open, 2=half-open)")
+          .tag("upstream", upstream)
+          .register(registry);
+      Gauge.builder("webapi01.upstream.bulkhead.available", bulkhead, Semaphore::availablePermits)
+          .description("Free bulkhead permits")
+          .tag("upstream", upstream)
+          .register(registry);
+      this.rejectedOpen = rejectedCounter(upstream, "circuit_open");
+      this.rejectedFull = rejectedCounter(upstream, "bulkhead_full");
+    }
+
+    /** Acquires breaker permission and a bulkhead permit, or rejects the call. */
+    long enter(boolean mayWait) throws IOException {
+      long generation = breaker.tryAcquire();
+      if (generation == CircuitBreaker.REJECTED) {
+        rejectedOpen.increment();
+        throw new UpstreamUnavailableException("Circuit open for upstream " + upstream);
+      }
+      boolean acquired;
+      try {
+        long maxWait = mayWait ? settings.getMaxWait().toMillis() : 0;
+        acquired =
+            maxWait > 0
+                ? bulkhead.tryAcquire(maxWait, TimeUnit.MILLISECONDS)
+                : bulkhead.tryAcquire();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        breaker.release(generation);
+        throw new InterruptedIOException("Interrupted while waiting for a bulkhead permit");
+      }
+      if (!acquired) {
+        breaker.release(generation);
+        rejectedFull.increment();
+        throw new UpstreamUnavailableException("Bulkhead full for upstream " + upstream);
+      }
+      return generation;
+    }
+
+    private Counter rejectedCounter(String upstream, String reason) {
+      return Counter.builder("webapi01.upstream.rejected")
+          .description("Upstream calls rejected without being attempted")
+          .tag("upstream", upstream)
+          .tag("reason", reason)
+          .register(registry);
+    }
+  }
+}
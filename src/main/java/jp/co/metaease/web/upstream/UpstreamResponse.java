@@ -0,0 +1,243 @@
+package jp.co.metaease.web.upstream;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.UnsupportedCharsetException;
+import java.util.Locale;
+
+/**
+ * Body of an upstream response that has not been read yet.
+ *
+ * <p>The body is consumed either by copying its bytes to an output stream through a fixed-size
+ * buffer or by decoding it into a string that is bounded by the configured maximum size. Both
+ * paths fail with an {@link IOException} once the body exceeds that maximum. Closing the response
+ * returns the connection to the pool and reports to the {@link Outcome}, if one is set, whether
+ * the body was read to its end or failed while being read.
+ */
+public final class UpstreamResponse implements Closeable {
+
+  private static final int BUFFER_SIZE = 8192;
+
+  /** Per-thread copy buffer, reused across requests handled by the same worker. */
+  private static final ThreadLocal<byte[]> BYTE_BUFFER =
+      ThreadLocal.withInitial(() -> new byte[BUFFER_SIZE]);
+
+  private final InputStream body;
+  private final String contentType;
+  private final Charset charset;
+  private final long contentLength;
+  private final long maxBytes;
+  private Outcome outcome;
+  private boolean complete;
+  private boolean failed;
+  private boolean closed;
+
+  UpstreamResponse(
+      InputStream body, String contentType, Charset defaultCharset, long contentLength,
+      long maxBytes) {
+    this.body = body;
+    this.contentType = contentType;
+    this.charset = charsetOf(contentType, defaultCharset);
+    this.contentLength = contentLength;
+    this.maxBytes = maxBytes;
+  }
+
+  /** Sets what is told how the body ended once this response is closed. */
+  void onClose(Outcome outcome) {
+    this.outcome = outcome;
+  }
+
+  /** Returns the upstream Content-Type header, or {@code null} if absent. */
+  public String contentType() {
+    return contentType;
+  }
+
+  /** Returns the charset declared by the upstream, or the configured default. */
+  public Charset charset() {
+    return charset;
+  }
+
+  /** Returns the declared Content-Length, or {@code -1} if unknown. */
+  public long contentLength() {
+    return contentLength;
+  }
+
+  /**
+   * Copies the body to {@code out} without materialising it on the heap.
+   *
+   * @param out destination, typically the servlet response stream
+   * @return the number of bytes copied
+   * @throws IOException if reading or writing fails or the body exceeds the maximum size
+   */
+  public long transferTo(OutputStream out) throws IOException {
+    checkDeclaredLength();
+    byte[] buffer = BYTE_BUFFER.get();
+    long total = 0;
+    int read;
+    while ((read = read(body, buffer, 0, buffer.length)) != -1) {
+      total += read;
+      checkLimit(total);
+      out.write(buffer, 0, read);
+    }
+    return total;
+  }
+
+  /**
+   * Decodes the body into a string, dropping line breaks so that a multi-line body becomes one
+   * message line.
+   *
+   * @return the decoded body
+   * @throws IOException if reading fails or the body exceeds the maximum size
+   */
+  public String readString() throws IOException {
+    checkDeclaredLength();
+    int initialCapacity = contentLength > 0 ? (int) Math.min(contentLength, maxBytes) : 256;
+    StringBuilder sb = new StringBuilder(initialCapacity);
+    char[] buffer = new char[BUFFER_SIZE / 2];
+    try (Reader reader = new InputStreamReader(new LimitedInputStream(body), charset)) {
+      int read;
+      while ((read = reader.read(buffer)) != -1) {
+        appendWithoutLineBreaks(sb, buffer, read);
+      }
+    }
+    return sb.toString();
+  }
+
+  /** Decodes a fully received body the same way as {@link #readString()}. */
+  static String decode(byte[] body, Charset charset) {
+    String decoded = new String(body, charset);
+    if (decoded.indexOf('\n') < 0 && decoded.indexOf('\r') < 0) {
+      return decoded;
+    }
+    StringBuilder sb = new StringBuilder(decoded.length());
+    char[] chars = decoded.toCharArray();
+    appendWithoutLineBreaks(sb, chars, chars.length);
+    return sb.toString();
+  }
+
+  private static void appendWithoutLineBreaks(StringBuilder sb, char[] chars, int length) {
+    for (int i = 0; i < length; i++) {
+      char c = chars[i];
+      if (c != '\r' && c != '\n') {
+        sb.append(c);
+      }
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    try {
+      body.close();
+    } finally {
+      if (outcome != null) {
+        outcome.closed(complete, failed);
+      }
+    }
+  }
+
+  /** Reads from the upstream body, noting its end and read failures for the {@link Outcome}. */
+  private int read(InputStream in, byte[] b, int off, int len) throws IOException {
+    try {
+      int read = in.read(b, off, len);
+      if (read == -1) {
+        complete = true;
+      }
+      return read;
+    } catch (IOException e) {
+      failed = true;
+      throw e;
+    }
+  }
+
+  /**
+   * Fails when the declared Content-Length already exceeds the maximum size, so that a caller can
+   * reject the body before it commits a response of its own.
+   *
+   * @throws IOException if the declared length exceeds the maximum size
+   */
+  public void checkDeclaredLength() throws IOException {
+    if (contentLength > maxBytes) {
+      throw tooLarge();
+    }
+  }
+
+  private void checkLimit(long total) throws IOException {
+    if (total > maxBytes) {
+      throw tooLarge();
+    }
+  }
+
+  private IOException tooLarge() {
+    return new IOException("Upstream body exceeds " + maxBytes + " bytes");
+  }
+
+  static Charset charsetOf(String contentType, Charset defaultCharset) {
+    if (contentType == null) {
+      return defaultCharset;
+    }
+    for (String param : contentType.split(";")) {
+      String p = param.trim();
+      if (p.toLowerCase(Locale.ROOT).startsWith("charset=")) {
+        String name = p.substring("charset=".length()).replace("\"", "").trim();
+        try {
+          return Charset.forName(name);
+        } catch (IllegalCharsetNameException | UnsupportedCharsetException e) {
+          return defaultCharset;
+        }
+      }
+    }
+    return defaultCharset;
+  }
+
+  /** Told once, when the response is closed, how reading its body ended. */
+  interface Outcome {
+
+    /**
+     * @param complete whether the body was read to its end
+     * @param failed whether reading the body failed
+     */
+    void closed(boolean complete, boolean failed);
+  }
+
+  /** Counts bytes as they are decoded and enforces the maximum size. */
+  private final class LimitedInputStream extends InputStream {
+
+    private final InputStream in;
+    private long total;
+
+    LimitedInputStream(InputStream in) {
+      this.in = in;
+    }
+
+    @Override
+    public int read() throws IOException {
+      byte[] one = new byte[1];
+      return read(one, 0, 1) == -1 ? -1 : one[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      int read = UpstreamResponse.this.read(in, b, off, len);
+      if (read > 0) {
+        total += read;
+        checkLimit(total);
+      }
+      return read;
+    }
+
+    @Override
+    public void close() throws IOException {
+      in.close();
+    }
+  }
+}
@@ -0,0 +1,234 @@
+package jp.co.metaease.web.upstream;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+/**
+ * In-memory cache for upstream response bodies.
+ *
+ * <p>Fresh entries (younger than the TTL) are returned directly. Entries within the
+ * stale-while-revalidate window are returned immediately while a single background refresh
+ * replaces them. When a blocking load fails, an entry within the stale-if-error window is served
+ * instead of the error. The cache is bounded and evicts the least recently used entry. Concurrent
+ * loads of one key, blocking or background, are coalesced through {@link SingleFlight}.
+ */
+public class UpstreamResponseCache {
+
+  private static final Logger logger = LoggerFactory.getLogger(UpstreamResponseCache.class);
+
+  /** Loads a value from the upstream on a miss or refresh. */
+  @FunctionalInterface
+  public interface Loader {
+    String load() throws IOException;
+  }
+
+  private final UpstreamProperties.Cache settings;
+  private final Map<String, Entry> entries;
+  private final SingleFlight<String, String> loads = new SingleFlight<>();
+  private final ExecutorService refreshExecutor =
+      Executors.newFixedThreadPool(2, daemonThreads("upstream-refresh-"));
+
+  private final Counter hits;
+  private final Counter staleHits;
+  private final Counter misses;
+  private final Counter errorFallbacks;
+  private final Counter refreshSuccesses;
+  private final Counter refreshFailures;
+
+  public UpstreamResponseCache(UpstreamProperties.Cache settings, MeterRegistry registry) {
+    this.settings = settings;
+    int maxEntries = settings.getMaxEntries();
+    this.entries =
+        Collections.synchronizedMap(
+            new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+              private static final long serialVersionUID = 1L;
+
+              @Override
+              protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+              }
+            });
+
+    this.hits = cacheCounter(registry, "hit");
+    this.staleHits = cacheCounter(registry, "stale");
+    this.misses = cacheCounter(registry, "miss");
+    this.errorFallbacks = cacheCounter(registry, "error_fallback");
+    this.refreshSuccesses = refreshCounter(registry, "success");
+    this.refreshFailures = refreshCounter(registry, "failure");
+    Gauge.builder("webapi01.upstream.cache.size", entries, Map::size)
+        .description("Number of cached upstream responses")
+        .register(registry);
+  }
+
+  /**
+   * Returns the cached value for {@code key}, loading it through {@code loader} when needed.
+   *
+   * @param key cache key, typically the upstream URL
+   * @param loader fetches the value from the upstream
+   * @return the cached or freshly loaded value
+   * @throws IOException if the load fails and no entry is usable as a stale fallback
+   */
+  public String get(String key, Loader loader) throws IOException {
+    if (!settings.isEnabled()) {
+      return loads.execute(key, loader::load);
+    }
+
+    Entry entry = entries.get(key);
+    long age = entry == null ? Long.MAX_VALUE : System.nanoTime() - entry.loadedAt;
+    long ttl = settings.getTtl().toNanos();
+    if (entry != null && age <= ttl) {
+      hits.increment();
+      return entry.value;
+    }
+    if (entry != null && age <= ttl + settings.getStaleWhileRevalidate().toNanos()) {
+      staleHits.increment();
+      refreshInBackground(key, loader);
+      return entry.value;
+    }
+
+    misses.increment();
+    try {
+      return loadNow(key, loader);
+    } catch (IOException e) {
+      if (entry != null && age <= ttl + settings.getStaleIfError().toNanos()) {
+        errorFallbacks.increment();
+        logger.warn("upstream load failed, serving stale entry for {}: {}", key, e.toString());
+        return entry.value;
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * Non-blocking variant of {@link #get(String, Loader)}: a miss is loaded through {@code loader}
+   * without parking the calling thread.
+   *
+   * @param key cache key, typically the upstream URL
+   * @param loader starts a non-blocking upstream call
+   * @return the cached or freshly loaded value
+   */
+  public CompletableFuture<String> getAsync(
+      String key, Supplier<CompletableFuture<String>> loader) {
+    if (!settings.isEnabled()) {
+      return loads.share(key, loader);
+    }
+
+    Entry entry = entries.get(key);
+    long age = entry == null ? Long.MAX_VALUE : System.nanoTime() - entry.loadedAt;
+    long ttl = settings.getTtl().toNanos();
+    if (entry != null && age <= ttl) {
+      hits.increment();
+      return CompletableFuture.completedFuture(entry.value);
+    }
+    if (entry != null && age <= ttl + settings.getStaleWhileRevalidate().toNanos()) {
+      staleHits.increment();
+      loadAsync(key, loader);
+      return CompletableFuture.completedFuture(entry.value);
+    }
+
+    misses.increment();
+    return loadAsync(key, loader)
+        .exceptionally(
+            failure -> {
+              if (entry != null && age <= ttl + settings.getStaleIfError().toNanos()) {
+                errorFallbacks.increment();
+                logger.warn(
+                    "upstream load failed, serving stale entry for {}: {}", key, failure.toString());
+                return entry.value;
+              }
+              throw failure instanceof CompletionException
+                  ? (CompletionException) failure
+                  : new CompletionException(failure);
+            });
+  }
+
+  /** Stops the background refresh threads. */
+  public void shutdown() {
+    refreshExecutor.shutdownNow();
+  }
+
+  private String loadNow(String key, Loader loader) throws IOException {
+    return loads.execute(key, () -> load(key, loader));
+  }
+
+  private void refreshInBackground(String key, Loader loader) {
+    // Joins the refresh already running for this key, if any.
+    loads.executeAsync(key, refreshExecutor, () -> load(key, loader));
+  }
+
+  private CompletableFuture<String> loadAsync(
+      String key, Supplier<CompletableFuture<String>> loader) {
+    return loads.share(
+        key,
+        () ->
+            loader
+                .get()
+                .whenComplete(
+                    (value, failure) -> {
+                      if (failure == null) {
+                        entries.put(key, new Entry(value, System.nanoTime()));
+                        refreshSuccesses.increment();
+                      } else {
+                        refreshFailures.increment();
+                        logger.debug("upstream load failed for {}", key, failure);
+                      }
+                    }));
+  }
+
+  private String load(String key, Loader loader) throws IOException {
+    try {
+      String value = loader.load();
+      entries.put(key, new Entry(value, System.nanoTime()));
+      refreshSuccesses.increment();
+      return value;
+    } catch (IOException | RuntimeException e) {
+      refreshFailures.increment();
+      logger.debug("upstream load failed for {}", key, e);
+      throw e;
+    }
+  }
+
+  private static Counter cacheCounter(MeterRegistry registry, String result) {
+    return Counter.builder("webapi01.upstream.cache")
+        .description("Upstream cache lookups")
+        .tag("result", result)
+        .register(registry);
+  }
+
+  private static Counter refreshCounter(MeterRegistry registry, String outcome) {
+    return Counter.builder("webapi01.upstream.cache.loads")
+        .description("Upstream loads triggered by the cache")
+        .tag("outcome", outcome)
+        .register(registry);
+  }
+
+  private static CustomizableThreadFactory daemonThreads(String prefix) {
+    CustomizableThreadFactory factory = new CustomizableThreadFactory(prefix);
+    factory.setDaemon(true);
+    return factory;
+  }
+
+  private static final class Entry {
+
+    final String value;
+    final long loadedAt;
+
+    Entry(String value, long loadedAt) {
+      this.value = value;
+      this.loadedAt = loadedAt;
+    }
+  }
+}
@@ -0,0 +1,13 @@
+package jp.co.metaease.web.upstream;
+
+import java.io.IOException;
+
+/** Thrown without calling the upstream when its circuit is open or its bulkhead is full. */
+public class UpstreamUnavailableException extends IOException {
+
+  private static final long serialVersionUID = 1L;
+
+  public UpstreamUnavailableException(String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,121 @@
+package jp.co.metaease.web.view;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import org.springframework.http.HttpHeaders;
+import org.springframework.validation.BindingResult;
+import org.springframework.web.servlet.View;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+/**
+ * Serves a view from the {@link RenderCache}, rendering it through the real view on a miss.
+ *
+ * <p>Only the page bytes and the content type are cached, so the wrapped view must not depend on
+ * the request or set other headers.
+ */
+class CachedRenderView implements View {
+
+  private final View delegate;
+  private final String viewName;
+  private final Locale locale;
+  private final RenderCache cache;
+
+  CachedRenderView(View delegate, String viewName, Locale locale, RenderCache cache) {
+    this.delegate = delegate;
+    this.viewName = viewName;
+    this.locale = locale;
+    this.cache = cache;
+  }
+
+  @Override
+  public String getContentType() {
+    return delegate.getContentType();
+  }
+
+  @Override
+  public void render(
+      Map<String, ?> model, HttpServletRequest request, HttpServletResponse response)
+      throws Exception {
+    Map<String, String> attributes = attributes(model);
+    String key = viewName + '|' + locale + '|' + Long.toHexString(ModelHash.of(attributes));
+    RenderCache.Entry entry = cache.get(key, attributes);
+    if (entry == null) {
+      ContentCachingResponseWrapper rendered = new ContentCachingResponseWrapper(response);
+      delegate.render(model, request, rendered);
+      if (rendered.getStatus() != HttpServletResponse.SC_OK) {
+        rendered.copyBodyToResponse();
+        return;
+      }
+      entry =
+          cache.put(key, attributes, rendered.getContentType(), rendered.getContentAsByteArray());
+      rendered.resetBuffer();
+    }
+    write(entry, request, response);
+  }
+
+  private static void write(
+      RenderCache.Entry entry, HttpServletRequest request, HttpServletResponse response)
+      throws IOException {
+    if (entry.contentType() != null) {
+      response.setContentType(entry.contentType());
+    }
+    byte[] body = entry.body();
+    if (entry.gzipped() != null) {
+      response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+      if (acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING))) {
+        // Already compressed; the container does not compress a response that has an encoding.
+        response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        body = entry.gzipped();
+      }
+    }
+    response.setContentLength(body.length);
+    response.getOutputStream().write(body);
+  }
+
+  /**
+   * Model attributes as the strings the page is rendered from, without the binding results Spring
+   * adds next to them.
+   */
+  private static Map<String, String> attributes(Map<String, ?> model) {
+    Map<String, String> attributes = new LinkedHashMap<>(model.size());
+    for (Map.Entry<String, ?> e : model.entrySet()) {
+      if (!e.getKey().startsWith(BindingResult.MODEL_KEY_PREFIX)) {
+        attributes.put(e.getKey(), String.valueOf(e.getValue()));
+      }
+    }
+    return attributes;
+  }
+
+  private static boolean acceptsGzip(String acceptEncoding) {
+    if (acceptEncoding == null) {
+      return false;
+    }
+    for (String coding : acceptEncoding.split(",")) {
+      String[] parts = coding.trim().split(";");
+      String name = parts[0].trim();
+      if (!name.equalsIgnoreCase("gzip") && !name.equals("*")) {
+        continue;
+      }
+      for (int i = 1; i < parts.length; i++) {
+        String param = parts[i].trim();
+        if (param.startsWith("q=") && isZero(param.substring(2))) {
+          return false;
+        }
+      }
+      return true;
+    }
+    return false;
+  }
+
+  private static boolean isZero(String qvalue) {
+    try {
+      return Double.parseDouble(qvalue) == 0.0;
+    } catch (NumberFormatException e) {
+      return false;
+    }
+  }
+}
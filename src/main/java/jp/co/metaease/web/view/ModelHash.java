@@ -0,0 +1,52 @@
+package jp.co.metaease.web.view;
+
+import java.util.Map;
+
+/**
+ * 64-bit content hash of a view model, used as the page ETag.
+ *
+ * <p>The hash covers every attribute name and value in iteration order, so for the landing page it
+ * changes exactly when the revision, the service or the upstream message changes. It is FNV-1a over
+ * the UTF-16 code units, which needs no intermediate byte array even for a large upstream body.
+ *
+ * <p>FNV-1a is not collision resistant. {@link RenderCache} therefore compares the model itself
+ * before serving a cached page. For the ETag the risk is accepted: a collision needs two different
+ * models of the same page in a row for one client, and costs that client a 304 for a page it
+ * should have received again.
+ */
+public final class ModelHash {
+
+  private static final long OFFSET_BASIS = 0xcbf29ce484222325L;
+  private static final long PRIME = 0x100000001b3L;
+
+  private ModelHash() {}
+
+  /** Returns the hash of {@code model}'s attributes. */
+  public static long of(Map<String, ?> model) {
+    long hash = OFFSET_BASIS;
+    for (Map.Entry<String, ?> entry : model.entrySet()) {
+      hash = mix(hash, entry.getKey());
+      hash = mix(hash, String.valueOf(entry.getValue()));
+    }
+    return hash;
+  }
+
+  /**
+   * Returns a weak ETag for {@code model}. Weak, because the same page is sent both gzip-compressed
+   * and uncompressed, and because the servlet container does not compress responses that carry a
+   * strong ETag.
+   */
+  public static String etag(Map<String, ?> model) {
+    return "W/\"" + Long.toHexString(of(model)) + "\"";
+  }
+
+  private static long mix(long hash, String value) {
+    for (int i = 0, n = value.length(); i < n; i++) {
+      char c = value.charAt(i);
+      hash = (hash ^ (c & 0xff)) * PRIME;
+      hash = (hash ^ (c >>> 8)) * PRIME;
+    }
+    // Separator so that ("ab", "c") and ("a", "bc") hash differently.
+    return (hash ^ 0xff) * PRIME;
+  }
+}
@@ -0,0 +1,152 @@
+package jp.co.metaease.web.view;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Rendered pages keyed by view, locale and model hash.
+ *
+ * <p>Each entry keeps the model it was rendered from, and a lookup only hits when the model is
+ * equal as well, so two models whose 64-bit hashes collide never get each other's page. The model
+ * values are mostly the same strings the caller already holds (the upstream message is shared with
+ * the gateway cache), so they are not counted towards the size bound.
+ *
+ * <p>Bounded by the total number of bytes held rather than by entry count, since one page with a
+ * large upstream message can outweigh many small ones; the least recently used entries are evicted
+ * first.
+ */
+public class RenderCache {
+
+  /** A rendered page, with its gzip copy when one is worth keeping. */
+  public static final class Entry {
+
+    private final Map<String, String> model;
+    private final String contentType;
+    private final byte[] body;
+    private final byte[] gzipped;
+
+    Entry(Map<String, String> model, String contentType, byte[] body, byte[] gzipped) {
+      this.model = model;
+      this.contentType = contentType;
+      this.body = body;
+      this.gzipped = gzipped;
+    }
+
+    public String contentType() {
+      return contentType;
+    }
+
+    public byte[] body() {
+      return body;
+    }
+
+    /** Returns the gzip-compressed body, or {@code null} if the page is stored plain only. */
+    public byte[] gzipped() {
+      return gzipped;
+    }
+
+    long weight() {
+      return body.length + (gzipped == null ? 0 : gzipped.length);
+    }
+  }
+
+  private final ViewCacheProperties settings;
+  private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private long bytes;
+
+  private final Counter hits;
+  private final Counter misses;
+  private final Counter collisions;
+  private final Counter evictions;
+
+  public RenderCache(ViewCacheProperties settings, MeterRegistry registry) {
+    this.settings = settings;
+    this.hits = counter(registry, "hit");
+    this.misses = counter(registry, "miss");
+    this.collisions = counter(registry, "collision");
+    this.evictions = counter(registry, "eviction");
+    Gauge.builder("webapi01.view.cache.size", this, RenderCache::bytes)
+        .description("Bytes held by the rendered-view cache")
+        .baseUnit("bytes")
+        .register(registry);
+  }
+
+  /**
+   * Returns the cached page for {@code key} if it was rendered from an equal {@code model}, or
+   * {@code null}.
+   */
+  public synchronized Entry get(String key, Map<String, String> model) {
+    Entry entry = entries.get(key);
+    if (entry == null) {
+      misses.increment();
+      return null;
+    }
+    if (!entry.model.equals(model)) {
+      // ハッシュの衝突。ミスとして扱い、描画し直したページで置き換えさせる
+      collisions.increment();
+      misses.increment();
+      return null;
+    }
+    hits.increment();
+    return entry;
+  }
+
+  /**
+   * Creates an entry for {@code body} rendered from {@code model}, compressing it when configured,
+   * and caches it unless it alone exceeds the size bound.
+   */
+  public Entry put(String key, Map<String, String> model, String contentType, byte[] body) {
+    byte[] gzipped =
+        settings.isGzip() && body.length >= settings.getGzipMinSize().toBytes() ? gzip(body) : null;
+    Entry entry = new Entry(model, contentType, body, gzipped);
+    long maxBytes = settings.getMaxSize().toBytes();
+    if (entry.weight() > maxBytes) {
+      return entry;
+    }
+    synchronized (this) {
+      Entry previous = entries.put(key, entry);
+      if (previous != null) {
+        bytes -= previous.weight();
+      }
+      bytes += entry.weight();
+      Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+      while (bytes > maxBytes && eldest.hasNext()) {
+        Entry evicted = eldest.next().getValue();
+        eldest.remove();
+        bytes -= evicted.weight();
+        evictions.increment();
+      }
+    }
+    return entry;
+  }
+
+  /** Returns the bytes currently held. */
+  public synchronized long bytes() {
+    return bytes;
+  }
+
+  private static byte[] gzip(byte[] body) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 3 + 64);
+    try (GZIPOutputStream gz = new GZIPOutputStream(out)) {
+      gz.write(body);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return out.toByteArray();
+  }
+
+  private static Counter counter(MeterRegistry registry, String result) {
+    return Counter.builder("webapi01.view.cache")
+        .description("Rendered-view cache lookups, hash collisions and evictions")
+        .tag("result", result)
+        .register(registry);
+  }
+}
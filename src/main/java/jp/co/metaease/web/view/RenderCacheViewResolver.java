@@ -0,0 +1,94 @@
+package jp.co.metaease.web.view;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.core.Ordered;
+import org.springframework.web.servlet.View;
+import org.springframework.web.servlet.ViewResolver;
+import org.springframework.web.servlet.view.ContentNegotiatingViewResolver;
+
+/**
+ * Resolves the configured views to {@link CachedRenderView}s around the view the other resolvers
+ * would have returned, and leaves every other view name to them.
+ *
+ * <p>Once the application is ready the cached views are resolved eagerly, so the template lookup
+ * (and, for engines that load the template when the view is created, the parse) happens at
+ * startup instead of on the first request.
+ */
+public class RenderCacheViewResolver
+    implements ViewResolver, Ordered, ApplicationListener<ApplicationReadyEvent> {
+
+  private static final Logger logger = LoggerFactory.getLogger(RenderCacheViewResolver.class);
+
+  private final ViewCacheProperties settings;
+  private final RenderCache cache;
+  private final ObjectProvider<ViewResolver> resolvers;
+  private volatile List<ViewResolver> delegates;
+
+  public RenderCacheViewResolver(
+      ViewCacheProperties settings, RenderCache cache, ObjectProvider<ViewResolver> resolvers) {
+    this.settings = settings;
+    this.cache = cache;
+    this.resolvers = resolvers;
+  }
+
+  /**
+   * Directly after the {@link ContentNegotiatingViewResolver}, which Boot registers at {@link
+   * Ordered#HIGHEST_PRECEDENCE} and which takes this resolver's views as its first candidates, and
+   * ahead of the template engines' resolvers it wraps.
+   */
+  @Override
+  public int getOrder() {
+    return Ordered.HIGHEST_PRECEDENCE + 1;
+  }
+
+  @Override
+  public View resolveViewName(String viewName, Locale locale) throws Exception {
+    if (!settings.getViews().contains(viewName)) {
+      return null;
+    }
+    for (ViewResolver resolver : delegates()) {
+      View view = resolver.resolveViewName(viewName, locale);
+      if (view != null) {
+        return new CachedRenderView(view, viewName, locale, cache);
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public void onApplicationEvent(ApplicationReadyEvent event) {
+    for (String viewName : settings.getViews()) {
+      try {
+        if (resolveViewName(viewName, Locale.getDefault()) == null) {
+          logger.warn("cached view {} could not be resolved", viewName);
+        }
+      } catch (Exception e) {
+        logger.warn("cached view {} failed to load: {}", viewName, e.toString());
+      }
+    }
+  }
+
+  /**
+   * The other resolvers in order. The content-negotiating resolver is left out because it
+   * delegates to every resolver, this one included.
+   */
+  private List<ViewResolver> delegates() {
+    List<ViewResolver> result = delegates;
+    if (result == null) {
+      result =
+          resolvers
+              .orderedStream()
+              .filter(r -> r != this && !(r instanceof ContentNegotiatingViewResolver))
+              .collect(Collectors.toList());
+      delegates = result;
+    }
+    return result;
+  }
+}
@@ -0,0 +1,31 @@
+package jp.co.metaease.web.view;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.ViewResolver;
+
+/** Wires the rendered-view cache into the servlet stack's view resolution. */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnProperty(prefix = "webapi01.view.cache", name = "enabled", matchIfMissing = true)
+@EnableConfigurationProperties(ViewCacheProperties.class)
+public class ViewCacheConfig {
+
+  @Bean
+  public RenderCache renderCache(ViewCacheProperties properties, MeterRegistry meterRegistry) {
+    return new RenderCache(properties, meterRegistry);
+  }
+
+  @Bean
+  public RenderCacheViewResolver renderCacheViewResolver(
+      ViewCacheProperties properties,
+      RenderCache renderCache,
+      ObjectProvider<ViewResolver> viewResolvers) {
+    return new RenderCacheViewResolver(properties, renderCache, viewResolvers);
+  }
+}
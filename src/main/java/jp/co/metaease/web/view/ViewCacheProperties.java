@@ -0,0 +1,66 @@
+package jp.co.metaease.web.view;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+/** Rendered-view cache ({@code webapi01.view.cache.*}). */
+@ConfigurationProperties(prefix = "webapi01.view.cache")
+public class ViewCacheProperties {
+
+  /** Whether rendered pages of the listed views are cached. */
+  private boolean enabled = true;
+
+  /** View names whose output depends on the model only, and so may be cached. */
+  private Set<String> views = new LinkedHashSet<>(Set.of("index"));
+
+  /** Upper bound of the cached bytes, plain and compressed together. */
+  private DataSize maxSize = DataSize.ofMegabytes(8);
+
+  /** Whether a gzip copy is stored next to the plain bytes. */
+  private boolean gzip = true;
+
+  /** Pages smaller than this are stored and sent uncompressed. */
+  private DataSize gzipMinSize = DataSize.ofKilobytes(1);
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public Set<String> getViews() {
+    return views;
+  }
+
+  public void setViews(Set<String> views) {
+    this.views = views;
+  }
+
+  public DataSize getMaxSize() {
+    return maxSize;
+  }
+
+  public void setMaxSize(DataSize maxSize) {
+    this.maxSize = maxSize;
+  }
+
+  public boolean isGzip() {
+    return gzip;
+  }
+
+  public void setGzip(boolean gzip) {
+    this.gzip = gzip;
+  }
+
+  public DataSize getGzipMinSize() {
+    return gzipMinSize;
+  }
+
+  public void setGzipMinSize(DataSize gzipMinSize) {
+    this.gzipMinSize = gzipMinSize;
+  }
+}
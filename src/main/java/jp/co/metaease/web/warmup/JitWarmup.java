@@ -0,0 +1,283 @@
+package jp.co.metaease.web.warmup;
+
+import java.lang.management.CompilationMXBean;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.Predicate;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedMethod;
+import jdk.jfr.consumer.RecordingStream;
+import jp.co.metaease.com.WebAPIUtil;
+import jp.co.metaease.web.text.TextCheck;
+import jp.co.metaease.web.text.TextOperation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.core.NativeDetector;
+import org.springframework.stereotype.Component;
+
+/**
+ * Runs a synthetic Japanese corpus through {@code zen2han}, {@code katakana}, {@code
+ * zenkakuKana2Chk} and the e-mail checks until HotSpot has compiled them at their final tier, so
+ * that the first requests of a new instance do not run them in the interpreter. That tier is C2,
+ * except for trivial methods, which tiered compilation leaves at C1 without profiling (level 1).
+ *
+ * <p>Application runners are called before Spring Boot publishes {@code ACCEPTING_TRAFFIC}, so
+ * {@code /actuator/health} and {@code /actuator/health/readiness} answer {@code 503} until the
+ * warm-up has finished; point the Cloud Run startup probe there. Compilations are observed as
+ * {@code jdk.Compilation} JFR events, which also give the logged stats; without them ({@code
+ * webapi01.warmup.verify=false}) the warm-up runs for its whole budget. Skipped in a native image.
+ */
+@Component
+@ConditionalOnProperty(
+    prefix = "webapi01.warmup",
+    name = "enabled",
+    havingValue = "true",
+    matchIfMissing = true)
+@EnableConfigurationProperties(WarmupProperties.class)
+public class JitWarmup implements ApplicationRunner {
+
+  private static final Logger logger = LoggerFactory.getLogger(JitWarmup.class);
+
+  /** Tiered compilation level of C1 code without profiling, final for trivial methods. */
+  private static final int C1_FINAL = 1;
+
+  /** Tiered compilation level of C2 code. */
+  private static final int C2 = 4;
+
+  private static final int CORPUS_SIZE = 256;
+
+  private static final String[] FULL_KANA = {
+    "ヤマダ", "タロウ", "スズキ", "ハナコ", "ガッコウ", "パソコン", "データベース", "ヴァイオリン", "ジュンイチ", "ポイント"
+  };
+
+  private static final String[] HALF_KANA = {
+    "ﾔﾏﾀﾞ", "ﾀﾛｳ", "ｶﾞｯｺｳ", "ﾊﾟｿｺﾝ", "ﾃﾞｰﾀﾍﾞｰｽ", "ｳﾞｧｲｵﾘﾝ", "ｼﾞｭﾝｲﾁ", "ﾎﾟｲﾝﾄ", "ｷｬﾝﾍﾟｰﾝ", "ｵｰﾌﾟﾝ"
+  };
+
+  private static final String[] OTHER = {
+    "ＡＢＣ", "１２３", "０３－１２３４－５６７８", "　", " ", "ｘｙｚ", "abc", "2024", "東京都", "やまだ", "（株）"
+  };
+
+  private static final String[] LOCAL_PARTS = {
+    "taro.yamada", "hanako", "k-suzuki", "info", "sales_2024", "jun.ichi.sato", "a", "web+api"
+  };
+
+  private static final String[] DOMAINS = {
+    "example.co.jp", "mail.example.com", "metaease.co.jp", "example.ne.jp", "sub.example.org"
+  };
+
+  private final WarmupProperties properties;
+
+  /** Keeps the results alive so that the calls cannot be optimized away. */
+  private volatile int passed;
+
+  public JitWarmup(WarmupProperties properties) {
+    this.properties = properties;
+  }
+
+  @Override
+  public void run(ApplicationArguments args) {
+    if (NativeDetector.inNativeImage()) {
+      return;
+    }
+    Map<String, Predicate<String>> textTargets = textTargets();
+    Map<String, Predicate<String>> emailTargets = emailTargets();
+    Set<String> pending = ConcurrentHashMap.newKeySet();
+    pending.addAll(textTargets.keySet());
+    pending.addAll(emailTargets.keySet());
+    int methods = pending.size();
+    Map<String, String> stats = new ConcurrentHashMap<>();
+    // 階層 1-3 (C1) と 4 (C2) のコンパイル数
+    AtomicIntegerArray compilations = new AtomicIntegerArray(C2 + 1);
+
+    long started = System.nanoTime();
+    RecordingStream recording =
+        properties.isVerify() ? record(pending, stats, compilations, Instant.now()) : null;
+    CompilationMXBean jit = ManagementFactory.getCompilationMXBean();
+    long compilerTime = compilerTime(jit);
+
+    Random random = new Random(0);
+    String[] texts = new String[CORPUS_SIZE];
+    String[] emails = new String[CORPUS_SIZE];
+    for (int i = 0; i < CORPUS_SIZE; i++) {
+      texts[i] = text(random);
+      emails[i] =
+          LOCAL_PARTS[random.nextInt(LOCAL_PARTS.length)]
+              + "@"
+              + DOMAINS[random.nextInt(DOMAINS.length)];
+    }
+    List<Predicate<String>> textChecks = List.copyOf(textTargets.values());
+    List<Predicate<String>> emailChecks = List.copyOf(emailTargets.values());
+
+    long deadline = started + properties.getBudget().toNanos();
+    long rounds = 0;
+    int matches = 0;
+    try {
+      // 呼び出し先が複数ある呼び出し箇所から呼び、各メソッドをループに埋め込まず単独でコンパイルさせる
+      while (System.nanoTime() < deadline && (recording == null || !pending.isEmpty())) {
+        for (int i = 0; i < CORPUS_SIZE; i++) {
+          for (Predicate<String> check : textChecks) {
+            matches += check.test(texts[i]) ? 1 : 0;
+          }
+          for (Predicate<String> check : emailChecks) {
+            matches += check.test(emails[i]) ? 1 : 0;
+          }
+        }
+        rounds++;
+      }
+    } finally {
+      if (recording != null) {
+        recording.close();
+      }
+    }
+    passed = matches;
+    long elapsed = (System.nanoTime() - started) / 1_000_000;
+
+    if (recording == null) {
+      logger.info("JIT warm-up: {} rounds of the corpus in {} ms", rounds, elapsed);
+      return;
+    }
+    logger.info(
+        "JIT warm-up: {}/{} methods fully compiled in {} ms, {} rounds of the corpus;"
+            + " {} C1 and {} C2 compilations, {} ms compiler time",
+        methods - pending.size(),
+        methods,
+        elapsed,
+        rounds,
+        compilations.get(1) + compilations.get(2) + compilations.get(3),
+        compilations.get(C2),
+        compilerTime < 0 ? "?" : compilerTime(jit) - compilerTime);
+    if (logger.isDebugEnabled()) {
+      stats.entrySet().stream()
+          .sorted(Map.Entry.comparingByKey())
+          .forEach(e -> logger.debug("{}: {}", e.getKey(), e.getValue()));
+    }
+    if (!pending.isEmpty()) {
+      logger.warn(
+          "JIT warm-up budget of {} spent, not fully compiled: {}",
+          properties.getBudget(),
+          pending.stream().sorted().toList());
+    }
+  }
+
+  /** Starts a JFR stream that removes targets from {@code pending} at their final compilation. */
+  private RecordingStream record(
+      Set<String> pending,
+      Map<String, String> stats,
+      AtomicIntegerArray compilations,
+      Instant started) {
+    RecordingStream recording;
+    try {
+      recording = new RecordingStream();
+    } catch (IllegalStateException | SecurityException e) {
+      logger.warn("JFR not available, the JIT warm-up runs for its whole budget: {}", e.toString());
+      return null;
+    }
+    recording.enable("jdk.Compilation").withoutThreshold();
+    recording.onEvent(
+        "jdk.Compilation",
+        event -> {
+          int level = event.getInt("compileLevel");
+          if (!event.getBoolean("succeded") || level < 1 || level > C2) {
+            return;
+          }
+          compilations.incrementAndGet(level);
+          RecordedMethod method = event.getValue("method");
+          String name = simpleName(method.getType().getName()) + "." + method.getName();
+          // OSR はループ部分のみのコンパイルのため数えない
+          if ((level == C2 || level == C1_FINAL)
+              && !event.getBoolean("isOsr")
+              && pending.remove(name)) {
+            stats.put(name, stats(event, started));
+          }
+        });
+    recording.startAsync();
+    return recording;
+  }
+
+  private static String stats(RecordedEvent event, Instant started) {
+    return String.format(
+        "%s after %d ms, compiled in %d ms, %d bytes of code, %d bytes inlined",
+        event.getInt("compileLevel") == C2 ? "C2" : "C1",
+        Duration.between(started, event.getEndTime()).toMillis(),
+        event.getDuration().toMillis(),
+        event.getLong("codeSize"),
+        event.getLong("inlinedBytes"));
+  }
+
+  private static String simpleName(String className) {
+    return className.substring(className.lastIndexOf('.') + 1);
+  }
+
+  /** Total compiler time in ms, or -1 if the JVM does not measure it. */
+  private static long compilerTime(CompilationMXBean jit) {
+    return jit != null && jit.isCompilationTimeMonitoringSupported()
+        ? jit.getTotalCompilationTime()
+        : -1;
+  }
+
+  /** A name or address line as sent by the forms: kana of either width, mixed with other text. */
+  private static String text(Random random) {
+    StringBuilder text = new StringBuilder();
+    int words = 1 + random.nextInt(6);
+    for (int i = 0; i < words; i++) {
+      int kind = random.nextInt(10);
+      if (kind < 4) {
+        text.append(FULL_KANA[random.nextInt(FULL_KANA.length)]);
+      } else if (kind < 7) {
+        text.append(HALF_KANA[random.nextInt(HALF_KANA.length)]);
+      } else {
+        text.append(OTHER[random.nextInt(OTHER.length)]);
+      }
+    }
+    return text.toString();
+  }
+
+  /** Target methods ({@code Class.method}) for the text corpus, called as the request paths do. */
+  private static Map<String, Predicate<String>> textTargets() {
+    Map<String, Predicate<String>> targets = new LinkedHashMap<>();
+    targets.put("StringUtil.zen2han", s -> !TextOperation.ZEN2HAN.apply(s).isEmpty());
+    targets.put("StringUtil.katakana", s -> !TextOperation.KATAKANA.apply(s).isEmpty());
+    targets.put("WebAPIUtil.zenkakuKana2Chk", TextCheck.ZENKAKU_KANA2::test);
+    return targets;
+  }
+
+  /**
+   * Target methods for the e-mail corpus. The checks print to standard output when an address
+   * fails, so only valid addresses are used; {@code isEMailInputCheck} always prints and is left
+   * out.
+   */
+  private static Map<String, Predicate<String>> emailTargets() {
+    Map<String, Predicate<String>> targets = new LinkedHashMap<>();
+    targets.put("WebAPIUtil.localEmptyChk", WebAPIUtil::localEmptyChk);
+    targets.put("WebAPIUtil.localTopDotChk", WebAPIUtil::localTopDotChk);
+    targets.put("WebAPIUtil.localLastDotChk", WebAPIUtil::localLastDotChk);
+    targets.put("WebAPIUtil.localTopHyphenChk", WebAPIUtil::localTopHyphenChk);
+    targets.put("WebAPIUtil.localLeftSquareBracketChk", WebAPIUtil::localLeftSquareBracketChk);
+    targets.put("WebAPIUtil.localRightSquareBracketChk", WebAPIUtil::localRightSquareBracketChk);
+    targets.put("WebAPIUtil.domeinEmptyChk", WebAPIUtil::domeinEmptyChk);
+    targets.put("WebAPIUtil.domeinTopDotChk", WebAPIUtil::domeinTopDotChk);
+    targets.put("WebAPIUtil.domeinDotChk", WebAPIUtil::domeinDotChk);
+    targets.put("WebAPIUtil.domeinSquareBracketChk", WebAPIUtil::domeinSquareBracketChk);
+    targets.put("WebAPIUtil.domeinSquareBracketTLChk", WebAPIUtil::domeinSquareBracketTLChk);
+    targets.put(
+        "WebAPIUtil.domeinSquareBracketNumberDotChk", WebAPIUtil::domeinSquareBracketNumberDotChk);
+    targets.put("WebAPIUtil.commercialChk", WebAPIUtil::commercialChk);
+    targets.put("WebAPIUtil.dotChk", WebAPIUtil::dotChk);
+    targets.put("WebAPIUtil.continueDotChk", WebAPIUtil::continueDotChk);
+    targets.put("WebAPIUtil.spaceChk", WebAPIUtil::spaceChk);
+    return targets;
+  }
+}
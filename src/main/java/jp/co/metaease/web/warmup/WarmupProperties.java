@@ -0,0 +1,42 @@
+package jp.co.metaease.web.warmup;
+
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/** JIT warm-up settings ({@code webapi01.warmup.*}). */
+@ConfigurationProperties(prefix = "webapi01.warmup")
+public class WarmupProperties {
+
+  /** Runs the synthetic corpus through the text utilities before the application reports ready. */
+  private boolean enabled = true;
+
+  /** Longest the warm-up may delay readiness; it ends earlier once every target is fully compiled. */
+  private Duration budget = Duration.ofSeconds(10);
+
+  /** Watches {@code jdk.Compilation} JFR events to stop at C2 and to report what was compiled. */
+  private boolean verify = true;
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public Duration getBudget() {
+    return budget;
+  }
+
+  public void setBudget(Duration budget) {
+    this.budget = budget;
+  }
+
+  public boolean isVerify() {
+    return verify;
+  }
+
+  public void setVerify(boolean verify) {
+    this.verify = verify;
+  }
+}
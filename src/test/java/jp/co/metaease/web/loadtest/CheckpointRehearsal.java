@@ -0,0 +1,146 @@
+package jp.co.metaease.web.loadtest;
+
+import ch.qos.logback.classic.LoggerContext;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.HttpURLConnection;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import jp.co.metaease.web.crac.CheckpointResources;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Runs the CRaC close/reopen sequence of {@link CheckpointResources} on any JVM, without taking a
+ * checkpoint, and checks its effects: before the checkpoint the port is closed, no JDK HTTP client
+ * selector thread and no socket to the upstream is left and the root logger's appenders are
+ * stopped; after the restore requests and upstream calls work again. Repeats it {@code
+ * loadtest.cycles} times.
+ *
+ * <p>The checks run right after {@code beforeCheckpoint} returns, as the checkpoint would. Open
+ * sockets are read from {@code /proc}, so the rehearsal needs Linux. On Java 17 it needs {@code
+ * --add-opens java.net.http/jdk.internal.net.http=ALL-UNNAMED}, like the CRaC image, which the
+ * {@code loadtest} Maven profile passes.
+ */
+public final class CheckpointRehearsal {
+
+  private CheckpointRehearsal() {}
+
+  public static void main(String[] args) throws Exception {
+    int cycles = Integer.getInteger("loadtest.cycles", 3);
+    try (StubUpstream stub =
+        StubUpstream.start(
+            Distribution.ofDurations("fixed:1ms"), Distribution.ofSizes("fixed:1KB"), 0.0)) {
+      ConfigurableApplicationContext app =
+          LoadTest.startApplication(stub.uri(), "webapi01.crac.enabled=true");
+      int port = ((WebServerApplicationContext) app).getWebServer().getPort();
+      CheckpointResources resources = app.getBean(CheckpointResources.class);
+      try {
+        for (int cycle = 1; cycle <= cycles; cycle++) {
+          expect(get(port, "/upstream") == 200, "upstream call before the checkpoint");
+          int upstreamPort = stub.uri().getPort();
+          expect(socketsTo(upstreamPort) > 0, "upstream connection kept alive");
+
+          long started = System.nanoTime();
+          resources.beforeCheckpoint(null);
+          long closed = System.nanoTime();
+          expect(!listening(port), "port closed");
+          expect(!selectorThreadAlive(), "no HttpClient selector thread");
+          expect(socketsTo(upstreamPort) == 0, "no socket to the upstream");
+          expect(!rootAppendersStarted(), "root appenders stopped");
+
+          long restoring = System.nanoTime();
+          resources.afterRestore(null);
+          long reopened = System.nanoTime();
+          expect(rootAppendersStarted(), "root appenders started");
+          expect(get(port, "/api/text/zen2han?value=abc") == 200, "request after the restore");
+          expect(get(port, "/upstream") == 200, "upstream call after the restore");
+          System.out.printf(
+              "cycle %d ok: close %d ms, reopen %d ms%n",
+              cycle, (closed - started) / 1_000_000, (reopened - restoring) / 1_000_000);
+        }
+      } finally {
+        app.close();
+      }
+    }
+  }
+
+  private static void expect(boolean condition, String what) {
+    if (!condition) {
+      throw new IllegalStateException("Failed: " + what);
+    }
+  }
+
+  private static int get(int port, String path) throws IOException {
+    HttpURLConnection connection =
+        (HttpURLConnection) new URL("http://127.0.0.1:" + port + path).openConnection();
+    try {
+      int status = connection.getResponseCode();
+      (status < 400 ? connection.getInputStream() : connection.getErrorStream()).readAllBytes();
+      return status;
+    } finally {
+      connection.disconnect();
+    }
+  }
+
+  private static boolean listening(int port) throws IOException {
+    try (Socket socket = new Socket("127.0.0.1", port)) {
+      return socket.isConnected();
+    } catch (ConnectException e) {
+      return false;
+    }
+  }
+
+  /** Sockets of this process connected to {@code port}, from {@code /proc/net/tcp{,6}}. */
+  private static long socketsTo(int port) throws IOException {
+    Set<String> inodes = new HashSet<>();
+    try (DirectoryStream<Path> fds = Files.newDirectoryStream(Path.of("/proc/self/fd"))) {
+      for (Path fd : fds) {
+        try {
+          String target = Files.readSymbolicLink(fd).toString();
+          if (target.startsWith("socket:[")) {
+            inodes.add(target.substring("socket:[".length(), target.length() - 1));
+          }
+        } catch (IOException e) {
+          // 読み取り中に閉じられた
+        }
+      }
+    }
+    String remotePort = String.format(Locale.ROOT, ":%04X", port);
+    long count = 0;
+    for (String table : new String[] {"/proc/net/tcp", "/proc/net/tcp6"}) {
+      for (String line : Files.readAllLines(Path.of(table))) {
+        // sl local_address rem_address st tx_queue:rx_queue tr:tm->when retrnsmt uid timeout inode
+        String[] columns = line.trim().split("\\s+");
+        if (columns.length > 9
+            && columns[2].endsWith(remotePort)
+            && inodes.contains(columns[9])) {
+          count++;
+        }
+      }
+    }
+    return count;
+  }
+
+  private static boolean selectorThreadAlive() {
+    return Thread.getAllStackTraces().keySet().stream()
+        .anyMatch(t -> t.getName().endsWith("-SelectorManager"));
+  }
+
+  private static boolean rootAppendersStarted() {
+    LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+    boolean[] started = {true};
+    context
+        .getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME)
+        .iteratorForAppenders()
+        .forEachRemaining(a -> started[0] &= a.isStarted());
+    return started[0];
+  }
+}
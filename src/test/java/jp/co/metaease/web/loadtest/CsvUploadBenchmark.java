@@ -0,0 +1,231 @@
+package jp.co.metaease.web.loadtest;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.SequenceInputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import jp.co.metaease.web.csv.CsvReader;
+import jp.co.metaease.web.csv.MultipartStream;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Uploads a generated CSV of {@code loadtest.size} bytes to {@code POST /api/csv/normalize} and
+ * reads the cleaned CSV and the error report while the upload is still being sent.
+ *
+ * <p>The application gets a {@code loadtest} pipeline that converts the name and tel columns and
+ * checks every column for machine-dependent characters. The file is generated on the fly in {@code
+ * loadtest.charset}, with quoted fields holding commas and line breaks, and a machine-dependent
+ * character in every tenth row. Checks that every row comes back converted and that every tenth
+ * row is reported, then prints MB/s and the peak heap of the process. Run it with the heap of the
+ * target container, for example {@code -Dloadtest.heap=-Xmx256m -Dloadtest.size=3GB}.
+ *
+ * <pre>
+ * loadtest.size=256MB       upload size
+ * loadtest.charset=MS932    charset of the upload (MS932 or UTF-8)
+ * </pre>
+ */
+public final class CsvUploadBenchmark {
+
+  private static final String BOUNDARY = "----loadtest-csv-upload";
+  private static final String HEADER = "id,name,kana,address,tel,note\r\n";
+  private static final int MAX_REPORTED_ERRORS = 10_000;
+
+  private CsvUploadBenchmark() {}
+
+  public static void main(String[] args) throws Exception {
+    long size =
+        org.springframework.util.unit.DataSize.parse(System.getProperty("loadtest.size", "256MB"))
+            .toBytes();
+    Charset charset = Charset.forName(System.getProperty("loadtest.charset", "MS932"));
+
+    try (StubUpstream stub =
+        StubUpstream.start(
+            Distribution.ofDurations("fixed:1ms"), Distribution.ofSizes("fixed:1KB"), 0.0)) {
+      ConfigurableApplicationContext app =
+          LoadTest.startApplication(
+              stub.uri(),
+              "webapi01.csv.pipelines.loadtest.columns.name.operations=zen2han,removeRightSpace",
+              "webapi01.csv.pipelines.loadtest.columns.tel.operations=zen2han",
+              "webapi01.csv.pipelines.loadtest.columns[*].operations=removeRightSpace",
+              "webapi01.csv.pipelines.loadtest.columns[*].checks=hasMachineCharacters");
+      int port = ((WebServerApplicationContext) app).getWebServer().getPort();
+      try {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+          pool.resetPeakUsage();
+        }
+        RowStream rows = new RowStream(charset, size);
+        long start = System.nanoTime();
+        RawHttp.Response response =
+            RawHttp.post(
+                port,
+                "/api/csv/normalize?pipeline=loadtest&charset=" + charset.name(),
+                "multipart/form-data; boundary=" + BOUNDARY,
+                () -> upload(rows, charset));
+        if (response.statusCode() != 200) {
+          throw new IllegalStateException(response.status);
+        }
+
+        long cleaned;
+        long reported;
+        String summary;
+        try (InputStream body = response.body) {
+          MultipartStream parts = new MultipartStream(body, response.headers.get("content-type"));
+          cleaned = readCleaned(parts.nextPart(), charset);
+          List<String> last = new ArrayList<>();
+          reported = readErrors(parts.nextPart(), charset, last);
+          summary = String.join(",", last);
+        }
+        long elapsed = System.nanoTime() - start;
+
+        if (cleaned != rows.count) {
+          throw new IllegalStateException(cleaned + " cleaned rows for " + rows.count + " sent");
+        }
+        long expected = rows.count / 10;
+        long listed = Math.min(expected, MAX_REPORTED_ERRORS);
+        if (reported != listed + (expected > listed ? 1 : 0)) {
+          throw new IllegalStateException(reported + " report rows for " + expected + " errors");
+        }
+        System.out.printf(
+            Locale.ROOT,
+            "charset=%s uploaded=%.0fMB rows=%d cleaned=%d reported=%d last-report-row=[%s]"
+                + " MB/s=%.1f total=%.1fs peak-heap=%.1fMB%n",
+            charset.name(),
+            rows.bytes / 1048576.0,
+            rows.count,
+            cleaned,
+            reported,
+            summary,
+            rows.bytes / 1048576.0 / (elapsed / 1e9),
+            elapsed / 1e9,
+            peakHeap() / 1048576.0);
+      } finally {
+        app.close();
+      }
+    }
+  }
+
+  private static InputStream upload(RowStream rows, Charset charset) {
+    byte[] head =
+        RawHttp.ascii(
+            "--" + BOUNDARY
+                + "\r\nContent-Disposition: form-data; name=\"file\"; filename=\"customers.csv\""
+                + "\r\nContent-Type: text/csv\r\n\r\n");
+    byte[] tail = RawHttp.ascii("\r\n--" + BOUNDARY + "--\r\n");
+    return new SequenceInputStream(
+        new ByteArrayInputStream(head),
+        new SequenceInputStream(rows, new ByteArrayInputStream(tail)));
+  }
+
+  /** Reads the cleaned CSV and checks the converted columns; returns the number of data rows. */
+  private static long readCleaned(MultipartStream.Part part, Charset charset) throws IOException {
+    CsvReader reader = new CsvReader(new InputStreamReader(part.getInputStream(), charset), 65536);
+    List<String> fields = new ArrayList<>();
+    reader.next(fields);
+    long rows = 0;
+    while (reader.next(fields)) {
+      rows++;
+      String name = fields.get(1);
+      String tel = fields.get(4);
+      if (!name.equals("YAMADA TARO") || !tel.equals("03-1234-5678")) {
+        throw new IllegalStateException("Row " + rows + " not converted: " + fields);
+      }
+    }
+    return rows;
+  }
+
+  /** Reads the error report; returns its number of rows and keeps the last one. */
+  private static long readErrors(MultipartStream.Part part, Charset charset, List<String> last)
+      throws IOException {
+    CsvReader reader = new CsvReader(new InputStreamReader(part.getInputStream(), charset), 65536);
+    List<String> fields = new ArrayList<>();
+    reader.next(fields);
+    long rows = 0;
+    while (reader.next(fields)) {
+      rows++;
+      last.clear();
+      last.addAll(fields);
+    }
+    return rows;
+  }
+
+  private static long peakHeap() {
+    long peak = 0;
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP) {
+        peak += pool.getPeakUsage().getUsed();
+      }
+    }
+    return peak;
+  }
+
+  /** Generates CSV rows until the requested size is reached. */
+  private static final class RowStream extends InputStream {
+
+    private final Charset charset;
+    private final long size;
+    private long count;
+    private long bytes;
+    private byte[] current;
+    private int position;
+
+    RowStream(Charset charset, long size) {
+      this.charset = charset;
+      this.size = size;
+      this.current = HEADER.getBytes(charset);
+    }
+
+    private boolean fill() {
+      if (bytes >= size) {
+        return false;
+      }
+      count++;
+      String note =
+          count % 10 == 0
+              ? "機種依存文字①を含む"
+              : count % 50 == 1 ? "\"複数行の\r\n備考, カンマ付き\"" : "備考";
+      String row =
+          count
+              + ",ＹＡＭＡＤＡ　ＴＡＲＯ　　,ﾔﾏﾀﾞ ﾀﾛｳ,\"東京都千代田区丸の内１－１－１, ビル３Ｆ\","
+              + "０３－１２３４－５６７８,"
+              + note
+              + "\r\n";
+      current = row.getBytes(charset);
+      position = 0;
+      return true;
+    }
+
+    @Override
+    public int read() throws IOException {
+      if (position == current.length && !fill()) {
+        return -1;
+      }
+      bytes++;
+      return current[position++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      int n = 0;
+      while (n < len) {
+        if (position == current.length && !fill()) {
+          break;
+        }
+        int copy = Math.min(len - n, current.length - position);
+        System.arraycopy(current, position, b, off + n, copy);
+        position += copy;
+        n += copy;
+      }
+      bytes += n;
+      return n == 0 ? -1 : n;
+    }
+  }
+}
@@ -0,0 +1,96 @@
+package jp.co.metaease.web.loadtest;
+
+import java.util.Locale;
+import java.util.Random;
+import java.util.function.ToLongFunction;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * A random distribution of non-negative values, parsed from a short spec:
+ *
+ * <ul>
+ *   <li>{@code fixed:V} - always V
+ *   <li>{@code uniform:MIN:MAX} - uniform between MIN and MAX
+ *   <li>{@code lognormal:MEDIAN:P99} - log-normal with the given median and 99th percentile, the
+ *       usual shape of service latency
+ * </ul>
+ *
+ * Values are durations ({@code 20ms}, {@code 1s}; sampled in nanoseconds) or data sizes ({@code
+ * 512B}, {@code 4KB}; sampled in bytes), depending on the parser used.
+ */
+public final class Distribution {
+
+  /** z-score of the 99th percentile of the standard normal distribution. */
+  private static final double Z_99 = 2.3263;
+
+  private final String spec;
+  private final Sampler sampler;
+
+  @FunctionalInterface
+  private interface Sampler {
+    long sample(Random random);
+  }
+
+  private Distribution(String spec, Sampler sampler) {
+    this.spec = spec;
+    this.sampler = sampler;
+  }
+
+  /** Parses a latency distribution; samples are nanoseconds. */
+  public static Distribution ofDurations(String spec) {
+    return parse(spec, v -> DurationStyle.detectAndParse(v).toNanos());
+  }
+
+  /** Parses a size distribution; samples are bytes. */
+  public static Distribution ofSizes(String spec) {
+    return parse(spec, v -> DataSize.parse(v).toBytes());
+  }
+
+  /** Draws one value. */
+  public long sample(Random random) {
+    return sampler.sample(random);
+  }
+
+  @Override
+  public String toString() {
+    return spec;
+  }
+
+  private static Distribution parse(String spec, ToLongFunction<String> value) {
+    String[] parts = spec.trim().split(":");
+    switch (parts[0].toLowerCase(Locale.ROOT)) {
+      case "fixed":
+        {
+          check(spec, parts, 2);
+          long v = value.applyAsLong(parts[1]);
+          return new Distribution(spec, random -> v);
+        }
+      case "uniform":
+        {
+          check(spec, parts, 3);
+          long min = value.applyAsLong(parts[1]);
+          long max = value.applyAsLong(parts[2]);
+          return new Distribution(spec, random -> min + (long) (random.nextDouble() * (max - min)));
+        }
+      case "lognormal":
+        {
+          check(spec, parts, 3);
+          double median = value.applyAsLong(parts[1]);
+          double p99 = value.applyAsLong(parts[2]);
+          double mu = Math.log(median);
+          double sigma = Math.max(0.0, (Math.log(p99) - mu) / Z_99);
+          return new Distribution(
+              spec, random -> (long) Math.exp(mu + sigma * random.nextGaussian()));
+        }
+      default:
+        throw new IllegalArgumentException("Unknown distribution: " + spec);
+    }
+  }
+
+  private static void check(String spec, String[] parts, int expected) {
+    if (parts.length != expected) {
+      throw new IllegalArgumentException("Malformed distribution: " + spec);
+    }
+  }
+}
@@ -0,0 +1,175 @@
+package jp.co.metaease.web.loadtest;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import jp.co.metaease.web.upstream.Deadline;
+import jp.co.metaease.web.upstream.HedgedInvoker;
+import jp.co.metaease.web.upstream.UpstreamClient;
+import jp.co.metaease.web.upstream.UpstreamProperties;
+import org.HdrHistogram.Histogram;
+
+/**
+ * Latency distribution of {@link HedgedInvoker} over {@link UpstreamClient#readStringAsync(URI,
+ * Duration)} against a jittery {@link StubUpstream}, with hedging off and on.
+ *
+ * <p>Per mode, prints the percentiles of the calls, the hedges started and won, the attempts that
+ * were cancelled ({@code webapi01.upstream.total{outcome=error}}) and the TCP connections the
+ * stub saw opened. Every hedge leaves one losing attempt. Its exchange is expected to be aborted,
+ * which closes its connection, so the pool has to open about one new connection per hedge; an
+ * attempt that is merely abandoned would be read to the end and its connection reused. Stops with
+ * an exception if no hedge fired, if hedging did not lower p99, or if fewer than 90% of the losing
+ * attempts were cancelled or replaced their connection.
+ *
+ * <pre>
+ * loadtest.stub.latency=lognormal:20ms:300ms   upstream latency
+ * loadtest.calls=2000                          calls per mode, after as many unrecorded ones
+ * loadtest.threads=8                           concurrent callers
+ * loadtest.percentile=90                       webapi01.upstream.hedge.percentile
+ * </pre>
+ */
+public final class HedgeLatency {
+
+  private HedgeLatency() {}
+
+  public static void main(String[] args) throws Exception {
+    int calls = Integer.getInteger("loadtest.calls", 2000);
+    int threads = Integer.getInteger("loadtest.threads", 8);
+    int percentile = Integer.getInteger("loadtest.percentile", 90);
+
+    try (StubUpstream stub =
+        StubUpstream.start(
+            Distribution.ofDurations(
+                System.getProperty("loadtest.stub.latency", "lognormal:20ms:300ms")),
+            Distribution.ofSizes("fixed:1KB"),
+            0.0)) {
+      System.out.printf(
+          Locale.ROOT,
+          "upstream latency %s, hedge at p%d, %d calls from %d threads%n",
+          stub.latency(),
+          percentile,
+          calls,
+          threads);
+      System.out.println(
+          "hedge    p50 ms   p90 ms   p99 ms  p99.9 ms   max ms   hedges   wins  cancelled"
+              + "  connections");
+
+      double[] p99 = new double[2];
+      for (boolean enabled : new boolean[] {false, true}) {
+        UpstreamProperties properties = new UpstreamProperties();
+        properties.setUrl(stub.uri().toString());
+        properties.setMaxConnectionsPerHost(1000);
+        properties.getHedge().setEnabled(enabled);
+        properties.getHedge().setPercentile(percentile);
+        properties.getHedge().setMinDelay(Duration.ofMillis(5));
+        MeterRegistry registry = new SimpleMeterRegistry();
+        UpstreamClient client = new UpstreamClient(properties, null, registry);
+        HedgedInvoker invoker = new HedgedInvoker(properties.getHedge(), registry);
+        try {
+          URI uri = client.gatewayUri();
+          run(client, invoker, properties, uri, calls, threads);
+          double hedgesBefore = registry.get("webapi01.upstream.hedges").counter().count();
+          double winsBefore = registry.get("webapi01.upstream.hedge.wins").counter().count();
+          long cancelledBefore = cancelled(registry);
+          int connectionsBefore = stub.connections();
+          Histogram latency = run(client, invoker, properties, uri, calls, threads);
+          // 負けた試行の取り消しが記録されるまで待つ
+          Thread.sleep(500);
+          long hedges =
+              (long) (registry.get("webapi01.upstream.hedges").counter().count() - hedgesBefore);
+          long wins =
+              (long) (registry.get("webapi01.upstream.hedge.wins").counter().count() - winsBefore);
+          long cancelled = cancelled(registry) - cancelledBefore;
+          int connections = stub.connections() - connectionsBefore;
+          p99[enabled ? 1 : 0] = latency.getValueAtPercentile(99) / 1e6;
+          System.out.printf(
+              Locale.ROOT,
+              "%-5s %9.1f %8.1f %8.1f %9.1f %8.1f %8d %6d %10d %12d%n",
+              enabled ? "on" : "off",
+              latency.getValueAtPercentile(50) / 1e6,
+              latency.getValueAtPercentile(90) / 1e6,
+              p99[enabled ? 1 : 0],
+              latency.getValueAtPercentile(99.9) / 1e6,
+              latency.getMaxValue() / 1e6,
+              hedges,
+              wins,
+              cancelled,
+              connections);
+          if (enabled) {
+            check(hedges > 0, "no hedge fired");
+            check(
+                cancelled >= hedges * 0.9,
+                cancelled + " of " + hedges + " losing attempts cancelled");
+            check(
+                connections >= hedges * 0.9,
+                connections + " new connections for " + hedges + " losing attempts");
+          }
+        } finally {
+          invoker.shutdown();
+        }
+      }
+      check(p99[1] < p99[0], "hedging did not lower p99: " + p99[1] + "ms vs " + p99[0] + "ms");
+    }
+  }
+
+  private static Histogram run(
+      UpstreamClient client,
+      HedgedInvoker invoker,
+      UpstreamProperties properties,
+      URI uri,
+      int calls,
+      int threads)
+      throws Exception {
+    Histogram latency = new Histogram(TimeUnit.MINUTES.toNanos(1), 3);
+    AtomicInteger remaining = new AtomicInteger(calls);
+    ExecutorService callers = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<?>> results = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        results.add(
+            callers.submit(
+                () -> {
+                  while (remaining.getAndDecrement() > 0) {
+                    long started = System.nanoTime();
+                    invoker
+                        .invoke(
+                            Deadline.NONE,
+                            properties.getReadTimeout(),
+                            timeout -> client.readStringAsync(uri, timeout))
+                        .join();
+                    long elapsed = System.nanoTime() - started;
+                    synchronized (latency) {
+                      latency.recordValue(elapsed);
+                    }
+                  }
+                  return null;
+                }));
+      }
+      for (Future<?> result : results) {
+        result.get();
+      }
+    } finally {
+      callers.shutdownNow();
+    }
+    return latency;
+  }
+
+  private static long cancelled(MeterRegistry registry) {
+    return registry.get("webapi01.upstream.total").tag("outcome", "error").timer().count();
+  }
+
+  private static void check(boolean condition, String message) {
+    if (!condition) {
+      throw new IllegalStateException(message);
+    }
+  }
+}
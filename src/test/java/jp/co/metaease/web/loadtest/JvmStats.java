@@ -0,0 +1,50 @@
+package jp.co.metaease.web.loadtest;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Allocation and GC counters of this JVM at one point in time; two snapshots give the cost of the
+ * run between them.
+ *
+ * <p>Allocation is summed over the threads alive at each snapshot, so bytes allocated by threads
+ * that ended in between are missed. The generator runs in the same JVM, so its own allocation is
+ * included; compare runs rather than reading the figure as the application's alone.
+ */
+final class JvmStats {
+
+  final long allocatedBytes;
+  final Map<String, long[]> collectors;
+  final MemoryUsage heap;
+
+  private JvmStats(long allocatedBytes, Map<String, long[]> collectors, MemoryUsage heap) {
+    this.allocatedBytes = allocatedBytes;
+    this.collectors = collectors;
+    this.heap = heap;
+  }
+
+  static JvmStats snapshot() {
+    long allocated = -1;
+    java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    if (threads instanceof com.sun.management.ThreadMXBean) {
+      com.sun.management.ThreadMXBean hotspot = (com.sun.management.ThreadMXBean) threads;
+      if (hotspot.isThreadAllocatedMemorySupported() && hotspot.isThreadAllocatedMemoryEnabled()) {
+        allocated = 0;
+        for (long bytes : hotspot.getThreadAllocatedBytes(hotspot.getAllThreadIds())) {
+          if (bytes > 0) {
+            allocated += bytes;
+          }
+        }
+      }
+    }
+    Map<String, long[]> collectors = new LinkedHashMap<>();
+    for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+      collectors.put(gc.getName(), new long[] {gc.getCollectionCount(), gc.getCollectionTime()});
+    }
+    return new JvmStats(
+        allocated, collectors, ManagementFactory.getMemoryMXBean().getHeapMemoryUsage());
+  }
+}
@@ -0,0 +1,131 @@
+package jp.co.metaease.web.loadtest;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Sustained throughput and p99 of the blocking landing page ({@code GET /}) against its
+ * non-blocking variant ({@code GET /async}), on one application with a fixed number of Tomcat
+ * workers and a slow {@link StubUpstream}.
+ *
+ * <p>For every rate, each path gets an unrecorded warm-up and a measured run of an {@link
+ * OpenLoadGenerator}. A rate counts as sustained when at least 99% of the scheduled requests
+ * completed with a 200 and p99 stayed within {@code loadtest.slo}. The upstream response cache is
+ * off, so every request goes to the gateway; concurrent ones still share a call through {@code
+ * SingleFlight}, which the upstream column shows. The limiter, hedging and the JIT warm-up are off.
+ * Application and load generator share this JVM and its CPUs.
+ *
+ * <pre>
+ * loadtest.paths=/,/async            paths to compare
+ * loadtest.rates=50,100,200,400      requests per second
+ * loadtest.threads=16                server.tomcat.threads.max
+ * loadtest.stub.latency=fixed:100ms  upstream latency
+ * loadtest.warmup=5s                 unrecorded run per path and rate
+ * loadtest.duration=15s              measured run per path and rate
+ * loadtest.slo=1s                    p99 bound of a sustained rate
+ * loadtest.timeout=10s               client-side request timeout
+ * </pre>
+ */
+public final class LandingComparison {
+
+  private LandingComparison() {}
+
+  public static void main(String[] args) throws Exception {
+    String[] paths = System.getProperty("loadtest.paths", "/,/async").split(",");
+    double[] rates =
+        Arrays.stream(System.getProperty("loadtest.rates", "50,100,200,400").split(","))
+            .mapToDouble(r -> Double.parseDouble(r.trim()))
+            .toArray();
+    int threads = Integer.getInteger("loadtest.threads", 16);
+    Duration warmup = duration("loadtest.warmup", "5s");
+    Duration measured = duration("loadtest.duration", "15s");
+    Duration slo = duration("loadtest.slo", "1s");
+    Duration timeout = duration("loadtest.timeout", "10s");
+
+    try (StubUpstream stub =
+        StubUpstream.start(
+            Distribution.ofDurations(System.getProperty("loadtest.stub.latency", "fixed:100ms")),
+            Distribution.ofSizes("fixed:1KB"),
+            0.0)) {
+      ConfigurableApplicationContext app =
+          LoadTest.startApplication(
+              stub.uri(),
+              "server.tomcat.threads.max=" + threads,
+              "server.tomcat.threads.min-spare=" + threads,
+              "webapi01.upstream.cache.enabled=false",
+              "webapi01.upstream.hedge.enabled=false",
+              "webapi01.upstream.max-connections-per-host=1000",
+              "webapi01.upstream.resilience.max-concurrent-calls=1000",
+              "webapi01.limiter.enabled=false",
+              "webapi01.warmup.enabled=false",
+              "logging.level.jp.co.metaease.web.ctrl=WARN");
+      int port = ((WebServerApplicationContext) app).getWebServer().getPort();
+      System.out.printf(
+          Locale.ROOT,
+          "%d Tomcat workers, upstream latency %s, p99 bound %dms%n",
+          threads,
+          stub.latency(),
+          slo.toMillis());
+      System.out.println(
+          "path       rate    req/s   completed   p50 ms   p99 ms   upstream statuses");
+
+      Map<String, Double> sustained = new LinkedHashMap<>();
+      try {
+        for (double rate : rates) {
+          for (String path : paths) {
+            URI target = URI.create("http://127.0.0.1:" + port + path.trim());
+            OpenLoadGenerator generator = new OpenLoadGenerator(target, timeout, 2_000);
+            try {
+              generator.run(rate, warmup, true);
+              long upstreamBefore = stub.requests();
+              OpenLoadGenerator.Result result = generator.run(rate, measured, true);
+              long upstream = stub.requests() - upstreamBefore;
+              double p99 = result.latency.getValueAtPercentile(99) / 1e6;
+              double ok = result.status(200) / (double) result.scheduled;
+              System.out.printf(
+                  Locale.ROOT,
+                  "%-8s %6.0f %8.1f %10.1f%% %8.1f %8.1f %10d %s%n",
+                  path.trim(),
+                  rate,
+                  result.status(200) / (result.elapsedNanos / 1e9),
+                  ok * 100,
+                  result.latency.getValueAtPercentile(50) / 1e6,
+                  p99,
+                  upstream,
+                  result.statuses);
+              if (ok >= 0.99 && p99 <= slo.toMillis()) {
+                sustained.merge(path.trim(), rate, Math::max);
+              }
+            } finally {
+              generator.shutdown();
+            }
+          }
+        }
+      } finally {
+        app.close();
+      }
+
+      System.out.println();
+      for (String path : paths) {
+        Double rate = sustained.get(path.trim());
+        System.out.printf(
+            Locale.ROOT,
+            "sustained  %-8s %s%n",
+            path.trim(),
+            rate == null ? "none of the rates" : String.format(Locale.ROOT, "%.0f req/s", rate));
+      }
+    }
+    System.exit(0);
+  }
+
+  private static Duration duration(String key, String defaultValue) {
+    return DurationStyle.detectAndParse(System.getProperty(key, defaultValue));
+  }
+}
@@ -0,0 +1,517 @@
+package jp.co.metaease.web.loadtest;
+
+import jp.co.metaease.com.StringUtil;
+
+/**
+ * The {@link StringUtil} conversions as they were before their table-driven rewrite, copied
+ * unchanged, as the reference for {@link TextConversionBenchmark}.
+ */
+final class LegacyStringUtil {
+
+	/**
+	 * 半角カタカナ文字データテーブルです。
+	 */
+	private static final String HANKAKU_KATAKANA[] = {
+		"ｧ", "ｱ", "ｨ", "ｲ", "ｩ", "ｳ", "ｪ", "ｴ", "ｫ", "ｵ", "ｶ", "ｶﾞ", "ｷ", "ｷﾞ",
+		"ｸ", "ｸﾞ", "ｹ", "ｹﾞ", "ｺ", "ｺﾞ", "ｻ", "ｻﾞ", "ｼ", "ｼﾞ", "ｽ", "ｽﾞ", "ｾ",
+		"ｾﾞ", "ｿ", "ｿﾞ", "ﾀ", "ﾀﾞ", "ﾁ", "ﾁﾞ", "ｯ", "ﾂ", "ﾂﾞ", "ﾃ", "ﾃﾞ", "ﾄ",
+		"ﾄﾞ", "ﾅ", "ﾆ", "ﾇ", "ﾈ", "ﾉ", "ﾊ", "ﾊﾞ", "ﾊﾟ", "ﾋ", "ﾋﾞ", "ﾋﾟ", "ﾌ",
+		"ﾌﾞ", "ﾌﾟ", "ﾍ", "ﾍﾞ", "ﾍﾟ", "ﾎ", "ﾎﾞ", "ﾎﾟ", "ﾏ", "ﾐ", ".", "ﾑ", "ﾒ",
+		"ﾓ", "ｬ", "ﾔ", "ｭ", "ﾕ", "ｮ", "ﾖ", "ﾗ", "ﾘ", "ﾙ", "ﾚ", "ﾛ", "ﾜ", "ﾜ",
+		"ｲ", "ｴ", "ｦ", "ﾝ", "ｳﾞ", "ｶ", "ｹ"
+	};
+
+	/**
+	 * 全角カタカナ文字データテーブルです。
+	 */
+	private static final String ZENKAKU_KATAKANA[] = {
+		"ァ", "ア", "ィ", "イ", "ゥ", "ウ", "ェ", "エ", "ォ", "オ", "カ", "ガ", "キ", "ギ",
+		"ク", "グ", "ケ", "ゲ", "コ", "ゴ", "サ", "ザ", "シ", "ジ", "ス", "ズ", "セ", "ゼ",
+		"ソ", "ゾ", "タ", "ダ", "チ", "ヂ", "ッ", "ツ", "ヅ", "テ", "デ", "ト", "ド", "ナ",
+		"ニ", "ヌ", "ネ", "ノ", "ハ", "バ", "パ", "ヒ", "ビ", "ピ", "フ", "ブ", "プ", "ヘ",
+		"ベ", "ペ", "ホ", "ボ", "ポ", "マ", "ミ", "．", "ム", "メ", "モ", "ャ", "ヤ", "ュ",
+		"ユ", "ョ", "ヨ", "ラ", "リ", "ル", "レ", "ロ", "ワ", "ヮ", "ヰ", "ヱ", "ヲ", "ン",
+		"ヴ", "ヵ", "ヶ"
+	};
+
+	private LegacyStringUtil() {
+	}
+
+	/**
+	 *
+	 * 全角文字を半角に変換します。※半角文字はそのままとします。
+	 * @@
+	 * zen2han
+	 * @note
+	 * @param str 全角文字列
+	 * @exception IllegalArgumentException 引数の不備
+	 * @return 変換後文字列（全角→半角）
+	 * @@
+	 */
+	public static String zen2han(String str) throws IllegalArgumentException {
+
+		// 文字列がnull、空文字はそのままの値を返す。
+		if (StringUtil.isEmpty(str)) {
+			return str;
+		}
+
+		// 引数の文字列を文字に分解します。
+		char chars[] = str.toCharArray();
+		int length = chars.length;
+
+		// 変換後の文字列を生成するための文字列バッファです。
+		StringBuffer sb = new StringBuffer();
+
+		for (int i = 0; i < length; i++) {
+
+			// 全角文字かどうかチェックします。
+			String value = String.valueOf(chars[i]);
+			if (value.getBytes().length >= 2) {
+
+				// 全角カタカナの場合
+				if ('\u30a1' <= chars[i] && chars[i] <= '\u30f6') {
+
+					// 全角カタカナテーブル分繰り返し
+					for (int l = 0; l < ZENKAKU_KATAKANA.length; l++) {
+
+						// 全角カタカナテーブルの値と一致した場合
+						if (value.equals(ZENKAKU_KATAKANA[l])) {
+
+							// 見つかった場合は対応する半角カタカナを選びます。
+							sb.append(HANKAKU_KATAKANA[l]);
+							break;
+						}
+					}
+
+					// 全角数字の場合
+				} else if ('\uff10' <= chars[i] && chars[i] <= '\uff19') {
+
+					// 一律に 0xfee0 だけ前にシフトします。
+					sb.append((char) (chars[i] - 0xfee0));
+
+					// 全角英字大文字の場合
+				} else if ('\uff21' <= chars[i] && chars[i] <= '\uFF3a') {
+
+					// 一律に 0xfee0 だけ前にシフトします。
+					sb.append((char) (chars[i] - 0xfee0));
+
+					// 全角英字小文字の場合
+				} else if ('\uff41' <= chars[i] && chars[i] <= '\uff5a') {
+
+					// 一律に 0xfee0 だけ前にシフトします。
+					sb.append((char) (chars[i] - 0xfee0));
+
+				} else {
+
+					switch (chars[i]) {
+
+					// 半角カナ記号
+					case '\u3002': // "。"
+						sb.append('｡');
+						break;
+					case '\u300c': // "「"
+						sb.append('｢');
+						break;
+					case '\u300d': // "」"
+						sb.append('｣');
+						break;
+					case '\u3001': // "、"
+						sb.append('､');
+						break;
+					case '\u30fb': // "・"
+						sb.append('･');
+						break;
+					case '\u30fc': // "ー"
+						sb.append('ｰ');
+						break;
+					case '\u309b': // "゛"
+						sb.append('ﾞ');
+						break;
+					case '\u309c': // "゜"
+						sb.append('ﾟ');
+						break;
+
+					// 半角英数記号
+					case '\u3000': // " "
+						sb.append('\u0020');
+						break;
+					case '\uff01': // ！
+						sb.append('\u0021');
+						break;
+					case '\u201d': // ”
+						sb.append('\u0022');
+						break;
+					case '\uff03': // ＃
+						sb.append('\u0023');
+						break;
+					case '\uff04': // ＄
+						sb.append('\u0024');
+						break;
+					case '\uff05': // ％
+						sb.append('\u0025');
+						break;
+					case '\uff06': // ＆
+						sb.append('\u0026');
+						break;
+					case '\u2019': // ’
+						sb.append('\'');
+						break;
+					case '\uff08': // （
+						sb.append('\u0028');
+						break;
+					case '\uff09': // ）
+						sb.append('\u0029');
+						break;
+					case '\uff0a': // ＊
+						sb.append('\u002a');
+						break;
+					case '\uff0b': // ＋
+						sb.append('\u002b');
+						break;
+					case '\uff0c': // ，
+						sb.append('\u002c');
+						break;
+					case '\uff0d': // －
+						//						case '\u2212': // －
+						sb.append('\u002d');
+						break;
+					case '\uff0e': // ．
+						sb.append('\u002e');
+						break;
+					case '\uff0f': // ／
+						sb.append('\u002f');
+						break;
+					case '\uff1a': // ：
+						sb.append('\u003a');
+						break;
+					case '\uff1b': // ；
+						sb.append('\u003b');
+						break;
+					case '\uff1c': // ＜
+						sb.append('\u003c');
+						break;
+					case '\uff1d': // ＝
+						sb.append('\u003d');
+						break;
+					case '\uff1e': // ＞
+						sb.append('\u003e');
+						break;
+					case '\uff1f': // ？
+						sb.append('\u003f');
+						break;
+					case '\uff20': // ＠
+						sb.append('\u0040');
+						break;
+					case '\uff3b': // ［
+						sb.append('\u005b');
+						break;
+					case '\uffe5': // ￥
+						sb.append('\\');
+						break;
+					case '\uff3d': // ］
+						sb.append('\u005d');
+						break;
+					case '\uff3e': // ＾
+						sb.append('\u005e');
+						break;
+					case '\uff3f': // ＿
+						sb.append('\u005f');
+						break;
+					case '\u2018': // ‘
+						sb.append('\u0060');
+						break;
+					case '\uff5b': // ｛
+						sb.append('\u007b');
+						break;
+					case '\uff5c': // ｜
+						sb.append('\u007c');
+						break;
+					case '\uff5d': // ｝
+						sb.append('\u007d');
+						break;
+					// case '\u301c': // ～
+					case '\uff5e': // ～
+						sb.append('\u007e');
+						// sb.append('\u203e');
+						break;
+					default:
+						break;
+					}
+				}
+
+			} else {
+
+				// 半角文字はそのまま
+				sb.append(str.substring(i, i + 1));
+			}
+		}
+
+		// 変換後の文字列を返します。
+		return sb.toString();
+	}
+
+	/**
+	 *
+	 * 半角英・数・カタカナ・記号を全角に変換します。※全角文字はそのままとします。
+	 * @@
+	 * katakana
+	 * @note
+	 * @param str 文字列
+	 * @exception IllegalArgumentException 引数の不備
+	 * @return 変換後文字列（半角→全角）
+	 * @@
+	 */
+	public static String katakana(String str) throws IllegalArgumentException {
+
+		// 文字列がnull、空文字はそのままの値を返す。
+		if (StringUtil.isEmpty(str)) {
+			return str;
+		}
+
+		// 引数の文字列を文字に分解します。
+		char chars[] = str.toCharArray();
+		int length = chars.length;
+
+		// 変換後の文字列を生成するための文字列バッファです。
+		StringBuffer sb = new StringBuffer();
+
+		for (int i = 0; i < length; i++) {
+
+			// 半角文字かどうかチェックします。
+			String value = String.valueOf(chars[i]);
+
+			int valueLen = 0;
+			try{
+				valueLen = value.getBytes("MS932").length;
+			}catch(Exception ex){
+				valueLen = 1;
+			}
+
+			if (valueLen == 1) {
+				// 半角カタカナの場合（'\uff70'「ｰ」でない場合も含む）
+				if ('\uff66' <= chars[i]
+						&& chars[i] <= '\uff9d'
+						&& chars[i] != '\uff70') {
+
+					// 最終の文字でなく、次の文字が濁点、半濁点なら、 濁点、半濁点ありの半角カタカナ
+					if (i != length - 1
+							&& (chars[i + 1] == 'ﾞ' || chars[i + 1] == 'ﾟ')) {
+
+						// 濁点、半濁点付きでチェックします。
+						value = value + String.valueOf(chars[i + 1]);
+
+						// 半角カタカナテーブル分繰り返し
+						for (int l = 0; l < HANKAKU_KATAKANA.length; l++) {
+							// 半角カタカナテーブルの値と一致した場合
+							if (value.equals(HANKAKU_KATAKANA[l])) {
+
+								// 見つかった場合は対応する全角カタカナを選びます。
+								sb.append(ZENKAKU_KATAKANA[l]);
+
+								// 2文字を1文字に変換したのでひとつずらします。
+								i++;
+								break;
+							}
+						}
+
+						// 濁点、半濁点ありの全角カタカナに変換できなかった場合
+
+						// チェック文字を入れ替えます。
+						value = String.valueOf(chars[i]);
+
+						// 半角カタカナテーブル分繰り返し
+						for (int l = 0; l < HANKAKU_KATAKANA.length; l++) {
+
+							// 全角カタカナテーブルの値と一致した場合
+							if (value.equals(HANKAKU_KATAKANA[l])) {
+
+								// 見つかった場合は対応する半角カタカナを選びます。
+								sb.append(ZENKAKU_KATAKANA[l]);
+								break;
+							}
+						}
+
+						// 濁点、半濁点なしの半角カタカナ
+					} else {
+
+						// 半角カタカナテーブル分繰り返し
+						for (int l = 0; l < HANKAKU_KATAKANA.length; l++) {
+
+							// 全角カタカナテーブルの値と一致した場合
+							if (value.equals(HANKAKU_KATAKANA[l])) {
+
+								// 見つかった場合は対応する半角カタカナを選びます。
+								sb.append(ZENKAKU_KATAKANA[l]);
+								break;
+							}
+						}
+					}
+
+					// 半角数字の場合
+				} else if ('\u0030' <= chars[i] && chars[i] <= '\u0039') {
+
+					// 一律に 0xfee0 だけ後にシフトします。
+					sb.append((char) (chars[i] + 0xfee0));
+
+					// 半角英字大文字の場合
+				} else if ('\u0041' <= chars[i] && chars[i] <= '\u005a') {
+
+					// 一律に 0xfee0 だけ後にシフトします。
+					sb.append((char) (chars[i] + 0xfee0));
+
+					// 半角英字小文字の場合
+				} else if ('\u0061' <= chars[i] && chars[i] <= '\u007a') {
+
+					// 一律に 0xfee0 だけ後にシフトします。
+					sb.append((char) (chars[i] + 0xfee0));
+
+				} else {
+
+					switch (chars[i]) {
+
+					// 半角カナ記号
+					case '｡': // "。"
+						sb.append('\u3002');
+						break;
+					case '｢': // "「"
+						sb.append('\u300c');
+						break;
+					case '｣': // "」"
+						sb.append('\u300d');
+						break;
+					case '､': // "、"
+						sb.append('\u3001');
+						break;
+					case '･': // "・"
+						sb.append('\u30fb');
+						break;
+					case 'ｰ': // "ー"
+						sb.append('\u30fc');
+						break;
+					case 'ﾞ': // "゛"
+						sb.append('\u309b');
+						break;
+					case 'ﾟ': // "゜"
+						sb.append('\u309c');
+						break;
+
+					// 半角英数記号
+					case '\u0020': // " "
+						sb.append('\u3000');
+						break;
+					case '\u0021': // ！
+						sb.append('\uff01');
+						break;
+					case '\u0022': // ”
+						sb.append('\u201d');
+						break;
+					case '\u0023': // ＃
+						sb.append('\uff03');
+						break;
+					case '\u0024': // ＄
+						sb.append('\uff04');
+						break;
+					case '\u0025': // ％
+						sb.append('\uff05');
+						break;
+					case '\u0026': // ＆
+						sb.append('\uff06');
+						break;
+					case '\'': // ’
+						sb.append('\u2019');
+						break;
+					case '\u0028': // （
+						sb.append('\uff08');
+						break;
+					case '\u0029': // ）
+						sb.append('\uff09');
+						break;
+					case '\u002a': // ＊
+						sb.append('\uff0a');
+						break;
+					case '\u002b': // ＋
+						sb.append('\uff0b');
+						break;
+					case '\u002c': // ，
+						sb.append('\uff0c');
+						break;
+					case '\u002d': // －
+						// sb.append('\u2212');
+						sb.append('\uff0d');
+						break;
+					case '\u002e': // ．
+						sb.append('\uff0e');
+						break;
+					case '\u002f': // ／
+						sb.append('\uff0f');
+						break;
+					case '\u003a': // ：
+						sb.append('\uff1a');
+						break;
+					case '\u003b': // ；
+						sb.append('\uff1b');
+						break;
+					case '\u003c': // ＜
+						sb.append('\uff1c');
+						break;
+					case '\u003d': // ＝
+						sb.append('\uff1d');
+						break;
+					case '\u003e': // ＞
+						sb.append('\uff1e');
+						break;
+					case '\u003f': // ？
+						sb.append('\uff1f');
+						break;
+					case '\u0040': // ＠
+						sb.append('\uff20');
+						break;
+					case '\u005b': // ［
+						sb.append('\uff3b');
+						break;
+					case '\\': // ￥
+						sb.append('\uffe5');
+						break;
+					case '\u005d': // ］
+						sb.append('\uff3d');
+						break;
+					case '\u005e': // ＾
+						sb.append('\uff3e');
+						break;
+					case '\u005f': // ＿
+						sb.append('\uff3f');
+						break;
+					case '\u0060': // ‘
+						sb.append('\u2018');
+						break;
+					case '\u007b': // ｛
+						sb.append('\uff5b');
+						break;
+					case '\u007c': // ｜
+						sb.append('\uff5c');
+						break;
+					case '\u007d': // ｝
+						sb.append('\uff5d');
+						break;
+					case '\u007e': // ～
+						sb.append('\uff5e');
+						break;
+					// case '\u203e': // ～
+					// 	sb.append('\u301c');
+					// 	break;
+					default:
+						break;
+					}
+				}
+
+			} else {
+
+				// 全角文字はそのまま
+				sb.append(str.substring(i, i + 1));
+			}
+		}
+
+		// 変換後の文字列を返します。
+		return sb.toString();
+	}
+}
@@ -0,0 +1,112 @@
+package jp.co.metaease.web.loadtest;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * The adaptive concurrency limiter under constant open-model load while the stub upstream goes
+ * from fast to slow and back.
+ *
+ * <p>For each phase it prints the status mix, latency percentiles and the range the limit moved
+ * through. With the limiter working, the slow phase shows 503s and a falling limit while the p99
+ * of admitted requests stays bounded, and the recovery phase returns to 200s with the limit
+ * rising again. Run once more with {@code -Dloadtest.app.webapi01.limiter.enabled=false} to see
+ * the same slowdown without the limiter.
+ *
+ * <pre>
+ * loadtest.rate=100                          requests per second
+ * loadtest.path=/upstream                    request path
+ * loadtest.phase=20s                         length of each phase
+ * loadtest.stub.latency=lognormal:10ms:40ms  latency of the fast phases
+ * loadtest.stub.slow-latency=lognormal:500ms:2s latency of the slow phase
+ * </pre>
+ */
+public final class LimiterSlowdown {
+
+  private LimiterSlowdown() {}
+
+  public static void main(String[] args) throws Exception {
+    double rate = Double.parseDouble(System.getProperty("loadtest.rate", "100"));
+    String path = System.getProperty("loadtest.path", "/upstream");
+    Duration phase =
+        org.springframework.boot.convert.DurationStyle.detectAndParse(
+            System.getProperty("loadtest.phase", "20s"));
+    Distribution fast =
+        Distribution.ofDurations(System.getProperty("loadtest.stub.latency", "lognormal:10ms:40ms"));
+    Distribution slow =
+        Distribution.ofDurations(
+            System.getProperty("loadtest.stub.slow-latency", "lognormal:500ms:2s"));
+
+    try (StubUpstream stub = StubUpstream.start(fast, Distribution.ofSizes("fixed:1KB"), 0.0)) {
+      ConfigurableApplicationContext app = LoadTest.startApplication(stub.uri());
+      MeterRegistry registry = app.getBean(MeterRegistry.class);
+      int port = ((WebServerApplicationContext) app).getWebServer().getPort();
+      OpenLoadGenerator generator =
+          new OpenLoadGenerator(
+              URI.create("http://127.0.0.1:" + port + path), Duration.ofSeconds(30), 10_000);
+      ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor();
+      try {
+        generator.run(rate, Duration.ofSeconds(5), true);
+        runPhase("fast", generator, rate, phase, registry, sampler);
+        stub.setLatency(slow);
+        runPhase("slow", generator, rate, phase, registry, sampler);
+        stub.setLatency(fast);
+        runPhase("recovered", generator, rate, phase, registry, sampler);
+      } finally {
+        sampler.shutdownNow();
+        generator.shutdown();
+        app.close();
+      }
+    }
+    System.exit(0);
+  }
+
+  private static void runPhase(
+      String name,
+      OpenLoadGenerator generator,
+      double rate,
+      Duration phase,
+      MeterRegistry registry,
+      ScheduledExecutorService sampler) {
+    AtomicInteger minLimit = new AtomicInteger(Integer.MAX_VALUE);
+    AtomicInteger maxLimit = new AtomicInteger();
+    var sampling =
+        sampler.scheduleAtFixedRate(
+            () -> {
+              int limit = (int) gauge(registry, "webapi01.limiter.limit");
+              minLimit.accumulateAndGet(limit, Math::min);
+              maxLimit.accumulateAndGet(limit, Math::max);
+            },
+            0,
+            100,
+            TimeUnit.MILLISECONDS);
+    OpenLoadGenerator.Result result = generator.run(rate, phase, true);
+    sampling.cancel(false);
+
+    System.out.printf(
+        Locale.ROOT,
+        "%-10s 200=%d 503=%d other=%d failed=%d  p50 %.1f ms  p99 %.1f ms  limit %d..%d%n",
+        name,
+        result.status(200),
+        result.status(503),
+        result.completed() - result.status(200) - result.status(503),
+        result.failed,
+        result.latency.getValueAtPercentile(50) / 1e6,
+        result.latency.getValueAtPercentile(99) / 1e6,
+        minLimit.get() == Integer.MAX_VALUE ? -1 : minLimit.get(),
+        maxLimit.get());
+  }
+
+  private static double gauge(MeterRegistry registry, String name) {
+    var gauge = registry.find(name).gauge();
+    return gauge == null ? -1 : gauge.value();
+  }
+}
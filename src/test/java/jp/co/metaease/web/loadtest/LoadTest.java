@@ -0,0 +1,169 @@
+package jp.co.metaease.web.loadtest;
+
+import java.io.PrintStream;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import jp.co.metaease.web.WebAPI01Application;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Offline load test: starts the application against a {@link StubUpstream} on the loopback
+ * interface and drives it with an {@link OpenLoadGenerator}.
+ *
+ * <p>Settings are system properties, all optional:
+ *
+ * <pre>
+ * loadtest.rate=200                         requests per second
+ * loadtest.warmup=10s                       unrecorded run before the measurement
+ * loadtest.duration=30s                     measured run
+ * loadtest.path=/                           request path
+ * loadtest.poisson=true                     exponential inter-arrival times
+ * loadtest.timeout=10s                      client-side request timeout
+ * loadtest.max-in-flight=10000              requests beyond this are skipped
+ * loadtest.stub.latency=lognormal:20ms:80ms upstream latency (fixed:, uniform:, lognormal:)
+ * loadtest.stub.size=uniform:256B:4KB       upstream body size
+ * loadtest.stub.error-rate=0.0              fraction of upstream HTTP 500s
+ * loadtest.app.&lt;property&gt;=&lt;value&gt;          passed to the application, e.g.
+ *                                           loadtest.app.webapi01.logging.mode=verbose
+ * </pre>
+ *
+ * Run with {@code mvn -Ploadtest test-compile exec:exec -Dloadtest.args="-Dloadtest.rate=500"}.
+ */
+public final class LoadTest {
+
+  private LoadTest() {}
+
+  public static void main(String[] args) throws Exception {
+    double rate = Double.parseDouble(System.getProperty("loadtest.rate", "200"));
+    Duration warmup = duration("loadtest.warmup", "10s");
+    Duration measured = duration("loadtest.duration", "30s");
+    String path = System.getProperty("loadtest.path", "/");
+    boolean poisson = Boolean.parseBoolean(System.getProperty("loadtest.poisson", "true"));
+    Duration timeout = duration("loadtest.timeout", "10s");
+    int maxInFlight = Integer.getInteger("loadtest.max-in-flight", 10_000);
+
+    try (StubUpstream stub =
+        StubUpstream.start(
+            Distribution.ofDurations(
+                System.getProperty("loadtest.stub.latency", "lognormal:20ms:80ms")),
+            Distribution.ofSizes(System.getProperty("loadtest.stub.size", "uniform:256B:4KB")),
+            Double.parseDouble(System.getProperty("loadtest.stub.error-rate", "0.0")))) {
+
+      ConfigurableApplicationContext app = startApplication(stub.uri());
+      int port = ((WebServerApplicationContext) app).getWebServer().getPort();
+      URI target = URI.create("http://127.0.0.1:" + port + path);
+      OpenLoadGenerator generator = new OpenLoadGenerator(target, timeout, maxInFlight);
+      try {
+        System.out.printf(
+            Locale.ROOT,
+            "load test: %s at %.0f req/s (%s arrivals), upstream latency %s%n",
+            target,
+            rate,
+            poisson ? "poisson" : "uniform",
+            stub.latency());
+
+        generator.run(rate, warmup, poisson);
+        System.gc();
+
+        JvmStats before = JvmStats.snapshot();
+        OpenLoadGenerator.Result result = generator.run(rate, measured, poisson);
+        JvmStats after = JvmStats.snapshot();
+
+        report(System.out, result, before, after, stub);
+      } finally {
+        generator.shutdown();
+        app.close();
+      }
+    }
+    System.exit(0);
+  }
+
+  /**
+   * Starts the application on a free port with its gateway pointed at {@code upstream}. Shared
+   * with the other harnesses in this package.
+   */
+  static ConfigurableApplicationContext startApplication(URI upstream, String... extra) {
+    // Passed as command-line arguments, which take precedence over application.properties.
+    List<String> arguments = new ArrayList<>();
+    arguments.add("--server.port=0");
+    arguments.add("--webapi01.upstream.url=" + upstream);
+    for (Map.Entry<Object, Object> e : System.getProperties().entrySet()) {
+      String key = e.getKey().toString();
+      if (key.startsWith("loadtest.app.")) {
+        arguments.add("--" + key.substring("loadtest.app.".length()) + "=" + e.getValue());
+      }
+    }
+    for (String property : extra) {
+      arguments.add("--" + property);
+    }
+    return new SpringApplicationBuilder(WebAPI01Application.class)
+        .run(arguments.toArray(new String[0]));
+  }
+
+  static void report(
+      PrintStream out,
+      OpenLoadGenerator.Result result,
+      JvmStats before,
+      JvmStats after,
+      StubUpstream stub) {
+    double seconds = result.elapsedNanos / 1e9;
+    Histogram latency = result.latency;
+    out.println();
+    out.printf(
+        Locale.ROOT,
+        "requests   scheduled %d, completed %d, failed %d, skipped %d%n",
+        result.scheduled,
+        result.completed(),
+        result.failed,
+        result.skipped);
+    out.printf(Locale.ROOT, "status     %s%n", result.statuses);
+    out.printf(Locale.ROOT, "throughput %.1f req/s%n", result.completed() / seconds);
+    out.printf(
+        Locale.ROOT,
+        "latency    p50 %.2f ms, p99 %.2f ms, p999 %.2f ms, max %.2f ms%n",
+        millis(latency.getValueAtPercentile(50)),
+        millis(latency.getValueAtPercentile(99)),
+        millis(latency.getValueAtPercentile(99.9)),
+        millis(latency.getMaxValue()));
+    if (before.allocatedBytes >= 0 && after.allocatedBytes >= 0) {
+      long allocated = after.allocatedBytes - before.allocatedBytes;
+      out.printf(
+          Locale.ROOT,
+          "allocation %.1f MB/s, %.1f KB/request%n",
+          allocated / seconds / (1 << 20),
+          result.completed() == 0 ? 0.0 : allocated / 1024.0 / result.completed());
+    }
+    for (Map.Entry<String, long[]> gc : after.collectors.entrySet()) {
+      long[] start = before.collectors.getOrDefault(gc.getKey(), new long[2]);
+      out.printf(
+          Locale.ROOT,
+          "gc         %s: %d collections, %d ms%n",
+          gc.getKey(),
+          gc.getValue()[0] - start[0],
+          gc.getValue()[1] - start[1]);
+    }
+    out.printf(
+        Locale.ROOT,
+        "heap       used %.1f MB of %.1f MB committed%n",
+        after.heap.getUsed() / (double) (1 << 20),
+        after.heap.getCommitted() / (double) (1 << 20));
+    out.printf(
+        Locale.ROOT, "upstream   %d requests, %d errors%n", stub.requests(), stub.errors());
+  }
+
+  private static double millis(long nanos) {
+    return nanos / 1e6;
+  }
+
+  private static Duration duration(String key, String defaultValue) {
+    return DurationStyle.detectAndParse(System.getProperty(key, defaultValue));
+  }
+}
@@ -0,0 +1,177 @@
+package jp.co.metaease.web.loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import jp.co.metaease.web.WebAPI01Application;
+
+/**
+ * Log volume of the landing page ({@code GET /}) per request, for each detail logging mode of
+ * {@code webapi01.logging.*}, as written to stdout by the packaged {@code logback-spring.xml}.
+ *
+ * <p>Each mode runs the application in its own JVM with stdout redirected to a file, sends {@code
+ * loadtest.requests} sequential requests and divides the bytes and lines written meanwhile by the
+ * number of requests. Modes are {@code verbose} (the legacy line per value) and {@code
+ * structured:RATE}, structured mode with the landing page sampled at RATE ({@code
+ * sample-rates.webapi010101}).
+ *
+ * <p>Structured events carry their details as key-value pairs. The harness also prints one
+ * structured event of each run and stops with an exception if a sampled run has no event with
+ * the {@code route} and {@code body} fields, that is if the JSON layout dropped them, or if
+ * {@code structured:1.0} logged no event at all.
+ *
+ * <pre>
+ * loadtest.modes=verbose,structured:1.0,structured:0.01   detail logging per run
+ * loadtest.requests=1000                                  requests per run
+ * loadtest.body-size=4KB                                  upstream body
+ * </pre>
+ */
+public final class LogVolume {
+
+  private LogVolume() {}
+
+  public static void main(String[] args) throws Exception {
+    String[] modes =
+        System.getProperty("loadtest.modes", "verbose,structured:1.0,structured:0.01").split(",");
+    int requests = Integer.getInteger("loadtest.requests", 1000);
+    String bodySize = System.getProperty("loadtest.body-size", "4KB");
+
+    try (StubUpstream stub =
+        StubUpstream.start(
+            Distribution.ofDurations("fixed:1ms"),
+            Distribution.ofSizes("fixed:" + bodySize),
+            0.0)) {
+      System.out.printf(
+          Locale.ROOT, "%d requests per mode, upstream body %s%n", requests, bodySize);
+      System.out.println("mode                bytes/request   lines/request");
+      List<String> samples = new ArrayList<>();
+      for (String mode : modes) {
+        mode = mode.trim();
+        Path out = Files.createTempFile("logvolume-", ".log");
+        int port = StartupComparison.freePort();
+        int managementPort = StartupComparison.freePort();
+        Process process = launch(mode, port, managementPort, stub.uri(), out);
+        try {
+          awaitReady(
+              process, URI.create("http://127.0.0.1:" + managementPort + "/actuator/health"));
+          HttpClient client = HttpClient.newHttpClient();
+          URI landing = URI.create("http://127.0.0.1:" + port + "/");
+          // 起動時のログを除くため、最初の 1 件を送ってから書き出しを待って数え始める
+          client.send(
+              HttpRequest.newBuilder(landing).build(), HttpResponse.BodyHandlers.discarding());
+          Thread.sleep(2_000);
+          long bytesBefore = Files.size(out);
+          long linesBefore = lines(out).size();
+          for (int i = 0; i < requests; i++) {
+            HttpResponse<Void> response =
+                client.send(
+                    HttpRequest.newBuilder(landing).build(),
+                    HttpResponse.BodyHandlers.discarding());
+            if (response.statusCode() != 200) {
+              throw new IllegalStateException("GET / answered " + response.statusCode());
+            }
+          }
+          // 非同期アペンダーの書き出し間隔（maxFlushMillis）を待つ
+          Thread.sleep(2_000);
+          List<String> written = lines(out);
+          System.out.printf(
+              Locale.ROOT,
+              "%-18s %14.1f %15.2f%n",
+              mode,
+              (Files.size(out) - bytesBefore) / (double) requests,
+              (written.size() - linesBefore) / (double) requests);
+
+          if (mode.startsWith("structured")) {
+            String event =
+                written.stream()
+                    .skip(linesBefore)
+                    .filter(line -> line.contains("\"upstream body\""))
+                    .findFirst()
+                    .orElse(null);
+            samples.add(mode + "  " + (event == null ? "(none sampled)" : event));
+            boolean fields =
+                event != null
+                    && event.contains("\"route\":\"webapi010101\"")
+                    && event.contains("\"body\":");
+            if (event != null && !fields) {
+              throw new IllegalStateException("Structured event without its fields: " + event);
+            }
+            if (event == null && mode.endsWith(":1.0")) {
+              throw new IllegalStateException("No structured event in " + mode);
+            }
+          }
+        } finally {
+          process.destroy();
+          if (!process.waitFor(10, TimeUnit.SECONDS)) {
+            process.destroyForcibly().waitFor();
+          }
+          Files.deleteIfExists(out);
+        }
+      }
+      System.out.println();
+      samples.forEach(System.out::println);
+    }
+    System.exit(0);
+  }
+
+  private static Process launch(
+      String mode, int port, int managementPort, URI upstream, Path out) throws IOException {
+    List<String> command = new ArrayList<>();
+    command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+    command.add("-Xmx256m");
+    command.add("-cp");
+    command.add(System.getProperty("java.class.path"));
+    command.add(WebAPI01Application.class.getName());
+    command.add("--server.port=" + port);
+    command.add("--management.server.port=" + managementPort);
+    command.add("--webapi01.upstream.url=" + upstream);
+    command.add("--webapi01.limiter.enabled=false");
+    command.add("--webapi01.warmup.enabled=false");
+    String[] parts = mode.split(":");
+    command.add("--webapi01.logging.mode=" + parts[0]);
+    if (parts.length > 1) {
+      command.add("--webapi01.logging.sample-rates.webapi010101=" + parts[1]);
+    }
+    return new ProcessBuilder(command)
+        .redirectErrorStream(true)
+        .redirectOutput(out.toFile())
+        .start();
+  }
+
+  private static void awaitReady(Process process, URI health) throws Exception {
+    HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+    while (true) {
+      try {
+        if (client
+                .send(HttpRequest.newBuilder(health).build(), HttpResponse.BodyHandlers.discarding())
+                .statusCode()
+            == 200) {
+          return;
+        }
+      } catch (IOException e) {
+        // 起動中
+      }
+      if (!process.isAlive() || System.nanoTime() > deadline) {
+        throw new IllegalStateException("The application did not start on " + health);
+      }
+      Thread.sleep(100);
+    }
+  }
+
+  private static List<String> lines(Path file) throws IOException {
+    return Arrays.asList(
+        new String(Files.readAllBytes(file), StandardCharsets.UTF_8).split("\n", -1));
+  }
+}
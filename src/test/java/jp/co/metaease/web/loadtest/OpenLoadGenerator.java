@@ -0,0 +1,158 @@
+package jp.co.metaease.web.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+/**
+ * Open-model load generator: requests are started on a fixed schedule, whether or not earlier
+ * ones have completed, so a slow server faces a growing backlog just as it would in production.
+ *
+ * <p>Latency is measured from the scheduled start, not the actual send, so time a request spends
+ * waiting because the generator fell behind is counted (no coordinated omission). Requests beyond
+ * {@code maxInFlight} are not sent and are reported as skipped rather than silently slowing the
+ * arrival rate.
+ */
+public final class OpenLoadGenerator {
+
+  /** Outcome of one run. */
+  public static final class Result {
+
+    final Histogram latency;
+    final long scheduled;
+    final long skipped;
+    final long failed;
+    final Map<Integer, Long> statuses;
+    final long elapsedNanos;
+
+    Result(
+        Histogram latency,
+        long scheduled,
+        long skipped,
+        long failed,
+        Map<Integer, Long> statuses,
+        long elapsedNanos) {
+      this.latency = latency;
+      this.scheduled = scheduled;
+      this.skipped = skipped;
+      this.failed = failed;
+      this.statuses = statuses;
+      this.elapsedNanos = elapsedNanos;
+    }
+
+    /** Returns the number of requests that got a response, whatever its status. */
+    public long completed() {
+      return latency.getTotalCount();
+    }
+
+    /** Returns the number of responses with the given status. */
+    public long status(int status) {
+      return statuses.getOrDefault(status, 0L);
+    }
+  }
+
+  private final HttpClient client;
+  private final URI target;
+  private final Duration timeout;
+  private final int maxInFlight;
+  private final ExecutorService executor;
+
+  public OpenLoadGenerator(URI target, Duration timeout, int maxInFlight) {
+    this.target = target;
+    this.timeout = timeout;
+    this.maxInFlight = maxInFlight;
+    this.executor =
+        Executors.newFixedThreadPool(
+            Math.max(2, Runtime.getRuntime().availableProcessors() / 2),
+            r -> {
+              Thread t = new Thread(r, "load-generator");
+              t.setDaemon(true);
+              return t;
+            });
+    this.client =
+        HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(timeout)
+            .executor(executor)
+            .build();
+  }
+
+  /**
+   * Sends requests at {@code ratePerSecond} for {@code duration}, then waits for the outstanding
+   * ones.
+   *
+   * @param poisson exponential inter-arrival times when {@code true}, evenly spaced otherwise
+   */
+  public Result run(double ratePerSecond, Duration duration, boolean poisson) {
+    Recorder recorder = new Recorder(TimeUnit.MINUTES.toNanos(5), 3);
+    ConcurrentMap<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+    LongAdder failed = new LongAdder();
+    AtomicInteger inFlight = new AtomicInteger();
+    Random random = new Random();
+    HttpRequest request = HttpRequest.newBuilder(target).timeout(timeout).GET().build();
+
+    double meanGapNanos = TimeUnit.SECONDS.toNanos(1) / ratePerSecond;
+    long start = System.nanoTime();
+    long end = start + duration.toNanos();
+    double next = start;
+    long scheduled = 0;
+    long skipped = 0;
+    while (next < end) {
+      long intended = (long) next;
+      long wait = intended - System.nanoTime();
+      if (wait > 0) {
+        LockSupport.parkNanos(wait);
+      }
+      scheduled++;
+      if (inFlight.incrementAndGet() > maxInFlight) {
+        inFlight.decrementAndGet();
+        skipped++;
+      } else {
+        client
+            .sendAsync(request, HttpResponse.BodyHandlers.discarding())
+            .whenComplete(
+                (response, failure) -> {
+                  inFlight.decrementAndGet();
+                  if (failure != null) {
+                    failed.increment();
+                    return;
+                  }
+                  recorder.recordValue(Math.max(0, System.nanoTime() - intended));
+                  statuses.computeIfAbsent(response.statusCode(), s -> new LongAdder()).increment();
+                });
+      }
+      next += poisson ? -Math.log(1.0 - random.nextDouble()) * meanGapNanos : meanGapNanos;
+    }
+
+    long drainUntil = System.nanoTime() + timeout.toNanos();
+    while (inFlight.get() > 0 && System.nanoTime() < drainUntil) {
+      LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+    }
+    long elapsed = System.nanoTime() - start;
+
+    Map<Integer, Long> counts = new TreeMap<>();
+    statuses.forEach((status, count) -> counts.put(status, count.sum()));
+    return new Result(
+        recorder.getIntervalHistogram(), scheduled, skipped, failed.sum(), counts, elapsed);
+  }
+
+  /** Stops the client's worker threads. */
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+}
@@ -0,0 +1,191 @@
+package jp.co.metaease.web.loadtest;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * A minimal HTTP/1.1 client over a plain socket that sends a chunked request body on one thread
+ * while the caller reads the response on another.
+ *
+ * <p>{@code java.net.http} does not read the response until the request body has been sent, which
+ * deadlocks against endpoints that stream results back while they are still reading the body.
+ */
+final class RawHttp {
+
+  private static final byte[] CRLF = {'\r', '\n'};
+
+  private RawHttp() {}
+
+  /**
+   * Starts sending {@code body} to {@code target} and returns the response once its headers have
+   * arrived. The socket is closed when the response body is closed.
+   */
+  static Response post(int port, String target, String contentType, Supplier<InputStream> body)
+      throws IOException {
+    Socket socket = new Socket("127.0.0.1", port);
+    Thread writer =
+        new Thread(
+            () -> {
+              try (InputStream in = body.get()) {
+                OutputStream out = new BufferedOutputStream(socket.getOutputStream(), 65536);
+                out.write(
+                    ascii(
+                        "POST " + target + " HTTP/1.1\r\nHost: 127.0.0.1:" + port
+                            + "\r\nContent-Type: " + contentType
+                            + "\r\nTransfer-Encoding: chunked\r\nConnection: close\r\n\r\n"));
+                byte[] chunk = new byte[16384];
+                int n;
+                while ((n = in.readNBytes(chunk, 0, chunk.length)) > 0) {
+                  out.write(ascii(Integer.toHexString(n) + "\r\n"));
+                  out.write(chunk, 0, n);
+                  out.write(CRLF);
+                }
+                out.write(ascii("0\r\n\r\n"));
+                out.flush();
+              } catch (IOException e) {
+                if (!socket.isClosed()) {
+                  throw new UncheckedIOException(e);
+                }
+              }
+            },
+            "raw-http-writer");
+    writer.setDaemon(true);
+    writer.start();
+
+    InputStream in = new BufferedInputStream(socket.getInputStream(), 65536);
+    String status = readLine(in);
+    Map<String, String> headers = new LinkedHashMap<>();
+    String line;
+    while ((line = readLine(in)) != null && !line.isEmpty()) {
+      int colon = line.indexOf(':');
+      headers.put(
+          line.substring(0, colon).trim().toLowerCase(Locale.ROOT),
+          line.substring(colon + 1).trim());
+    }
+    InputStream responseBody =
+        "chunked".equalsIgnoreCase(headers.get("transfer-encoding"))
+            ? new ChunkedInputStream(in, socket)
+            : new SocketInputStream(in, socket);
+    return new Response(status, headers, responseBody);
+  }
+
+  static byte[] ascii(String s) {
+    return s.getBytes(StandardCharsets.US_ASCII);
+  }
+
+  private static String readLine(InputStream in) throws IOException {
+    StringBuilder line = new StringBuilder();
+    int b;
+    while ((b = in.read()) != -1 && b != '\n') {
+      if (b != '\r') {
+        line.append((char) b);
+      }
+    }
+    return b == -1 && line.length() == 0 ? null : line.toString();
+  }
+
+  /** Status line, lower-cased headers and the decoded body of a response. */
+  static final class Response {
+
+    final String status;
+    final Map<String, String> headers;
+    final InputStream body;
+
+    Response(String status, Map<String, String> headers, InputStream body) {
+      this.status = status;
+      this.headers = headers;
+      this.body = body;
+    }
+
+    int statusCode() {
+      return Integer.parseInt(status.split(" ")[1]);
+    }
+  }
+
+  /** Reads the body up to the end of the connection. */
+  private static class SocketInputStream extends InputStream {
+
+    final InputStream in;
+    private final Socket socket;
+
+    SocketInputStream(InputStream in, Socket socket) {
+      this.in = in;
+      this.socket = socket;
+    }
+
+    @Override
+    public int read() throws IOException {
+      return in.read();
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      return in.read(b, off, len);
+    }
+
+    @Override
+    public void close() throws IOException {
+      socket.close();
+    }
+  }
+
+  /** Decodes a chunked body. */
+  private static final class ChunkedInputStream extends SocketInputStream {
+
+    private int remaining;
+    private boolean done;
+
+    ChunkedInputStream(InputStream in, Socket socket) {
+      super(in, socket);
+    }
+
+    private boolean nextChunk() throws IOException {
+      if (done) {
+        return false;
+      }
+      if (remaining == 0) {
+        String size = readLine(in);
+        if (size != null && size.isEmpty()) {
+          size = readLine(in);
+        }
+        remaining = size == null ? 0 : Integer.parseInt(size.trim(), 16);
+        if (remaining == 0) {
+          done = true;
+          return false;
+        }
+      }
+      return true;
+    }
+
+    @Override
+    public int read() throws IOException {
+      if (!nextChunk()) {
+        return -1;
+      }
+      remaining--;
+      return in.read();
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      if (!nextChunk()) {
+        return -1;
+      }
+      int n = in.read(b, off, Math.min(len, remaining));
+      if (n > 0) {
+        remaining -= n;
+      }
+      return n;
+    }
+  }
+}
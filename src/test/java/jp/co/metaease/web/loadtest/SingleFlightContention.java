@@ -0,0 +1,183 @@
+package jp.co.metaease.web.loadtest;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import jp.co.metaease.web.upstream.SingleFlight;
+
+/**
+ * Contention on {@link SingleFlight}: many threads ask for the same key at once.
+ *
+ * <p>For each of {@code execute}, {@code executeAsync} and {@code share}, and for a call that
+ * succeeds and one that fails, checks that
+ *
+ * <ul>
+ *   <li>the upstream call ran exactly once for all callers,
+ *   <li>every caller got the same value, or the same exception,
+ *   <li>the key is no longer in flight afterwards, so that the next caller starts a new call.
+ * </ul>
+ *
+ * The call is held open until every caller has arrived, so they all join the same flight. Stops
+ * with an exception on the first check that fails.
+ *
+ * <pre>
+ * loadtest.threads=500   concurrent callers
+ * </pre>
+ */
+public final class SingleFlightContention {
+
+  private static final int THREADS = Integer.getInteger("loadtest.threads", 500);
+
+  private static final String KEY = "https://gateway.example/";
+
+  private SingleFlightContention() {}
+
+  public static void main(String[] args) throws Exception {
+    ExecutorService callers = Executors.newFixedThreadPool(THREADS);
+    ExecutorService flights = Executors.newCachedThreadPool();
+    try {
+      for (boolean failing : new boolean[] {false, true}) {
+        run("execute", failing, callers, (flight, call) -> flight.execute(KEY, call::call));
+        run(
+            "executeAsync",
+            failing,
+            callers,
+            (flight, call) -> join(flight.executeAsync(KEY, flights, call::call)));
+        run(
+            "share",
+            failing,
+            callers,
+            (flight, call) ->
+                join(
+                    flight.share(
+                        KEY,
+                        () -> CompletableFuture.supplyAsync(call::callUnchecked, flights))));
+      }
+    } finally {
+      callers.shutdownNow();
+      flights.shutdownNow();
+    }
+  }
+
+  /** How a caller enters the flight. */
+  @FunctionalInterface
+  private interface Caller {
+    Object call(SingleFlight<String, Object> flight, BlockingCall call) throws Exception;
+  }
+
+  private static void run(
+      String name, boolean failing, ExecutorService callers, Caller caller) throws Exception {
+    SingleFlight<String, Object> flight = new SingleFlight<>();
+    BlockingCall call = new BlockingCall(failing);
+    CountDownLatch start = new CountDownLatch(1);
+
+    List<Future<Object>> results = new ArrayList<>();
+    for (int i = 0; i < THREADS; i++) {
+      results.add(
+          callers.submit(
+              () -> {
+                start.await();
+                call.arrived.incrementAndGet();
+                try {
+                  return caller.call(flight, call);
+                } catch (Exception e) {
+                  return e;
+                }
+              }));
+    }
+    start.countDown();
+
+    Object expected = failing ? call.failure : call.value;
+    int same = 0;
+    for (Future<Object> result : results) {
+      if (result.get(30, TimeUnit.SECONDS) == expected) {
+        same++;
+      }
+    }
+    System.out.printf(
+        Locale.ROOT,
+        "%-12s %-7s %d callers, %d upstream call(s), %d got the shared %s, %d in flight%n",
+        name,
+        failing ? "failing" : "ok",
+        THREADS,
+        call.calls.get(),
+        same,
+        failing ? "exception" : "value",
+        flight.inFlight());
+    check(call.calls.get() == 1, name + ": " + call.calls.get() + " upstream calls");
+    check(same == THREADS, name + ": " + (THREADS - same) + " callers got another outcome");
+    check(flight.inFlight() == 0, name + ": key still in flight after completion");
+
+    // 完了したフライトは再利用されず、次の呼び出しで新しい呼び出しが始まる
+    call.arrived.set(THREADS);
+    try {
+      caller.call(flight, call);
+    } catch (Exception e) {
+      // 失敗するケースでは同じ例外型で失敗する
+    }
+    check(call.calls.get() == 2, name + ": the next caller did not start a new call");
+  }
+
+  private static Object join(CompletableFuture<Object> future) throws Exception {
+    try {
+      return future.get();
+    } catch (ExecutionException e) {
+      throw (Exception) e.getCause();
+    }
+  }
+
+  private static void check(boolean condition, String message) {
+    if (!condition) {
+      throw new IllegalStateException(message);
+    }
+  }
+
+  /** Upstream stand-in that returns, or throws, only once every caller has arrived. */
+  private static final class BlockingCall {
+
+    final AtomicInteger arrived = new AtomicInteger();
+    final AtomicInteger calls = new AtomicInteger();
+    final Object value = new Object();
+    final IOException failure = new IOException("upstream failed");
+    private final boolean failing;
+
+    BlockingCall(boolean failing) {
+      this.failing = failing;
+    }
+
+    Object call() throws IOException {
+      calls.incrementAndGet();
+      try {
+        while (arrived.get() < THREADS) {
+          Thread.sleep(1);
+        }
+        // 最後に到着したスレッドが putIfAbsent に到達するまでの猶予
+        Thread.sleep(100);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      if (failing) {
+        throw failure;
+      }
+      return value;
+    }
+
+    Object callUnchecked() {
+      try {
+        return call();
+      } catch (IOException e) {
+        throw new CompletionException(e);
+      }
+    }
+  }
+}
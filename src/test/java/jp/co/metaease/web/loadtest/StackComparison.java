@@ -0,0 +1,263 @@
+package jp.co.metaease.web.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import jp.co.metaease.web.WebAPI01Application;
+import org.springframework.boot.convert.DurationStyle;
+
+/**
+ * Memory per connection and throughput of the servlet stack (Tomcat) against the reactive edition
+ * (Netty, {@code spring.main.web-application-type=reactive}) on the landing page.
+ *
+ * <p>Each stack runs in its own JVM, started from the test classpath, so that its resident set
+ * size and thread count are its own (Linux only, read from {@code /proc}). Per stack:
+ *
+ * <ol>
+ *   <li>Throughput and p50/p99 of {@code GET /} at each rate of {@code loadtest.rates}, against a
+ *       gateway of {@code loadtest.latency}; this also warms the JIT up.
+ *   <li>{@code loadtest.connections} requests sent at once against a gateway that takes {@code
+ *       loadtest.hold-latency}. Halfway through, after a full GC ({@code jcmd GC.run}), heap used,
+ *       RSS and thread count are compared with the same figures when idle, and divided by the
+ *       number of connections. Then the time until every request was answered is printed. The
+ *       figures are read from a separate management port, so they do not queue behind the held
+ *       requests.
+ * </ol>
+ *
+ * The upstream response cache, the limiter, hedging and the JIT warm-up are off. Gateway calls of
+ * concurrent requests are still shared through {@code SingleFlight}.
+ *
+ * <pre>
+ * loadtest.stacks=servlet,reactive   spring.main.web-application-type per run
+ * loadtest.jvm=-Xmx256m              JVM options of the application process
+ * loadtest.rates=100,200,400         requests per second
+ * loadtest.latency=fixed:100ms       gateway latency during the rate runs
+ * loadtest.warmup=5s                 unrecorded run per rate
+ * loadtest.duration=15s              measured run per rate
+ * loadtest.connections=1000          requests held open at once
+ * loadtest.hold-latency=4s           gateway latency while they are held
+ * </pre>
+ */
+public final class StackComparison {
+
+  private StackComparison() {}
+
+  public static void main(String[] args) throws Exception {
+    String[] stacks = System.getProperty("loadtest.stacks", "servlet,reactive").split(",");
+    double[] rates =
+        Arrays.stream(System.getProperty("loadtest.rates", "100,200,400").split(","))
+            .mapToDouble(r -> Double.parseDouble(r.trim()))
+            .toArray();
+    Duration warmup = duration("loadtest.warmup", "5s");
+    Duration measured = duration("loadtest.duration", "15s");
+    int connections = Integer.getInteger("loadtest.connections", 1000);
+    Duration holdLatency = duration("loadtest.hold-latency", "4s");
+
+    try (StubUpstream stub =
+        StubUpstream.start(
+            Distribution.ofDurations(System.getProperty("loadtest.latency", "fixed:100ms")),
+            Distribution.ofSizes("fixed:1KB"),
+            0.0)) {
+      System.out.println("stack      rate    req/s   completed   p50 ms   p99 ms");
+      List<String> held = new ArrayList<>();
+      for (String stack : stacks) {
+        stack = stack.trim();
+        stub.setLatency(
+            Distribution.ofDurations(System.getProperty("loadtest.latency", "fixed:100ms")));
+        int port = StartupComparison.freePort();
+        int managementPort = StartupComparison.freePort();
+        Process process = launch(stack, port, managementPort, stub.uri());
+        try {
+          URI landing = URI.create("http://127.0.0.1:" + port + "/");
+          awaitReady(
+              process, URI.create("http://127.0.0.1:" + managementPort + "/actuator/health"));
+          for (double rate : rates) {
+            OpenLoadGenerator generator =
+                new OpenLoadGenerator(landing, Duration.ofSeconds(10), 2_000);
+            try {
+              generator.run(rate, warmup, true);
+              OpenLoadGenerator.Result result = generator.run(rate, measured, true);
+              System.out.printf(
+                  Locale.ROOT,
+                  "%-8s %6.0f %8.1f %10.1f%% %8.1f %8.1f%n",
+                  stack,
+                  rate,
+                  result.status(200) / (result.elapsedNanos / 1e9),
+                  result.status(200) * 100.0 / result.scheduled,
+                  result.latency.getValueAtPercentile(50) / 1e6,
+                  result.latency.getValueAtPercentile(99) / 1e6);
+            } finally {
+              generator.shutdown();
+            }
+          }
+
+          stub.setLatency(Distribution.ofDurations("fixed:" + holdLatency.toMillis() + "ms"));
+          held.add(hold(stack, process, managementPort, landing, connections, holdLatency));
+        } finally {
+          process.destroy();
+          if (!process.waitFor(10, TimeUnit.SECONDS)) {
+            process.destroyForcibly().waitFor();
+          }
+        }
+      }
+
+      System.out.println();
+      System.out.printf(
+          Locale.ROOT,
+          "%d requests held against a %dms gateway%n",
+          connections,
+          holdLatency.toMillis());
+      System.out.println(
+          "stack    heap/conn   rss/conn   threads idle/held   all answered   answered 200");
+      held.forEach(System.out::println);
+    }
+    System.exit(0);
+  }
+
+  private static Process launch(String stack, int port, int managementPort, URI upstream)
+      throws IOException {
+    List<String> command = new ArrayList<>();
+    command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+    command.addAll(Arrays.asList(System.getProperty("loadtest.jvm", "-Xmx256m").split(" +")));
+    command.add("-cp");
+    command.add(System.getProperty("java.class.path"));
+    command.add(WebAPI01Application.class.getName());
+    command.add("--server.port=" + port);
+    // 保持中のリクエストの後ろに並ばないよう、計測用のエンドポイントは別のサーバーで受ける
+    command.add("--management.server.port=" + managementPort);
+    command.add("--spring.main.web-application-type=" + stack);
+    command.add("--webapi01.upstream.url=" + upstream);
+    // 保持中のリクエストがタイムアウトやフォールバックで先に終わらないようにする
+    command.add("--webapi01.upstream.read-timeout=60s");
+    command.add("--webapi01.upstream.request-budget=60s");
+    command.add("--webapi01.upstream.async-timeout=60s");
+    command.add("--webapi01.upstream.cache.enabled=false");
+    command.add("--webapi01.upstream.hedge.enabled=false");
+    command.add("--webapi01.upstream.resilience.max-concurrent-calls=100000");
+    command.add("--webapi01.limiter.enabled=false");
+    command.add("--webapi01.warmup.enabled=false");
+    command.add("--logging.level.jp.co.metaease.web.ctrl=WARN");
+    return new ProcessBuilder(command)
+        .redirectErrorStream(true)
+        .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+        .start();
+  }
+
+  private static void awaitReady(Process process, URI health) throws Exception {
+    HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+    while (true) {
+      try {
+        if (client
+                .send(HttpRequest.newBuilder(health).build(), HttpResponse.BodyHandlers.discarding())
+                .statusCode()
+            == 200) {
+          return;
+        }
+      } catch (IOException e) {
+        // 起動中
+      }
+      if (!process.isAlive() || System.nanoTime() > deadline) {
+        throw new IllegalStateException("The application did not start on " + health);
+      }
+      Thread.sleep(100);
+    }
+  }
+
+  /** Holds {@code connections} requests open and returns a line of the summary table. */
+  private static String hold(
+      String stack,
+      Process process,
+      int managementPort,
+      URI landing,
+      int connections,
+      Duration latency)
+      throws Exception {
+    long[] idle = sample(process, managementPort);
+
+    // 接続ごとに別の TCP 接続になるよう、HTTP/1.1 で同時に送る
+    HttpClient client =
+        HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+    AtomicInteger ok = new AtomicInteger();
+    List<CompletableFuture<?>> responses = new ArrayList<>();
+    long started = System.nanoTime();
+    for (int i = 0; i < connections; i++) {
+      responses.add(
+          client
+              .sendAsync(
+                  HttpRequest.newBuilder(landing).timeout(Duration.ofSeconds(120)).build(),
+                  HttpResponse.BodyHandlers.discarding())
+              .thenAccept(
+                  response -> {
+                    if (response.statusCode() == 200) {
+                      ok.incrementAndGet();
+                    }
+                  })
+              .exceptionally(e -> null));
+    }
+    Thread.sleep(latency.toMillis() / 2);
+    long[] busy = sample(process, managementPort);
+    CompletableFuture.allOf(responses.toArray(new CompletableFuture<?>[0])).join();
+    long elapsed = System.nanoTime() - started;
+
+    return String.format(
+        Locale.ROOT,
+        "%-8s %7.1f KB %7.1f KB %10d/%-8d %10.1f s %10d",
+        stack,
+        (busy[0] - idle[0]) / 1024.0 / connections,
+        (busy[1] - idle[1]) / (double) connections,
+        idle[2],
+        busy[2],
+        elapsed / 1e9,
+        ok.get());
+  }
+
+  /** Returns {heap used bytes, RSS kB, threads} of the application after a full GC. */
+  private static long[] sample(Process process, int managementPort) throws Exception {
+    Process gc =
+        new ProcessBuilder(
+                Path.of(System.getProperty("java.home"), "bin", "jcmd").toString(),
+                String.valueOf(process.pid()),
+                "GC.run")
+            .redirectErrorStream(true)
+            .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+            .start();
+    gc.waitFor(30, TimeUnit.SECONDS);
+
+    HttpResponse<String> metric =
+        HttpClient.newHttpClient()
+            .send(
+                HttpRequest.newBuilder(
+                        URI.create(
+                            "http://127.0.0.1:" + managementPort
+                                + "/actuator/metrics/jvm.memory.used?tag=area:heap"))
+                    .build(),
+                HttpResponse.BodyHandlers.ofString());
+    long heap =
+        (long) new ObjectMapper().readTree(metric.body()).at("/measurements/0/value").asDouble();
+    return new long[] {
+      heap,
+      StartupComparison.status(process.pid(), "VmRSS"),
+      StartupComparison.status(process.pid(), "Threads")
+    };
+  }
+
+  private static Duration duration(String key, String defaultValue) {
+    return DurationStyle.detectAndParse(System.getProperty(key, defaultValue));
+  }
+}
@@ -0,0 +1,211 @@
+package jp.co.metaease.web.loadtest;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Starts each build of the application as a separate process a few times and compares the time
+ * until it answers and its resident set size (Linux only, read from {@code /proc}).
+ *
+ * <p>Per start: milliseconds from process launch to the first {@code 200} of {@code
+ * /actuator/health}, RSS at that point, then RSS and peak RSS after {@code startup.requests} calls
+ * to {@code GET /api/text/zen2han}, summed over the process and its children. Medians are printed
+ * per build. Each command is split on spaces and gets {@code --server.port} and {@code
+ * --webapi01.upstream.url} (an embedded stub) appended, except a CRaC restore, which keeps the
+ * port of its checkpoint.
+ *
+ * <pre>
+ * startup.jvm=java -jar target/webapi01-0.0.1-SNAPSHOT.jar   JVM build
+ * startup.native=target/webapi01                            native build (mvn -Pnative native:compile)
+ * startup.cds=java -XX:SharedArchiveFile=webapi01.jsa -jar webapi01-0.0.1-SNAPSHOT-cds.jar
+ *                                                           AppCDS build (mvn -Pcds package), optional
+ * startup.cds-dir=target/cds                                its working directory
+ * startup.crac=java -XX:CRaCRestoreFrom=target/crac          CRaC restore (see CracConfig), optional
+ * startup.crac-port=8080                                    port of the CRaC checkpoint
+ * startup.runs=5                                            starts per build
+ * startup.requests=2000                                     requests before the second RSS sample
+ * startup.timeout=60s                                       give up on a start after this long
+ * </pre>
+ */
+public final class StartupComparison {
+
+  private StartupComparison() {}
+
+  public static void main(String[] args) throws Exception {
+    Map<String, String> builds = new LinkedHashMap<>();
+    builds.put(
+        "jvm", System.getProperty("startup.jvm", "java -jar target/webapi01-0.0.1-SNAPSHOT.jar"));
+    String nativeCommand = System.getProperty("startup.native", "target/webapi01");
+    if (Files.isExecutable(Path.of(nativeCommand.split(" ")[0]))) {
+      builds.put("native", nativeCommand);
+    } else {
+      System.out.println("native build not found at " + nativeCommand + ", JVM only");
+    }
+    if (System.getProperty("startup.cds") != null) {
+      builds.put("cds", System.getProperty("startup.cds"));
+    }
+    if (System.getProperty("startup.crac") != null) {
+      builds.put("crac", System.getProperty("startup.crac"));
+    }
+    int runs = Integer.getInteger("startup.runs", 5);
+    int requests = Integer.getInteger("startup.requests", 2000);
+    Duration timeout =
+        org.springframework.boot.convert.DurationStyle.detectAndParse(
+            System.getProperty("startup.timeout", "60s"));
+
+    HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+    try (StubUpstream stub =
+        StubUpstream.start(
+            Distribution.ofDurations("fixed:1ms"), Distribution.ofSizes("fixed:1KB"), 0.0)) {
+      for (Map.Entry<String, String> build : builds.entrySet()) {
+        List<long[]> samples = new ArrayList<>();
+        // AppCDS のアーカイブは学習時と同じ相対パスで jar を指定した場合のみ使われる
+        String directory =
+            build.getKey().equals("cds") ? System.getProperty("startup.cds-dir", "target/cds") : "";
+        for (int i = 0; i < runs; i++) {
+          samples.add(start(build.getValue(), directory, stub.uri(), client, requests, timeout));
+        }
+        System.out.printf(
+            Locale.ROOT,
+            "%-6s runs=%d ready=%dms rss-ready=%.1fMB rss-after-%d-requests=%.1fMB"
+                + " rss-peak=%.1fMB (medians)%n",
+            build.getKey(),
+            runs,
+            median(samples, 0),
+            median(samples, 1) / 1024.0,
+            requests,
+            median(samples, 2) / 1024.0,
+            median(samples, 3) / 1024.0);
+      }
+    }
+  }
+
+  /** Returns {ready ms, RSS kB at ready, RSS kB after the requests, peak RSS kB}. */
+  private static long[] start(
+      String command,
+      String directory,
+      URI upstream,
+      HttpClient client,
+      int requests,
+      Duration timeout)
+      throws IOException, InterruptedException {
+    boolean restore = command.contains("-XX:CRaCRestoreFrom");
+    int port = restore ? Integer.getInteger("startup.crac-port", 8080) : freePort();
+    List<String> arguments = new ArrayList<>(Arrays.asList(command.trim().split(" +")));
+    if (!restore) {
+      arguments.add("--server.port=" + port);
+      arguments.add("--webapi01.upstream.url=" + upstream);
+    }
+    ProcessBuilder builder =
+        new ProcessBuilder(arguments)
+            .directory(Path.of(directory).toAbsolutePath().toFile())
+            .redirectErrorStream(true)
+            .redirectOutput(ProcessBuilder.Redirect.DISCARD);
+    builder.environment().put("PORT", String.valueOf(port));
+
+    URI health = URI.create("http://127.0.0.1:" + port + "/actuator/health");
+    long started = System.nanoTime();
+    Process process = builder.start();
+    try {
+      long deadline = started + timeout.toNanos();
+      while (!ok(client, health)) {
+        if (!process.isAlive()) {
+          throw new IllegalStateException(command + " exited with " + process.exitValue());
+        }
+        if (System.nanoTime() > deadline) {
+          throw new IllegalStateException(command + " did not answer within " + timeout);
+        }
+        Thread.sleep(5);
+      }
+      long ready = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+      long rssReady = status(process, "VmRSS");
+
+      URI text =
+          URI.create(
+              "http://127.0.0.1:" + port + "/api/text/zen2han?value="
+                  + URLEncoder.encode("ＡＢＣ１２３　ﾃｽﾄ", StandardCharsets.UTF_8));
+      for (int i = 0; i < requests; i++) {
+        if (!ok(client, text)) {
+          throw new IllegalStateException("GET " + text + " failed");
+        }
+      }
+      return new long[] {
+        ready, rssReady, status(process, "VmRSS"), status(process, "VmHWM")
+      };
+    } finally {
+      // CRaC の復元プロセスは起動したプロセスの子になる
+      process.descendants().forEach(ProcessHandle::destroy);
+      process.destroy();
+      if (!process.waitFor(10, TimeUnit.SECONDS)) {
+        process.destroyForcibly().waitFor();
+      }
+    }
+  }
+
+  private static boolean ok(HttpClient client, URI uri) throws InterruptedException {
+    try {
+      return client
+              .send(
+                  HttpRequest.newBuilder(uri).timeout(Duration.ofSeconds(5)).build(),
+                  HttpResponse.BodyHandlers.discarding())
+              .statusCode()
+          == 200;
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  /** A kB value of {@code /proc/<pid>/status}, summed over the process and its children. */
+  private static long status(Process process, String field) throws IOException {
+    long total = status(process.pid(), field);
+    for (ProcessHandle child : (Iterable<ProcessHandle>) process.descendants()::iterator) {
+      total += status(child.pid(), field);
+    }
+    return total;
+  }
+
+  /** A kB value of {@code /proc/<pid>/status}. Shared with the other harnesses in this package. */
+  static long status(long pid, String field) throws IOException {
+    List<String> lines;
+    try {
+      lines = Files.readAllLines(Path.of("/proc", String.valueOf(pid), "status"));
+    } catch (NoSuchFileException e) {
+      // 読み取り前に終了したプロセス
+      return 0;
+    }
+    for (String line : lines) {
+      if (line.startsWith(field + ":")) {
+        return Long.parseLong(line.replaceAll("[^0-9]", ""));
+      }
+    }
+    throw new IllegalStateException(field + " not in /proc/" + pid + "/status");
+  }
+
+  static int freePort() throws IOException {
+    try (ServerSocket socket = new ServerSocket(0)) {
+      return socket.getLocalPort();
+    }
+  }
+
+  private static long median(List<long[]> samples, int index) {
+    long[] values = samples.stream().mapToLong(s -> s[index]).sorted().toArray();
+    return values[values.length / 2];
+  }
+}
@@ -0,0 +1,159 @@
+package jp.co.metaease.web.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Embedded stand-in for the API gateway, listening on a free loopback port.
+ *
+ * <p>Every request sleeps for a latency drawn from the latency distribution, then answers either
+ * HTTP 500 (with probability {@code errorRate}) or 200 with a text body whose length is drawn from
+ * the size distribution. All three can be changed while the stub is running, which is how a
+ * degrading upstream is simulated.
+ */
+public final class StubUpstream implements Closeable {
+
+  private static final byte[] TEXT =
+      "The quick brown fox jumps over the lazy dog. 0123456789\n"
+          .getBytes(StandardCharsets.US_ASCII);
+
+  private final HttpServer server;
+  private final ExecutorService executor;
+  private volatile Distribution latency;
+  private volatile Distribution size;
+  private volatile double errorRate;
+  private volatile boolean chunked;
+  private volatile boolean truncated;
+
+  private final LongAdder requests = new LongAdder();
+  private final LongAdder errors = new LongAdder();
+  private final Set<InetSocketAddress> clients = ConcurrentHashMap.newKeySet();
+
+  private StubUpstream(Distribution latency, Distribution size, double errorRate)
+      throws IOException {
+    this.latency = latency;
+    this.size = size;
+    this.errorRate = errorRate;
+    this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    // Handlers sleep to simulate latency, so every in-flight request needs its own thread.
+    this.executor =
+        Executors.newCachedThreadPool(
+            r -> {
+              Thread t = new Thread(r, "stub-upstream");
+              t.setDaemon(true);
+              return t;
+            });
+    server.setExecutor(executor);
+    server.createContext("/", this::handle);
+  }
+
+  /** Starts a stub with the given behaviour. */
+  public static StubUpstream start(Distribution latency, Distribution size, double errorRate)
+      throws IOException {
+    StubUpstream stub = new StubUpstream(latency, size, errorRate);
+    stub.server.start();
+    return stub;
+  }
+
+  /** Returns the URL the application should use as its gateway. */
+  public URI uri() {
+    InetSocketAddress address = server.getAddress();
+    return URI.create("http://" + address.getHostString() + ":" + address.getPort() + "/");
+  }
+
+  public void setLatency(Distribution latency) {
+    this.latency = latency;
+  }
+
+  public void setSize(Distribution size) {
+    this.size = size;
+  }
+
+  public void setErrorRate(double errorRate) {
+    this.errorRate = errorRate;
+  }
+
+  /** Sends bodies with chunked transfer encoding, without a Content-Length. */
+  public void setChunked(boolean chunked) {
+    this.chunked = chunked;
+  }
+
+  /** Sends half of each body that has a Content-Length, then drops the connection. */
+  public void setTruncated(boolean truncated) {
+    this.truncated = truncated;
+  }
+
+  public Distribution latency() {
+    return latency;
+  }
+
+  public long requests() {
+    return requests.sum();
+  }
+
+  public long errors() {
+    return errors.sum();
+  }
+
+  /** Distinct client sockets seen so far, that is the TCP connections the callers opened. */
+  public int connections() {
+    return clients.size();
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    requests.increment();
+    clients.add(exchange.getRemoteAddress());
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    try (exchange) {
+      exchange.getRequestBody().readAllBytes();
+      long delay = latency.sample(random);
+      if (delay > 0) {
+        try {
+          TimeUnit.NANOSECONDS.sleep(delay);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return;
+        }
+      }
+      if (random.nextDouble() < errorRate) {
+        errors.increment();
+        exchange.sendResponseHeaders(500, -1);
+        return;
+      }
+      int length = (int) Math.min(Integer.MAX_VALUE, size.sample(random));
+      exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=UTF-8");
+      exchange.sendResponseHeaders(200, length == 0 ? -1 : chunked ? 0 : length);
+      if (length > 0) {
+        try (OutputStream out = exchange.getResponseBody()) {
+          int written = 0;
+          int end = truncated ? length / 2 : length;
+          while (written < end) {
+            int n = Math.min(TEXT.length, end - written);
+            out.write(TEXT, 0, n);
+            written += n;
+          }
+        }
+      }
+    }
+  }
+
+  @Override
+  public void close() {
+    server.stop(0);
+    executor.shutdownNow();
+  }
+}
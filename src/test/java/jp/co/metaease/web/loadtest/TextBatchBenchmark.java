@@ -0,0 +1,150 @@
+package jp.co.metaease.web.loadtest;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Compares converting form fields one request per field ({@code GET /api/text/zen2han}) with
+ * converting them in batches ({@code POST /api/text/batch}), closed-loop with a fixed number of
+ * client threads.
+ *
+ * <p>Prints fields per second and requests per second for each mode, once per batch size.
+ *
+ * <pre>
+ * loadtest.clients=8          concurrent client threads
+ * loadtest.duration=10s       measured time per mode
+ * loadtest.batch-sizes=10,100 values per batch request
+ * </pre>
+ */
+public final class TextBatchBenchmark {
+
+  private static final String[] SAMPLES = {
+    "ＡＢＣ１２３　ﾃｽﾄ", "ﾔﾏﾀﾞ ﾀﾛｳ", "東京都千代田区丸の内１－１－１", "０３－１２３４－５６７８", "ＭＥＴＡＥＡＳＥ　Ｉｎｃ．"
+  };
+
+  private TextBatchBenchmark() {}
+
+  public static void main(String[] args) throws Exception {
+    int clients = Integer.getInteger("loadtest.clients", 8);
+    Duration duration =
+        org.springframework.boot.convert.DurationStyle.detectAndParse(
+            System.getProperty("loadtest.duration", "10s"));
+    String[] batchSizes = System.getProperty("loadtest.batch-sizes", "10,100").split(",");
+
+    try (StubUpstream stub =
+        StubUpstream.start(
+            Distribution.ofDurations("fixed:1ms"), Distribution.ofSizes("fixed:1KB"), 0.0)) {
+      ConfigurableApplicationContext app =
+          LoadTest.startApplication(stub.uri(), "webapi01.limiter.enabled=false");
+      int port = ((WebServerApplicationContext) app).getWebServer().getPort();
+      URI base = URI.create("http://127.0.0.1:" + port);
+      HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+      ExecutorService pool = Executors.newFixedThreadPool(clients);
+      try {
+        // ウォームアップ
+        run(pool, clients, Duration.ofSeconds(5), () -> single(client, base));
+        run(pool, clients, Duration.ofSeconds(5), () -> batch(client, base, 100));
+
+        report("single", 1, run(pool, clients, duration, () -> single(client, base)), duration);
+        for (String size : batchSizes) {
+          int n = Integer.parseInt(size.trim());
+          report(
+              "batch", n, run(pool, clients, duration, () -> batch(client, base, n)), duration);
+        }
+      } finally {
+        pool.shutdownNow();
+        app.close();
+      }
+    }
+  }
+
+  /** Sends one request and returns the number of fields converted, or -1 on a failure. */
+  interface Call {
+    int call() throws Exception;
+  }
+
+  private static long[] run(ExecutorService pool, int clients, Duration duration, Call call)
+      throws Exception {
+    long deadline = System.nanoTime() + duration.toNanos();
+    AtomicLong fields = new AtomicLong();
+    AtomicLong requests = new AtomicLong();
+    AtomicLong failed = new AtomicLong();
+    List<Future<?>> futures = new ArrayList<>(clients);
+    for (int i = 0; i < clients; i++) {
+      futures.add(
+          pool.submit(
+              () -> {
+                while (System.nanoTime() < deadline) {
+                  int n = call.call();
+                  if (n < 0) {
+                    failed.incrementAndGet();
+                  } else {
+                    fields.addAndGet(n);
+                    requests.incrementAndGet();
+                  }
+                }
+                return null;
+              }));
+    }
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    return new long[] {fields.get(), requests.get(), failed.get()};
+  }
+
+  private static int single(HttpClient client, URI base) throws Exception {
+    String value = SAMPLES[(int) (System.nanoTime() % SAMPLES.length)];
+    HttpRequest request =
+        HttpRequest.newBuilder(
+                base.resolve(
+                    "/api/text/zen2han?value=" + URLEncoder.encode(value, StandardCharsets.UTF_8)))
+            .GET()
+            .build();
+    HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+    return response.statusCode() == 200 ? 1 : -1;
+  }
+
+  private static int batch(HttpClient client, URI base, int size) throws Exception {
+    StringBuilder body = new StringBuilder("{\"operations\":[\"zen2han\"],\"values\":[");
+    for (int i = 0; i < size; i++) {
+      if (i > 0) {
+        body.append(',');
+      }
+      body.append('"').append(SAMPLES[i % SAMPLES.length]).append('"');
+    }
+    body.append("]}");
+    HttpRequest request =
+        HttpRequest.newBuilder(base.resolve("/api/text/batch"))
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString(body.toString(), StandardCharsets.UTF_8))
+            .build();
+    HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+    return response.statusCode() == 200 ? size : -1;
+  }
+
+  private static void report(String mode, int size, long[] counts, Duration duration) {
+    double seconds = duration.toNanos() / 1e9;
+    System.out.printf(
+        Locale.ROOT,
+        "%-6s size=%-4d fields/s=%10.0f requests/s=%8.0f failed=%d%n",
+        mode,
+        size,
+        counts[0] / seconds,
+        counts[1] / seconds,
+        counts[2]);
+  }
+}
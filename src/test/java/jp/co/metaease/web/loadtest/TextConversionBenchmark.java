@@ -0,0 +1,190 @@
+package jp.co.metaease.web.loadtest;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.Charset;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.UnaryOperator;
+import jp.co.metaease.com.StringUtil;
+
+/**
+ * Compares the table-driven {@link StringUtil} conversions with the implementations they replaced
+ * ({@link LegacyStringUtil}) in a single thread, without the web stack.
+ *
+ * <p>First checks that both give the same output for every BMP character, for every character
+ * followed by every other character of the half-width kana block, and for the benchmark corpus;
+ * stops on the first difference. Then runs each implementation over a corpus of mixed Japanese
+ * form values, alternating, and prints characters per second and bytes allocated per call. {@code
+ * zen2han} depends on the default charset, so run it with the {@code -Dfile.encoding} of the
+ * servers.
+ *
+ * <pre>
+ * loadtest.operations=zen2han,katakana   conversions to compare
+ * loadtest.warmup=5s                     untimed run of each implementation first
+ * loadtest.duration=5s                   timed run per implementation and round
+ * loadtest.rounds=3                      rounds; the best one is printed
+ * loadtest.corpus=2000                   form values in the corpus
+ * </pre>
+ */
+public final class TextConversionBenchmark {
+
+  private static final String[] FRAGMENTS = {
+    "ヤマダ", "タロウ", "データベース", "ガッコウ", "パソコン", "ヴァイオリン", "ポイント",
+    "ﾔﾏﾀﾞ", "ﾀﾛｳ", "ﾃﾞｰﾀﾍﾞｰｽ", "ｶﾞｯｺｳ", "ﾊﾟｿｺﾝ", "ｳﾞｧｲｵﾘﾝ", "ﾎﾟｲﾝﾄ", "ｷｬﾝﾍﾟｰﾝ",
+    "ＡＢＣ", "ｘｙｚ", "１２３", "０３－１２３４－５６７８", "（株）", "＠", "　",
+    "abc", "2024", " ", "-", "東京都千代田区丸の内", "やまだ", "。", "「", "」"
+  };
+
+  /** Keeps the results alive so that the conversions cannot be optimized away. */
+  private static volatile long sink;
+
+  private TextConversionBenchmark() {}
+
+  public static void main(String[] args) {
+    String[] operations = System.getProperty("loadtest.operations", "zen2han,katakana").split(",");
+    Duration warmup =
+        org.springframework.boot.convert.DurationStyle.detectAndParse(
+            System.getProperty("loadtest.warmup", "5s"));
+    Duration duration =
+        org.springframework.boot.convert.DurationStyle.detectAndParse(
+            System.getProperty("loadtest.duration", "5s"));
+    int rounds = Integer.getInteger("loadtest.rounds", 3);
+    String[] corpus = corpus(Integer.getInteger("loadtest.corpus", 2000));
+    long corpusChars = 0;
+    for (String value : corpus) {
+      corpusChars += value.length();
+    }
+
+    Map<String, List<UnaryOperator<String>>> implementations = implementations();
+    System.out.printf(
+        Locale.ROOT,
+        "default charset %s, corpus of %d values, %d chars%n",
+        Charset.defaultCharset(),
+        corpus.length,
+        corpusChars);
+    for (String operation : operations) {
+      List<UnaryOperator<String>> pair = implementations.get(operation.trim());
+      if (pair == null) {
+        throw new IllegalArgumentException("Unknown operation: " + operation);
+      }
+      verify(operation, pair.get(0), pair.get(1), corpus);
+
+      run(pair.get(0), corpus, warmup);
+      run(pair.get(1), corpus, warmup);
+      double[] best = new double[2];
+      double[] allocated = new double[2];
+      for (int round = 0; round < rounds; round++) {
+        for (int i = 0; i < 2; i++) {
+          double[] result = run(pair.get(i), corpus, duration);
+          double charsPerSecond = result[0] * corpusChars / (duration.toNanos() / 1e9);
+          if (charsPerSecond > best[i]) {
+            best[i] = charsPerSecond;
+            allocated[i] = result[1];
+          }
+        }
+      }
+      for (int i = 0; i < 2; i++) {
+        System.out.printf(
+            Locale.ROOT,
+            "%-8s %-7s %8.1f M chars/s %7.0f bytes allocated per call%n",
+            operation,
+            i == 0 ? "legacy" : "table",
+            best[i] / 1e6,
+            allocated[i]);
+      }
+      System.out.printf(Locale.ROOT, "%-8s speedup %.1fx%n", operation, best[1] / best[0]);
+    }
+  }
+
+  /** [legacy, current] per operation name. */
+  private static Map<String, List<UnaryOperator<String>>> implementations() {
+    Map<String, List<UnaryOperator<String>>> implementations = new LinkedHashMap<>();
+    implementations.put("zen2han", List.of(LegacyStringUtil::zen2han, StringUtil::zen2han));
+    implementations.put("katakana", List.of(LegacyStringUtil::katakana, StringUtil::katakana));
+    return implementations;
+  }
+
+  private static void verify(
+      String operation,
+      UnaryOperator<String> legacy,
+      UnaryOperator<String> current,
+      String[] corpus) {
+    long checked = 0;
+    for (int c = 0; c <= Character.MAX_VALUE; c++) {
+      check(operation, legacy, current, String.valueOf((char) c));
+      // 後に続く文字で結果が変わる半角カナ（濁点、半濁点）との組み合わせ
+      for (char next = '｡'; next <= 'ﾟ'; next++) {
+        check(operation, legacy, current, new String(new char[] {(char) c, next}));
+      }
+      checked += 1 + ('ﾟ' - '｡' + 1);
+    }
+    for (String value : corpus) {
+      check(operation, legacy, current, value);
+    }
+    checked += corpus.length;
+    System.out.printf(Locale.ROOT, "%-8s identical output for %d inputs%n", operation, checked);
+  }
+
+  private static void check(
+      String operation, UnaryOperator<String> legacy, UnaryOperator<String> current, String in) {
+    String expected = legacy.apply(in);
+    String actual = current.apply(in);
+    if (!expected.equals(actual)) {
+      throw new IllegalStateException(
+          String.format(
+              "%s(%s) differs: legacy %s, table %s",
+              operation, escape(in), escape(expected), escape(actual)));
+    }
+  }
+
+  /** Returns {corpus passes, bytes allocated per call}. */
+  private static double[] run(
+      UnaryOperator<String> conversion, String[] corpus, Duration duration) {
+    com.sun.management.ThreadMXBean threads =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    long thread = Thread.currentThread().getId();
+    long allocatedBefore = threads.getThreadAllocatedBytes(thread);
+    long deadline = System.nanoTime() + duration.toNanos();
+    long passes = 0;
+    long length = 0;
+    while (System.nanoTime() < deadline) {
+      for (String value : corpus) {
+        length += conversion.apply(value).length();
+      }
+      passes++;
+    }
+    long allocated = threads.getThreadAllocatedBytes(thread) - allocatedBefore;
+    sink = length;
+    return new double[] {passes, (double) allocated / (passes * corpus.length)};
+  }
+
+  private static String[] corpus(int size) {
+    Random random = new Random(0);
+    String[] corpus = new String[size];
+    for (int i = 0; i < size; i++) {
+      StringBuilder value = new StringBuilder();
+      int fragments = 1 + random.nextInt(8);
+      for (int f = 0; f < fragments; f++) {
+        value.append(FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+      }
+      corpus[i] = value.toString();
+    }
+    return corpus;
+  }
+
+  private static String escape(String value) {
+    StringBuilder escaped = new StringBuilder("\"");
+    for (char c : value.toCharArray()) {
+      if (c >= 0x20 && c < 0x80) {
+        escaped.append(c);
+      } else {
+        escaped.append(String.format("\\u%04x", (int) c));
+      }
+    }
+    return escaped.append('"').toString();
+  }
+}
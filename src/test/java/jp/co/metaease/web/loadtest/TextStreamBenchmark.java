@@ -0,0 +1,160 @@
+package jp.co.metaease.web.loadtest;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Streams a generated NDJSON body of {@code loadtest.records} customer records through {@code POST
+ * /api/text/stream} and reads the results as they come back.
+ *
+ * <p>The body is sent and the results are read at the same time through {@link RawHttp}, as a
+ * full-duplex client would. Checks that every record is answered, in input order, and prints
+ * records per second, the time to the first result line and the peak heap of the process. Run it
+ * with a small heap (for example {@code -Dloadtest.heap=-Xmx128m}) and a growing record count: the
+ * peak heap should not follow the body size.
+ *
+ * <pre>
+ * loadtest.records=500000     records in the body
+ * loadtest.operations=zen2han,removeRightSpace
+ * loadtest.checks=zenkakuChk,asciiChk,isCtrlCodeChk
+ * </pre>
+ */
+public final class TextStreamBenchmark {
+
+  private static final String[] NAMES = {"ﾔﾏﾀﾞ ﾀﾛｳ", "ｽｽﾞｷ ﾊﾅｺ", "ＳＡＴＯ　ＫＥＮ", "ﾀﾅｶ ｲﾁﾛｳ"};
+  private static final String[] ADDRESSES = {
+    "東京都千代田区丸の内１－１－１　", "大阪府大阪市北区梅田２－２－２", "ABC Building 3F", "愛知県名古屋市中区３－３"
+  };
+
+  private TextStreamBenchmark() {}
+
+  public static void main(String[] args) throws Exception {
+    long count = Long.getLong("loadtest.records", 500_000);
+    String operations = System.getProperty("loadtest.operations", "zen2han,removeRightSpace");
+    String checks = System.getProperty("loadtest.checks", "zenkakuChk,asciiChk,isCtrlCodeChk");
+
+    try (StubUpstream stub =
+        StubUpstream.start(
+            Distribution.ofDurations("fixed:1ms"), Distribution.ofSizes("fixed:1KB"), 0.0)) {
+      ConfigurableApplicationContext app = LoadTest.startApplication(stub.uri());
+      int port = ((WebServerApplicationContext) app).getWebServer().getPort();
+      String target = "/api/text/stream?operations=" + operations + "&checks=" + checks;
+      try {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+          pool.resetPeakUsage();
+        }
+        long start = System.nanoTime();
+        RawHttp.Response response =
+            RawHttp.post(port, target, "application/x-ndjson", () -> new RecordStream(count));
+        if (response.statusCode() != 200) {
+          throw new IllegalStateException(response.status);
+        }
+
+        long firstLineNanos = 0;
+        long lines = 0;
+        long failed = 0;
+        try (BufferedReader reader =
+            new BufferedReader(new InputStreamReader(response.body, StandardCharsets.UTF_8))) {
+          String line;
+          while ((line = reader.readLine()) != null) {
+            if (lines == 0) {
+              firstLineNanos = System.nanoTime() - start;
+            }
+            lines++;
+            String prefix = "{\"line\":" + lines + ",";
+            if (!line.startsWith(prefix)) {
+              throw new IllegalStateException("Out of order at " + lines + ": " + line);
+            }
+            if (line.contains("\"failed\"")) {
+              failed++;
+            }
+          }
+        }
+        long elapsed = System.nanoTime() - start;
+        if (lines != count) {
+          throw new IllegalStateException(lines + " result lines for " + count + " records");
+        }
+        System.out.printf(
+            Locale.ROOT,
+            "records=%d in-order=true failed-checks=%d records/s=%.0f first-line=%.1fms"
+                + " total=%.1fs peak-heap=%.1fMB%n",
+            lines,
+            failed,
+            lines / (elapsed / 1e9),
+            firstLineNanos / 1e6,
+            elapsed / 1e9,
+            peakHeap() / 1048576.0);
+      } finally {
+        app.close();
+      }
+    }
+  }
+
+  private static long peakHeap() {
+    long peak = 0;
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP) {
+        peak += pool.getPeakUsage().getUsed();
+      }
+    }
+    return peak;
+  }
+
+  /** Generates the NDJSON body on the fly so the client never holds it either. */
+  private static final class RecordStream extends InputStream {
+
+    private final long count;
+    private long next;
+    private byte[] current = new byte[0];
+    private int position;
+
+    RecordStream(long count) {
+      this.count = count;
+    }
+
+    private boolean fill() {
+      if (next == count) {
+        return false;
+      }
+      int i = (int) (next++ % 4);
+      current =
+          ("{\"id\":\"" + next + "\",\"name\":\"" + NAMES[i] + "\",\"address\":\"" + ADDRESSES[i]
+                  + "\"}\n")
+              .getBytes(StandardCharsets.UTF_8);
+      position = 0;
+      return true;
+    }
+
+    @Override
+    public int read() throws IOException {
+      if (position == current.length && !fill()) {
+        return -1;
+      }
+      return current[position++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      int n = 0;
+      while (n < len) {
+        if (position == current.length && !fill()) {
+          break;
+        }
+        int copy = Math.min(len - n, current.length - position);
+        System.arraycopy(current, position, b, off + n, copy);
+        position += copy;
+        n += copy;
+      }
+      return n == 0 ? -1 : n;
+    }
+  }
+}
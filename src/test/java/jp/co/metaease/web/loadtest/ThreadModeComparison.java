@@ -0,0 +1,173 @@
+package jp.co.metaease.web.loadtest;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Thread count against throughput of the blocking landing page ({@code GET /}) with Tomcat on
+ * platform threads and on virtual threads ({@code webapi01.threads.virtual=true}), against a slow
+ * {@link StubUpstream}. Each mode starts its own application context in this JVM.
+ *
+ * <p>Per mode and rate, prints throughput, p50/p99 and the peak number of live platform threads of
+ * the JVM during the measured run. Virtual threads do not count towards it.
+ *
+ * <p>In virtual mode a JFR stream records {@code jdk.VirtualThreadPinned}, emitted when a virtual
+ * thread blocks while pinned to its carrier (inside {@code synchronized}, or in a native frame) for
+ * longer than {@code loadtest.pinning-threshold}. The harness prints the frames where that happened
+ * and stops with an exception if there were any. Virtual threads need Java 21; on an older runtime
+ * the virtual mode is reported as skipped.
+ *
+ * <pre>
+ * loadtest.modes=platform:16,platform:200,virtual   platform:&lt;Tomcat threads&gt;, virtual
+ * loadtest.rates=100,200,400                        requests per second
+ * loadtest.stub.latency=fixed:100ms                 upstream latency
+ * loadtest.warmup=5s                                unrecorded run per mode and rate
+ * loadtest.duration=15s                             measured run per mode and rate
+ * loadtest.pinning-threshold=20ms                   shortest pinned block that is reported
+ * </pre>
+ */
+public final class ThreadModeComparison {
+
+  private ThreadModeComparison() {}
+
+  public static void main(String[] args) throws Exception {
+    String[] modes =
+        System.getProperty("loadtest.modes", "platform:16,platform:200,virtual").split(",");
+    double[] rates =
+        Arrays.stream(System.getProperty("loadtest.rates", "100,200,400").split(","))
+            .mapToDouble(r -> Double.parseDouble(r.trim()))
+            .toArray();
+    Duration warmup = duration("loadtest.warmup", "5s");
+    Duration measured = duration("loadtest.duration", "15s");
+    Duration pinningThreshold = duration("loadtest.pinning-threshold", "20ms");
+    ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+    try (StubUpstream stub =
+        StubUpstream.start(
+            Distribution.ofDurations(System.getProperty("loadtest.stub.latency", "fixed:100ms")),
+            Distribution.ofSizes("fixed:1KB"),
+            0.0)) {
+      System.out.printf(
+          Locale.ROOT, "Java %s, upstream latency %s%n", Runtime.version(), stub.latency());
+      System.out.println("mode           rate    req/s   completed   p50 ms   p99 ms   threads");
+
+      long pinned = 0;
+      for (String mode : modes) {
+        mode = mode.trim();
+        boolean virtual = mode.equals("virtual");
+        if (virtual && Runtime.version().feature() < 21) {
+          System.out.printf(
+              Locale.ROOT, "%-12s skipped, needs Java 21 (running %s)%n", mode, Runtime.version());
+          continue;
+        }
+        String threadsMax = virtual ? "200" : mode.substring("platform:".length());
+
+        PinningRecorder pinning = virtual ? new PinningRecorder(pinningThreshold) : null;
+        ConfigurableApplicationContext app =
+            LoadTest.startApplication(
+                stub.uri(),
+                "webapi01.threads.virtual=" + virtual,
+                "server.tomcat.threads.max=" + threadsMax,
+                "webapi01.upstream.cache.enabled=false",
+                "webapi01.upstream.hedge.enabled=false",
+                "webapi01.upstream.max-connections-per-host=1000",
+                "webapi01.upstream.resilience.max-concurrent-calls=1000",
+                "webapi01.limiter.enabled=false",
+                "webapi01.warmup.enabled=false",
+                "logging.level.jp.co.metaease.web.ctrl=WARN");
+        try {
+          int port = ((WebServerApplicationContext) app).getWebServer().getPort();
+          URI target = URI.create("http://127.0.0.1:" + port + "/");
+          for (double rate : rates) {
+            OpenLoadGenerator generator =
+                new OpenLoadGenerator(target, Duration.ofSeconds(10), 2_000);
+            try {
+              generator.run(rate, warmup, true);
+              threads.resetPeakThreadCount();
+              OpenLoadGenerator.Result result = generator.run(rate, measured, true);
+              System.out.printf(
+                  Locale.ROOT,
+                  "%-12s %6.0f %8.1f %10.1f%% %8.1f %8.1f %9d%n",
+                  mode,
+                  rate,
+                  result.status(200) / (result.elapsedNanos / 1e9),
+                  result.status(200) * 100.0 / result.scheduled,
+                  result.latency.getValueAtPercentile(50) / 1e6,
+                  result.latency.getValueAtPercentile(99) / 1e6,
+                  threads.getPeakThreadCount());
+            } finally {
+              generator.shutdown();
+            }
+          }
+        } finally {
+          app.close();
+          if (pinning != null) {
+            pinned += pinning.report();
+          }
+        }
+      }
+
+      if (pinned > 0) {
+        throw new IllegalStateException(pinned + " pinned virtual thread events");
+      }
+    }
+    System.exit(0);
+  }
+
+  private static Duration duration(String key, String defaultValue) {
+    return DurationStyle.detectAndParse(System.getProperty(key, defaultValue));
+  }
+
+  /** Counts {@code jdk.VirtualThreadPinned} events by the innermost application frame. */
+  private static final class PinningRecorder {
+
+    private final RecordingStream stream = new RecordingStream();
+    private final AtomicLong events = new AtomicLong();
+    private final Map<String, AtomicLong> frames = new ConcurrentHashMap<>();
+
+    PinningRecorder(Duration threshold) {
+      stream.enable("jdk.VirtualThreadPinned").withThreshold(threshold).withStackTrace();
+      stream.onEvent(
+          "jdk.VirtualThreadPinned",
+          event -> {
+            events.incrementAndGet();
+            String frame = "(no stack trace)";
+            if (event.getStackTrace() != null) {
+              for (RecordedFrame f : event.getStackTrace().getFrames()) {
+                frame = f.getMethod().getType().getName() + "." + f.getMethod().getName();
+                // JDK 内部ではなく、固定の原因になったアプリケーション側のフレームを数える
+                if (!frame.startsWith("java.") && !frame.startsWith("jdk.")) {
+                  break;
+                }
+              }
+            }
+            frames.computeIfAbsent(frame, k -> new AtomicLong()).incrementAndGet();
+          });
+      stream.startAsync();
+    }
+
+    /** Stops recording, prints the events and returns their number. */
+    long report() throws InterruptedException {
+      // 記録済みのイベントが届くまで待つ（JFR の既定のフラッシュ間隔は 1 秒）
+      Thread.sleep(2_000);
+      stream.close();
+      System.out.printf(Locale.ROOT, "pinning      %d pinned event(s)%n", events.get());
+      frames.forEach(
+          (frame, count) ->
+              System.out.printf(Locale.ROOT, "pinning      %6d at %s%n", count.get(), frame));
+      return events.get();
+    }
+  }
+}
@@ -0,0 +1,205 @@
+package jp.co.metaease.web.loadtest;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Locale;
+import jp.co.metaease.web.upstream.UpstreamClient;
+import jp.co.metaease.web.upstream.UpstreamProperties;
+import jp.co.metaease.web.upstream.UpstreamResponse;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Multi-megabyte upstream bodies, read from a {@link StubUpstream} of 56-byte lines.
+ *
+ * <ol>
+ *   <li>Per body size, the three ways of reading the body: the original {@code readLine} and
+ *       {@code String} concatenation over {@code URL.openStream()} ({@code legacy}, quadratic, so
+ *       only run up to {@code loadtest.legacy-max}), {@link UpstreamResponse#readString()} and
+ *       {@link UpstreamResponse#transferTo} into a discarding stream. Prints milliseconds and
+ *       bytes allocated per body, over all threads of this JVM.
+ *   <li>{@code GET /upstream} of the application, sequentially, per body size: throughput and
+ *       bytes allocated per request.
+ *   <li>The size guard of {@code /upstream}, with {@code max-body-size} below the body: a declared
+ *       Content-Length gets a 502 before anything is committed, a chunked body aborts the
+ *       connection. Stops with an exception if either answers a 200 that the client reads to the
+ *       end.
+ * </ol>
+ *
+ * <pre>
+ * loadtest.sizes=1MB,4MB,16MB      body sizes
+ * loadtest.legacy-max=1MB          largest size read the legacy way
+ * loadtest.iterations=10           timed reads per size and way, after as many untimed ones
+ * </pre>
+ */
+public final class UpstreamBodyBenchmark {
+
+  /** Keeps the results alive so that the reads cannot be optimized away. */
+  private static volatile long sink;
+
+  private UpstreamBodyBenchmark() {}
+
+  public static void main(String[] args) throws Exception {
+    String[] sizes = System.getProperty("loadtest.sizes", "1MB,4MB,16MB").split(",");
+    long legacyMax = DataSize.parse(System.getProperty("loadtest.legacy-max", "1MB")).toBytes();
+    int iterations = Integer.getInteger("loadtest.iterations", 10);
+
+    try (StubUpstream stub =
+        StubUpstream.start(
+            Distribution.ofDurations("fixed:0ms"), Distribution.ofSizes("fixed:1MB"), 0.0)) {
+      UpstreamProperties properties = new UpstreamProperties();
+      properties.setUrl(stub.uri().toString());
+      properties.setReadTimeout(Duration.ofSeconds(60));
+      properties.setMaxBodySize(DataSize.ofMegabytes(256));
+      UpstreamClient client = new UpstreamClient(properties, null, new SimpleMeterRegistry());
+      URI uri = client.gatewayUri();
+
+      System.out.println("client     size     way          ms/body   MB/s   allocated/body");
+      for (String size : sizes) {
+        stub.setSize(Distribution.ofSizes("fixed:" + size.trim()));
+        long bytes = DataSize.parse(size.trim()).toBytes();
+        if (bytes <= legacyMax) {
+          measure("legacy", size, bytes, iterations, () -> legacy(uri));
+        }
+        measure("readString", size, bytes, iterations, () -> readString(client, uri));
+        measure("transferTo", size, bytes, iterations, () -> transferTo(client, uri));
+      }
+
+      ConfigurableApplicationContext app =
+          LoadTest.startApplication(
+              stub.uri(),
+              "webapi01.upstream.max-body-size=256MB",
+              "webapi01.upstream.read-timeout=60s",
+              "webapi01.limiter.enabled=false",
+              "webapi01.warmup.enabled=false");
+      try {
+        int port = ((WebServerApplicationContext) app).getWebServer().getPort();
+        URI passthrough = URI.create("http://127.0.0.1:" + port + "/upstream");
+        HttpClient http = HttpClient.newHttpClient();
+        System.out.println();
+        System.out.println("/upstream  size     ms/request   MB/s   allocated/request");
+        for (String size : sizes) {
+          stub.setSize(Distribution.ofSizes("fixed:" + size.trim()));
+          long bytes = DataSize.parse(size.trim()).toBytes();
+          measure("", size, bytes, iterations, () -> get(http, passthrough, bytes));
+        }
+
+        sizeGuard(app, stub, http, passthrough);
+      } finally {
+        app.close();
+      }
+    }
+  }
+
+  @FunctionalInterface
+  private interface Read {
+    long read() throws Exception;
+  }
+
+  private static void measure(String way, String size, long bytes, int iterations, Read read)
+      throws Exception {
+    for (int i = 0; i < iterations; i++) {
+      sink += read.read();
+    }
+    JvmStats before = JvmStats.snapshot();
+    long started = System.nanoTime();
+    for (int i = 0; i < iterations; i++) {
+      sink += read.read();
+    }
+    long elapsed = System.nanoTime() - started;
+    JvmStats after = JvmStats.snapshot();
+    double millis = elapsed / 1e6 / iterations;
+    System.out.printf(
+        Locale.ROOT,
+        "           %-8s %-10s %9.1f %6.0f %12.1f MB%n",
+        size.trim(),
+        way,
+        millis,
+        bytes / 1e6 / (millis / 1e3),
+        (after.allocatedBytes - before.allocatedBytes) / 1e6 / iterations);
+  }
+
+  /** The landing page's original read: one {@code String} concatenation per line. */
+  @SuppressWarnings("deprecation")
+  private static long legacy(URI uri) throws IOException {
+    BufferedReader in =
+        new BufferedReader(new InputStreamReader(uri.toURL().openStream()));
+    String inputLine;
+    String strRespApi = "";
+    while ((inputLine = in.readLine()) != null) {
+      strRespApi = strRespApi + String.valueOf(inputLine);
+    }
+    in.close();
+    return strRespApi.length();
+  }
+
+  private static long readString(UpstreamClient client, URI uri) throws IOException {
+    try (UpstreamResponse response = client.open(uri)) {
+      return response.readString().length();
+    }
+  }
+
+  private static long transferTo(UpstreamClient client, URI uri) throws IOException {
+    try (UpstreamResponse response = client.open(uri)) {
+      return response.transferTo(OutputStream.nullOutputStream());
+    }
+  }
+
+  private static long get(HttpClient http, URI uri, long expected) throws Exception {
+    HttpResponse<byte[]> response =
+        http.send(HttpRequest.newBuilder(uri).build(), HttpResponse.BodyHandlers.ofByteArray());
+    if (response.statusCode() != 200 || response.body().length != expected) {
+      throw new IllegalStateException(
+          "GET " + uri + ": HTTP " + response.statusCode() + ", " + response.body().length
+              + " bytes");
+    }
+    return response.body().length;
+  }
+
+  private static void sizeGuard(
+      ConfigurableApplicationContext app, StubUpstream stub, HttpClient http, URI uri)
+      throws Exception {
+    // 上限を下回る本文は 200、上回る本文は宣言の有無で 502 か切断になる
+    long max = DataSize.ofMegabytes(1).toBytes();
+    app.getBean(UpstreamClient.class).properties().setMaxBodySize(DataSize.ofBytes(max));
+    stub.setSize(Distribution.ofSizes("fixed:2MB"));
+    System.out.println();
+
+    HttpResponse<byte[]> declared =
+        http.send(HttpRequest.newBuilder(uri).build(), HttpResponse.BodyHandlers.ofByteArray());
+    System.out.printf(
+        Locale.ROOT,
+        "guard      2MB over a 1MB limit, Content-Length: HTTP %d, %d bytes%n",
+        declared.statusCode(),
+        declared.body().length);
+    if (declared.statusCode() != 502) {
+      throw new IllegalStateException("Oversize declared body answered " + declared.statusCode());
+    }
+
+    stub.setChunked(true);
+    try {
+      HttpResponse<byte[]> chunked =
+          http.send(HttpRequest.newBuilder(uri).build(), HttpResponse.BodyHandlers.ofByteArray());
+      throw new IllegalStateException(
+          "Oversize chunked body read to the end: HTTP "
+              + chunked.statusCode()
+              + ", "
+              + chunked.body().length
+              + " bytes");
+    } catch (IOException e) {
+      System.out.printf(
+          Locale.ROOT, "guard      2MB over a 1MB limit, chunked: client failed with %s%n", e);
+    } finally {
+      stub.setChunked(false);
+    }
+  }
+}
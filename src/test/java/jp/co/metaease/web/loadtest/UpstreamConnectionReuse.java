@@ -0,0 +1,119 @@
+package jp.co.metaease.web.loadtest;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import jp.co.metaease.web.upstream.UpstreamClient;
+import jp.co.metaease.web.upstream.UpstreamProperties;
+import jp.co.metaease.web.upstream.UpstreamResponse;
+
+/**
+ * Checks that {@link UpstreamClient} reuses its pooled connections, counting the TCP connections
+ * that reach a {@link StubUpstream}.
+ *
+ * <ol>
+ *   <li>Sequential calls share one connection.
+ *   <li>Concurrent callers open no more connections than {@code max-connections-per-host}, however
+ *       many calls they make.
+ *   <li>Only when {@code -Djdk.httpclient.keepalive.timeout} is set on the command line: after
+ *       idling past it, the next call opens a new connection, which shows that the flag reached
+ *       the JDK pool.
+ * </ol>
+ *
+ * Stops with an exception on the first check that fails.
+ *
+ * <pre>
+ * loadtest.calls=200          calls per phase
+ * loadtest.threads=16         callers of the concurrent phase
+ * </pre>
+ */
+public final class UpstreamConnectionReuse {
+
+  private UpstreamConnectionReuse() {}
+
+  public static void main(String[] args) throws Exception {
+    int calls = Integer.getInteger("loadtest.calls", 200);
+    int threads = Integer.getInteger("loadtest.threads", 16);
+    Integer keepAlive = Integer.getInteger("jdk.httpclient.keepalive.timeout");
+
+    try (StubUpstream stub =
+        StubUpstream.start(
+            Distribution.ofDurations("fixed:2ms"), Distribution.ofSizes("fixed:1KB"), 0.0)) {
+      UpstreamProperties properties = new UpstreamProperties();
+      properties.setUrl(stub.uri().toString());
+      UpstreamClient client = new UpstreamClient(properties, null, new SimpleMeterRegistry());
+      URI uri = client.gatewayUri();
+
+      for (int i = 0; i < calls; i++) {
+        call(client, uri);
+      }
+      check("sequential", calls, stub.connections(), 1);
+
+      int before = stub.connections();
+      ExecutorService callers = Executors.newFixedThreadPool(threads);
+      List<Future<?>> results = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        results.add(
+            callers.submit(
+                () -> {
+                  for (int i = 0; i < calls; i++) {
+                    call(client, uri);
+                  }
+                  return null;
+                }));
+      }
+      for (Future<?> result : results) {
+        result.get();
+      }
+      callers.shutdown();
+      check(
+          "concurrent",
+          threads * calls,
+          stub.connections() - before,
+          Math.min(threads, properties.getMaxConnectionsPerHost()));
+
+      if (keepAlive == null) {
+        System.out.println(
+            "idle       skipped, run with -Djdk.httpclient.keepalive.timeout=<seconds>");
+        return;
+      }
+      before = stub.connections();
+      Thread.sleep((keepAlive + 1) * 1000L);
+      call(client, uri);
+      int opened = stub.connections() - before;
+      System.out.printf(
+          Locale.ROOT,
+          "idle       %ds idle, next call opened %d connection(s)%n",
+          keepAlive + 1,
+          opened);
+      if (opened != 1) {
+        throw new IllegalStateException(
+            "jdk.httpclient.keepalive.timeout=" + keepAlive + " did not close idle connections");
+      }
+    }
+  }
+
+  private static void call(UpstreamClient client, URI uri) throws Exception {
+    try (UpstreamResponse response = client.open(uri)) {
+      response.readString();
+    }
+  }
+
+  private static void check(String phase, int calls, int connections, int max) {
+    System.out.printf(
+        Locale.ROOT,
+        "%-10s %d calls over %d connection(s), at most %d expected%n",
+        phase,
+        calls,
+        connections,
+        max);
+    if (connections > max) {
+      throw new IllegalStateException(phase + " calls opened " + connections + " connections");
+    }
+  }
+}
@@ -0,0 +1,282 @@
+package jp.co.metaease.web.loadtest;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import jp.co.metaease.web.upstream.UpstreamClient;
+import jp.co.metaease.web.upstream.UpstreamProperties;
+import jp.co.metaease.web.upstream.UpstreamResilience;
+import jp.co.metaease.web.upstream.UpstreamResponse;
+import jp.co.metaease.web.upstream.UpstreamUnavailableException;
+
+/**
+ * Fault injection for {@link UpstreamResilience}: real calls through {@link UpstreamClient} to a
+ * {@link StubUpstream} that is made to stall.
+ *
+ * <ol>
+ *   <li>Breaker opens: while the stub stalls past the read timeout, calls fail until the failure
+ *       rate opens the circuit; the next call is rejected at once and never reaches the stub.
+ *   <li>Half-open, failing: after {@code open-duration} a trial call against the still stalling
+ *       stub re-opens the circuit.
+ *   <li>Half-open recovery: once the stub answers again, {@code half-open-calls} trial calls close
+ *       the circuit and calls go through as before.
+ *   <li>Bulkhead: with {@code max-concurrent-calls} slow calls in flight, further blocking and
+ *       asynchronous calls are rejected at once and never reach the stub.
+ *   <li>Passthrough: bodies opened with {@link UpstreamResilience#open} hold their bulkhead permit
+ *       until they are closed, and bodies the stub cuts off halfway count as failures and open
+ *       the circuit.
+ * </ol>
+ *
+ * The circuit state is read from the {@code webapi01.upstream.circuit.state} gauge. Stops with an
+ * exception on the first check that fails.
+ */
+public final class UpstreamFaultInjection {
+
+  private static final Duration READ_TIMEOUT = Duration.ofMillis(300);
+  private static final Duration OPEN_DURATION = Duration.ofSeconds(1);
+
+  private UpstreamFaultInjection() {}
+
+  public static void main(String[] args) throws Exception {
+    try (StubUpstream stub =
+        StubUpstream.start(
+            Distribution.ofDurations("fixed:10ms"), Distribution.ofSizes("fixed:1KB"), 0.0)) {
+      UpstreamProperties properties = new UpstreamProperties();
+      properties.setUrl(stub.uri().toString());
+      properties.setReadTimeout(READ_TIMEOUT);
+      UpstreamProperties.Resilience settings = properties.getResilience();
+      settings.setSlidingWindowSize(10);
+      settings.setMinimumCalls(5);
+      settings.setFailureRateThreshold(50);
+      settings.setOpenDuration(OPEN_DURATION);
+      settings.setHalfOpenCalls(3);
+      settings.setMaxConcurrentCalls(4);
+      settings.setMaxWait(Duration.ZERO);
+      MeterRegistry registry = new SimpleMeterRegistry();
+      UpstreamClient client = new UpstreamClient(properties, null, registry);
+      UpstreamResilience resilience = new UpstreamResilience(settings, registry);
+      URI uri = client.gatewayUri();
+
+      breaker(stub, client, resilience, registry, uri);
+      bulkhead(stub, client, new UpstreamResilience(settings, new SimpleMeterRegistry()), uri);
+      passthrough(stub, client, settings, uri);
+    }
+  }
+
+  private static void breaker(
+      StubUpstream stub,
+      UpstreamClient client,
+      UpstreamResilience resilience,
+      MeterRegistry registry,
+      URI uri)
+      throws Exception {
+    for (int i = 0; i < 10; i++) {
+      call(client, resilience, uri);
+    }
+    check(state(registry, uri) == 0, "circuit not closed while the stub is healthy");
+
+    // 読み取りタイムアウトを超えて停止させ、失敗率で回路を開かせる
+    stub.setLatency(Distribution.ofDurations("fixed:5s"));
+    int failed = 0;
+    while (state(registry, uri) == 0) {
+      Outcome outcome = call(client, resilience, uri);
+      check(outcome.failure != null, "call succeeded against a stalled stub");
+      check(++failed <= 10, "circuit still closed after " + failed + " failures");
+    }
+    long requests = stub.requests();
+    Outcome rejected = call(client, resilience, uri);
+    System.out.printf(
+        Locale.ROOT,
+        "open       after %d timed-out calls; next call %s in %.1fms%n",
+        failed,
+        rejected.failure,
+        rejected.millis);
+    check(state(registry, uri) == 1, "circuit not open after " + failed + " failures");
+    check(rejected.failure instanceof UpstreamUnavailableException, "open circuit let a call out");
+    check(rejected.millis < 50, "open circuit took " + rejected.millis + "ms to reject");
+    check(stub.requests() == requests, "open circuit reached the stub");
+
+    Thread.sleep(OPEN_DURATION.toMillis() + 100);
+    Outcome trial = call(client, resilience, uri);
+    System.out.printf(
+        Locale.ROOT,
+        "half-open  trial against the stalled stub: %s, state %d%n",
+        trial.failure,
+        state(registry, uri));
+    check(
+        trial.failure != null && !(trial.failure instanceof UpstreamUnavailableException),
+        "half-open trial was not attempted");
+    check(state(registry, uri) == 1, "failed trial did not re-open the circuit");
+
+    stub.setLatency(Distribution.ofDurations("fixed:10ms"));
+    Thread.sleep(OPEN_DURATION.toMillis() + 100);
+    for (int i = 0; i < 3; i++) {
+      Outcome outcome = call(client, resilience, uri);
+      check(outcome.failure == null, "trial call " + (i + 1) + " failed: " + outcome.failure);
+    }
+    System.out.printf(
+        Locale.ROOT,
+        "half-open  3 successful trials against the recovered stub: state %d%n",
+        state(registry, uri));
+    check(state(registry, uri) == 0, "successful trials did not close the circuit");
+    for (int i = 0; i < 10; i++) {
+      Outcome outcome = call(client, resilience, uri);
+      check(outcome.failure == null, "call after recovery failed: " + outcome.failure);
+    }
+  }
+
+  private static void bulkhead(
+      StubUpstream stub, UpstreamClient client, UpstreamResilience resilience, URI uri)
+      throws Exception {
+    // 読み取りタイムアウトより短く、かつ確実に重なる遅延で上限まで埋める
+    stub.setLatency(Distribution.ofDurations("fixed:200ms"));
+    ExecutorService callers = Executors.newCachedThreadPool();
+    try {
+      List<Future<Outcome>> slow = new ArrayList<>();
+      for (int i = 0; i < 4; i++) {
+        slow.add(callers.submit(() -> call(client, resilience, uri)));
+      }
+      Thread.sleep(50);
+      long requests = stub.requests();
+      Outcome blocking = call(client, resilience, uri);
+      Outcome async = callAsync(client, resilience, uri);
+      System.out.printf(
+          Locale.ROOT,
+          "bulkhead   4 calls in flight; blocking %s in %.1fms, async %s in %.1fms%n",
+          blocking.failure,
+          blocking.millis,
+          async.failure,
+          async.millis);
+      check(
+          blocking.failure instanceof UpstreamUnavailableException, "full bulkhead let a call out");
+      check(async.failure instanceof UpstreamUnavailableException, "full bulkhead let async out");
+      check(blocking.millis < 50 && async.millis < 50, "full bulkhead did not fail fast");
+      check(stub.requests() == requests, "rejected calls reached the stub");
+      for (Future<Outcome> outcome : slow) {
+        Throwable failure = outcome.get().failure;
+        check(failure == null, "call in the bulkhead failed: " + failure);
+      }
+
+      Outcome after = call(client, resilience, uri);
+      check(after.failure == null, "call after the bulkhead drained failed: " + after.failure);
+      System.out.println("bulkhead   permits returned, next call went through");
+    } finally {
+      callers.shutdownNow();
+    }
+  }
+
+  private static void passthrough(
+      StubUpstream stub, UpstreamClient client, UpstreamProperties.Resilience settings, URI uri)
+      throws Exception {
+    MeterRegistry registry = new SimpleMeterRegistry();
+    UpstreamResilience resilience = new UpstreamResilience(settings, registry);
+    stub.setLatency(Distribution.ofDurations("fixed:10ms"));
+    // 本文を読み終えて閉じるまで、許可は返らない
+    List<UpstreamResponse> opened = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      opened.add(resilience.open(uri, () -> client.open(uri)));
+    }
+    Outcome blocked = passthrough(client, resilience, uri);
+    System.out.printf(Locale.ROOT, "passthrough 4 bodies open; next %s%n", blocked.failure);
+    check(
+        blocked.failure instanceof UpstreamUnavailableException,
+        "open bodies gave back their bulkhead permits");
+    for (UpstreamResponse response : opened) {
+      try (response) {
+        response.transferTo(OutputStream.nullOutputStream());
+      }
+    }
+    Outcome after = passthrough(client, resilience, uri);
+    check(after.failure == null, "passthrough after closing the bodies failed: " + after.failure);
+
+    // ヘッダーの後で本文を途中で切る
+    stub.setTruncated(true);
+    int failed = 0;
+    while (state(registry, uri) == 0) {
+      Outcome outcome = passthrough(client, resilience, uri);
+      check(
+          outcome.failure != null && !(outcome.failure instanceof UpstreamUnavailableException),
+          "cut-off body did not fail: " + outcome.failure);
+      check(++failed <= 10, "circuit still closed after " + failed + " cut-off bodies");
+    }
+    stub.setTruncated(false);
+    System.out.printf(Locale.ROOT, "passthrough circuit open after %d cut-off bodies%n", failed);
+  }
+
+  /** Outcome of one call: the failure, or {@code null}, and how long it took. */
+  private static final class Outcome {
+
+    final Throwable failure;
+    final double millis;
+
+    Outcome(Throwable failure, long started) {
+      this.failure = failure;
+      this.millis = (System.nanoTime() - started) / 1e6;
+    }
+  }
+
+  private static Outcome call(UpstreamClient client, UpstreamResilience resilience, URI uri) {
+    long started = System.nanoTime();
+    try {
+      resilience.call(
+          uri,
+          () -> {
+            try (UpstreamResponse response = client.open(uri)) {
+              return response.readString();
+            }
+          });
+      return new Outcome(null, started);
+    } catch (IOException | RuntimeException e) {
+      return new Outcome(e, started);
+    }
+  }
+
+  private static Outcome passthrough(
+      UpstreamClient client, UpstreamResilience resilience, URI uri) {
+    long started = System.nanoTime();
+    try (UpstreamResponse response = resilience.open(uri, () -> client.open(uri))) {
+      response.transferTo(OutputStream.nullOutputStream());
+      return new Outcome(null, started);
+    } catch (IOException | RuntimeException e) {
+      return new Outcome(e, started);
+    }
+  }
+
+  private static Outcome callAsync(UpstreamClient client, UpstreamResilience resilience, URI uri) {
+    long started = System.nanoTime();
+    CompletableFuture<String> future =
+        resilience.callAsync(uri, () -> client.readStringAsync(uri));
+    try {
+      future.join();
+      return new Outcome(null, started);
+    } catch (CompletionException e) {
+      return new Outcome(e.getCause(), started);
+    }
+  }
+
+  private static int state(MeterRegistry registry, URI uri) {
+    return (int)
+        registry
+            .get("webapi01.upstream.circuit.state")
+            .tag("upstream", uri.getHost())
+            .gauge()
+            .value();
+  }
+
+  private static void check(boolean condition, String message) {
+    if (!condition) {
+      throw new IllegalStateException(message);
+    }
+  }
+}
@@ -0,0 +1,108 @@
+package jp.co.metaease.web.loadtest;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Locale;
+import jp.co.metaease.web.warmup.JitWarmup;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Latency of the first requests of a freshly started application, to compare a start with the
+ * {@link JitWarmup} (default) against one without it ({@code
+ * -Dloadtest.app.webapi01.warmup.enabled=false}). Use a new JVM per mode.
+ *
+ * <p>Sends {@code loadtest.requests} sequential requests, cycling through {@code zen2han}, {@code
+ * katakana} and {@code zenkakuKana2Chk} on long form values, and prints the time until the
+ * application was ready and p50/p99/max per window of requests.
+ *
+ * <pre>
+ * loadtest.requests=6000         requests after the start
+ * loadtest.windows=500,2000      ends of the first windows; the last one runs to the end
+ * </pre>
+ */
+public final class WarmupLatency {
+
+  private static final String[] PATHS = {
+    "/api/text/zen2han?value=", "/api/text/katakana?value=", "/api/check/zenkakuKana2Chk?value="
+  };
+
+  private static final String[] VALUES = {
+    "ﾔﾏﾀﾞ ﾀﾛｳ　ＡＢＣ１２３　ﾃﾞｰﾀﾍﾞｰｽ ｶﾞｯｺｳ ﾊﾟｿｺﾝ ｼﾞｭﾝｲﾁ ﾎﾟｲﾝﾄ ｷｬﾝﾍﾟｰﾝ ｵｰﾌﾟﾝ ﾔﾏﾀﾞ ﾀﾛｳ ﾃﾞｰﾀﾍﾞｰｽ",
+    "ヤマダ　タロウ　データベース　ガッコウ　パソコン　ジュンイチ　ポイント　キャンペーン　オープン",
+    "０３－１２３４－５６７８　ＭＥＴＡＥＡＳＥ　Ｉｎｃ．　ｶﾌﾞｼｷｶﾞｲｼｬ ﾒﾀｲｰｽﾞ ｳﾞｧｲｵﾘﾝ ｷｮｳｼﾂ"
+  };
+
+  private WarmupLatency() {}
+
+  public static void main(String[] args) throws Exception {
+    int requests = Integer.getInteger("loadtest.requests", 6000);
+    int[] windows =
+        Arrays.stream(System.getProperty("loadtest.windows", "500,2000").split(","))
+            .mapToInt(w -> Integer.parseInt(w.trim()))
+            .toArray();
+
+    try (StubUpstream stub =
+        StubUpstream.start(
+            Distribution.ofDurations("fixed:1ms"), Distribution.ofSizes("fixed:1KB"), 0.0)) {
+      long started = System.nanoTime();
+      ConfigurableApplicationContext app =
+          LoadTest.startApplication(stub.uri(), "webapi01.limiter.enabled=false");
+      long ready = (System.nanoTime() - started) / 1_000_000;
+      int port = ((WebServerApplicationContext) app).getWebServer().getPort();
+      URI base = URI.create("http://127.0.0.1:" + port);
+      HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+      try {
+        long[] latencies = new long[requests];
+        for (int i = 0; i < requests; i++) {
+          URI uri =
+              base.resolve(
+                  PATHS[i % PATHS.length]
+                      + URLEncoder.encode(VALUES[i % VALUES.length], StandardCharsets.UTF_8));
+          long sent = System.nanoTime();
+          HttpResponse<Void> response =
+              client.send(
+                  HttpRequest.newBuilder(uri).build(), HttpResponse.BodyHandlers.discarding());
+          latencies[i] = System.nanoTime() - sent;
+          if (response.statusCode() != 200) {
+            throw new IllegalStateException("GET " + uri + " answered " + response.statusCode());
+          }
+        }
+
+        System.out.printf(
+            Locale.ROOT,
+            "warm-up=%s ready=%dms%n",
+            app.getEnvironment().getProperty("webapi01.warmup.enabled", "true"),
+            ready);
+        int from = 0;
+        for (int i = 0; i <= windows.length; i++) {
+          int to = i < windows.length ? Math.min(windows[i], requests) : requests;
+          if (to > from) {
+            report(from, to, Arrays.copyOfRange(latencies, from, to));
+          }
+          from = to;
+        }
+      } finally {
+        app.close();
+      }
+    }
+  }
+
+  private static void report(int from, int to, long[] latencies) {
+    Arrays.sort(latencies);
+    System.out.printf(
+        Locale.ROOT,
+        "requests %5d-%-5d p50=%6.2fms p99=%6.2fms max=%7.2fms%n",
+        from,
+        to,
+        latencies[latencies.length / 2] / 1e6,
+        latencies[(int) (latencies.length * 0.99)] / 1e6,
+        latencies[latencies.length - 1] / 1e6);
+  }
+}
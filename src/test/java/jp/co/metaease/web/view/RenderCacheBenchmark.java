@@ -0,0 +1,157 @@
+package jp.co.metaease.web.view;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintWriter;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.View;
+import org.springframework.web.util.HtmlUtils;
+
+/**
+ * Compares rendering the landing page on every request with serving it from the {@link
+ * RenderCache}, for a plain and a gzip-accepting client.
+ *
+ * <p>Run with {@code java -cp <test classpath> jp.co.metaease.web.view.RenderCacheBenchmark
+ * [messageChars]}. Each case is warmed up first, then measured over several iterations; the
+ * reported figure is the mean time per render.
+ */
+public class RenderCacheBenchmark {
+
+  private static final int WARMUP_ITERATIONS = 5;
+  private static final int MEASURED_ITERATIONS = 10;
+  private static final long ITERATION_NANOS = 1_000_000_000L;
+
+  private static long sink;
+
+  public static void main(String[] args) throws Exception {
+    int messageChars = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+    Map<String, Object> model = new LinkedHashMap<>();
+    model.put("revision", "webapi01-00042-abc");
+    model.put("service", "webapi01");
+    model.put("message", "メッセージです。" + "本日のお知らせ".repeat(messageChars / 7 + 1));
+
+    View template = new TemplateStandIn();
+    ViewCacheProperties settings = new ViewCacheProperties();
+    RenderCache cache = new RenderCache(settings, new SimpleMeterRegistry());
+    View cached = new CachedRenderView(template, "index", Locale.JAPAN, cache);
+
+    run("uncached", template, model, null);
+    run("cached", cached, model, null);
+    run("cached+gzip", cached, model, "gzip, deflate, br");
+  }
+
+  private static void run(String name, View view, Map<String, Object> model, String acceptEncoding)
+      throws Exception {
+    for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+      iteration(view, model, acceptEncoding);
+    }
+    double total = 0;
+    double best = Double.MAX_VALUE;
+    for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+      double nanosPerOp = iteration(view, model, acceptEncoding);
+      total += nanosPerOp;
+      best = Math.min(best, nanosPerOp);
+    }
+    System.out.printf(
+        Locale.ROOT,
+        "%-12s mean %10.1f ns/op   best %10.1f ns/op%n",
+        name,
+        total / MEASURED_ITERATIONS,
+        best);
+  }
+
+  private static double iteration(View view, Map<String, Object> model, String acceptEncoding)
+      throws Exception {
+    long ops = 0;
+    long start = System.nanoTime();
+    long elapsed;
+    do {
+      MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+      if (acceptEncoding != null) {
+        request.addHeader("Accept-Encoding", acceptEncoding);
+      }
+      SinkResponse response = new SinkResponse();
+      view.render(model, request, response);
+      sink += response.written();
+      ops++;
+      elapsed = System.nanoTime() - start;
+    } while (elapsed < ITERATION_NANOS);
+    return (double) elapsed / ops;
+  }
+
+  /**
+   * Mock response whose output stream copies arrays in bulk, as the container's does; the mock's
+   * own stream copies byte by byte and would dominate the cached case.
+   */
+  private static final class SinkResponse extends MockHttpServletResponse {
+
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream(8192);
+    private final ServletOutputStream out =
+        new ServletOutputStream() {
+          @Override
+          public void write(int b) {
+            bytes.write(b);
+          }
+
+          @Override
+          public void write(byte[] b, int off, int len) {
+            bytes.write(b, off, len);
+          }
+
+          @Override
+          public boolean isReady() {
+            return true;
+          }
+
+          @Override
+          public void setWriteListener(WriteListener listener) {}
+        };
+
+    @Override
+    public ServletOutputStream getOutputStream() {
+      return out;
+    }
+
+    int written() {
+      return bytes.size() + getContentAsByteArray().length;
+    }
+  }
+
+  /**
+   * Renders the landing page the way the index template does: a fixed layout with the escaped
+   * model values inserted. Stands in for the template engine, which is not on the classpath here.
+   */
+  private static final class TemplateStandIn implements View {
+
+    @Override
+    public String getContentType() {
+      return "text/html;charset=UTF-8";
+    }
+
+    @Override
+    public void render(
+        Map<String, ?> model, HttpServletRequest request, HttpServletResponse response)
+        throws Exception {
+      response.setContentType(getContentType());
+      PrintWriter out = response.getWriter();
+      out.write("<!DOCTYPE html>\n<html lang=\"ja\">\n<head>\n<meta charset=\"UTF-8\">\n");
+      out.write("<title>WebAPI01</title>\n</head>\n<body>\n<main>\n<h1>WebAPI01</h1>\n");
+      out.write("<p>Revision: <span>");
+      out.write(HtmlUtils.htmlEscape(String.valueOf(model.get("revision"))));
+      out.write("</span></p>\n<p>Service: <span>");
+      out.write(HtmlUtils.htmlEscape(String.valueOf(model.get("service"))));
+      out.write("</span></p>\n<p class=\"message\">");
+      out.write(HtmlUtils.htmlEscape(String.valueOf(model.get("message"))));
+      out.write("</p>\n</main>\n</body>\n</html>\n");
+      out.flush();
+    }
+  }
+}